@@ -0,0 +1,192 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.livedata;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.xwiki.benchmarks.oldcore.AbstractOldcoreBenchmark;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.livedata.LiveData;
+import org.xwiki.livedata.LiveDataEntryStore;
+import org.xwiki.livedata.LiveDataException;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.livedata.internal.livetable.LiveTableLiveDataEntryStore;
+import org.xwiki.livedata.internal.livetable.LiveTableLiveDataResultsRenderer;
+import org.xwiki.livedata.internal.livetable.LiveTableLiveDataRowBuilder;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryFilter;
+import org.xwiki.query.QueryManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.annotation.AllComponents;
+import org.xwiki.user.UserProperties;
+import org.xwiki.user.UserPropertiesResolver;
+import org.xwiki.user.UserReference;
+import org.xwiki.user.UserReferenceSerializer;
+import org.xwiki.user.UserType;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Compare a page of the {@code liveTable} live data source computed natively (see
+ * {@code LiveTableLiveDataNativeResults}) with the same page computed from the JSON returned by the live table results
+ * page.
+ * <p>
+ * The results page is not rendered: it returns JSON prepared in advance from the native rows. The measure of the
+ * results page is thus only the JSON parsing and the conversion of the rows, the Velocity rendering of
+ * {@code XWiki.LiveTableResults} (the biggest part of its cost on a running instance) comes on top of it.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@AllComponents
+public class LiveTableResultsBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final int DOCUMENTS = 15;
+
+    private static final List<String> PROPERTIES =
+        Arrays.asList("doc.title", "doc.name", "doc.date", "doc.author", "doc.creationDate", "doc.hidden");
+
+    /**
+     * {@code true} to compute the results natively, {@code false} to go through the live table results page.
+     */
+    @Param({ "true", "false" })
+    public boolean nativeResults;
+
+    private LiveDataEntryStore entryStore;
+
+    private LiveDataQuery query;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        this.oldcore.getConfigurationSource().setProperty("livedata.livetable.native", this.nativeResults);
+
+        List<Object> fullNames = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTS; ++i) {
+            XWikiDocument document = new XWikiDocument(new DocumentReference("xwiki", "Space", "Page" + i));
+            document.setTitle("Page " + i);
+            this.oldcore.getSpyXWiki().saveDocument(document, getXWikiContext());
+            fullNames.add("Space.Page" + i);
+        }
+
+        mockQueries(fullNames);
+        mockUsers();
+        when(this.oldcore.getMockContextualAuthorizationManager().hasAccess(any(Right.class),
+            any(EntityReference.class))).thenReturn(true);
+
+        // Prepare what the live table results page would return for the same documents.
+        LiveTableLiveDataRowBuilder rowBuilder = this.componentManager.getInstance(LiveTableLiveDataRowBuilder.class);
+        String json = toLiveTableResultsJSON(rowBuilder.getRows(fullNames, PROPERTIES, "", null, ""));
+        LiveTableLiveDataResultsRenderer resultsRenderer =
+            mock(LiveTableLiveDataResultsRenderer.class, withSettings().stubOnly());
+        when(resultsRenderer.getLiveTableResultsFromPage(any(), any())).thenReturn(json);
+        this.componentManager.registerComponent(LiveTableLiveDataResultsRenderer.class, resultsRenderer);
+
+        this.entryStore =
+            this.componentManager.getInstance(LiveDataEntryStore.class, LiveTableLiveDataEntryStore.ROLE_HINT);
+
+        this.query = new LiveDataQuery();
+        this.query.initialize();
+        this.query.setProperties(PROPERTIES);
+        this.query.setOffset(0L);
+        this.query.setLimit(DOCUMENTS);
+    }
+
+    private void mockQueries(List<Object> fullNames) throws Exception
+    {
+        Query resultsQuery = mock(Query.class, withSettings().stubOnly());
+        when(resultsQuery.execute()).thenReturn(fullNames);
+        Query countQuery = mock(Query.class, withSettings().stubOnly());
+        when(countQuery.execute()).thenReturn(Collections.singletonList((long) DOCUMENTS));
+
+        // The count query is created from the statement and the language of the (mocked) query.
+        QueryManager queryManager = mock(QueryManager.class, withSettings().stubOnly());
+        when(queryManager.createQuery(any(), any()))
+            .then(invocation -> Query.HQL.equals(invocation.getArgument(1)) ? resultsQuery : countQuery);
+        this.componentManager.registerComponent(QueryManager.class, queryManager);
+        this.componentManager.registerComponent(QueryFilter.class, "count",
+            mock(QueryFilter.class, withSettings().stubOnly()));
+    }
+
+    private void mockUsers() throws Exception
+    {
+        if (!this.componentManager.hasComponent(UserPropertiesResolver.class, "all")) {
+            UserProperties userProperties = mock(UserProperties.class, withSettings().stubOnly());
+            when(userProperties.getType()).thenReturn(UserType.SIMPLE);
+            UserPropertiesResolver userPropertiesResolver =
+                mock(UserPropertiesResolver.class, withSettings().stubOnly());
+            when(userPropertiesResolver.resolve(any(UserReference.class))).thenReturn(userProperties);
+            this.componentManager.registerComponent(UserPropertiesResolver.class, "all", userPropertiesResolver);
+        }
+
+        DefaultParameterizedType userReferenceSerializerType =
+            new DefaultParameterizedType(null, UserReferenceSerializer.class, DocumentReference.class);
+        if (!this.componentManager.hasComponent(userReferenceSerializerType, "document")) {
+            this.componentManager.registerComponent(userReferenceSerializerType, "document",
+                mock(UserReferenceSerializer.class, withSettings().stubOnly()));
+        }
+    }
+
+    private String toLiveTableResultsJSON(List<Map<String, Object>> rows) throws Exception
+    {
+        // The live table results page names the document properties doc_* instead of doc.*
+        List<Map<String, Object>> liveTableRows = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            Map<String, Object> liveTableRow = new HashMap<>();
+            row.forEach((key, value) -> liveTableRow.put(key.replaceFirst("^doc\\.", "doc_"), value));
+            liveTableRows.add(liveTableRow);
+        }
+
+        Map<String, Object> results = new HashMap<>();
+        results.put("totalrows", DOCUMENTS);
+        results.put("returnedrows", DOCUMENTS);
+        results.put("offset", 1);
+        results.put("rows", liveTableRows);
+
+        return new ObjectMapper().writeValueAsString(results);
+    }
+
+    /**
+     * @return a page of live data entries
+     * @throws LiveDataException when failing to compute the entries
+     */
+    @Benchmark
+    public LiveData getEntries() throws LiveDataException
+    {
+        return this.entryStore.get(this.query);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.oldcore;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.test.MockitoOldcore;
+
+/**
+ * Base class for the benchmarks running on top of the oldcore mocks. Extending classes must be annotated with
+ * {@code @State} and with the annotation indicating which components to register (usually
+ * {@code @AllComponents}).
+ *
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class AbstractOldcoreBenchmark
+{
+    protected MockitoComponentManager componentManager;
+
+    protected MockitoOldcore oldcore;
+
+    /**
+     * Initialize the oldcore mocks.
+     *
+     * @throws Exception when failing to initialize the environment
+     */
+    @Setup
+    public void setUpOldcore() throws Exception
+    {
+        this.componentManager = new MockitoComponentManager();
+        this.oldcore = new MockitoOldcore(this.componentManager);
+
+        this.componentManager.initializeTest(this, this.componentManager, this.oldcore);
+        this.oldcore.before(getClass());
+
+        setUp();
+    }
+
+    /**
+     * Forget the invocations recorded by the oldcore mocks so that they don't pile up in memory during the benchmark.
+     */
+    @TearDown(Level.Iteration)
+    public void clearOldcoreInvocations()
+    {
+        Stream.of(this.oldcore.getSpyXWiki(), this.oldcore.getMockStore(), this.oldcore.getMockVersioningStore(),
+            this.oldcore.getMockRightService(), this.oldcore.getMockAuthService(), this.oldcore.getMockGroupService(),
+            this.oldcore.getMockAuthorizationManager(), this.oldcore.getMockContextualAuthorizationManager())
+            .filter(Objects::nonNull).forEach(Mockito::clearInvocations);
+    }
+
+    /**
+     * Release the oldcore mocks.
+     *
+     * @throws Exception when failing to release the environment
+     */
+    @TearDown
+    public void tearDownOldcore() throws Exception
+    {
+        this.oldcore.after();
+    }
+
+    /**
+     * Prepare the benchmark, called once the oldcore mocks are ready.
+     *
+     * @throws Exception when failing to prepare the benchmark
+     */
+    protected abstract void setUp() throws Exception;
+
+    protected XWikiContext getXWikiContext()
+    {
+        return this.oldcore.getXWikiContext();
+    }
+}
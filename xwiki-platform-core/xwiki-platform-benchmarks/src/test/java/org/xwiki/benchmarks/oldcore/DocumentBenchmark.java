@@ -0,0 +1,117 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.oldcore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.annotation.AllComponents;
+
+import com.xpn.xwiki.api.Document;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Measure the most common in-memory operations on a {@link XWikiDocument} with some content and objects.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@AllComponents
+public class DocumentBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final int OBJECTS = 20;
+
+    private static final int SECTIONS = 50;
+
+    private XWikiDocument document;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        DocumentReference classReference = new DocumentReference("xwiki", "Space", "BenchmarkClass");
+        XWikiDocument classDocument = new XWikiDocument(classReference);
+        classDocument.getXClass().addTextField("title", "Title", 30);
+        classDocument.getXClass().addTextAreaField("description", "Description", 40, 5);
+        classDocument.getXClass().addNumberField("number", "Number", 10, "integer");
+        this.oldcore.getSpyXWiki().saveDocument(classDocument, getXWikiContext());
+
+        this.document = new XWikiDocument(new DocumentReference("xwiki", "Space", "Page"));
+        this.document.setSyntax(Syntax.XWIKI_2_1);
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < SECTIONS; ++i) {
+            content.append("== Section ").append(i).append(" ==\n\n");
+            content.append("Some **bold** and //italic// text with a [[link>>Space.Page").append(i).append("]].\n\n");
+            content.append("* item 1\n* item 2\n** nested item\n\n");
+            content.append("|=Header 1|=Header 2\n|cell 1|cell 2\n\n");
+        }
+        this.document.setContent(content.toString());
+
+        for (int i = 0; i < OBJECTS; ++i) {
+            BaseObject object = this.document.newXObject(classReference, getXWikiContext());
+            object.setStringValue("title", "Title " + i);
+            object.setLargeStringValue("description", "Description of the object number " + i);
+            object.setIntValue("number", i);
+        }
+
+        this.document.setOriginalDocument(this.document.clone());
+    }
+
+    /**
+     * @return the cloned document
+     */
+    @Benchmark
+    public XWikiDocument cloneDocument()
+    {
+        return this.document.clone();
+    }
+
+    /**
+     * Read all the objects of the document through the script API, the way most sheets do.
+     *
+     * @return the values read from the objects
+     */
+    @Benchmark
+    public int readObjectsFromScriptAPI()
+    {
+        Document apiDocument = this.document.newDocument(getXWikiContext());
+
+        int total = 0;
+        for (com.xpn.xwiki.api.Object object : apiDocument.getObjects("Space.BenchmarkClass")) {
+            total += ((String) object.getValue("title")).length();
+            total += (Integer) object.getValue("number");
+        }
+
+        return total;
+    }
+
+    /**
+     * @return the XDOM of the document
+     */
+    @Benchmark
+    public XDOM getXDOM()
+    {
+        return this.document.getXDOM();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.oldcore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.remote.RemoteObservationManagerContext;
+import org.xwiki.test.annotation.AllComponents;
+
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.store.XWikiCacheStore;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Measure loading a document which is already in the {@link XWikiCacheStore} cache.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@AllComponents
+public class DocumentCacheStoreBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final DocumentReference REFERENCE = new DocumentReference("xwiki", "Space", "Page");
+
+    private XWikiCacheStore store;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        if (!this.componentManager.hasComponent(RemoteObservationManagerContext.class)) {
+            this.componentManager.registerComponent(RemoteObservationManagerContext.class,
+                mock(RemoteObservationManagerContext.class, withSettings().stubOnly()));
+        }
+        if (!this.componentManager.hasComponent(ObservationManager.class)) {
+            this.componentManager.registerComponent(ObservationManager.class,
+                mock(ObservationManager.class, withSettings().stubOnly()));
+        }
+
+        this.oldcore.getSpyXWiki().saveDocument(new XWikiDocument(REFERENCE), getXWikiContext());
+
+        // The store mock is only called once to fill the cache
+        this.store = new XWikiCacheStore(this.oldcore.getMockStore(), getXWikiContext());
+
+        // Put the document in the cache
+        this.store.loadXWikiDoc(new XWikiDocument(REFERENCE), getXWikiContext());
+    }
+
+    /**
+     * @return the document loaded from the cache
+     * @throws XWikiException when failing to load the document
+     */
+    @Benchmark
+    public XWikiDocument loadCachedDocument() throws XWikiException
+    {
+        return this.store.loadXWikiDoc(new XWikiDocument(REFERENCE), getXWikiContext());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.oldcore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.remote.LocalEventData;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.RemoteObservationManagerContext;
+import org.xwiki.observation.remote.converter.EventConverterManager;
+import org.xwiki.test.annotation.AllComponents;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.observation.remote.converter.DocumentBinaryEventConverter;
+import com.xpn.xwiki.internal.observation.remote.converter.DocumentEventConverter;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Compare the encoding of a document event sent to the other members of the cluster with
+ * {@link DocumentBinaryEventConverter} and with the Java serialization of what {@link DocumentEventConverter}
+ * produces. The encoding includes the Java serialization of the {@link RemoteEventData} done by the network channel.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@AllComponents
+public class DocumentEventConverterBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final DocumentReference REFERENCE = new DocumentReference("xwiki", "Space", "Page");
+
+    /**
+     * {@code true} to encode the event with {@link DocumentBinaryEventConverter}, {@code false} to rely on the Java
+     * serialization.
+     */
+    @Param({ "true", "false" })
+    public boolean binary;
+
+    private EventConverterManager converterManager;
+
+    private LocalEventData localEvent;
+
+    private byte[] payload;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        if (!this.componentManager.hasComponent(RemoteObservationManagerContext.class)) {
+            this.componentManager.registerComponent(RemoteObservationManagerContext.class,
+                mock(RemoteObservationManagerContext.class, withSettings().stubOnly()));
+        }
+        if (!this.componentManager.hasComponent(ObservationManager.class)) {
+            this.componentManager.registerComponent(ObservationManager.class,
+                mock(ObservationManager.class, withSettings().stubOnly()));
+        }
+
+        this.oldcore.getConfigurationSource().setProperty("observation.remote.binaryEvents", this.binary);
+
+        XWikiContext xcontext = getXWikiContext();
+        xcontext.setUser("XWiki.user");
+
+        XWikiDocument document = new XWikiDocument(REFERENCE);
+        document.setContent("content");
+        this.oldcore.getSpyXWiki().saveDocument(document, xcontext);
+
+        this.localEvent = new LocalEventData();
+        this.localEvent.setEvent(new DocumentUpdatedEvent(REFERENCE));
+        this.localEvent.setSource(this.oldcore.getSpyXWiki().getDocument(REFERENCE, xcontext));
+        this.localEvent.setData(xcontext);
+
+        this.converterManager = this.componentManager.getInstance(EventConverterManager.class);
+
+        this.payload = encode();
+    }
+
+    /**
+     * @return the event as it's sent on the network
+     * @throws IOException when failing to serialize the event
+     */
+    @Benchmark
+    public byte[] encode() throws IOException
+    {
+        RemoteEventData remoteEvent = this.converterManager.createRemoteEventData(this.localEvent);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(stream)) {
+            output.writeObject(remoteEvent);
+        }
+
+        return stream.toByteArray();
+    }
+
+    /**
+     * @return the event rebuilt from what is received from the network
+     * @throws IOException when failing to unserialize the event
+     * @throws ClassNotFoundException when failing to unserialize the event
+     */
+    @Benchmark
+    public LocalEventData decode() throws IOException, ClassNotFoundException
+    {
+        RemoteEventData remoteEvent;
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(this.payload))) {
+            remoteEvent = (RemoteEventData) input.readObject();
+        }
+
+        return this.converterManager.createLocalEventData(remoteEvent);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.oldcore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.test.annotation.AllComponents;
+
+/**
+ * Measure the serialization and the resolution of document references.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@AllComponents
+public class EntityReferenceBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final DocumentReference REFERENCE = new DocumentReference("Page.With.Dots",
+        new SpaceReference("xwiki", "Space", "Nested Space", "Last\\Space"));
+
+    private EntityReferenceSerializer<String> serializer;
+
+    private DocumentReferenceResolver<String> resolver;
+
+    private String serializedReference;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        this.serializer = this.componentManager.getInstance(EntityReferenceSerializer.TYPE_STRING);
+        this.resolver = this.componentManager.getInstance(DocumentReferenceResolver.TYPE_STRING);
+
+        this.serializedReference = this.serializer.serialize(REFERENCE);
+    }
+
+    /**
+     * @return the serialized reference
+     */
+    @Benchmark
+    public String serialize()
+    {
+        return this.serializer.serialize(REFERENCE);
+    }
+
+    /**
+     * @return the resolved reference
+     */
+    @Benchmark
+    public DocumentReference resolve()
+    {
+        return this.resolver.resolve(this.serializedReference);
+    }
+
+    /**
+     * @return the reference after being serialized and resolved again
+     */
+    @Benchmark
+    public DocumentReference roundTrip()
+    {
+        return this.resolver.resolve(this.serializer.serialize(REFERENCE));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.oldcore;
+
+import java.util.Collections;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.annotation.AllComponents;
+
+import com.xpn.xwiki.internal.cache.rendering.DefaultRenderingCache;
+import com.xpn.xwiki.internal.cache.rendering.RenderingCache;
+
+/**
+ * Measure {@link DefaultRenderingCache} lookups.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@AllComponents
+public class RenderingCacheBenchmark extends AbstractOldcoreBenchmark
+{
+    private static final DocumentReference REFERENCE = new DocumentReference("xwiki", "Space", "Page");
+
+    private static final String SOURCE = "{{velocity}}$doc.title{{/velocity}}";
+
+    private RenderingCache renderingCache;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        this.oldcore.getConfigurationSource().setProperty("core.renderingcache.enabled", true);
+        this.oldcore.getConfigurationSource().setProperty("core.renderingcache.documents",
+            Collections.singletonList(".*"));
+
+        this.renderingCache = this.componentManager.getInstance(RenderingCache.class);
+
+        this.renderingCache.setRenderedContent(REFERENCE, SOURCE, "<p>Title</p>", getXWikiContext());
+    }
+
+    /**
+     * @return the cached content
+     */
+    @Benchmark
+    public String hit()
+    {
+        return this.renderingCache.getRenderedContent(REFERENCE, SOURCE, getXWikiContext());
+    }
+
+    /**
+     * @return nothing since there is nothing in the cache for this source
+     */
+    @Benchmark
+    public String miss()
+    {
+        return this.renderingCache.getRenderedContent(REFERENCE, "other source", getXWikiContext());
+    }
+}
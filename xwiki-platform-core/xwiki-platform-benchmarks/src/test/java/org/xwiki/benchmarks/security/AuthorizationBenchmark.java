@@ -0,0 +1,274 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.benchmarks.security;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.model.internal.reference.DefaultStringEntityReferenceSerializer;
+import org.xwiki.model.internal.reference.DefaultSymbolScheme;
+import org.xwiki.model.internal.reference.EntityReferenceFactory;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.DefaultSecurityReferenceFactory;
+import org.xwiki.security.SecurityReference;
+import org.xwiki.security.SecurityReferenceFactory;
+import org.xwiki.security.UserSecurityReference;
+import org.xwiki.security.authorization.AccessDeniedException;
+import org.xwiki.security.authorization.AuthorizationManager;
+import org.xwiki.security.authorization.DefaultAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.security.authorization.SecurityAccess;
+import org.xwiki.security.authorization.SecurityRule;
+import org.xwiki.security.authorization.cache.ConflictingInsertionException;
+import org.xwiki.security.authorization.cache.ParentEntryEvictedException;
+import org.xwiki.security.authorization.cache.SecurityCache;
+import org.xwiki.security.authorization.cache.SecurityCacheLoader;
+import org.xwiki.security.authorization.cache.internal.DefaultSecurityCache;
+import org.xwiki.security.authorization.internal.AbstractSecurityAccessEntry;
+import org.xwiki.security.authorization.internal.AbstractSecurityRuleEntry;
+import org.xwiki.security.authorization.internal.XWikiSecurityAccess;
+import org.xwiki.security.internal.XWikiBridge;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Measure {@link DefaultAuthorizationManager} access checks served from a warm {@link DefaultSecurityCache}, alone
+ * and while the rules of the checked document are continuously invalidated and reloaded.
+ *
+ * @version $Id$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@ComponentList({DefaultAuthorizationManager.class, DefaultSecurityCache.class, DefaultSecurityReferenceFactory.class,
+    DefaultStringEntityReferenceSerializer.class, DefaultSymbolScheme.class, EntityReferenceFactory.class})
+public class AuthorizationBenchmark
+{
+    private static final WikiReference WIKI = new WikiReference("xwiki");
+
+    private static final DocumentReference USER = new DocumentReference("User", new SpaceReference("XWiki", WIKI));
+
+    private static final DocumentReference DOCUMENT = new DocumentReference("Page", new SpaceReference("Space", WIKI));
+
+    private final MockitoComponentManager componentManager = new MockitoComponentManager();
+
+    private AuthorizationManager authorizationManager;
+
+    private SecurityCache securityCache;
+
+    private SecurityReferenceFactory referenceFactory;
+
+    private UserSecurityReference userReference;
+
+    private SecurityReference documentReference;
+
+    private Collection<SecurityRule> documentRules;
+
+    private static final class RuleEntry extends AbstractSecurityRuleEntry
+    {
+        private final SecurityReference reference;
+
+        private final Collection<SecurityRule> rules;
+
+        RuleEntry(SecurityReference reference, Collection<SecurityRule> rules)
+        {
+            this.reference = reference;
+            this.rules = rules;
+        }
+
+        @Override
+        public SecurityReference getReference()
+        {
+            return this.reference;
+        }
+
+        @Override
+        public Collection<SecurityRule> getRules()
+        {
+            return this.rules;
+        }
+    }
+
+    private static final class AccessEntry extends AbstractSecurityAccessEntry
+    {
+        private final UserSecurityReference user;
+
+        private final SecurityReference reference;
+
+        AccessEntry(UserSecurityReference user, SecurityReference reference)
+        {
+            this.user = user;
+            this.reference = reference;
+        }
+
+        @Override
+        public SecurityReference getReference()
+        {
+            return this.reference;
+        }
+
+        @Override
+        public UserSecurityReference getUserReference()
+        {
+            return this.user;
+        }
+
+        @Override
+        public SecurityAccess getAccess()
+        {
+            // View is allowed by default
+            return XWikiSecurityAccess.getDefaultAccess();
+        }
+    }
+
+    /**
+     * Initialize the components and fill the security cache.
+     *
+     * @throws Exception when failing to initialize the components
+     */
+    @Setup
+    public void setUp() throws Exception
+    {
+        this.componentManager.initializeTest(this);
+
+        // Only use stub mocks since the invocations of regular mocks are recorded, which would fill the memory
+        CacheManager cacheManager = mock(CacheManager.class, withSettings().stubOnly());
+        when(cacheManager.createNewCache(any())).thenAnswer(invocation -> new MapCache<>());
+        this.componentManager.registerComponent(CacheManager.class, cacheManager);
+
+        XWikiBridge bridge = mock(XWikiBridge.class, withSettings().stubOnly());
+        when(bridge.getMainWikiReference()).thenReturn(WIKI);
+        when(bridge.toCompatibleEntityReference(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        this.componentManager.registerComponent(XWikiBridge.class, bridge);
+
+        // Cache misses (only possible while invalidating) are resolved without filling the cache, the invalidation
+        // thread takes care of it
+        SecurityCacheLoader loader = AccessEntry::new;
+        this.componentManager.registerComponent(SecurityCacheLoader.class, loader);
+
+        this.authorizationManager = this.componentManager.getInstance(AuthorizationManager.class);
+        this.securityCache = this.componentManager.getInstance(SecurityCache.class);
+        this.referenceFactory = this.componentManager.getInstance(SecurityReferenceFactory.class);
+
+        this.userReference = this.referenceFactory.newUserReference(USER);
+        this.documentReference = this.referenceFactory.newEntityReference(DOCUMENT);
+        // A non empty rule entry forces the lookup of the access entry
+        this.documentRules = Collections.singletonList(mock(SecurityRule.class, withSettings().stubOnly()));
+
+        addRuleEntry(WIKI);
+        addRuleEntry(USER.getLastSpaceReference());
+        this.securityCache.add(new RuleEntry(this.userReference, Collections.emptyList()), Collections.emptyList());
+        addRuleEntry(DOCUMENT.getLastSpaceReference());
+        addDocumentEntries();
+    }
+
+    /**
+     * Release the components.
+     */
+    @TearDown
+    public void tearDown()
+    {
+        this.componentManager.dispose();
+    }
+
+    private void addRuleEntry(EntityReference reference)
+        throws ParentEntryEvictedException, ConflictingInsertionException
+    {
+        this.securityCache
+            .add(new RuleEntry(this.referenceFactory.newEntityReference(reference), Collections.emptyList()));
+    }
+
+    private void addDocumentEntries() throws ParentEntryEvictedException, ConflictingInsertionException
+    {
+        this.securityCache.add(new RuleEntry(this.documentReference, this.documentRules));
+        this.securityCache.add(new AccessEntry(this.userReference, this.documentReference));
+    }
+
+    /**
+     * @return the result of the access check
+     */
+    @Benchmark
+    public boolean hasAccess()
+    {
+        return this.authorizationManager.hasAccess(Right.VIEW, USER, DOCUMENT);
+    }
+
+    /**
+     * @throws AccessDeniedException when the access is denied (never)
+     */
+    @Benchmark
+    public void checkAccess() throws AccessDeniedException
+    {
+        this.authorizationManager.checkAccess(Right.VIEW, USER, DOCUMENT);
+    }
+
+    /**
+     * The read side of the contention benchmark.
+     *
+     * @return the result of the access check
+     */
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(7)
+    public boolean readWhileInvalidating()
+    {
+        return this.authorizationManager.hasAccess(Right.VIEW, USER, DOCUMENT);
+    }
+
+    /**
+     * The write side of the contention benchmark: invalidate the document entries and put them back.
+     *
+     * @throws Exception when failing to put back the entries
+     */
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(1)
+    public void invalidate() throws Exception
+    {
+        this.securityCache.remove(this.documentReference);
+        addDocumentEntries();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.bridge.event;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * An event triggered after the documents of a wiki have been copied in bulk to another wiki, without sending the
+ * document events (e.g. {@link DocumentCreatedEvent}) for each copied document. Listeners maintaining data derived from
+ * the documents (indexes, caches, components defined in wiki pages, etc.) are expected to refresh it for the whole
+ * target wiki.
+ * <p>
+ * The event also send the following parameters:
+ * </p>
+ * <ul>
+ * <li>source: the target wiki identifier as {@link String}</li>
+ * <li>data: the current {com.xpn.xwiki.XWikiContext} instance, with the target wiki as current wiki</li>
+ * </ul>
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+@Unstable
+public class WikiBulkCopiedEvent extends AbstractWikiEvent
+{
+    /**
+     * The version identifier for this Serializable class. Increment only if the <i>serialized</i> form of the class
+     * changes.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The wiki from which the documents have been copied.
+     */
+    private String sourceWikiId;
+
+    /**
+     * Matches all {@link WikiBulkCopiedEvent} events.
+     */
+    public WikiBulkCopiedEvent()
+    {
+
+    }
+
+    /**
+     * Matches events affecting the same target wiki.
+     *
+     * @param sourceWikiId the source wiki identifier
+     * @param targetWikiId the target wiki identifier
+     */
+    public WikiBulkCopiedEvent(String sourceWikiId, String targetWikiId)
+    {
+        super(targetWikiId);
+
+        this.sourceWikiId = sourceWikiId;
+    }
+
+    /**
+     * @return the source wiki identifier
+     */
+    public String getSourceWikiId()
+    {
+        return this.sourceWikiId;
+    }
+
+    /**
+     * @return the target wiki identifier
+     */
+    public String getTargetWikiId()
+    {
+        return getWikiId();
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.bridge.event;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link WikiBulkCopiedEvent}.
+ * 
+ * @version $Id$
+ */
+class WikiBulkCopiedEventTest
+{
+    @Test
+    void match()
+    {
+        assertTrue(new WikiBulkCopiedEvent().matches(new WikiBulkCopiedEvent()));
+        assertTrue(new WikiBulkCopiedEvent().matches(new WikiBulkCopiedEvent("source", "target")));
+        assertTrue(new WikiBulkCopiedEvent(null, "target").matches(new WikiBulkCopiedEvent("source", "target")));
+        assertTrue(new WikiBulkCopiedEvent("source2", "target").matches(new WikiBulkCopiedEvent("source", "target")));
+
+        assertFalse(new WikiBulkCopiedEvent("source", "target2").matches(new WikiBulkCopiedEvent("source", "target")));
+        assertFalse(new WikiBulkCopiedEvent().matches(new WikiCopiedEvent("source", "target")));
+    }
+
+    @Test
+    void getWikiIds()
+    {
+        WikiBulkCopiedEvent event = new WikiBulkCopiedEvent("source", "target");
+
+        assertEquals("source", event.getSourceWikiId());
+        assertEquals("target", event.getTargetWikiId());
+        assertEquals("target", event.getWikiId());
+    }
+}
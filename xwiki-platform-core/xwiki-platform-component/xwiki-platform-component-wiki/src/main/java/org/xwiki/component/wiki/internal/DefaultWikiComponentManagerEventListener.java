@@ -32,6 +32,7 @@
 import org.xwiki.bridge.event.DocumentCreatedEvent;
 import org.xwiki.bridge.event.DocumentDeletedEvent;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiBulkCopiedEvent;
 import org.xwiki.bridge.event.WikiReadyEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
@@ -87,7 +88,7 @@ public DefaultWikiComponentManagerEventListener()
     {
         super(DefaultWikiComponentManagerEventListener.EVENT_LISTENER_NAME,
                 new DocumentCreatedEvent(), new DocumentUpdatedEvent(), new DocumentDeletedEvent(),
-                new ApplicationReadyEvent(), new WikiReadyEvent());
+                new ApplicationReadyEvent(), new WikiReadyEvent(), new WikiBulkCopiedEvent());
     }
 
     @Override
@@ -109,6 +110,10 @@ public void onEvent(Event event, Object source, Object data)
         } else if (event instanceof ApplicationReadyEvent || event instanceof WikiReadyEvent) {
             // These 2 events are created when the database is ready. We register all wiki components.
             registerAllDocumentComponents();
+        } else if (event instanceof WikiBulkCopiedEvent) {
+            // The documents have been copied without sending any document event. We register all wiki components of
+            // the target wiki (which is the current wiki).
+            registerAllDocumentComponents();
         }
     }
 
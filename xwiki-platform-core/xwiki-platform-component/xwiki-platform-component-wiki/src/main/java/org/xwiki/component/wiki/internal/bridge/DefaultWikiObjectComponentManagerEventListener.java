@@ -32,6 +32,7 @@
 import org.xwiki.bridge.event.DocumentCreatedEvent;
 import org.xwiki.bridge.event.DocumentDeletedEvent;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiBulkCopiedEvent;
 import org.xwiki.bridge.event.WikiReadyEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
@@ -87,7 +88,8 @@ public class DefaultWikiObjectComponentManagerEventListener extends AbstractEven
     public DefaultWikiObjectComponentManagerEventListener()
     {
         super(DefaultWikiObjectComponentManagerEventListener.EVENT_LISTENER_NAME, new ApplicationReadyEvent(),
-            new WikiReadyEvent(), new DocumentCreatedEvent(), new DocumentUpdatedEvent(), new DocumentDeletedEvent());
+            new WikiReadyEvent(), new DocumentCreatedEvent(), new DocumentUpdatedEvent(), new DocumentDeletedEvent(),
+            new WikiBulkCopiedEvent());
     }
 
     @Override
@@ -104,6 +106,10 @@ public void onEvent(Event event, Object source, Object data)
             // These 2 events are created when the database is ready. We register all wiki components.
             // Collect every WikiObjectComponentBuilder
             this.wikiObjectComponentManagerEventListenerProxy.registerAllObjectComponents();
+        } else if (event instanceof WikiBulkCopiedEvent) {
+            // The documents have been copied without sending any document event. We register all wiki components of
+            // the target wiki (which is the current wiki).
+            this.wikiObjectComponentManagerEventListenerProxy.registerAllObjectComponents();
         }
     }
 
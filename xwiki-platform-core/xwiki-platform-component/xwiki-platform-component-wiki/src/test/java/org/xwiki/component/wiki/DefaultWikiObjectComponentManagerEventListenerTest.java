@@ -32,6 +32,7 @@
 import org.xwiki.bridge.event.DocumentCreatedEvent;
 import org.xwiki.bridge.event.DocumentDeletedEvent;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiBulkCopiedEvent;
 import org.xwiki.bridge.event.WikiReadyEvent;
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.wiki.internal.bridge.DefaultWikiObjectComponentManagerEventListener;
@@ -103,7 +104,7 @@ public void supportedEvents() throws Exception
     {
         List<Event> events = this.mocker.getComponentUnderTest().getEvents();
 
-        assertEquals(5, events.size());
+        assertEquals(6, events.size());
     }
 
     @Test
@@ -131,6 +132,15 @@ public void testComponentInitializationOnWikiReady() throws Exception
                 .registerAllObjectComponents();
     }
 
+    @Test
+    public void testComponentInitializationOnWikiBulkCopied() throws Exception
+    {
+        this.mocker.getComponentUnderTest().onEvent(new WikiBulkCopiedEvent("template", "wiki"), "wiki", null);
+
+        verify(this.wikiObjectComponentManagerEventListenerProxy, times(1))
+                .registerAllObjectComponents();
+    }
+
     @Test
     public void testOnEventWithUncompatibleEvent() throws Exception
     {
@@ -64,4 +64,23 @@ public boolean isEventStoreEnabled()
     {
         return this.configuration.getProperty("eventstream.store.enabled", true);
     }
+
+    /**
+     * @return the number of days the events should be kept, 0 or a negative value to keep them forever
+     * @since 16.3.0RC1
+     */
+    public int getDaysToKeepEvents()
+    {
+        return this.configuration.getProperty("eventstream.daystokeepevents", 0);
+    }
+
+    /**
+     * @return true if the {@link EventStore} should itself delete the events older than
+     *         {@link #getDaysToKeepEvents()}
+     * @since 16.3.0RC1
+     */
+    public boolean isStoreRetentionEnabled()
+    {
+        return this.configuration.getProperty("eventstream.store.retention.enabled", false);
+    }
 }
@@ -22,6 +22,9 @@
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.URL;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -33,6 +36,9 @@
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -50,6 +56,7 @@
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.eventstream.EntityEvent;
 import org.xwiki.eventstream.Event;
@@ -62,6 +69,7 @@
 import org.xwiki.eventstream.internal.AbstractAsynchronousEventStore;
 import org.xwiki.eventstream.internal.DefaultEvent;
 import org.xwiki.eventstream.internal.DefaultEventStatus;
+import org.xwiki.eventstream.internal.EventStreamConfiguration;
 import org.xwiki.eventstream.internal.StreamEventSearchResult;
 import org.xwiki.eventstream.query.AbstractPropertyQueryCondition;
 import org.xwiki.eventstream.query.CompareQueryCondition;
@@ -87,6 +95,12 @@
 
 /**
  * Solr based implementation of {@link EventStore}.
+ * <p>
+ * All the events are stored in the same core. Queries with a lower bound on the date get an additional filter query on
+ * the date, aligned on the beginning of the month so that it's shared (and cached) by all the queries starting in the
+ * same month. When explicitly enabled, a background thread deletes once per hour the events of the months which are
+ * entirely expired. The Solr server being possibly shared by several cluster members, the retention is expected to be
+ * enabled on a single member.
  *
  * @version $Id$
  * @since 12.4RC1
@@ -98,6 +112,10 @@ public class SolrEventStore extends AbstractAsynchronousEventStore
 {
     private static final Map<String, SearchFieldMapping> SEARCH_FIELD_MAPPING = new HashMap<>();
 
+    private static final String NOCACHE_FILTER_PREFIX = "{!cache=false}";
+
+    private static final long RETENTION_CHECK_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
     private static class SearchFieldMapping
     {
         String solrFieldName;
@@ -148,8 +166,13 @@ public class SolrEventStore extends AbstractAsynchronousEventStore
     @Named("compactwiki")
     private EntityReferenceSerializer<String> compactwiki;
 
+    @Inject
+    private EventStreamConfiguration configuration;
+
     private SolrClient client;
 
+    private ScheduledExecutorService retentionExecutor;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -160,6 +183,31 @@ public void initialize() throws InitializationException
         } catch (SolrException e) {
             throw new InitializationException("Failed to get the events Solr core", e);
         }
+
+        // Deleting events is only done when explicitly asked since the retention might already be handled by a
+        // scheduler job (or by another cluster member sharing the same Solr server)
+        if (this.configuration.isStoreRetentionEnabled()) {
+            this.retentionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setName("Solr event store retention");
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                thread.setDaemon(true);
+
+                return thread;
+            });
+            this.retentionExecutor.scheduleWithFixedDelay(this::deleteExpiredEvents, RETENTION_CHECK_INTERVAL,
+                RETENTION_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.retentionExecutor != null) {
+            this.retentionExecutor.shutdownNow();
+        }
+
+        super.dispose();
     }
 
     @Override
@@ -371,6 +419,37 @@ protected Optional<Event> syncDeleteEvent(Event event) throws EventStreamExcepti
         return syncDeleteEvent(event.getId());
     }
 
+    /**
+     * @param date the date of an event
+     * @return the first date of the month (in UTC) containing the passed date
+     */
+    private Date getMonthStart(Date date)
+    {
+        ZonedDateTime dateTime = ZonedDateTime.ofInstant(date.toInstant(), ZoneOffset.UTC);
+
+        return Date.from(dateTime.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1).toInstant());
+    }
+
+    /**
+     * Delete the events of the months which are entirely older than the configured number of days to keep events.
+     */
+    void deleteExpiredEvents()
+    {
+        int days = this.configuration.getDaysToKeepEvents();
+
+        if (days > 0) {
+            // Only delete complete months so that a deletion is actually needed only once per month
+            Date limit = getMonthStart(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days)));
+            try {
+                this.client.deleteByQuery(
+                    Event.FIELD_DATE + ":[* TO " + this.utils.toCompleteFilterQueryString(limit) + '}');
+                this.client.commit();
+            } catch (Exception e) {
+                this.logger.error("Failed to delete the events older than [{}]", limit, e);
+            }
+        }
+    }
+
     private void deleteById(String eventId) throws EventStreamException
     {
         try {
@@ -522,23 +601,89 @@ private SolrQuery toSolrQuery(EventQuery query, Set<String> fields)
         if (query instanceof SimpleEventQuery) {
             SimpleEventQuery simpleQuery = (SimpleEventQuery) query;
 
-            addConditions(simpleQuery.isOr() && simpleQuery.getConditions().size() > 1
-                ? Collections.singletonList(simpleQuery) : simpleQuery.getConditions(), solrQuery);
+            List<QueryCondition> conditions = simpleQuery.isOr() && simpleQuery.getConditions().size() > 1
+                ? Collections.singletonList(simpleQuery) : simpleQuery.getConditions();
+
+            // Restrict the query to the months containing the events it can match. This filter is shared by all the
+            // queries starting in the same month so it's worth caching, while the other (generally user specific)
+            // filters are not cached and only evaluated on the events matched by this filter.
+            Date lowerBound = getLowerDateBound(conditions, false);
+            if (lowerBound != null) {
+                solrQuery.addFilterQuery(Event.FIELD_DATE + ":["
+                    + this.utils.toCompleteFilterQueryString(getMonthStart(lowerBound)) + " TO *]");
+            }
+
+            addConditions(conditions, lowerBound == null, solrQuery);
         }
 
         return solrQuery;
     }
 
-    private void addConditions(List<QueryCondition> conditions, SolrQuery solrQuery)
+    /**
+     * @param conditions the conditions to check
+     * @param or true if only one of the conditions need to match
+     * @return the date before which none of the events can match the conditions, null if there is no such date
+     */
+    private Date getLowerDateBound(List<QueryCondition> conditions, boolean or)
+    {
+        Date bound = null;
+
+        for (QueryCondition condition : conditions) {
+            Date conditionBound = getLowerDateBound(condition);
+
+            if (or) {
+                if (conditionBound == null) {
+                    // One of the alternatives is not bounded
+                    return null;
+                }
+
+                bound = bound == null || conditionBound.before(bound) ? conditionBound : bound;
+            } else if (conditionBound != null) {
+                bound = bound == null || conditionBound.after(bound) ? conditionBound : bound;
+            }
+        }
+
+        return bound;
+    }
+
+    private Date getLowerDateBound(QueryCondition condition)
+    {
+        if (condition.isReversed()) {
+            return null;
+        }
+
+        if (condition instanceof CompareQueryCondition) {
+            CompareQueryCondition compareCondition = (CompareQueryCondition) condition;
+
+            if (!compareCondition.isCustom() && Event.FIELD_DATE.equals(compareCondition.getProperty())
+                && compareCondition.getValue() instanceof Date
+                && (compareCondition.getType() == CompareType.GREATER
+                    || compareCondition.getType() == CompareType.GREATER_OR_EQUALS)) {
+                return (Date) compareCondition.getValue();
+            }
+        } else if (condition instanceof GroupQueryCondition) {
+            GroupQueryCondition group = (GroupQueryCondition) condition;
+
+            return getLowerDateBound(group.getConditions(), group.isOr());
+        }
+
+        return null;
+    }
+
+    private void addConditions(List<QueryCondition> conditions, boolean cache, SolrQuery solrQuery)
     {
         for (QueryCondition condition : conditions) {
             String conditionString = serializeCondition(condition);
             if (conditionString != null) {
-                if (condition.isReversed()) {
-                    solrQuery.addFilterQuery('-' + conditionString);
-                } else {
-                    solrQuery.addFilterQuery(conditionString);
+                String filterQuery = condition.isReversed() ? '-' + conditionString : conditionString;
+
+                if (!cache) {
+                    // Make sure a negative query is still valid when prefixed with local parameters
+                    filterQuery =
+                        NOCACHE_FILTER_PREFIX + (condition.isReversed() ? "*:* " + filterQuery : filterQuery);
                 }
+
+                solrQuery.addFilterQuery(filterQuery);
             }
         }
     }
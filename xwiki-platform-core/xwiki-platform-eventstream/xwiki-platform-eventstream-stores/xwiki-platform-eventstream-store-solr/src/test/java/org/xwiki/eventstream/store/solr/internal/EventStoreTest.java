@@ -33,6 +33,7 @@
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -53,6 +54,7 @@
 import org.xwiki.eventstream.internal.DefaultEntityEvent;
 import org.xwiki.eventstream.internal.DefaultEvent;
 import org.xwiki.eventstream.internal.DefaultEventStatus;
+import org.xwiki.eventstream.internal.EventStreamConfiguration;
 import org.xwiki.eventstream.query.SimpleEventQuery;
 import org.xwiki.eventstream.query.SortableEventQuery.SortClause.Order;
 import org.xwiki.model.internal.reference.converter.EntityReferenceConverter;
@@ -165,6 +167,9 @@
     @MockComponent
     private WikiDescriptorManager wikis;
 
+    @MockComponent
+    private EventStreamConfiguration configuration;
+
     @InjectComponentManager
     private MockitoComponentManager componentManager;
 
@@ -787,4 +792,63 @@ void deleteWiki() throws EventStreamException, InterruptedException, ExecutionEx
 
         assertSearch(Arrays.asList(EVENT3, EVENT4), new SimpleEventQuery());
     }
+
+    @Test
+    void searchWithMonthFilter() throws EventStreamException, InterruptedException, ExecutionException
+    {
+        Date now = new Date();
+        Date lastMonth = new Date(now.getTime() - TimeUnit.DAYS.toMillis(31));
+
+        DefaultEvent oldEvent = event("old", new Date(0));
+        DefaultEvent lastMonthEvent = event("lastMonth", lastMonth);
+        DefaultEvent nowEvent = event("now", now);
+        nowEvent.setUser(USER_REFERENCE);
+
+        this.eventStore.saveEvent(oldEvent);
+        this.eventStore.saveEvent(lastMonthEvent);
+        this.eventStore.saveEvent(nowEvent).get();
+
+        assertSearch(Arrays.asList(lastMonthEvent, nowEvent), new SimpleEventQuery().after(new Date(0)));
+        assertSearch(Arrays.asList(nowEvent), new SimpleEventQuery().after(lastMonth));
+        assertSearch(Arrays.asList(lastMonthEvent, nowEvent),
+            new SimpleEventQuery().greaterOrEq(Event.FIELD_DATE, lastMonth));
+        assertSearch(Arrays.asList(nowEvent),
+            new SimpleEventQuery().after(new Date(0)).eq(Event.FIELD_USER, USER_REFERENCE));
+        assertSearch(Arrays.asList(lastMonthEvent),
+            new SimpleEventQuery().after(new Date(0)).not().eq(Event.FIELD_USER, USER_REFERENCE));
+        assertSearch(Arrays.asList(oldEvent, nowEvent),
+            new SimpleEventQuery().after(lastMonth).or().eq(Event.FIELD_DATE, new Date(0)));
+    }
+
+    @Test
+    void deleteExpiredEvents() throws EventStreamException, InterruptedException, ExecutionException
+    {
+        DefaultEvent oldEvent = event("old", new Date(0));
+        DefaultEvent nowEvent = event("now", new Date());
+
+        when(this.configuration.getDaysToKeepEvents()).thenReturn(31);
+
+        this.eventStore.saveEvent(oldEvent);
+        this.eventStore.saveEvent(nowEvent).get();
+
+        // Saving events does not delete the expired events, the retention runs in the background
+        assertTrue(this.eventStore.getEvent(oldEvent.getId()).isPresent());
+
+        this.eventStore.deleteExpiredEvents();
+
+        assertFalse(this.eventStore.getEvent(oldEvent.getId()).isPresent());
+        assertTrue(this.eventStore.getEvent(nowEvent.getId()).isPresent());
+    }
+
+    @Test
+    void deleteExpiredEventsWhenKeptForever() throws EventStreamException, InterruptedException, ExecutionException
+    {
+        DefaultEvent oldEvent = event("old", new Date(0));
+
+        this.eventStore.saveEvent(oldEvent).get();
+
+        this.eventStore.deleteExpiredEvents();
+
+        assertTrue(this.eventStore.getEvent(oldEvent.getId()).isPresent());
+    }
 }
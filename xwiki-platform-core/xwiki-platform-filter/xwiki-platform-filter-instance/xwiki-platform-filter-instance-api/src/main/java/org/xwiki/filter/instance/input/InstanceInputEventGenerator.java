@@ -20,6 +20,7 @@
 package org.xwiki.filter.instance.input;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import org.xwiki.component.annotation.Role;
@@ -27,6 +28,8 @@
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.descriptor.FilterStreamDescriptor;
 import org.xwiki.filter.instance.internal.InstanceFilter;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.stability.Unstable;
 
 /**
  * @version $Id$
@@ -74,6 +77,20 @@ public interface InstanceInputEventGenerator extends InstanceFilter
      */
     void setWikiDocumentParameters(String name, FilterEventParameters parameters) throws FilterException;
 
+    /**
+     * Indicate the documents of the current space which are going to be written.
+     * 
+     * @param name the name of space
+     * @param documents the documents of the space which are going to be written, in the order they will be written
+     * @throws FilterException when failing to handle the documents
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    default void setWikiSpaceDocuments(String name, List<DocumentReference> documents) throws FilterException
+    {
+        // Do nothing by default
+    }
+
     /**
      * @param filter the filter to send events to
      */
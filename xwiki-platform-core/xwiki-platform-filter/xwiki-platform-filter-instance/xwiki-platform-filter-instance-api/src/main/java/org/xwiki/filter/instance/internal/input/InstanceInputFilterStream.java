@@ -20,6 +20,7 @@
 package org.xwiki.filter.instance.internal.input;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -189,10 +190,11 @@ private void writeSpace(EntityReferenceTreeNode node, Object filter, InstanceFil
             generator.beginWikiSpace(spaceReference.getName(), parameters);
         }
 
-        // Write documents
+        // Get the documents to write
+        List<DocumentReference> documentReferences = new ArrayList<>();
         for (DocumentReference documentReference : this.instanceModel.getDocumentReferences(spaceReference)) {
             if (isDocumentEnabled(documentReference)) {
-                writeDocument(documentReference, filter, proxyFilter);
+                documentReferences.add(documentReference);
             } else {
                 if (this.properties.isVerbose()) {
                     this.logger.info(LOG_DOCUMENT_SKIPPED, "Skipped document [{}]", documentReference);
@@ -200,6 +202,15 @@ private void writeSpace(EntityReferenceTreeNode node, Object filter, InstanceFil
             }
         }
 
+        for (InstanceInputEventGenerator generator : this.eventGenerators) {
+            generator.setWikiSpaceDocuments(spaceReference.getName(), documentReferences);
+        }
+
+        // Write documents
+        for (DocumentReference documentReference : documentReferences) {
+            writeDocument(documentReference, filter, proxyFilter);
+        }
+
         // Write nested spaces
         for (EntityReferenceTreeNode child : node.getChildren()) {
             writeSpace(child, filter, proxyFilter);
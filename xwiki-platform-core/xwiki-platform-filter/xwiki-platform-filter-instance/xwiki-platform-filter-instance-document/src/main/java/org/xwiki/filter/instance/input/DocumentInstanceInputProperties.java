@@ -24,6 +24,7 @@
 
 import org.xwiki.properties.annotation.PropertyDescription;
 import org.xwiki.properties.annotation.PropertyName;
+import org.xwiki.stability.Unstable;
 
 /**
  * @version $Id$
@@ -81,6 +82,11 @@ public class DocumentInstanceInputProperties extends InstanceInputProperties
      */
     private boolean withWikiDocumentContentHTML;
 
+    /**
+     * @see #getBatchSize()
+     */
+    private int batchSize = 100;
+
     /**
      * @return Indicates if events should be generated for history
      */
@@ -270,4 +276,26 @@ public void setWithWikiDocumentContentHTML(boolean withWikiDocumentContentHTML)
     {
         this.withWikiDocumentContentHTML = withWikiDocumentContentHTML;
     }
+
+    /**
+     * @return the number of documents to load from the store at once
+     * @since 16.3.0RC1
+     */
+    @PropertyName("Batch size")
+    @PropertyDescription("The number of documents to load from the store at once")
+    @Unstable
+    public int getBatchSize()
+    {
+        return this.batchSize;
+    }
+
+    /**
+     * @param batchSize the number of documents to load from the store at once
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
 }
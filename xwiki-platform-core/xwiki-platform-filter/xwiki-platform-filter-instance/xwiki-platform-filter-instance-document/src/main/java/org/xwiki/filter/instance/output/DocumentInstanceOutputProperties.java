@@ -24,6 +24,7 @@
 import org.xwiki.properties.annotation.PropertyDescription;
 import org.xwiki.properties.annotation.PropertyName;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.stability.Unstable;
 
 /**
  * @version $Id$
@@ -56,6 +57,11 @@ public class DocumentInstanceOutputProperties extends EntityInstanceOutputProper
      */
     private boolean stoppedWhenSaveFail = true;
 
+    /**
+     * @see #getSaveThreads()
+     */
+    private int saveThreads = 1;
+
     /**
      * @return The base reference to use to resolve reference from events
      */
@@ -151,4 +157,29 @@ public void setStoppedWhenSaveFail(boolean stoppedWhenSaveFail)
     {
         this.stoppedWhenSaveFail = stoppedWhenSaveFail;
     }
+
+    /**
+     * @return the number of threads saving the documents in parallel, the documents are saved one by one in the
+     *         thread reading the events when lower than 2
+     * @since 16.3.0RC1
+     */
+    @PropertyName("Saving threads")
+    @PropertyDescription("The number of threads saving the documents in parallel while the next documents are read."
+        + " The documents are saved one by one when lower than 2.")
+    @Unstable
+    public int getSaveThreads()
+    {
+        return this.saveThreads;
+    }
+
+    /**
+     * @param saveThreads the number of threads saving the documents in parallel, the documents are saved one by one in
+     *            the thread reading the events when lower than 2
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    public void setSaveThreads(int saveThreads)
+    {
+        this.saveThreads = saveThreads;
+    }
 }
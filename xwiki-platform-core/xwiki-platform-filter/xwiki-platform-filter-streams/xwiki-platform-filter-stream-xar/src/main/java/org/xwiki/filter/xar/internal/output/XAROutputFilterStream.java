@@ -31,6 +31,7 @@
 import javax.inject.Named;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
@@ -106,7 +107,7 @@ public class XAROutputFilterStream extends AbstractBeanOutputFilterStream<XAROut
      * the size of the chunks used when attachments are streamed. As the attachment data is base64 encoded in the
      * process, this size must be a multiple of three to prevent padding between the chunks; see XWIKI-9830
      */
-    private static final int ATTACHMENT_BUFFER_CHUNK_SIZE = 4095;
+    private static final int ATTACHMENT_BUFFER_CHUNK_SIZE = 3 * 16384;
 
     @Override
     public void close() throws IOException
@@ -557,7 +558,9 @@ private void writeContent(InputSource content) throws FilterException
             int readSize;
             do {
                 try {
-                    readSize = stream.read(buffer, 0, ATTACHMENT_BUFFER_CHUNK_SIZE);
+                    // Make sure to fill the whole buffer (unless the end of the stream is reached) since a partial
+                    // chunk would introduce base64 padding in the middle of the content
+                    readSize = IOUtils.read(stream, buffer, 0, ATTACHMENT_BUFFER_CHUNK_SIZE);
                 } catch (IOException e) {
                     throw new FilterException("Failed to read content stream", e);
                 }
@@ -19,15 +19,27 @@
  */
 package org.xwiki.filter.xar.internal.output;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.output.FileOutputTarget;
 import org.xwiki.filter.output.OutputStreamOutputTarget;
@@ -44,6 +56,12 @@
  */
 public class XARWikiWriter implements Closeable
 {
+    /**
+     * The size above which an entry is not compressed in parallel but written directly to the ZIP, to avoid keeping
+     * big entries in memory.
+     */
+    private static final int ENTRY_MEMORY_THRESHOLD = 1024 * 1024;
+
     private final String name;
 
     private final XAROutputProperties xarProperties;
@@ -52,6 +70,90 @@ public class XARWikiWriter implements Closeable
 
     private XarPackage xarPackage = new XarPackage();
 
+    private final ExecutorService compressionExecutor;
+
+    private final int maxPendingEntries;
+
+    /**
+     * The entries being compressed, in the order they have to be written to the ZIP.
+     */
+    private final Deque<Future<CompressedEntry>> pendingEntries = new ArrayDeque<>();
+
+    private EntryOutputStream currentEntry;
+
+    private static final class CompressedEntry
+    {
+        private final ZipArchiveEntry entry;
+
+        private final byte[] content;
+
+        private CompressedEntry(ZipArchiveEntry entry, byte[] content)
+        {
+            this.entry = entry;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Buffer the content of an entry in memory so that it can be compressed in parallel, unless it's too big in which
+     * case it's written directly to the ZIP, after the entries created before it.
+     */
+    private final class EntryOutputStream extends OutputStream
+    {
+        private final ZipArchiveEntry entry;
+
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        private EntryOutputStream(ZipArchiveEntry entry)
+        {
+            this.entry = entry;
+        }
+
+        private boolean isDirect()
+        {
+            return this.buffer == null;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            if (!isDirect() && this.buffer.size() + len > ENTRY_MEMORY_THRESHOLD) {
+                writeDirectly();
+            }
+
+            if (isDirect()) {
+                zipStream.write(b, off, len);
+            } else {
+                this.buffer.write(b, off, len);
+            }
+        }
+
+        private void writeDirectly() throws IOException
+        {
+            try {
+                writeCompressedEntries(0);
+            } catch (FilterException e) {
+                throw new IOException("Failed to write the pending zip entries", e);
+            }
+
+            zipStream.putArchiveEntry(this.entry);
+            this.buffer.writeTo(zipStream);
+            this.buffer = null;
+        }
+
+        @Override
+        public void close()
+        {
+            // The entry is closed by #closeEntry()
+        }
+    }
+
     public XARWikiWriter(String name, XAROutputProperties xarProperties) throws FilterException
     {
         this.name = name;
@@ -91,6 +193,19 @@ public XARWikiWriter(String name, XAROutputProperties xarProperties) throws Filt
         // non-ascii characters in the document name using InfoZIP, and the filenames will be correctly
         // converted to the character set of the local file system.
         this.zipStream.setCreateUnicodeExtraFields(ZipArchiveOutputStream.UnicodeExtraFieldPolicy.ALWAYS);
+
+        // Entries are serialized in memory and compressed by a pool of threads, the compressed entries are then added
+        // to the ZIP in the order they were created (big entries are written directly)
+        int compressionThreads = xarProperties.getCompressionThreads();
+        if (compressionThreads > 1) {
+            BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                .namingPattern("XWiki XAR compression thread %d").daemon(true).build();
+            this.compressionExecutor = Executors.newFixedThreadPool(compressionThreads, factory);
+            this.maxPendingEntries = compressionThreads * 2;
+        } else {
+            this.compressionExecutor = null;
+            this.maxPendingEntries = 0;
+        }
     }
 
     public String getName()
@@ -135,26 +250,109 @@ public OutputStream newEntry(LocalDocumentReference reference) throws FilterExce
         String entryName = path.toString();
 
         ZipArchiveEntry zipentry = new ZipArchiveEntry(entryName);
+
+        this.xarPackage.addEntry(reference, entryName);
+
+        if (this.compressionExecutor != null) {
+            this.currentEntry = new EntryOutputStream(zipentry);
+
+            return this.currentEntry;
+        }
+
         try {
             this.zipStream.putArchiveEntry(zipentry);
         } catch (IOException e) {
             throw new FilterException("Failed to add a new zip entry for [" + path + "]", e);
         }
 
-        this.xarPackage.addEntry(reference, entryName);
-
         return this.zipStream;
     }
 
     public void closeEntry() throws FilterException
+    {
+        if (this.currentEntry != null && !this.currentEntry.isDirect()) {
+            ZipArchiveEntry entry = this.currentEntry.entry;
+            byte[] content = this.currentEntry.buffer.toByteArray();
+            this.currentEntry = null;
+
+            this.pendingEntries.add(this.compressionExecutor.submit(() -> compress(entry, content)));
+
+            // Write the entries which are ready and make sure the number of buffered entries stays bounded
+            writeCompressedEntries(this.maxPendingEntries);
+        } else {
+            this.currentEntry = null;
+
+            try {
+                this.zipStream.closeArchiveEntry();
+            } catch (IOException e) {
+                throw new FilterException("Failed to close zip archive entry", e);
+            }
+        }
+    }
+
+    private CompressedEntry compress(ZipArchiveEntry entry, byte[] content) throws IOException
+    {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        // Raw deflate data, as expected in a ZIP entry
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try (OutputStream output = new DeflaterOutputStream(compressed, deflater)) {
+            output.write(content);
+        } finally {
+            deflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(content);
+
+        entry.setMethod(ZipArchiveEntry.DEFLATED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(compressed.size());
+        entry.setCrc(crc.getValue());
+
+        return new CompressedEntry(entry, compressed.toByteArray());
+    }
+
+    private void writeCompressedEntries(int maxPending) throws FilterException
+    {
+        while (!this.pendingEntries.isEmpty()
+            && (this.pendingEntries.size() > maxPending || this.pendingEntries.peek().isDone())) {
+            CompressedEntry compressedEntry = getCompressedEntry(this.pendingEntries.poll());
+
+            try {
+                this.zipStream.addRawArchiveEntry(compressedEntry.entry,
+                    new ByteArrayInputStream(compressedEntry.content));
+            } catch (IOException e) {
+                throw new FilterException("Failed to add zip entry [" + compressedEntry.entry.getName() + "]", e);
+            }
+        }
+    }
+
+    private CompressedEntry getCompressedEntry(Future<CompressedEntry> future) throws FilterException
     {
         try {
-            this.zipStream.closeArchiveEntry();
-        } catch (IOException e) {
-            throw new FilterException("Failed to close zip archive entry", e);
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new FilterException("Interrupted while waiting for the compression of a zip entry", e);
+        } catch (ExecutionException e) {
+            throw new FilterException("Failed to compress zip entry", e.getCause());
         }
     }
 
+    private void discardPendingEntries()
+    {
+        this.currentEntry = null;
+
+        for (Future<CompressedEntry> future = this.pendingEntries.poll(); future != null;
+            future = this.pendingEntries.poll()) {
+            future.cancel(true);
+        }
+
+        this.compressionExecutor.shutdownNow();
+    }
+
     private void writePackage() throws FilterException
     {
         try {
@@ -167,14 +365,29 @@ private void writePackage() throws FilterException
     @Override
     public void close() throws IOException
     {
-        // Add package.xml descriptor
         try {
-            writePackage();
-        } catch (FilterException e) {
-            throw new IOException("Failed to write package", e);
-        }
+            if (this.compressionExecutor != null) {
+                // Add the entries still being compressed
+                try {
+                    writeCompressedEntries(0);
+                } catch (FilterException e) {
+                    throw new IOException("Failed to write the pending zip entries", e);
+                }
+            }
 
-        // Close zip stream
-        this.zipStream.close();
+            // Add package.xml descriptor
+            try {
+                writePackage();
+            } catch (FilterException e) {
+                throw new IOException("Failed to write package", e);
+            }
+
+            // Close zip stream
+            this.zipStream.close();
+        } finally {
+            if (this.compressionExecutor != null) {
+                discardPendingEntries();
+            }
+        }
     }
 }
@@ -22,6 +22,7 @@
 import org.xwiki.filter.xml.output.XMLOutputProperties;
 import org.xwiki.properties.annotation.PropertyDescription;
 import org.xwiki.properties.annotation.PropertyName;
+import org.xwiki.stability.Unstable;
 
 /**
  * XAR output properties.
@@ -46,6 +47,11 @@ public class XAROutputProperties extends XMLOutputProperties
      */
     private boolean optimized = true;
 
+    /**
+     * @see #getCompressionThreads()
+     */
+    private int compressionThreads = 1;
+
     /**
      * @see #getPackageName()
      */
@@ -137,6 +143,30 @@ public void setOptimized(boolean optimized)
         this.optimized = optimized;
     }
 
+    /**
+     * @return the number of threads used to compress the XAR entries, 1 to compress them in the filter thread
+     * @since 16.3.0RC1
+     */
+    @PropertyName("Compression threads")
+    @PropertyDescription("The number of threads used to compress the XAR entries, 1 to compress them in the filter "
+        + "thread")
+    @Unstable
+    public int getCompressionThreads()
+    {
+        return this.compressionThreads;
+    }
+
+    /**
+     * @param compressionThreads the number of threads used to compress the XAR entries, 1 to compress them in the
+     *            filter thread
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    public void setCompressionThreads(int compressionThreads)
+    {
+        this.compressionThreads = compressionThreads;
+    }
+
     // package.xml
 
     /**
@@ -0,0 +1,141 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.image;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.AutoCloseInputStream;
+
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+
+/**
+ * The content of a transformed image stored in the {@link ImageDiskCache}, streamed from the file instead of being
+ * loaded in memory.
+ * <p>
+ * The file is only opened when the content is read, so that no file is kept open when the content is never read (for
+ * example when the client already has the image and gets a "Not Modified" response). If the file has been evicted from
+ * the cache in the meantime, the content is provided by a fallback instead (e.g. by transforming the image again).
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+class FileImageContent extends XWikiAttachmentContent
+{
+    /**
+     * Provide the content of the image when the file does not exist anymore.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    interface ContentFallback
+    {
+        /**
+         * @return the content of the image
+         * @throws Exception when failing to provide the content of the image
+         */
+        InputStream open() throws Exception;
+    }
+
+    private final File file;
+
+    private final long length;
+
+    private final ContentFallback fallback;
+
+    /**
+     * @param file the file containing the image
+     * @param length the length of the file
+     * @param attachment the attachment to associate this content with
+     * @param fallback provide the content of the image when the file has been evicted from the cache
+     */
+    FileImageContent(File file, long length, XWikiAttachment attachment, ContentFallback fallback)
+    {
+        super(attachment);
+
+        this.file = file;
+        this.length = length;
+        this.fallback = fallback;
+    }
+
+    /**
+     * @param content the content to copy
+     */
+    FileImageContent(FileImageContent content)
+    {
+        super(content);
+
+        this.file = content.file;
+        this.length = content.length;
+        this.fallback = content.fallback;
+    }
+
+    @Override
+    public FileImageContent clone()
+    {
+        return new FileImageContent(this);
+    }
+
+    @Override
+    public boolean exists()
+    {
+        // The content can still be provided by the fallback when the file has been evicted
+        return true;
+    }
+
+    @Override
+    @Deprecated
+    public byte[] getContent()
+    {
+        try (InputStream content = getContentInputStream()) {
+            return IOUtils.toByteArray(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the image", e);
+        }
+    }
+
+    @Override
+    public InputStream getContentInputStream()
+    {
+        try {
+            return new AutoCloseInputStream(new FileInputStream(this.file));
+        } catch (FileNotFoundException e) {
+            // The entry might have been evicted from the cache since it was found (which is unlikely since it just
+            // became the most recently used one)
+            try {
+                return this.fallback.open();
+            } catch (Exception fallbackException) {
+                throw new UncheckedIOException(new IOException("Failed to read the image", fallbackException));
+            }
+        }
+    }
+
+    @Override
+    public long getLongSize()
+    {
+        return this.length;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.image;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Size bounded store of transformed images on the disk. Contrary to an in memory cache it does not consume any heap
+ * (except for a small index of the stored files) and it survives restarts.
+ * <p>
+ * The entries of an attachment are stored in a dedicated directory and their name starts with the attachment version
+ * so that the entries of the previous versions of the attachment are removed as soon as a new version is transformed.
+ * When the maximum size is reached, the least recently used entries are removed.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+class ImageDiskCache
+{
+    /**
+     * Write the content of an entry.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    interface EntryWriter
+    {
+        /**
+         * @param stream the stream where to write the content of the entry
+         * @throws Exception when failing to write the entry
+         */
+        void write(OutputStream stream) throws Exception;
+    }
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final char SEPARATOR = '-';
+
+    private final File directory;
+
+    private final long capacity;
+
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * The length of the stored files, from the least recently used to the most recently used. Avoid listing the whole
+     * directory tree each time some space needs to be freed.
+     */
+    private final Map<File, Long> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    /**
+     * @param directory the directory where to store the entries
+     * @param capacity the maximum number of bytes to store
+     */
+    ImageDiskCache(File directory, long capacity)
+    {
+        this.directory = directory;
+        this.capacity = capacity;
+
+        // Get rid of the incomplete entries of a previous run and index the current entries
+        if (this.directory.exists()) {
+            List<File> files = new ArrayList<>();
+            for (File file : FileUtils.listFiles(this.directory, null, true)) {
+                if (file.getName().endsWith(TMP_SUFFIX)) {
+                    FileUtils.deleteQuietly(file);
+                } else {
+                    files.add(file);
+                }
+            }
+
+            // The last modified date is updated each time an entry is used
+            files.sort(Comparator.comparingLong(File::lastModified));
+            for (File file : files) {
+                long length = file.length();
+                this.entries.put(file, length);
+                this.size.addAndGet(length);
+            }
+        }
+    }
+
+    /**
+     * @param attachment the identifier of the attachment
+     * @param version the version of the attachment
+     * @param key the identifier of the transformation
+     * @return the file containing the transformed image or {@code null} if it's not in the cache
+     */
+    File get(String attachment, String version, String key)
+    {
+        File file = getFile(attachment, version, key);
+
+        if (file.exists()) {
+            used(file);
+
+            return file;
+        }
+
+        return null;
+    }
+
+    /**
+     * @param attachment the identifier of the attachment
+     * @param version the version of the attachment
+     * @param key the identifier of the transformation
+     * @param writer write the transformed image
+     * @return the file containing the transformed image
+     * @throws Exception when failing to store the transformed image
+     */
+    File set(String attachment, String version, String key, EntryWriter writer) throws Exception
+    {
+        File file = getFile(attachment, version, key);
+        File attachmentDirectory = file.getParentFile();
+        attachmentDirectory.mkdirs();
+
+        // Remove the entries associated with other versions of the attachment
+        String prefix = getVersionPrefix(version);
+        File[] attachmentEntries = attachmentDirectory.listFiles();
+        if (attachmentEntries != null) {
+            for (File entry : attachmentEntries) {
+                if (!entry.getName().startsWith(prefix) && !entry.getName().endsWith(TMP_SUFFIX)) {
+                    delete(entry);
+                }
+            }
+        }
+
+        // Write the entry in a temporary file first so that an incomplete entry is never served
+        File tmpFile = createTempFile(prefix, attachmentDirectory);
+        try {
+            try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(tmpFile))) {
+                writer.write(stream);
+            }
+
+            // Make sure an eviction never deletes the file after it's been replaced but before it's been indexed
+            synchronized (this.entries) {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+
+                long length = file.length();
+                Long previousLength = this.entries.put(file, length);
+                this.size.addAndGet(length - (previousLength != null ? previousLength : 0));
+            }
+        } finally {
+            FileUtils.deleteQuietly(tmpFile);
+        }
+
+        evict();
+
+        return file;
+    }
+
+    /**
+     * @return the number of bytes currently stored
+     */
+    long getSize()
+    {
+        return this.size.get();
+    }
+
+    private File createTempFile(String prefix, File attachmentDirectory) throws IOException
+    {
+        try {
+            return File.createTempFile(prefix, TMP_SUFFIX, attachmentDirectory);
+        } catch (IOException e) {
+            // The directory might have been removed by the eviction of its last entry in the meantime
+            attachmentDirectory.mkdirs();
+
+            return File.createTempFile(prefix, TMP_SUFFIX, attachmentDirectory);
+        }
+    }
+
+    /**
+     * @param attachment the identifier of the attachment
+     * @param version the version of the attachment
+     * @param key the identifier of the transformation
+     * @return the file where the entry is stored (which may not exist)
+     */
+    private File getFile(String attachment, String version, String key)
+    {
+        return new File(new File(this.directory, DigestUtils.sha256Hex(attachment)),
+            getVersionPrefix(version) + DigestUtils.sha256Hex(key));
+    }
+
+    private String getVersionPrefix(String version)
+    {
+        return DigestUtils.sha256Hex(version) + SEPARATOR;
+    }
+
+    private void used(File file)
+    {
+        synchronized (this.entries) {
+            // Move the entry at the end of the index
+            this.entries.get(file);
+        }
+
+        // Remember the entry was recently used after a restart
+        file.setLastModified(System.currentTimeMillis());
+    }
+
+    private void delete(File file)
+    {
+        synchronized (this.entries) {
+            if (file.delete()) {
+                Long length = this.entries.remove(file);
+                if (length != null) {
+                    this.size.addAndGet(-length);
+                }
+            }
+        }
+    }
+
+    private void evict()
+    {
+        if (this.size.get() > this.capacity) {
+            // Free some more space to not have to evict again on the next write
+            long target = this.capacity - this.capacity / 10;
+
+            // Delete the files while holding the lock so that an entry set again in the meantime is not deleted
+            synchronized (this.entries) {
+                Iterator<Map.Entry<File, Long>> iterator = this.entries.entrySet().iterator();
+                while (this.size.get() > target && iterator.hasNext()) {
+                    Map.Entry<File, Long> entry = iterator.next();
+                    iterator.remove();
+                    this.size.addAndGet(-entry.getValue());
+
+                    File file = entry.getKey();
+                    FileUtils.deleteQuietly(file);
+
+                    // Remove the directory of the attachment when it does not contain any entry anymore (deleting a
+                    // directory which is not empty fails)
+                    File attachmentDirectory = file.getParentFile();
+                    String[] remaining = attachmentDirectory.list();
+                    if (remaining != null && remaining.length == 0) {
+                        attachmentDirectory.delete();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -21,8 +21,11 @@
 
 import java.awt.Image;
 import java.awt.image.RenderedImage;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.Arrays;
 
 import org.apache.commons.io.IOUtils;
@@ -35,6 +38,7 @@
 import org.xwiki.cache.config.CacheConfiguration;
 import org.xwiki.cache.eviction.EntryEvictionConfiguration;
 import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.environment.Environment;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -68,6 +72,11 @@ public class ImagePlugin extends XWikiDefaultPlugin
      */
     private Cache<XWikiAttachment> imageCache;
 
+    /**
+     * Disk storage for already served images, used instead of {@link #imageCache} when enabled.
+     */
+    private ImageDiskCache imageDiskCache;
+
     /**
      * The size of the cache. This parameter can be configured using the key {@code xwiki.plugin.image.cache.capacity}.
      */
@@ -116,6 +125,7 @@ public void init(XWikiContext context)
         super.init(context);
 
         initCache(context);
+        initDiskCache(context);
 
         String imageProcessorHint = context.getWiki().Param("xwiki.plugin.image.processorHint", "thumbnailator");
         this.imageProcessor = Utils.getComponent(ImageProcessor.class, imageProcessorHint);
@@ -167,6 +177,30 @@ private void initCache(XWikiContext context)
         }
     }
 
+    /**
+     * Initializes the disk storage of the transformed images when a disk capacity is configured with the key
+     * {@code xwiki.plugin.image.cache.disk.capacity} (in megabytes).
+     *
+     * @param context the XWiki context
+     */
+    private void initDiskCache(XWikiContext context)
+    {
+        String capacityParam = context.getWiki().Param("xwiki.plugin.image.cache.disk.capacity");
+        if (this.imageDiskCache == null && StringUtils.isNotBlank(capacityParam)) {
+            try {
+                long diskCapacity = Long.parseLong(capacityParam.trim());
+                if (diskCapacity > 0) {
+                    File directory = new File(Utils.getComponent(Environment.class).getPermanentDirectory(),
+                        "cache/image");
+                    this.imageDiskCache = new ImageDiskCache(directory, diskCapacity * 1024 * 1024);
+                }
+            } catch (NumberFormatException e) {
+                LOG.warn("Failed to parse xwiki.plugin.image.cache.disk.capacity configuration parameter. "
+                    + "Using the memory cache instead.");
+            }
+        }
+    }
+
     @Override
     public void flushCache()
     {
@@ -250,9 +284,18 @@ private XWikiAttachment downloadImage(XWikiAttachment image, int width, int heig
 
         boolean keepAspectRatio = Boolean.valueOf(context.getRequest().getParameter("keepAspectRatio"));
 
-        XWikiAttachment thumbnail = (this.imageCache == null)
-            ? shrinkImage(image, width, height, keepAspectRatio, quality, context)
-            : downloadImageFromCache(image, width, height, keepAspectRatio, quality, context);
+        XWikiAttachment thumbnail;
+        if (image.getDate() == null) {
+            // The date is part of the identifier of the attachment content in the caches, an attachment without date
+            // (e.g. which has never been saved) cannot be cached
+            thumbnail = shrinkImage(image, width, height, keepAspectRatio, quality, context);
+        } else if (this.imageDiskCache != null) {
+            thumbnail = downloadImageFromDiskCache(image, width, height, keepAspectRatio, quality, context);
+        } else if (this.imageCache != null) {
+            thumbnail = downloadImageFromCache(image, width, height, keepAspectRatio, quality, context);
+        } else {
+            thumbnail = shrinkImage(image, width, height, keepAspectRatio, quality, context);
+        }
 
         // If the image has been transformed, update the file name extension to match the image format.
         String fileName = thumbnail.getFilename();
@@ -293,6 +336,96 @@ private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width,
         return thumbnail;
     }
 
+    /**
+     * Downloads the given image from the disk cache.
+     *
+     * @param image the image to be downloaded
+     * @param width the desired image width; this value is taken into account only if it is greater than zero and
+     *     less than the current image width
+     * @param height the desired image height; this value is taken into account only if it is greater than zero and
+     *     less than the current image height
+     * @param keepAspectRatio {@code true} to preserve aspect ratio when resizing the image, {@code false}
+     *     otherwise
+     * @param quality the desired compression quality
+     * @param context the XWiki context
+     * @return the transformed image
+     * @throws Exception if transforming the image fails
+     */
+    private XWikiAttachment downloadImageFromDiskCache(XWikiAttachment image, int width, int height,
+        boolean keepAspectRatio, float quality, XWikiContext context) throws Exception
+    {
+        String attachment = String.valueOf(image.getReference());
+        String version = String.format("%s;%s", image.getVersion(), image.getDate().getTime());
+        String key = String.format("%s;%s;%s;%s", width, height, keepAspectRatio, quality);
+
+        File file = this.imageDiskCache.get(attachment, version, key);
+        if (file != null) {
+            long length = getLength(file);
+            if (length == 0) {
+                // An empty entry means that the original image should be used
+                return image;
+            } else if (length > 0) {
+                // Transform the image again if the file is evicted before being read
+                return createDiskThumbnail(image, file, length,
+                    () -> shrinkImage(image, width, height, keepAspectRatio, quality, context)
+                        .getContentInputStream(context));
+            }
+
+            // The entry was evicted since it was found, transform the image again
+            LOG.debug("The transformed image [{}] was evicted right after being found", file);
+        }
+
+        XWikiAttachment transformed = shrinkImage(image, width, height, keepAspectRatio, quality, context);
+        if (transformed == image) {
+            // Remember that the original image should be used with an empty entry
+            this.imageDiskCache.set(attachment, version, key, stream -> { });
+
+            return image;
+        }
+
+        file = this.imageDiskCache.set(attachment, version, key, stream -> {
+            try (InputStream content = transformed.getContentInputStream(context)) {
+                IOUtils.copy(content, stream);
+            }
+        });
+
+        long length = getLength(file);
+        if (length < 0) {
+            // The entry was already evicted (the cache is probably too small), use the transformed image directly
+            LOG.debug("The transformed image [{}] was evicted right after being stored", file);
+
+            return transformed;
+        }
+
+        // Use the transformed image kept in memory if the file is evicted before being read
+        return createDiskThumbnail(image, file, length, () -> transformed.getContentInputStream(context));
+    }
+
+    /**
+     * @param file a file of the disk cache
+     * @return the length of the file or {@code -1} if it does not exist (anymore)
+     */
+    private long getLength(File file)
+    {
+        // Check the existence and get the length at once since the entry can be evicted at any time
+        try {
+            return Files.size(file.toPath());
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private XWikiAttachment createDiskThumbnail(XWikiAttachment image, File file, long length,
+        FileImageContent.ContentFallback fallback)
+    {
+        // Stream the transformed image from the disk instead of loading it in memory
+        XWikiAttachment thumbnail = image.clone();
+        thumbnail.setAttachment_content(new FileImageContent(file, length, thumbnail, fallback));
+        thumbnail.setLongSize(length);
+
+        return thumbnail;
+    }
+
     /**
      * Reduces the size (i.e. the number of bytes) of an image by scaling its width and height and by reducing its
      * compression quality. This helps decreasing the time needed to download the image attachment.
@@ -0,0 +1,189 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.image;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.XWikiTempDirExtension;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link ImageDiskCache}.
+ *
+ * @version $Id$
+ */
+@ExtendWith(XWikiTempDirExtension.class)
+class ImageDiskCacheTest
+{
+    @XWikiTempDir
+    private File directory;
+
+    @Test
+    void setGet() throws Exception
+    {
+        ImageDiskCache cache = new ImageDiskCache(this.directory, 1000);
+
+        assertNull(cache.get("attachment", "1.1", "key"));
+
+        File file = cache.set("attachment", "1.1", "key", stream -> stream.write(new byte[] { 1, 2, 3 }));
+
+        assertEquals(file, cache.get("attachment", "1.1", "key"));
+        assertArrayEquals(new byte[] { 1, 2, 3 }, FileUtils.readFileToByteArray(file));
+        assertEquals(3, cache.getSize());
+        assertNull(cache.get("attachment", "1.1", "otherkey"));
+        assertNull(cache.get("otherattachment", "1.1", "key"));
+
+        // The size is restored after a restart
+        assertEquals(3, new ImageDiskCache(this.directory, 1000).getSize());
+    }
+
+    @Test
+    void setNewVersion() throws Exception
+    {
+        ImageDiskCache cache = new ImageDiskCache(this.directory, 1000);
+
+        File file1 = cache.set("attachment", "1.1", "key1", stream -> stream.write(new byte[] { 1, 2, 3 }));
+        cache.set("attachment", "1.1", "key2", stream -> stream.write(new byte[] { 1, 2 }));
+        cache.set("otherattachment", "1.1", "key1", stream -> stream.write(new byte[] { 1 }));
+
+        assertEquals(6, cache.getSize());
+
+        cache.set("attachment", "2.1", "key1", stream -> stream.write(new byte[] { 4 }));
+
+        assertFalse(file1.exists());
+        assertNull(cache.get("attachment", "1.1", "key1"));
+        assertNull(cache.get("attachment", "1.1", "key2"));
+        assertNotNull(cache.get("attachment", "2.1", "key1"));
+        assertNotNull(cache.get("otherattachment", "1.1", "key1"));
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() throws Exception
+    {
+        ImageDiskCache cache = new ImageDiskCache(this.directory, 10);
+
+        File file1 = cache.set("attachment1", "1.1", "key", stream -> stream.write(new byte[4]));
+        File file2 = cache.set("attachment2", "1.1", "key", stream -> stream.write(new byte[4]));
+        file1.setLastModified(1000);
+        file2.setLastModified(2000);
+
+        cache.set("attachment3", "1.1", "key", stream -> stream.write(new byte[4]));
+
+        assertNull(cache.get("attachment1", "1.1", "key"));
+        assertNotNull(cache.get("attachment2", "1.1", "key"));
+        assertNotNull(cache.get("attachment3", "1.1", "key"));
+        assertEquals(8, cache.getSize());
+    }
+
+    @Test
+    void failedWrite() throws Exception
+    {
+        ImageDiskCache cache = new ImageDiskCache(this.directory, 1000);
+
+        assertThrows(IllegalStateException.class, () -> cache.set("attachment", "1.1", "key", stream -> {
+            stream.write(new byte[] { 1 });
+            throw new IllegalStateException();
+        }));
+
+        assertNull(cache.get("attachment", "1.1", "key"));
+        assertEquals(0, cache.getSize());
+        assertEquals(0, FileUtils.listFiles(this.directory, null, true).size());
+    }
+
+    @Test
+    void evictRecentlyReadEntryLast() throws Exception
+    {
+        ImageDiskCache cache = new ImageDiskCache(this.directory, 10);
+
+        cache.set("attachment1", "1.1", "key", stream -> stream.write(new byte[4]));
+        cache.set("attachment2", "1.1", "key", stream -> stream.write(new byte[4]));
+
+        // Read the oldest entry
+        assertNotNull(cache.get("attachment1", "1.1", "key"));
+
+        cache.set("attachment3", "1.1", "key", stream -> stream.write(new byte[4]));
+
+        assertNotNull(cache.get("attachment1", "1.1", "key"));
+        assertNull(cache.get("attachment2", "1.1", "key"));
+        assertNotNull(cache.get("attachment3", "1.1", "key"));
+        assertEquals(8, cache.getSize());
+    }
+
+    @Test
+    void evictRemovesEmptyDirectories() throws Exception
+    {
+        ImageDiskCache cache = new ImageDiskCache(this.directory, 10);
+
+        File file1 = cache.set("attachment1", "1.1", "key", stream -> stream.write(new byte[6]));
+        cache.set("attachment2", "1.1", "key", stream -> stream.write(new byte[6]));
+
+        assertFalse(file1.exists());
+        assertFalse(file1.getParentFile().exists());
+
+        // The directory is created again when needed
+        assertTrue(cache.set("attachment1", "1.1", "key", stream -> stream.write(new byte[2])).exists());
+    }
+
+    @Test
+    void setConcurrently() throws Exception
+    {
+        ImageDiskCache cache = new ImageDiskCache(this.directory, 20);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 400; ++i) {
+                String attachment = "attachment" + (i % 8);
+                futures.add(executor.submit(() -> cache.set(attachment, "1.1", "key",
+                    stream -> stream.write(new byte[4]))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // The index is consistent with the stored files
+        long storedSize = 0;
+        for (File file : FileUtils.listFiles(this.directory, null, true)) {
+            storedSize += file.length();
+        }
+        assertEquals(storedSize, cache.getSize());
+        assertTrue(cache.getSize() <= 20);
+    }
+}
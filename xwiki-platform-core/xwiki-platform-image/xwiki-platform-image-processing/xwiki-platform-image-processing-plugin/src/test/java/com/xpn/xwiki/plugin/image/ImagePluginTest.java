@@ -22,18 +22,23 @@
 import java.awt.Image;
 import java.awt.image.RenderedImage;
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Date;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatchers;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheManager;
+import org.xwiki.environment.Environment;
 
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
@@ -42,8 +47,10 @@
 import com.xpn.xwiki.test.MockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.web.Utils;
 import com.xpn.xwiki.web.XWikiServletRequest;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
@@ -188,6 +195,181 @@ void cacheOfScaledAttachment() throws Exception
         verify(imageCache, times(1)).set(cacheKey, attachment);
     }
 
+    @Test
+    void downloadAttachmentWithoutDate() throws Exception
+    {
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+
+        XWikiAttachment attachment = mock(XWikiAttachment.class);
+        when(attachment.getMimeType(xcontext)).thenReturn("image/png");
+        InputStream attachmentInputStream = new ByteArrayInputStream(IMAGE_CONTENT);
+        when(attachment.getContentInputStream(xcontext)).thenReturn(attachmentInputStream);
+        when(attachment.clone()).thenReturn(attachment);
+
+        XWikiAttachmentContent attachmentContent = mock(XWikiAttachmentContent.class);
+        when(attachment.getAttachment_content()).thenReturn(attachmentContent);
+        OutputStream attachmentOutputStream = mock(OutputStream.class);
+        when(attachmentContent.getContentOutputStream()).thenReturn(attachmentOutputStream);
+
+        CacheManager cacheManager = this.oldCore.getMocker().getInstance(CacheManager.class);
+        Cache<Object> imageCache = mock(Cache.class);
+        when(cacheManager.createNewLocalCache(ArgumentMatchers.any())).thenReturn(imageCache);
+
+        XWikiServletRequest request = mock(XWikiServletRequest.class);
+        when(request.getParameter("width")).thenReturn("30");
+        when(request.getParameter("height")).thenReturn("30");
+        xcontext.setRequest(request);
+
+        Image image = mock(Image.class);
+        when(image.getWidth(null)).thenReturn(400);
+        when(image.getHeight(null)).thenReturn(300);
+        when(this.imageProcessor.readImage(attachmentInputStream)).thenReturn(image);
+        RenderedImage renderedImage = mock(RenderedImage.class);
+        when(this.imageProcessor.scaleImage(image, 30, 30)).thenReturn(renderedImage);
+
+        assertSame(attachment, this.plugin.downloadAttachment(attachment, xcontext));
+
+        // An attachment without date cannot be identified in the cache
+        verify(this.imageProcessor).writeImage(renderedImage, "image/png", .5F, attachmentOutputStream);
+        verify(imageCache, never()).get(any());
+        verify(imageCache, never()).set(any(), any());
+    }
+
+    private ImagePlugin createDiskCachePlugin(XWikiAttachment attachment, int width, int height) throws Exception
+    {
+        doReturn("1").when(this.oldCore.getSpyXWiki()).Param("xwiki.plugin.image.cache.disk.capacity");
+        ImagePlugin diskCachePlugin =
+            new ImagePlugin("image", ImagePlugin.class.getName(), this.oldCore.getXWikiContext());
+
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+        when(attachment.getMimeType(xcontext)).thenReturn("image/png");
+        when(attachment.getContentInputStream(xcontext)).thenReturn(new ByteArrayInputStream(IMAGE_CONTENT));
+        when(attachment.getVersion()).thenReturn("1.1");
+        when(attachment.getDate()).thenReturn(new Date(0));
+
+        XWikiServletRequest request = mock(XWikiServletRequest.class);
+        when(request.getParameter("width")).thenReturn(String.valueOf(width));
+        when(request.getParameter("height")).thenReturn(String.valueOf(height));
+        xcontext.setRequest(request);
+
+        Image image = mock(Image.class);
+        when(image.getWidth(null)).thenReturn(400);
+        when(image.getHeight(null)).thenReturn(300);
+        when(this.imageProcessor.readImage(any())).thenReturn(image);
+        when(this.imageProcessor.scaleImage(eq(image), anyInt(), anyInt())).thenReturn(mock(RenderedImage.class));
+
+        return diskCachePlugin;
+    }
+
+    private byte[] readContent(XWikiAttachment thumbnail) throws Exception
+    {
+        ArgumentCaptor<XWikiAttachmentContent> contentCaptor = ArgumentCaptor.forClass(XWikiAttachmentContent.class);
+        verify(thumbnail).setAttachment_content(contentCaptor.capture());
+
+        try (InputStream stream = contentCaptor.getValue().getContentInputStream()) {
+            return IOUtils.toByteArray(stream);
+        }
+    }
+
+    @Test
+    void downloadAttachmentFromDiskCache() throws Exception
+    {
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+
+        XWikiAttachment attachment = mock(XWikiAttachment.class);
+        ImagePlugin diskCachePlugin = createDiskCachePlugin(attachment, 30, 30);
+
+        // The image transformed in memory
+        XWikiAttachment transformed = mock(XWikiAttachment.class);
+        XWikiAttachmentContent transformedContent = mock(XWikiAttachmentContent.class);
+        when(transformed.getAttachment_content()).thenReturn(transformedContent);
+        when(transformedContent.getContentOutputStream()).thenReturn(mock(OutputStream.class));
+        when(transformed.getContentInputStream(xcontext)).thenReturn(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+
+        // The images streamed from the disk
+        XWikiAttachment thumbnail1 = mock(XWikiAttachment.class);
+        XWikiAttachment thumbnail2 = mock(XWikiAttachment.class);
+        when(attachment.clone()).thenReturn(transformed, thumbnail1, thumbnail2);
+
+        // Not in the cache
+        assertSame(thumbnail1, diskCachePlugin.downloadAttachment(attachment, xcontext));
+        verify(thumbnail1).setLongSize(3);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, readContent(thumbnail1));
+
+        // In the cache
+        assertSame(thumbnail2, diskCachePlugin.downloadAttachment(attachment, xcontext));
+        verify(thumbnail2).setLongSize(3);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, readContent(thumbnail2));
+
+        // The image is transformed only once
+        verify(this.imageProcessor).readImage(any());
+        verify(this.imageProcessor).writeImage(any(), eq("image/png"), eq(.5F), any());
+    }
+
+    private XWikiAttachment mockTransformed(XWikiContext xcontext) throws Exception
+    {
+        XWikiAttachment transformed = mock(XWikiAttachment.class);
+        XWikiAttachmentContent transformedContent = mock(XWikiAttachmentContent.class);
+        when(transformed.getAttachment_content()).thenReturn(transformedContent);
+        when(transformedContent.getContentOutputStream()).thenReturn(mock(OutputStream.class));
+        when(transformed.getContentInputStream(xcontext))
+            .then(invocation -> new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+
+        return transformed;
+    }
+
+    @Test
+    void downloadAttachmentFromDiskCacheWhenEvicted() throws Exception
+    {
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+
+        XWikiAttachment attachment = mock(XWikiAttachment.class);
+        ImagePlugin diskCachePlugin = createDiskCachePlugin(attachment, 30, 30);
+
+        XWikiAttachment transformed1 = mockTransformed(xcontext);
+        XWikiAttachment transformed2 = mockTransformed(xcontext);
+        XWikiAttachment thumbnail1 = mock(XWikiAttachment.class);
+        XWikiAttachment thumbnail2 = mock(XWikiAttachment.class);
+        when(attachment.clone()).thenReturn(transformed1, thumbnail1, thumbnail2, transformed2);
+
+        // Not in the cache
+        assertSame(thumbnail1, diskCachePlugin.downloadAttachment(attachment, xcontext));
+        // In the cache
+        assertSame(thumbnail2, diskCachePlugin.downloadAttachment(attachment, xcontext));
+
+        // Evict the entry before the images are read
+        File directory = new File(Utils.getComponent(Environment.class).getPermanentDirectory(), "cache/image");
+        FileUtils.deleteDirectory(directory);
+
+        // The image transformed in memory is used
+        assertArrayEquals(new byte[] { 1, 2, 3 }, readContent(thumbnail1));
+        verify(this.imageProcessor).readImage(any());
+
+        // The image is transformed again
+        assertArrayEquals(new byte[] { 1, 2, 3 }, readContent(thumbnail2));
+        verify(this.imageProcessor, times(2)).readImage(any());
+    }
+
+    @Test
+    void downloadAttachmentFromDiskCacheWhenNotTransformed() throws Exception
+    {
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+
+        XWikiAttachment attachment = mock(XWikiAttachment.class);
+        // Requesting a bigger image does not transform it
+        ImagePlugin diskCachePlugin = createDiskCachePlugin(attachment, 800, 600);
+
+        // Not in the cache
+        assertSame(attachment, diskCachePlugin.downloadAttachment(attachment, xcontext));
+
+        // In the cache, as an empty entry
+        assertSame(attachment, diskCachePlugin.downloadAttachment(attachment, xcontext));
+
+        verify(this.imageProcessor).readImage(any());
+        verify(this.imageProcessor, never()).scaleImage(any(), anyInt(), anyInt());
+        verify(attachment, never()).clone();
+    }
+
     @ParameterizedTest
     @CsvSource({
         "100, 500, false, 60, 300",
@@ -19,8 +19,13 @@
  */
 package org.xwiki.index.internal;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -28,25 +33,36 @@
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.context.ExecutionContextException;
 import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.doc.tasks.XWikiDocumentIndexingTask;
 import org.xwiki.index.TaskManager;
 import org.xwiki.index.internal.jmx.JMXTasks;
+import org.xwiki.index.internal.jmx.TasksMetrics;
 import org.xwiki.management.JMXBeanRegistration;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
@@ -60,6 +76,13 @@
 
 /**
  * Initialize a {@link PriorityBlockingQueue} with the tasks stored in database.
+ * <p>
+ * The queue is consumed by a dispatcher thread which submits the tasks to a pool of threads per type of task (see
+ * {@link #THREADS_PROPERTY}). Two tasks for the same document are never executed at the same time: a task for a
+ * document which already has a task executing waits for it to be done, and a task whose type has no thread available
+ * waits for one without blocking the dispatch of the tasks of the other types. The future of a task is completed as
+ * soon as the task is done, while the completed tasks are removed from the database in batches (see
+ * {@link #DELETE_BATCH_SIZE_PROPERTY}), or as soon as there is nothing left to execute.
  *
  * @version $Id$
  * @since 14.1RC1
@@ -68,8 +91,38 @@
 @Singleton
 public class DefaultTasksManager implements TaskManager, Initializable, Disposable, Runnable
 {
+    /**
+     * The name of the property containing the number of threads used to execute the tasks of each type.
+     */
+    static final String THREADS_PROPERTY = "index.tasks.threads";
+
+    /**
+     * The format of the name of the property overwriting {@link #THREADS_PROPERTY} for a given type of tasks.
+     */
+    static final String TYPE_THREADS_PROPERTY_FORMAT = "index.tasks.%s.threads";
+
+    /**
+     * The default number of threads used to execute the tasks of each type.
+     */
+    static final int THREADS_DEFAULT = 1;
+
+    /**
+     * The name of the property containing the maximum number of completed tasks removed from the database at once.
+     */
+    static final String DELETE_BATCH_SIZE_PROPERTY = "index.tasks.deleteBatchSize";
+
+    /**
+     * The default maximum number of completed tasks removed from the database at once.
+     */
+    static final int DELETE_BATCH_SIZE_DEFAULT = 100;
+
     private static final String MBEAN_NAME = "name=index";
 
+    /**
+     * The number of seconds given to the executing tasks to finish when the task manager stops.
+     */
+    private static final long STOP_TIMEOUT = 10;
+
     private PriorityBlockingQueue<TaskData> queue;
 
     /**
@@ -78,6 +131,40 @@ public class DefaultTasksManager implements TaskManager, Initializable, Disposab
      */
     private ConcurrentHashMap<TaskData, Long> latestTimestampTasksMap;
 
+    /**
+     * The executors in charge of the tasks, per type of task.
+     */
+    private final Map<String, TypeExecutor> executors = new ConcurrentHashMap<>();
+
+    /**
+     * The number of tasks currently dispatched to an executor.
+     */
+    private final AtomicInteger activeTasks = new AtomicInteger();
+
+    /**
+     * The documents which have a task executing, associated with the tasks waiting for the same document. Access must
+     * be synchronized on the map.
+     */
+    private final Map<String, Deque<TaskData>> runningDocuments = new HashMap<>();
+
+    /**
+     * The tasks currently executing.
+     */
+    private final Set<TaskData> executingTasks = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The tasks which are done and need to be removed from the database. Access must be synchronized on the list.
+     */
+    private final List<TaskData> completedTasks = new ArrayList<>();
+
+    private TasksMetrics metrics;
+
+    private int deleteBatchSize;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
     @Inject
     private WikiDescriptorManager wikiDescriptorManager;
 
@@ -102,7 +189,7 @@ public class DefaultTasksManager implements TaskManager, Initializable, Disposab
     /**
      * When {@code true}, indicates that the {@link #run()} method should stop.
      */
-    private boolean halt;
+    private volatile boolean halt;
 
     /**
      * Lock used to ensure that no thread is in a state where a task has been added to the database but not to the
@@ -155,11 +242,14 @@ public CompletableFuture<TaskData> addTask(String wikiId, long docId, String ver
     @Override
     public void initialize()
     {
+        this.metrics = new TasksMetrics();
         this.jmxRegistration.registerMBean(new JMXTasks(this::getQueueSize,
-                () -> this.queue.stream().collect(Collectors.groupingBy(TaskData::getType, Collectors.counting()))),
+                () -> getQueuedTasks().collect(Collectors.groupingBy(TaskData::getType, Collectors.counting())),
+                this.metrics),
             MBEAN_NAME);
         this.queue = new PriorityBlockingQueue<>(11, Comparator.comparingLong(TaskData::getTimestamp));
         this.latestTimestampTasksMap = new ConcurrentHashMap<>();
+        this.deleteBatchSize = getPositiveProperty(DELETE_BATCH_SIZE_PROPERTY, DELETE_BATCH_SIZE_DEFAULT);
     }
 
     @Override
@@ -183,19 +273,19 @@ public void startThread()
     @Override
     public long getQueueSize()
     {
-        return this.queue.size();
+        return getQueuedTasks().count();
     }
 
     @Override
     public long getQueueSize(String type)
     {
-        return this.queue.stream().filter(taskData -> Objects.equals(taskData.getType(), type)).count();
+        return getQueuedTasks().filter(taskData -> Objects.equals(taskData.getType(), type)).count();
     }
 
     @Override
     public Map<String, Long> getQueueSizePerType(String wikiId)
     {
-        return this.queue.stream()
+        return getQueuedTasks()
             .filter(taskData -> Objects.equals(taskData.getWikiId(), wikiId))
             .collect(Collectors.groupingBy(TaskData::getType, Collectors.counting()));
     }
@@ -218,43 +308,244 @@ private void consume()
         TaskData task = null;
         try {
             task = this.queue.take();
-            task.increaseAttempts();
             if (task.isStop()) {
                 this.halt = true;
+                stop();
+            } else if (isTimestampValid(task)) {
+                dispatch(task);
             } else {
-                if (isTimestampValid(task)) {
-                    this.taskExecutor.execute(task);
-                    task.getFuture().complete(task);
-                } else {
-                    task.getFuture().cancel(false);
-                }
-                deleteTask(task);
+                task.getFuture().cancel(false);
+                flushCompletedTasksIfNeeded();
             }
         } catch (InterruptedException e) {
             this.logger.warn("The task manager consumer thread was interrupted while processing task [{}] for "
                 + "document [{}]. Cause: [{}].", task, getTaskDocumentReferenceForLogging(task),
                 getRootCauseMessage(e));
             Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Let the executing tasks finish and cancel the ones which are waiting, or still executing after
+     * {@link #STOP_TIMEOUT} seconds, so that their futures are completed. The tasks which were not completed are
+     * reloaded from the database on restart.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for the executing tasks to finish
+     */
+    private void stop() throws InterruptedException
+    {
+        // Cancel the tasks waiting for their document first, since cancelling a pending task puts the tasks waiting for
+        // its document back in the queue.
+        synchronized (this.runningDocuments) {
+            this.runningDocuments.values().stream().flatMap(Collection::stream)
+                .forEach(task -> task.getFuture().cancel(false));
+        }
+        for (TypeExecutor typeExecutor : this.executors.values()) {
+            List<TaskData> pendingTasks;
+            synchronized (typeExecutor.pendingTasks) {
+                pendingTasks = new ArrayList<>(typeExecutor.pendingTasks);
+                typeExecutor.pendingTasks.clear();
+            }
+            pendingTasks.forEach(this::cancel);
+            typeExecutor.executor.shutdown();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(STOP_TIMEOUT);
+        for (TypeExecutor typeExecutor : this.executors.values()) {
+            if (!typeExecutor.executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                typeExecutor.executor.shutdownNow();
+            }
+        }
+        for (TaskData task : this.executingTasks) {
+            this.logger.warn("Task [{}] was still executing when the task manager stopped.", task);
+            task.getFuture().cancel(false);
+        }
+
+        flushCompletedTasks();
+    }
+
+    private void cancel(TaskData task)
+    {
+        release(task);
+        this.activeTasks.decrementAndGet();
+        task.getFuture().cancel(false);
+    }
+
+    /**
+     * Submit the task to the executor of its type, unless a task is already executing for the same document, in which
+     * case the task waits for the previous one to be done.
+     *
+     * @param task the task to execute
+     */
+    private void dispatch(TaskData task)
+    {
+        String documentKey = getDocumentKey(task);
+        boolean documentRunning;
+        synchronized (this.runningDocuments) {
+            Deque<TaskData> waitingTasks = this.runningDocuments.get(documentKey);
+            documentRunning = waitingTasks != null;
+            if (documentRunning) {
+                waitingTasks.add(task);
+            } else {
+                this.runningDocuments.put(documentKey, new ArrayDeque<>());
+                this.activeTasks.incrementAndGet();
+            }
+        }
+
+        if (!documentRunning) {
+            TypeExecutor typeExecutor = this.executors.computeIfAbsent(task.getType(), this::createExecutor);
+            boolean acquired;
+            synchronized (typeExecutor.pendingTasks) {
+                // Keep the order of the queue between the tasks of the same type.
+                acquired = typeExecutor.pendingTasks.isEmpty() && typeExecutor.permits.tryAcquire();
+                if (!acquired) {
+                    // All the threads of the type are busy: the task is submitted as soon as one is available, and the
+                    // tasks of the other types keep being dispatched in the meantime.
+                    typeExecutor.pendingTasks.add(task);
+                }
+            }
+            if (acquired) {
+                submit(task, typeExecutor);
+            }
+        }
+    }
+
+    /**
+     * Submit the task to the executor of its type. The caller must hold a permit of the executor, which is released
+     * once the task is done.
+     *
+     * @param task the task to execute
+     * @param typeExecutor the executor of the type of the task
+     */
+    private void submit(TaskData task, TypeExecutor typeExecutor)
+    {
+        try {
+            typeExecutor.executor.execute(() -> execute(task, typeExecutor));
+        } catch (RejectedExecutionException e) {
+            // The task manager is stopping, the task is still in the database and will be reloaded on restart.
+            typeExecutor.permits.release();
+            cancel(task);
+            this.logger.debug("Task [{}] rejected because the task manager is stopping.", task);
+        }
+    }
+
+    private TypeExecutor createExecutor(String type)
+    {
+        int threads = getPositiveProperty(String.format(TYPE_THREADS_PROPERTY_FORMAT, type),
+            getPositiveProperty(THREADS_PROPERTY, THREADS_DEFAULT));
+        BasicThreadFactory factory = new BasicThreadFactory.Builder()
+            .namingPattern("task-manager-consumer-" + type + "-%d").daemon(true).priority(NORM_PRIORITY - 1).build();
+
+        return new TypeExecutor(Executors.newFixedThreadPool(threads, factory), threads);
+    }
+
+    private void execute(TaskData task, TypeExecutor typeExecutor)
+    {
+        this.executingTasks.add(task);
+        try {
+            // The task might have been queued again while waiting for a thread.
+            if (isTimestampValid(task)) {
+                executeValidTask(task);
+            } else {
+                task.getFuture().cancel(false);
+            }
+        } finally {
+            this.executingTasks.remove(task);
+            // Hand over the permit to the next pending task of the same type, if any.
+            TaskData nextTask;
+            synchronized (typeExecutor.pendingTasks) {
+                nextTask = typeExecutor.pendingTasks.poll();
+                if (nextTask == null) {
+                    typeExecutor.permits.release();
+                }
+            }
+            if (nextTask != null) {
+                submit(nextTask, typeExecutor);
+            }
+            release(task);
+            this.activeTasks.decrementAndGet();
+            flushCompletedTasksIfNeeded();
+        }
+    }
+
+    private void executeValidTask(TaskData task)
+    {
+        task.increaseAttempts();
+        this.metrics.taskStarted();
+        long start = System.nanoTime();
+        try {
+            this.taskExecutor.execute(task);
+            this.metrics.taskSucceeded(task.getType(), System.nanoTime() - start);
+            addCompletedTask(task);
+            task.getFuture().complete(task);
         } catch (Exception e) {
             this.logger.warn("Error during the execution of task [{}] for document [{}]. Cause: [{}].", task,
                 getTaskDocumentReferenceForLogging(task), getRootCauseMessage(e));
             this.logger.debug("Stack trace for previous error: ", e);
-            if (task != null && isTimestampValid(task)) {
-                if (!task.tooManyAttempts()) {
-                    // Push back the failed task at the beginning of the queue by resetting its timestamp.
-                    long newTimestamp = System.currentTimeMillis();
-                    this.latestTimestampTasksMap.put(task, newTimestamp);
-                    task.setTimestamp(newTimestamp);
-                    this.queue.put(task);
-                } else {
-                    this.logger.error("[{}] abandoned because it has failed too many times.", task, e);
-                    deleteTask(task);
-                    task.getFuture().cancel(false);
-                }
-            } else if (task != null) {
+            boolean valid = isTimestampValid(task);
+            this.metrics.taskFailed(valid && task.tooManyAttempts());
+            if (!valid) {
+                task.getFuture().cancel(false);
+            } else if (!task.tooManyAttempts()) {
+                // Push back the failed task at the beginning of the queue by resetting its timestamp.
+                long newTimestamp = System.currentTimeMillis();
+                this.latestTimestampTasksMap.put(task, newTimestamp);
+                task.setTimestamp(newTimestamp);
+                this.queue.put(task);
+            } else {
+                this.logger.error("[{}] abandoned because it has failed too many times.", task, e);
+                addCompletedTask(task);
                 task.getFuture().cancel(false);
             }
-        } 
+        }
+    }
+
+    /**
+     * Mark the document of the task as not running anymore, and put back in the queue the tasks which were waiting for
+     * it. They keep their timestamp and are thus dispatched again before the tasks queued after them.
+     *
+     * @param task the task which is done
+     */
+    private void release(TaskData task)
+    {
+        synchronized (this.runningDocuments) {
+            Deque<TaskData> waitingTasks = this.runningDocuments.remove(getDocumentKey(task));
+            if (waitingTasks != null) {
+                this.queue.addAll(waitingTasks);
+            }
+        }
+    }
+
+    private String getDocumentKey(TaskData task)
+    {
+        return task.getWikiId() + ':' + task.getDocId();
+    }
+
+    /**
+     * @return the tasks which are not executed yet, either because they are still in the queue or because they wait
+     *     for another task of the same document or for a thread
+     */
+    private Stream<TaskData> getQueuedTasks()
+    {
+        List<TaskData> waitingTasks;
+        synchronized (this.runningDocuments) {
+            waitingTasks = this.runningDocuments.values().stream().flatMap(Collection::stream)
+                .collect(Collectors.toList());
+        }
+        for (TypeExecutor typeExecutor : this.executors.values()) {
+            synchronized (typeExecutor.pendingTasks) {
+                waitingTasks.addAll(typeExecutor.pendingTasks);
+            }
+        }
+
+        return Stream.concat(this.queue.stream(), waitingTasks.stream());
+    }
+
+    private int getPositiveProperty(String key, int defaultValue)
+    {
+        Integer value = this.configuration.getProperty(key, Integer.class);
+
+        return value != null && value > 0 ? value : defaultValue;
     }
 
     private void initQueue() throws InitializationException
@@ -289,7 +580,7 @@ private void loadWiki(String wikiId) throws InitializationException
             // Make sure no task is in the DB but not in the queue.
             this.writeLock.lock();
             try {
-                existingTasks = new HashSet<>(this.queue);
+                existingTasks = getQueuedTasks().collect(Collectors.toCollection(HashSet::new));
             } finally {
                 this.writeLock.unlock();
             }
@@ -338,19 +629,54 @@ private boolean isTimestampValid(TaskData task)
         return task.getTimestamp() == this.latestTimestampTasksMap.getOrDefault(task, 0L);
     }
 
-    private void deleteTask(TaskData task)
+    private void addCompletedTask(TaskData task)
     {
+        synchronized (this.completedTasks) {
+            this.completedTasks.add(task);
+        }
+    }
+
+    /**
+     * Remove the completed tasks from the database when there are enough of them, or when there is nothing left to
+     * execute.
+     */
+    private void flushCompletedTasksIfNeeded()
+    {
+        boolean flush;
+        synchronized (this.completedTasks) {
+            flush = !this.completedTasks.isEmpty() && (this.completedTasks.size() >= this.deleteBatchSize
+                || (this.queue.isEmpty() && this.activeTasks.get() == 0));
+        }
+
+        if (flush) {
+            flushCompletedTasks();
+        }
+    }
+
+    /**
+     * Remove the completed tasks from the database, one transaction per wiki.
+     */
+    private void flushCompletedTasks()
+    {
+        List<TaskData> tasks;
+        synchronized (this.completedTasks) {
+            tasks = new ArrayList<>(this.completedTasks);
+            this.completedTasks.clear();
+        }
+
         this.writeLock.lock();
         try {
-            if (isTimestampValid(task)) {
+            // The tasks queued again during their execution must stay in the database.
+            Map<String, List<TaskData>> tasksPerWiki = tasks.stream().filter(this::isTimestampValid)
+                .collect(Collectors.groupingBy(TaskData::getWikiId));
+            for (Map.Entry<String, List<TaskData>> entry : tasksPerWiki.entrySet()) {
                 try {
-                    this.tasksStore.get()
-                        .deleteTask(task.getWikiId(), task.getDocId(), task.getVersion(), task.getType());
+                    this.tasksStore.get().deleteTasks(entry.getKey(), entry.getValue());
                 } catch (XWikiException e) {
-                    this.logger.error("Failed to delete task [{}] from the queue. It will be reloaded on restart.",
-                        task, e);
+                    this.logger.error("Failed to delete [{}] tasks of wiki [{}] from the queue. They will be reloaded"
+                        + " on restart.", entry.getValue().size(), entry.getKey(), e);
                 }
-                this.latestTimestampTasksMap.remove(task);
+                entry.getValue().forEach(this.latestTimestampTasksMap::remove);
             }
         } finally {
             this.writeLock.unlock();
@@ -370,4 +696,24 @@ private DocumentReference getTaskDocumentReferenceForLogging(TaskData taskData)
         }
         return result;
     }
+
+    /**
+     * The executor of a type of tasks, with the permits limiting the number of tasks submitted to the number of
+     * threads, and the tasks waiting for a permit in dispatch order. Access to the pending tasks must be synchronized
+     * on the deque.
+     */
+    private static final class TypeExecutor
+    {
+        private final ExecutorService executor;
+
+        private final Semaphore permits;
+
+        private final Deque<TaskData> pendingTasks = new ArrayDeque<>();
+
+        TypeExecutor(ExecutorService executor, int threads)
+        {
+            this.executor = executor;
+            this.permits = new Semaphore(threads);
+        }
+    }
 }
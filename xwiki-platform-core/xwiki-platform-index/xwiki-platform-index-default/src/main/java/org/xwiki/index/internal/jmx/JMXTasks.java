@@ -35,16 +35,21 @@ public class JMXTasks implements JMXTasksMBean
 
     private final Supplier<Map<String, Long>> queueSizePerType;
 
+    private final TasksMetrics metrics;
+
     /**
      * Default constructor, let the method initializing the MBean provide the suppliers for the MBean operations.
      *
      * @param queueSize the queue size supplier
      * @param queueSizePerType the queue size per type supplier
+     * @param metrics the statistics of the consumed tasks
+     * @since 16.3.0RC1
      */
-    public JMXTasks(LongSupplier queueSize, Supplier<Map<String, Long>> queueSizePerType)
+    public JMXTasks(LongSupplier queueSize, Supplier<Map<String, Long>> queueSizePerType, TasksMetrics metrics)
     {
         this.queueSize = queueSize;
         this.queueSizePerType = queueSizePerType;
+        this.metrics = metrics;
     }
 
     @Override
@@ -58,4 +63,46 @@ public Map<String, Long> getQueueSizePerType()
     {
         return this.queueSizePerType.get();
     }
+
+    @Override
+    public long getProcessedTaskCount()
+    {
+        return this.metrics.getProcessedTaskCount();
+    }
+
+    @Override
+    public Map<String, Long> getProcessedTaskCountPerType()
+    {
+        return this.metrics.getProcessedTaskCountPerType();
+    }
+
+    @Override
+    public long getFailedTaskCount()
+    {
+        return this.metrics.getFailedTaskCount();
+    }
+
+    @Override
+    public long getAbandonedTaskCount()
+    {
+        return this.metrics.getAbandonedTaskCount();
+    }
+
+    @Override
+    public long getRunningTaskCount()
+    {
+        return this.metrics.getRunningTaskCount();
+    }
+
+    @Override
+    public double getThroughput()
+    {
+        return this.metrics.getThroughput();
+    }
+
+    @Override
+    public double getAverageExecutionTime()
+    {
+        return this.metrics.getAverageExecutionTime();
+    }
 }
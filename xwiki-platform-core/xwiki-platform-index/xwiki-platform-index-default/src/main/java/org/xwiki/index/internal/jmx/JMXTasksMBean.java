@@ -39,4 +39,46 @@
      * @return the total number of tasks in the queue, grouped per type of tasks
      */
     Map<String, Long> getQueueSizePerType();
+
+    /**
+     * @return the number of tasks executed successfully since the start
+     * @since 16.3.0RC1
+     */
+    long getProcessedTaskCount();
+
+    /**
+     * @return the number of tasks executed successfully since the start, grouped per type of tasks
+     * @since 16.3.0RC1
+     */
+    Map<String, Long> getProcessedTaskCountPerType();
+
+    /**
+     * @return the number of failed executions since the start, including the ones that have been retried
+     * @since 16.3.0RC1
+     */
+    long getFailedTaskCount();
+
+    /**
+     * @return the number of tasks abandoned since the start because they failed too many times
+     * @since 16.3.0RC1
+     */
+    long getAbandonedTaskCount();
+
+    /**
+     * @return the number of tasks currently executing
+     * @since 16.3.0RC1
+     */
+    long getRunningTaskCount();
+
+    /**
+     * @return the average number of tasks executed successfully per second since the start
+     * @since 16.3.0RC1
+     */
+    double getThroughput();
+
+    /**
+     * @return the average execution time of the successful tasks, in milliseconds
+     * @since 16.3.0RC1
+     */
+    double getAverageExecutionTime();
 }
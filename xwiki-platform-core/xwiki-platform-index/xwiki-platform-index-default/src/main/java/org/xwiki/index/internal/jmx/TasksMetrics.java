@@ -0,0 +1,147 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.index.internal.jmx;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Collect the statistics of the tasks consumed by the task manager, exposed through {@link JMXTasks}.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+public class TasksMetrics
+{
+    private final long startTime = System.nanoTime();
+
+    private final Map<String, LongAdder> processedPerType = new ConcurrentHashMap<>();
+
+    private final LongAdder processed = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder abandoned = new LongAdder();
+
+    private final AtomicLong running = new AtomicLong();
+
+    private final LongAdder executionTime = new LongAdder();
+
+    /**
+     * Called when a task starts executing.
+     */
+    public void taskStarted()
+    {
+        this.running.incrementAndGet();
+    }
+
+    /**
+     * Called when a task has been executed successfully.
+     *
+     * @param type the type of the task
+     * @param duration the duration of the execution of the task, in nanoseconds
+     */
+    public void taskSucceeded(String type, long duration)
+    {
+        this.running.decrementAndGet();
+        this.processed.increment();
+        this.processedPerType.computeIfAbsent(type, key -> new LongAdder()).increment();
+        this.executionTime.add(duration);
+    }
+
+    /**
+     * Called when the execution of a task has failed.
+     *
+     * @param abandon {@code true} when the task will not be retried
+     */
+    public void taskFailed(boolean abandon)
+    {
+        this.running.decrementAndGet();
+        this.failed.increment();
+        if (abandon) {
+            this.abandoned.increment();
+        }
+    }
+
+    /**
+     * @return the number of tasks executed successfully since the start
+     */
+    public long getProcessedTaskCount()
+    {
+        return this.processed.sum();
+    }
+
+    /**
+     * @return the number of tasks executed successfully since the start, grouped per type of tasks
+     */
+    public Map<String, Long> getProcessedTaskCountPerType()
+    {
+        return this.processedPerType.entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+    }
+
+    /**
+     * @return the number of failed executions since the start, including the ones that have been retried
+     */
+    public long getFailedTaskCount()
+    {
+        return this.failed.sum();
+    }
+
+    /**
+     * @return the number of tasks abandoned since the start because they failed too many times
+     */
+    public long getAbandonedTaskCount()
+    {
+        return this.abandoned.sum();
+    }
+
+    /**
+     * @return the number of tasks currently executing
+     */
+    public long getRunningTaskCount()
+    {
+        return this.running.get();
+    }
+
+    /**
+     * @return the average number of tasks executed successfully per second since the start
+     */
+    public double getThroughput()
+    {
+        long elapsed = System.nanoTime() - this.startTime;
+
+        return elapsed > 0 ? getProcessedTaskCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed : 0;
+    }
+
+    /**
+     * @return the average execution time of the successful tasks, in milliseconds
+     */
+    public double getAverageExecutionTime()
+    {
+        long count = getProcessedTaskCount();
+
+        return count > 0 ? this.executionTime.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1) / count : 0;
+    }
+}
@@ -24,15 +24,22 @@
 import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import javax.inject.Named;
 import javax.inject.Provider;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.doc.tasks.XWikiDocumentIndexingTask;
+import org.xwiki.index.internal.jmx.JMXTasksMBean;
 import org.xwiki.management.JMXBeanRegistration;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
@@ -51,13 +58,17 @@
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.matchesPattern;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -98,6 +109,10 @@
     @MockComponent
     private TaskExecutor taskExecutor;
 
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
     @Mock
     private TasksStore tasksStore;
 
@@ -243,7 +258,7 @@ void addTaskDuringTaskExecution() throws Exception
             return null;
         })
             .doAnswer(invocation -> {
-                verify(this.tasksStore, never()).deleteTask("wikiA", 42, "1.2", "concurrent");
+                verify(this.tasksStore, never()).deleteTasks(any(), any());
                 return null;
             })
             .doAnswer(invocation -> null)
@@ -258,7 +273,8 @@ void addTaskDuringTaskExecution() throws Exception
         // not be called before the end of the test. 
         this.tasksManager.addTask("wikiA", 42, "1.3", "concurrent").get();
 
-        verify(this.tasksStore).deleteTask("wikiA", 42, "1.2", "concurrent");
+        verify(this.tasksStore, timeout(10000))
+            .deleteTasks("wikiA", List.of(new TaskData(42, "1.2", "concurrent", "wikiA")));
     }
 
     @Test
@@ -280,7 +296,8 @@ void addTaskConcurrently() throws Exception
         // not be called before the end of the test.
         this.tasksManager.addTask("wikiA", 42, "1.3", "concurrent").get();
 
-        verify(this.tasksStore).deleteTask("wikiA", 42, "1.2", "concurrent");
+        verify(this.tasksStore, timeout(10000))
+            .deleteTasks("wikiA", List.of(new TaskData(42, "1.2", "concurrent", "wikiA")));
     }
 
     @Test
@@ -295,4 +312,175 @@ void getQueueSizePerType()
         assertEquals(Map.of("typeA", 2L), this.tasksManager.getQueueSizePerType("wikiB"));
         assertEquals(Map.of(), this.tasksManager.getQueueSizePerType("wikiC"));
     }
+
+    @Test
+    void executeTasksOfDifferentDocumentsInParallel() throws Exception
+    {
+        when(this.configuration.getProperty(DefaultTasksManager.THREADS_PROPERTY, Integer.class)).thenReturn(2);
+
+        // Each execution only returns once the two tasks are executing at the same time.
+        CountDownLatch executing = new CountDownLatch(2);
+        doAnswer(invocation -> {
+            executing.countDown();
+            assertTrue(executing.await(10, TimeUnit.SECONDS));
+            return null;
+        }).when(this.taskExecutor).execute(any());
+
+        this.tasksManager.startThread();
+        CompletableFuture<TaskData> future42 = this.tasksManager.addTask("wikiId", 42, "1.3", "testtask");
+        CompletableFuture<TaskData> future43 = this.tasksManager.addTask("wikiId", 43, "1.3", "testtask");
+
+        assertEquals(new TaskData(42, "1.3", "testtask", "wikiId"), future42.get(20, TimeUnit.SECONDS));
+        assertEquals(new TaskData(43, "1.3", "testtask", "wikiId"), future43.get(20, TimeUnit.SECONDS));
+        assertEquals(0, this.logCapture.size());
+    }
+
+    @Test
+    void executeTasksOfSameDocumentSequentially() throws Exception
+    {
+        when(this.configuration.getProperty(DefaultTasksManager.THREADS_PROPERTY, Integer.class)).thenReturn(4);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(10);
+            running.decrementAndGet();
+            return null;
+        }).when(this.taskExecutor).execute(any());
+
+        this.tasksManager.startThread();
+        CompletableFuture<TaskData> future0 = this.tasksManager.addTask("wikiId", 42, "1.3", "typeA");
+        CompletableFuture<TaskData> future1 = this.tasksManager.addTask("wikiId", 42, "1.3", "typeB");
+        CompletableFuture<TaskData> future2 = this.tasksManager.addTask("wikiId", 42, "1.4", "typeA");
+
+        assertNotNull(future0.get());
+        assertNotNull(future1.get());
+        assertNotNull(future2.get());
+        verify(this.taskExecutor, times(3)).execute(any());
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    void deleteCompletedTasksInBatch() throws Exception
+    {
+        CompletableFuture<TaskData> future0 = this.tasksManager.addTask("wikiA", 42, "1.2", "typeA");
+        CompletableFuture<TaskData> future1 = this.tasksManager.addTask("wikiA", 43, "1.2", "typeA");
+        CompletableFuture<TaskData> future2 = this.tasksManager.addTask("wikiB", 42, "1.2", "typeA");
+
+        this.tasksManager.startThread();
+
+        assertNotNull(future0.get());
+        assertNotNull(future1.get());
+        assertNotNull(future2.get());
+
+        // The tasks of the same wiki are deleted at once, when there is nothing left to execute.
+        verify(this.tasksStore, timeout(10000)).deleteTasks("wikiA",
+            List.of(new TaskData(42, "1.2", "typeA", "wikiA"), new TaskData(43, "1.2", "typeA", "wikiA")));
+        verify(this.tasksStore, timeout(10000))
+            .deleteTasks("wikiB", List.of(new TaskData(42, "1.2", "typeA", "wikiB")));
+        verify(this.tasksStore, never()).deleteTask(any(), eq(42L), any(), any());
+    }
+
+    @Test
+    void completeFutureBeforeDeletingTask() throws Exception
+    {
+        CountDownLatch deleted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            assertTrue(deleted.await(10, TimeUnit.SECONDS));
+            return null;
+        }).when(this.tasksStore).deleteTasks(any(), any());
+
+        this.tasksManager.startThread();
+
+        // The future is completed while the task is still being removed from the database.
+        assertEquals(new TaskData(42, "1.2", "typeA", "wikiA"),
+            this.tasksManager.addTask("wikiA", 42, "1.2", "typeA").get(20, TimeUnit.SECONDS));
+        deleted.countDown();
+
+        verify(this.tasksStore, timeout(10000))
+            .deleteTasks("wikiA", List.of(new TaskData(42, "1.2", "typeA", "wikiA")));
+    }
+
+    @Test
+    void dispatchOtherTypesWhileTypeIsBusy() throws Exception
+    {
+        CountDownLatch typeABlocked = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if ("typeA".equals(((TaskData) invocation.getArgument(0)).getType())) {
+                assertTrue(typeABlocked.await(10, TimeUnit.SECONDS));
+            }
+            return null;
+        }).when(this.taskExecutor).execute(any());
+
+        this.tasksManager.startThread();
+        CompletableFuture<TaskData> futureA0 = this.tasksManager.addTask("wikiId", 42, "1.3", "typeA");
+        CompletableFuture<TaskData> futureA1 = this.tasksManager.addTask("wikiId", 43, "1.3", "typeA");
+        CompletableFuture<TaskData> futureB = this.tasksManager.addTask("wikiId", 44, "1.3", "typeB");
+
+        // The only thread of typeA is busy, which doesn't prevent the task of typeB from being executed.
+        assertNotNull(futureB.get(20, TimeUnit.SECONDS));
+        assertFalse(futureA0.isDone());
+        assertFalse(futureA1.isDone());
+        assertEquals(Map.of("typeA", 1L), this.tasksManager.getQueueSizePerType("wikiId"));
+
+        typeABlocked.countDown();
+
+        assertNotNull(futureA0.get(20, TimeUnit.SECONDS));
+        assertNotNull(futureA1.get(20, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cancelWaitingTasksOnStop() throws Exception
+    {
+        CountDownLatch typeABlocked = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if ("typeA".equals(((TaskData) invocation.getArgument(0)).getType())) {
+                assertTrue(typeABlocked.await(10, TimeUnit.SECONDS));
+            }
+            return null;
+        }).when(this.taskExecutor).execute(any());
+
+        this.tasksManager.startThread();
+        CompletableFuture<TaskData> future0 = this.tasksManager.addTask("wikiId", 42, "1.3", "typeA");
+        // Waits for the thread of typeA.
+        CompletableFuture<TaskData> future1 = this.tasksManager.addTask("wikiId", 43, "1.3", "typeA");
+        // Waits for the task of the same document.
+        CompletableFuture<TaskData> future2 = this.tasksManager.addTask("wikiId", 42, "1.3", "typeB");
+        // The tasks are dispatched in the queue order, so the previous ones are waiting once this one is done.
+        assertNotNull(this.tasksManager.addTask("wikiId", 44, "1.3", "typeB").get(20, TimeUnit.SECONDS));
+
+        this.tasksManager.dispose();
+
+        assertThrows(CancellationException.class, () -> future1.get(20, TimeUnit.SECONDS));
+        assertThrows(CancellationException.class, () -> future2.get(20, TimeUnit.SECONDS));
+
+        // The executing task is let finish.
+        typeABlocked.countDown();
+        assertNotNull(future0.get(20, TimeUnit.SECONDS));
+        verify(this.taskExecutor, times(2)).execute(any());
+    }
+
+    @Test
+    void metrics() throws Exception
+    {
+        ArgumentCaptor<Object> mbeanCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(this.jmxRegistration).registerMBean(mbeanCaptor.capture(), eq("name=index"));
+        JMXTasksMBean mbean = (JMXTasksMBean) mbeanCaptor.getValue();
+
+        doThrow(new RuntimeException("Test")).doAnswer(invocation -> null).when(this.taskExecutor).execute(any());
+
+        this.tasksManager.startThread();
+        this.tasksManager.addTask("wikiId", 42, "1.3", "testtask").get();
+        this.tasksManager.addTask("wikiId", 43, "1.3", "othertask").get();
+
+        assertEquals(2, mbean.getProcessedTaskCount());
+        assertEquals(Map.of("testtask", 1L, "othertask", 1L), mbean.getProcessedTaskCountPerType());
+        assertEquals(1, mbean.getFailedTaskCount());
+        assertEquals(0, mbean.getAbandonedTaskCount());
+        assertEquals(0, mbean.getRunningTaskCount());
+        assertTrue(mbean.getThroughput() > 0);
+        assertEquals(0, mbean.getQueueSize());
+        assertEquals(1, this.logCapture.size());
+    }
 }
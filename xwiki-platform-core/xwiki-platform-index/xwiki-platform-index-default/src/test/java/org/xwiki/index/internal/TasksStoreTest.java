@@ -48,6 +48,7 @@
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -185,6 +186,26 @@ void deleteTaskNoVersion(String version) throws Exception
         verify(this.query).executeUpdate();
     }
 
+    @Test
+    void deleteTasks() throws Exception
+    {
+        this.tasksStore.deleteTasks("wikiId",
+            List.of(new TaskData(42, "7.1", "testtask", "wikiId"), new TaskData(43, "", "testtask", "wikiId")));
+        verify(this.contextManager).initialize(any());
+        verify(this.context).setWikiId("wikiId");
+        verify(this.session).createQuery("delete from XWikiDocumentIndexingTask t where t.docId = :docId "
+            + "and t.version = :version and t.type = :type");
+        verify(this.session).createQuery(
+            "delete from XWikiDocumentIndexingTask t where t.docId = :docId and "
+                + "(t.version = :version or t.version is null)and t.type = :type");
+        verify(this.query).setParameter("docId", 42L);
+        verify(this.query).setParameter("docId", 43L);
+        verify(this.query).setParameter("version", "7.1");
+        verify(this.query).setParameter("version", "");
+        verify(this.query, times(2)).setParameter("type", "testtask");
+        verify(this.query, times(2)).executeUpdate();
+    }
+
     @Test
     void replaceTask() throws Exception
     {
@@ -19,6 +19,8 @@
  */
 package org.xwiki.lesscss.internal.cache;
 
+import java.util.function.Consumer;
+
 import org.xwiki.lesscss.internal.colortheme.ColorThemeReference;
 import org.xwiki.lesscss.resources.LESSResourceReference;
 import org.xwiki.lesscss.internal.skin.SkinReference;
@@ -90,4 +92,33 @@ void set(LESSResourceReference lessResourceReference, SkinReference skin, ColorT
      * @since 6.4.1
      */
     Object getMutex(LESSResourceReference lessResourceReference, SkinReference skin, ColorThemeReference colorTheme);
+
+    /**
+     * Get the content that was removed by one of the clear methods and not set again since then. It's meant to be
+     * returned while the content is computed again.
+     *
+     * @param lessResourceReference a reference to a LESS resource
+     * @param skin a reference to a Skin
+     * @param colorTheme a reference to a color theme
+     * @return the content removed by the last clear or {@code null} if the entry was not cleared
+     * @since 16.3.0RC1
+     */
+    default T getPrevious(LESSResourceReference lessResourceReference, SkinReference skin,
+        ColorThemeReference colorTheme)
+    {
+        return null;
+    }
+
+    /**
+     * Register a listener called with the mutex (see {@link #getMutex(LESSResourceReference, SkinReference,
+     * ColorThemeReference)}) of each entry removed by one of the clear methods, for example to compute it again
+     * right away.
+     *
+     * @param listener the listener to call
+     * @since 16.3.0RC1
+     */
+    default void addClearListener(Consumer<Object> listener)
+    {
+        // Clear events are not supported by default
+    }
 }
@@ -56,4 +56,14 @@ public boolean isGenerateInlineSourceMaps()
     {
         return configurationSource.getProperty(CONFIGURATION_PREFIX + "generateInlineSourceMaps", false);
     }
+
+    /**
+     * @return whether the results of the LESS compilations should be stored in the permanent directory so that they
+     *         can be reused after a restart
+     * @since 16.3.0RC1
+     */
+    public boolean isPersistentCacheEnabled()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "persistentCache", false);
+    }
 }
@@ -19,6 +19,11 @@
  */
 package org.xwiki.lesscss.internal;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -40,6 +45,8 @@
 
     private static final String HTML_EXPORT = "less.htmlexport";
 
+    private static final String TEMPLATES = "less.templates";
+
     @Inject
     private Execution execution;
 
@@ -83,6 +90,49 @@ public boolean isHtmlExport()
         return Boolean.TRUE.equals(getContext().getProperty(HTML_EXPORT));
     }
 
+    /**
+     * Start recording the skin templates resolved by the LESS compiler (for example because they are imported).
+     *
+     * @since 16.3.0RC1
+     */
+    public void startRecordingTemplates()
+    {
+        setProperty(TEMPLATES, new LinkedHashSet<String>());
+    }
+
+    /**
+     * Stop recording the skin templates resolved by the LESS compiler.
+     *
+     * @return the skin templates resolved since {@link #startRecordingTemplates()} was called
+     * @since 16.3.0RC1
+     */
+    public Set<String> stopRecordingTemplates()
+    {
+        Set<String> templates = getRecordedTemplates();
+        setProperty(TEMPLATES, null);
+
+        return templates != null ? templates : Collections.emptySet();
+    }
+
+    /**
+     * @param templates the skin templates resolved by the LESS compiler
+     * @since 16.3.0RC1
+     */
+    public void addTemplates(Collection<String> templates)
+    {
+        Set<String> recordedTemplates = getRecordedTemplates();
+        if (recordedTemplates != null) {
+            recordedTemplates.addAll(templates);
+        }
+    }
+
+    private Set<String> getRecordedTemplates()
+    {
+        ExecutionContext context = getContext();
+
+        return context != null ? (Set<String>) context.getProperty(TEMPLATES) : null;
+    }
+
     private ExecutionContext getContext()
     {
         return execution.getContext();
@@ -20,12 +20,16 @@
 package org.xwiki.lesscss.internal.cache;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import javax.inject.Inject;
 
+import org.apache.commons.collections4.map.LRUMap;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheManager;
 import org.xwiki.lesscss.internal.colortheme.ColorThemeReference;
@@ -42,6 +46,11 @@
  */
 public abstract class AbstractCache<T> implements LESSCache<T>
 {
+    /**
+     * The maximum number of cleared entries to remember, the least recently used ones are forgotten first.
+     */
+    private static final int MAX_CLEARED_ENTRIES = 1000;
+
     @Inject
     protected CacheManager cacheManager;
 
@@ -78,6 +87,13 @@
 
     private Map<String, String> mutexList = new HashMap<>();
 
+    /**
+     * The content of the entries which have been removed by one of the clear methods and not set again since then.
+     */
+    private Map<String, T> clearedEntries = Collections.synchronizedMap(new LRUMap<>(MAX_CLEARED_ENTRIES));
+
+    private final List<Consumer<Object>> clearListeners = new CopyOnWriteArrayList<>();
+
     @Override
     public T get(LESSResourceReference lessResourceReference, SkinReference skin, ColorThemeReference colorTheme)
     {
@@ -85,12 +101,13 @@ public T get(LESSResourceReference lessResourceReference, SkinReference skin, Co
     }
 
     @Override
-    public void set(LESSResourceReference lessResourceReference, SkinReference skin,
+    public synchronized void set(LESSResourceReference lessResourceReference, SkinReference skin,
         ColorThemeReference colorTheme, T content)
     {
         // Store the content in the cache
         String cacheKey = cacheKeyFactory.getCacheKey(lessResourceReference, skin, colorTheme, isContextHandled);
         cache.set(cacheKey, content);
+        clearedEntries.remove(cacheKey);
 
         // Add the new key to maps
         registerCacheKey(cachedFilesKeysMapPerSkin, cacheKey, skin);
@@ -120,15 +137,40 @@ private void registerCacheKey(Map<Object, List<String>> cachedFilesKeysMap, Stri
     }
 
     @Override
-    public void clear()
+    public synchronized void clear()
     {
+        List<String> clearedKeys = new ArrayList<>();
+        for (List<String> cachedFilesKeys : cachedFilesKeysMapPerLESSResource.values()) {
+            cachedFilesKeys.forEach(cacheKey -> keepCleared(cacheKey, clearedKeys));
+        }
         cache.removeAll();
         cachedFilesKeysMapPerSkin.clear();
         cachedFilesKeysMapPerColorTheme.clear();
         cachedFilesKeysMapPerLESSResource.clear();
+
+        notifyCleared(clearedKeys);
+    }
+
+    private void keepCleared(String cacheKey, List<String> clearedKeys)
+    {
+        T content = cache.get(cacheKey);
+        if (content != null) {
+            clearedEntries.put(cacheKey, content);
+            clearedKeys.add(cacheKey);
+        }
     }
 
-    private void clearFromCriteria(Map<Object, List<String>> cachedFilesKeysMap, Object criteria)
+    private void notifyCleared(List<String> clearedKeys)
+    {
+        // The mutex of an entry is its cache key (see #getMutex())
+        for (String cacheKey : clearedKeys) {
+            for (Consumer<Object> listener : clearListeners) {
+                listener.accept(getMutex(cacheKey));
+            }
+        }
+    }
+
+    private synchronized void clearFromCriteria(Map<Object, List<String>> cachedFilesKeysMap, Object criteria)
     {
         // Get the list of cached files keys corresponding to the criteria
         List<String> cachedFilesKeys = cachedFilesKeysMap.get(criteria);
@@ -136,11 +178,15 @@ private void clearFromCriteria(Map<Object, List<String>> cachedFilesKeysMap, Obj
             return;
         }
         // Remove all the cached files corresponding to the cached keys
+        List<String> clearedKeys = new ArrayList<>();
         for (String cachedFileKey : cachedFilesKeys) {
+            keepCleared(cachedFileKey, clearedKeys);
             cache.remove(cachedFileKey);
         }
         // Remove the list of cached keys corresponding to the criteria
         cachedFilesKeysMap.remove(criteria);
+
+        notifyCleared(clearedKeys);
     }
 
     @Override
@@ -166,7 +212,11 @@ public synchronized Object getMutex(LESSResourceReference lessResourceReference,
         ColorThemeReference colorTheme)
     {
         // The mutex is a string (actually the cache key) to help debugging.
-        String cacheKey = cacheKeyFactory.getCacheKey(lessResourceReference, skin, colorTheme, isContextHandled);
+        return getMutex(cacheKeyFactory.getCacheKey(lessResourceReference, skin, colorTheme, isContextHandled));
+    }
+
+    private synchronized Object getMutex(String cacheKey)
+    {
         String mutex = mutexList.get(cacheKey);
         if (mutex == null) {
             // the mutex is the key, so no extra memory is needed
@@ -175,4 +225,18 @@ public synchronized Object getMutex(LESSResourceReference lessResourceReference,
         }
         return mutex;
     }
+
+    @Override
+    public void addClearListener(Consumer<Object> listener)
+    {
+        clearListeners.add(listener);
+    }
+
+    @Override
+    public T getPrevious(LESSResourceReference lessResourceReference, SkinReference skin,
+        ColorThemeReference colorTheme)
+    {
+        return clearedEntries.get(cacheKeyFactory.getCacheKey(lessResourceReference, skin, colorTheme,
+            isContextHandled));
+    }
 }
@@ -19,11 +19,31 @@
  */
 package org.xwiki.lesscss.internal.cache;
 
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import javax.inject.Inject;
 import javax.inject.Provider;
 
+import org.apache.commons.collections4.map.LRUMap;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.context.concurrent.ContextStoreManager;
 import org.xwiki.lesscss.compiler.LESSCompilerException;
+import org.xwiki.lesscss.internal.LESSConfiguration;
 import org.xwiki.lesscss.internal.LESSContext;
 import org.xwiki.lesscss.internal.colortheme.ColorThemeReference;
 import org.xwiki.lesscss.internal.colortheme.ColorThemeReferenceFactory;
@@ -34,17 +54,38 @@
 import org.xwiki.lesscss.resources.LESSResourceReference;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.internal.context.XWikiContextContextStore;
 
 /**
  * Implements a cache system to prevent the compiler to be called too often.
+ * <p>
+ * When a cached result is cleared (for example because the skin or the color theme has been modified), it's compiled
+ * again right away in the background and the previous result keep being returned in the meantime.
+ * <p>
+ * The results can also be stored in the permanent directory (see {@link #serializeResult(Object)}) to not have to
+ * compile again the LESS resources after a restart.
  *
  * @param <T> class of the expected results
  *
  * @since 6.4M2
  * @version $Id$
  */
-public abstract class AbstractCachedCompiler<T>
+public abstract class AbstractCachedCompiler<T> implements Disposable
 {
+    /**
+     * The context entries needed to compile again a LESS resource in the background.
+     */
+    private static final List<String> CONTEXT_ENTRIES = Arrays.asList(XWikiContextContextStore.PROP_WIKI,
+        XWikiContextContextStore.PROP_USER, XWikiContextContextStore.PROP_LOCALE,
+        XWikiContextContextStore.PROP_REQUEST_BASE, XWikiContextContextStore.PROP_REQUEST_URL,
+        XWikiContextContextStore.PROP_REQUEST_CONTEXTPATH, XWikiContextContextStore.PROP_REQUEST_PARAMETERS,
+        XWikiContextContextStore.PROP_REQUEST_WIKI);
+
+    /**
+     * The maximum number of compilations to remember, the least recently used ones are forgotten first.
+     */
+    private static final int MAX_KNOWN_COMPILATIONS = 1000;
+
     protected LESSCache<T> cache;
 
     protected CachedCompilerInterface<T> compiler;
@@ -67,6 +108,75 @@
     @Inject
     protected Logger logger;
 
+    @Inject
+    private LESSConfiguration lessConfiguration;
+
+    @Inject
+    private ContextStoreManager contextStoreManager;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private PersistentLESSCache persistentCache;
+
+    @Inject
+    private Execution execution;
+
+    /**
+     * The compilations currently running in the background, indexed by cache mutex.
+     */
+    private final Map<Object, Compilation<T>> compilations = new ConcurrentHashMap<>();
+
+    /**
+     * How to compile again the resources compiled so far, indexed by cache mutex.
+     */
+    private final Map<Object, Compilation<T>> knownCompilations =
+        Collections.synchronizedMap(new LRUMap<>(MAX_KNOWN_COMPILATIONS));
+
+    private ExecutorService executor;
+
+    private boolean disposed;
+
+    /**
+     * The parameters of the compilation of a LESS resource in a given context.
+     *
+     * @param <T> class of the expected results
+     * @version $Id$
+     */
+    private static final class Compilation<T>
+    {
+        private final Object mutex;
+
+        private final LESSResourceReference lessResourceReference;
+
+        private final SkinReference skinReference;
+
+        private final ColorThemeReference colorThemeReference;
+
+        private final boolean includeSkinStyle;
+
+        private final boolean useVelocity;
+
+        private final String skin;
+
+        private final Map<String, Serializable> context;
+
+        Compilation(Object mutex, LESSResourceReference lessResourceReference, SkinReference skinReference,
+            ColorThemeReference colorThemeReference, boolean includeSkinStyle, boolean useVelocity, String skin,
+            Map<String, Serializable> context)
+        {
+            this.mutex = mutex;
+            this.lessResourceReference = lessResourceReference;
+            this.skinReference = skinReference;
+            this.colorThemeReference = colorThemeReference;
+            this.includeSkinStyle = includeSkinStyle;
+            this.useVelocity = useVelocity;
+            this.skin = skin;
+            this.context = context;
+        }
+    }
+
     /**
      * Get the result of the compilation.
      * @param lessResourceReference reference to the LESS content
@@ -110,36 +220,62 @@ public T getResult(LESSResourceReference lessResourceReference, boolean includeS
         ColorThemeReference colorThemeReference = colorThemeReferenceFactory.createReference(
                 currentColorThemeGetter.getCurrentColorTheme(true, "default"));
 
+        // Check if the result is in the cache (without taking any lock)
+        if (!force) {
+            result = cache.get(lessResourceReference, skinReference, colorThemeReference);
+            if (result != null) {
+                // The LESS file contains Velocity code that call resources (ie: $xwiki.getSkinFile), and the HTML
+                // exporter listens these calls to know which resources must be exported.
+                // If we only use the cache, we would have a correct CSS file but some resources will be missing.
+                // So we need to execute the velocity again, even if the LESS file is cached.
+                // To perform this quickly, we do not recompile the LESS code (which would be useless anyway), but
+                // we only do the Velocity Execution step.
+                if (lessContext.isHtmlExport() && useVelocity && this instanceof DefaultLESSCompiler) {
+                    compiler.compute(lessResourceReference, includeSkinStyle, true, false, skin);
+                }
+                return cloneResult(result);
+            }
+        }
+
+        Object mutex = cache.getMutex(lessResourceReference, skinReference, colorThemeReference);
+
+        // Remember how to compile again the resource
+        Compilation<T> compilation = new Compilation<>(mutex, lessResourceReference, skinReference,
+            colorThemeReference, includeSkinStyle, useVelocity, skin, saveContext());
+        this.knownCompilations.put(mutex, compilation);
+
+        if (!force) {
+            // If the result was cleared from the cache, keep using the previous one while it's compiled again
+            result = cache.getPrevious(lessResourceReference, skinReference, colorThemeReference);
+            if (result != null) {
+                refreshInBackground(compilation);
+
+                return cloneResult(result);
+            }
+        }
+
         // Only one computation is allowed in the same time per color theme, then the waiting threads will be able to
         // use the last result stored in the cache.
-        Object mutex = cache.getMutex(lessResourceReference, skinReference, colorThemeReference);
         synchronized (mutex) {
-
-            // Check if the result is in the cache
+            // Check if the result was put in the cache while waiting
             if (!force) {
                 result = cache.get(lessResourceReference, skinReference, colorThemeReference);
                 if (result != null) {
-                    // The LESS file contains Velocity code that call resources (ie: $xwiki.getSkinFile), and the HTML
-                    // exporter listens these calls to know which resources must be exported.
-                    // If we only use the cache, we would have a correct CSS file but some resources will be missing.
-                    // So we need to execute the velocity again, even if the LESS file is cached.
-                    // To perform this quickly, we do not recompile the LESS code (which would be useless anyway), but
-                    // we only do the Velocity Execution step.
-                    if (lessContext.isHtmlExport() && useVelocity && this instanceof DefaultLESSCompiler) {
-                        compiler.compute(lessResourceReference, includeSkinStyle, true, false, skin);
-                    }
                     return cloneResult(result);
                 }
             }
 
-            // Either the result was in the cache or the force flag is set to true, we need to compile
             try {
-                result = compiler.compute(lessResourceReference, includeSkinStyle, useVelocity, true, skin);
-            } catch (LESSCompilerException e) {
-                logger.error("Error during the compilation of the resource [{}].", lessResourceReference, e);
-                // We must cache the result, even if the compilation have failed, to prevent re-compiling again and
-                // again (the compilation will still fail until the LESS resource is updated so it useless to retry).
-                result = exceptionAsResult(e);
+                // Reuse the result stored in the permanent directory (for example before a restart) if the sources
+                // did not change since then
+                if (!force) {
+                    result = getPersistedResult(compilation);
+                }
+
+                // Either the result was not in the cache or the force flag is set to true, we need to compile
+                if (result == null) {
+                    result = compile(compilation);
+                }
             } finally {
                 // Put the result in the cache
                 cache.set(lessResourceReference, skinReference, colorThemeReference, result);
@@ -149,6 +285,147 @@ public T getResult(LESSResourceReference lessResourceReference, boolean includeS
         return cloneResult(result);
     }
 
+    /**
+     * Compile again in the background a resource which has been cleared from the cache, if it's known. The previous
+     * result keep being returned until then.
+     *
+     * @param mutex the mutex of the cleared cache entry
+     * @since 16.3.0RC1
+     */
+    protected void compileCleared(Object mutex)
+    {
+        Compilation<T> compilation = this.knownCompilations.get(mutex);
+        if (compilation != null) {
+            refreshInBackground(compilation);
+        }
+    }
+
+    private void refreshInBackground(Compilation<T> compilation)
+    {
+        // Only one background compilation per cache entry
+        if (this.compilations.putIfAbsent(compilation.mutex, compilation) == null) {
+            ExecutorService currentExecutor = getExecutor();
+            if (currentExecutor != null) {
+                currentExecutor.execute(() -> refresh(compilation));
+            } else {
+                this.compilations.remove(compilation.mutex, compilation);
+            }
+        }
+    }
+
+    private void refresh(Compilation<T> compilation)
+    {
+        try {
+            this.executionContextManager.initialize(new ExecutionContext());
+
+            if (compilation.context != null) {
+                this.contextStoreManager.restore(compilation.context);
+            }
+
+            synchronized (compilation.mutex) {
+                T result = compile(compilation);
+                cache.set(compilation.lessResourceReference, compilation.skinReference,
+                    compilation.colorThemeReference, result);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to compile the resource [{}] in the background: {}",
+                compilation.lessResourceReference, e.getMessage());
+        } finally {
+            this.execution.removeContext();
+
+            this.compilations.remove(compilation.mutex, compilation);
+        }
+    }
+
+    private T compile(Compilation<T> compilation)
+    {
+        long start = System.nanoTime();
+
+        T result;
+        try {
+            // Remember the templates imported by the LESS resource to validate the result stored in the permanent
+            // directory
+            lessContext.startRecordingTemplates();
+            Set<String> templates;
+            try {
+                result = compiler.compute(compilation.lessResourceReference, compilation.includeSkinStyle,
+                    compilation.useVelocity, true, compilation.skin);
+            } finally {
+                templates = lessContext.stopRecordingTemplates();
+            }
+
+            // Only store the successful compilations, the failing ones will be retried after a restart
+            String serializedResult = serializeResult(result);
+            if (serializedResult != null) {
+                persistentCache.set(getPersistentCacheKey(compilation), compilation.lessResourceReference,
+                    compilation.skinReference, compilation.colorThemeReference, compilation.skin, templates,
+                    serializedResult);
+            }
+        } catch (LESSCompilerException e) {
+            logger.error("Error during the compilation of the resource [{}].", compilation.lessResourceReference, e);
+            // We must cache the result, even if the compilation have failed, to prevent re-compiling again and
+            // again (the compilation will still fail until the LESS resource is updated so it useless to retry).
+            result = exceptionAsResult(e);
+        }
+
+        logger.debug("Compiled the resource [{}] for the skin [{}] in [{}] ms.", compilation.lessResourceReference,
+            compilation.skin, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        return result;
+    }
+
+    private T getPersistedResult(Compilation<T> compilation)
+    {
+        String serializedResult = persistentCache.get(getPersistentCacheKey(compilation),
+            compilation.lessResourceReference, compilation.skinReference, compilation.colorThemeReference,
+            compilation.skin);
+
+        return serializedResult != null ? parseResult(serializedResult) : null;
+    }
+
+    private String getPersistentCacheKey(Compilation<T> compilation)
+    {
+        // The mutex is the key of the entry in the memory cache
+        return getClass().getName() + ':' + compilation.mutex;
+    }
+
+    private Map<String, Serializable> saveContext()
+    {
+        try {
+            return this.contextStoreManager.save(CONTEXT_ENTRIES);
+        } catch (ComponentLookupException e) {
+            logger.warn("Failed to save the context of the LESS compilation: {}", e.getMessage());
+
+            return null;
+        }
+    }
+
+    private synchronized ExecutorService getExecutor()
+    {
+        if (this.disposed) {
+            return null;
+        }
+
+        if (this.executor == null) {
+            BasicThreadFactory factory =
+                new BasicThreadFactory.Builder().namingPattern("XWiki LESS compiler thread %d").daemon(true).build();
+            this.executor =
+                Executors.newFixedThreadPool(this.lessConfiguration.getMaximumSimultaneousCompilations(), factory);
+        }
+
+        return this.executor;
+    }
+
+    @Override
+    public synchronized void dispose()
+    {
+        this.disposed = true;
+
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+    }
+
     /**
      * Returns a clone of the result to avoid returning the instance stored in the cache. Need to be implemented by
      * subclasses.
@@ -174,4 +451,30 @@ public T getResult(LESSResourceReference lessResourceReference, boolean includeS
      * @since 7.2.1
      */
     protected abstract T exceptionAsResult(LESSCompilerException exception);
+
+    /**
+     * Serialize a result in order to store it in the permanent directory. Can be overridden by subclasses, the results
+     * are not stored by default.
+     *
+     * @param result the result to serialize
+     * @return the serialized result or {@code null} if the result should not be stored
+     * @since 16.3.0RC1
+     */
+    protected String serializeResult(T result)
+    {
+        return null;
+    }
+
+    /**
+     * Parse a result stored in the permanent directory. Need to be overridden along with
+     * {@link #serializeResult(Object)}.
+     *
+     * @param serializedResult the result to parse
+     * @return the parsed result or {@code null} if it cannot be parsed
+     * @since 16.3.0RC1
+     */
+    protected T parseResult(String serializedResult)
+    {
+        return null;
+    }
 }
@@ -0,0 +1,289 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.cache;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.environment.Environment;
+import org.xwiki.lesscss.compiler.LESSCompilerException;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.internal.colortheme.ColorThemeReference;
+import org.xwiki.lesscss.internal.colortheme.DocumentColorThemeReference;
+import org.xwiki.lesscss.internal.skin.DocumentSkinReference;
+import org.xwiki.lesscss.internal.skin.SkinReference;
+import org.xwiki.lesscss.resources.LESSResourceReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.skin.Skin;
+import org.xwiki.skin.SkinManager;
+import org.xwiki.template.Template;
+import org.xwiki.template.TemplateManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Store the results of the LESS compilations in the permanent directory so that they can be reused after a restart.
+ * <p>
+ * Each entry remembers the version of the sources it has been compiled from: the version of XWiki, the version of the
+ * skin document, the version of the color theme document, a hash of the content of the compiled LESS resource and a
+ * hash of the content of all the skin templates resolved during the compilation (imported files, including the ones
+ * coming from the parent skins and the WebJars packaged in the skin). An entry is only reused when this version did
+ * not change.
+ * <p>
+ * The entries which are not valid anymore are deleted when they are read and the entries which have not been used for
+ * {@value #MAX_UNUSED_DAYS} days are deleted at startup.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+@Component(roles = PersistentLESSCache.class)
+@Singleton
+public class PersistentLESSCache implements Initializable
+{
+    /**
+     * The number of days after which an entry which has not been used is deleted.
+     */
+    public static final int MAX_UNUSED_DAYS = 30;
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final char VERSION_SEPARATOR = '\n';
+
+    private static final String TEMPLATE_SEPARATOR = "\t";
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private LESSConfiguration lessConfiguration;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private SkinManager skinManager;
+
+    @Inject
+    private TemplateManager templateManager;
+
+    @Inject
+    private Logger logger;
+
+    private File directory;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        File[] files = getDirectory().listFiles();
+        if (files == null) {
+            return;
+        }
+
+        boolean enabled = this.lessConfiguration.isPersistentCacheEnabled();
+        long limit = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(MAX_UNUSED_DAYS);
+        for (File file : files) {
+            // Also delete the temporary files left by a crash and all the entries when the cache is disabled
+            if (!enabled || file.lastModified() < limit || file.getName().endsWith(TMP_SUFFIX)) {
+                FileUtils.deleteQuietly(file);
+            }
+        }
+    }
+
+    /**
+     * @param cacheKey the key of the entry in the memory cache
+     * @param lessResourceReference reference of the compiled LESS resource
+     * @param skin reference of the skin
+     * @param colorTheme reference of the color theme
+     * @param skinName the name of the skin used for the compilation
+     * @return the stored result of the compilation, or {@code null} if the result is not stored or the sources changed
+     *         since it was stored
+     */
+    public String get(String cacheKey, LESSResourceReference lessResourceReference, SkinReference skin,
+        ColorThemeReference colorTheme, String skinName)
+    {
+        if (!this.lessConfiguration.isPersistentCacheEnabled()) {
+            return null;
+        }
+
+        File file = getFile(cacheKey);
+        if (file.exists()) {
+            try {
+                // The entry is made of the version, the resolved templates, their hash and the result, one per line
+                String[] content = StringUtils.splitPreserveAllTokens(
+                    FileUtils.readFileToString(file, StandardCharsets.UTF_8), String.valueOf(VERSION_SEPARATOR), 4);
+                if (content.length == 4
+                    && content[0].equals(getVersion(lessResourceReference, skin, colorTheme, skinName))
+                    && content[2].equals(getTemplatesVersion(getTemplates(content[1]), skinName))) {
+                    // Remember that the entry is still used
+                    file.setLastModified(System.currentTimeMillis());
+
+                    return content[3];
+                }
+
+                // The sources changed since the entry was stored
+                FileUtils.deleteQuietly(file);
+            } catch (Exception e) {
+                this.logger.warn("Failed to read the stored result of the compilation of the resource [{}]: {}",
+                    lessResourceReference, e.getMessage());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param cacheKey the key of the entry in the memory cache
+     * @param lessResourceReference reference of the compiled LESS resource
+     * @param skin reference of the skin
+     * @param colorTheme reference of the color theme
+     * @param skinName the name of the skin used for the compilation
+     * @param templates the skin templates resolved during the compilation
+     * @param result the result of the compilation to store
+     */
+    public void set(String cacheKey, LESSResourceReference lessResourceReference, SkinReference skin,
+        ColorThemeReference colorTheme, String skinName, Collection<String> templates, String result)
+    {
+        if (!this.lessConfiguration.isPersistentCacheEnabled()) {
+            return;
+        }
+
+        File file = getFile(cacheKey);
+        try {
+            StringBuilder content = new StringBuilder();
+            content.append(getVersion(lessResourceReference, skin, colorTheme, skinName));
+            content.append(VERSION_SEPARATOR);
+            content.append(StringUtils.join(templates, TEMPLATE_SEPARATOR));
+            content.append(VERSION_SEPARATOR);
+            content.append(getTemplatesVersion(templates, skinName));
+            content.append(VERSION_SEPARATOR);
+            content.append(result);
+
+            // Write a temporary file first so that an incomplete entry is never read
+            file.getParentFile().mkdirs();
+            File tmpFile = File.createTempFile(file.getName(), TMP_SUFFIX, file.getParentFile());
+            try {
+                FileUtils.writeStringToFile(tmpFile, content.toString(), StandardCharsets.UTF_8);
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                FileUtils.deleteQuietly(tmpFile);
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to store the result of the compilation of the resource [{}]: {}",
+                lessResourceReference, e.getMessage());
+        }
+    }
+
+    private File getDirectory()
+    {
+        if (this.directory == null) {
+            this.directory = new File(this.environment.getPermanentDirectory(), "cache/lesscss");
+        }
+
+        return this.directory;
+    }
+
+    private File getFile(String cacheKey)
+    {
+        return new File(getDirectory(), DigestUtils.sha256Hex(cacheKey));
+    }
+
+    private List<String> getTemplates(String serializedTemplates)
+    {
+        if (serializedTemplates.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        return Arrays.asList(StringUtils.split(serializedTemplates, TEMPLATE_SEPARATOR));
+    }
+
+    private String getTemplatesVersion(Collection<String> templates, String skinName) throws Exception
+    {
+        Skin skin = this.skinManager.getSkin(skinName);
+
+        StringBuilder version = new StringBuilder();
+        for (String templateName : templates) {
+            // The template is resolved again in case it's now provided by a different skin (for example because it
+            // was added to or removed from a child skin)
+            Template template = this.templateManager.getTemplate(templateName, skin);
+
+            version.append(templateName);
+            version.append('/');
+            if (template != null) {
+                version.append(DigestUtils.sha256Hex(StringUtils.defaultString(template.getContent().getContent())));
+            }
+            version.append(VERSION_SEPARATOR);
+        }
+
+        return DigestUtils.sha256Hex(version.toString());
+    }
+
+    private String getVersion(LESSResourceReference lessResourceReference, SkinReference skin,
+        ColorThemeReference colorTheme, String skinName) throws LESSCompilerException, XWikiException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        StringBuilder version = new StringBuilder();
+        version.append(xcontext.getWiki().getVersion());
+        if (skin instanceof DocumentSkinReference) {
+            appendDocumentVersion(version, ((DocumentSkinReference) skin).getSkinDocument(), xcontext);
+        }
+        if (colorTheme instanceof DocumentColorThemeReference) {
+            appendDocumentVersion(version, ((DocumentColorThemeReference) colorTheme).getColorThemeDocument(),
+                xcontext);
+        }
+        version.append('/');
+        version.append(DigestUtils.sha256Hex(StringUtils.defaultString(lessResourceReference.getContent(skinName))));
+
+        // The version is written on the first line of the entry
+        return DigestUtils.sha256Hex(version.toString());
+    }
+
+    private void appendDocumentVersion(StringBuilder version, DocumentReference documentReference,
+        XWikiContext xcontext) throws XWikiException
+    {
+        XWikiDocument document = xcontext.getWiki().getDocument(documentReference, xcontext);
+
+        version.append('/');
+        version.append(document.getVersion());
+        version.append('/');
+        version.append(document.getDate() != null ? document.getDate().getTime() : 0);
+    }
+}
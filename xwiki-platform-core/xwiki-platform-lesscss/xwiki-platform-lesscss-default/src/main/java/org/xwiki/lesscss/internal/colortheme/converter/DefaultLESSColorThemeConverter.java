@@ -19,6 +19,11 @@
  */
 package org.xwiki.lesscss.internal.colortheme.converter;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Properties;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -59,6 +64,9 @@ public void initialize() throws InitializationException
     {
         super.cache = cache;
         super.compiler = cachedLESSColorThemeConverter;
+
+        // Compile again the cleared resources right away
+        cache.addClearListener(this::compileCleared);
     }
 
     @Override
@@ -86,4 +94,40 @@ protected ColorTheme exceptionAsResult(LESSCompilerException exception)
     {
         return EMPTY_COLOR_THEME;
     }
+
+    @Override
+    protected String serializeResult(ColorTheme result)
+    {
+        Properties properties = new Properties();
+        properties.putAll(result);
+
+        StringWriter writer = new StringWriter();
+        try {
+            properties.store(writer, null);
+        } catch (IOException e) {
+            // Should never happen with a StringWriter
+            return null;
+        }
+
+        return writer.toString();
+    }
+
+    @Override
+    protected ColorTheme parseResult(String serializedResult)
+    {
+        Properties properties = new Properties();
+        try {
+            properties.load(new StringReader(serializedResult));
+        } catch (IOException e) {
+            // Should never happen with a StringReader
+            return null;
+        }
+
+        ColorTheme colorTheme = new ColorTheme();
+        for (String name : properties.stringPropertyNames()) {
+            colorTheme.put(name, properties.getProperty(name));
+        }
+
+        return colorTheme;
+    }
 }
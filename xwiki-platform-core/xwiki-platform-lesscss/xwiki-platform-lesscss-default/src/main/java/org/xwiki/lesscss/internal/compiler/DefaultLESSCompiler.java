@@ -57,6 +57,9 @@ public void initialize() throws InitializationException
     {
         super.cache = cache;
         super.compiler = cachedLESSCompiler;
+
+        // Compile again the cleared resources right away
+        cache.addClearListener(this::compileCleared);
     }
 
     @Override
@@ -86,4 +89,16 @@ protected String exceptionAsResult(LESSCompilerException exception)
         exception.printStackTrace(new PrintWriter(serializedException));
         return String.format("/* %s */", serializedException.toString());
     }
+
+    @Override
+    protected String serializeResult(String result)
+    {
+        return result;
+    }
+
+    @Override
+    protected String parseResult(String serializedResult)
+    {
+        return serializedResult;
+    }
 }
@@ -19,6 +19,8 @@
  */
 package org.xwiki.lesscss.internal.compiler.less4j;
 
+import java.util.Collection;
+
 import org.xwiki.skin.Resource;
 import org.xwiki.skin.Skin;
 import org.xwiki.template.TemplateManager;
@@ -37,6 +39,8 @@ public abstract class AbstractLESSSource extends LessSource
 
     protected Skin skin;
     
+    protected Collection<String> resolvedTemplates;
+
     private String folder;
 
     /**
@@ -46,10 +50,25 @@ public abstract class AbstractLESSSource extends LessSource
      * @param folder the folder in which the template is located
      */
     public AbstractLESSSource(TemplateManager templateManager, Skin skin, String folder)
+    {
+        this(templateManager, skin, folder, null);
+    }
+
+    /**
+     * @param templateManager the template manager component
+     * @param skin the skin holding the templates
+     * @param folder the folder in which the template is located
+     * @param resolvedTemplates the collection in which to add the templates resolved from this source, can be
+     *            {@code null}
+     * @since 16.3.0RC1
+     */
+    public AbstractLESSSource(TemplateManager templateManager, Skin skin, String folder,
+        Collection<String> resolvedTemplates)
     {
         this.templateManager = templateManager;
         this.skin = skin;
         this.folder = folder;
+        this.resolvedTemplates = resolvedTemplates;
     }
     
     @Override
@@ -58,7 +77,11 @@ public LessSource relativeSource(String filename) throws FileNotFound
         String template = folder + "/" + filename;
         Resource resource = skin.getResource(template);
         if (resource != null) {
-            return new TemplateLESSSource(templateManager, skin, template);
+            if (this.resolvedTemplates != null) {
+                this.resolvedTemplates.add(template);
+            }
+
+            return new TemplateLESSSource(templateManager, skin, template, this.resolvedTemplates);
         }
 
         // The file has not been found
@@ -19,6 +19,8 @@
  */
 package org.xwiki.lesscss.internal.compiler.less4j;
 
+import java.util.Collection;
+
 import org.xwiki.skin.Skin;
 import org.xwiki.template.TemplateManager;
 
@@ -40,7 +42,21 @@ public class CustomContentLESSSource extends AbstractLESSSource
      */
     public CustomContentLESSSource(String lessCode, TemplateManager templateManager, Skin skin)
     {
-        super(templateManager, skin, "less");
+        this(lessCode, templateManager, skin, null);
+    }
+
+    /**
+     * @param lessCode the LESS code to compile
+     * @param templateManager the template manager component
+     * @param skin the skin holding the template
+     * @param resolvedTemplates the collection in which to add the templates imported by the LESS code, can be
+     *            {@code null}
+     * @since 16.3.0RC1
+     */
+    public CustomContentLESSSource(String lessCode, TemplateManager templateManager, Skin skin,
+        Collection<String> resolvedTemplates)
+    {
+        super(templateManager, skin, "less", resolvedTemplates);
         this.lessCode = lessCode;
     }
 
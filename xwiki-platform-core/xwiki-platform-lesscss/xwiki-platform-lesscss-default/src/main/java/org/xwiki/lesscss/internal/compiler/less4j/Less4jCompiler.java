@@ -19,10 +19,14 @@
  */
 package org.xwiki.lesscss.internal.compiler.less4j;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.lesscss.internal.LESSContext;
 import org.xwiki.skin.SkinManager;
 import org.xwiki.template.TemplateManager;
 
@@ -47,6 +51,9 @@
     @Inject
     private SkinManager skinManager;
 
+    @Inject
+    private LESSContext lessContext;
+
     /**
      * Compile the LESS code and get the included files from the skin templates.
      * @param lessCode code to compile
@@ -62,9 +69,12 @@ public String compile(String lessCode, String skin, boolean inlineSourceMap) thr
         options.setCompressing(true);
         options.getSourceMapConfiguration().setInline(inlineSourceMap);
         options.getSourceMapConfiguration().setIncludeSourcesContent(true);
-        LessSource lessSource = 
-            new CustomContentLESSSource(lessCode, templateManager, skinManager.getSkin(skin));
+        // Remember the imported templates so that the result can be invalidated when one of them is modified
+        Set<String> resolvedTemplates = new LinkedHashSet<>();
+        LessSource lessSource =
+            new CustomContentLESSSource(lessCode, templateManager, skinManager.getSkin(skin), resolvedTemplates);
         LessCompiler.CompilationResult lessResult = lessCompiler.compile(lessSource, options);
+        lessContext.addTemplates(resolvedTemplates);
         return lessResult.getCss();
     }
 }
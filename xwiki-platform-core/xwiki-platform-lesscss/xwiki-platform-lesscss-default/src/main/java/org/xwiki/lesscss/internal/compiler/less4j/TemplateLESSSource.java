@@ -19,6 +19,8 @@
  */
 package org.xwiki.lesscss.internal.compiler.less4j;
 
+import java.util.Collection;
+
 import org.apache.commons.lang3.StringUtils;
 import org.xwiki.lesscss.internal.compiler.CachedLESSCompiler;
 import org.xwiki.skin.Skin;
@@ -46,7 +48,21 @@ public class TemplateLESSSource extends AbstractLESSSource
      */
     public TemplateLESSSource(TemplateManager templateManager, Skin skin, String templateName)
     {
-        super(templateManager, skin, getParentFolder(templateName));
+        this(templateManager, skin, templateName, null);
+    }
+
+    /**
+     * @param templateManager the template manager component
+     * @param skin the skin holding the template
+     * @param templateName the name of the template
+     * @param resolvedTemplates the collection in which to add the templates imported by this template, can be
+     *            {@code null}
+     * @since 16.3.0RC1
+     */
+    public TemplateLESSSource(TemplateManager templateManager, Skin skin, String templateName,
+        Collection<String> resolvedTemplates)
+    {
+        super(templateManager, skin, getParentFolder(templateName), resolvedTemplates);
         this.templateName = templateName;
     }
 
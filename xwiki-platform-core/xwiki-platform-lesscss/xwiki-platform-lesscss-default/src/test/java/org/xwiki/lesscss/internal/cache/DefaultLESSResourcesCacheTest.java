@@ -19,6 +19,10 @@
  */
 package org.xwiki.lesscss.internal.cache;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -32,6 +36,7 @@
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -140,6 +145,12 @@ public void clearFromSkin() throws Exception
         mocker.getComponentUnderTest().set(createLESSSkinFileResourceReference("file2"), new FSSkinReference("skin1"),
                 new NamedColorThemeReference("colorTheme"), "css3");
 
+        when(cache.get("k1")).thenReturn("css1");
+        when(cache.get("k4")).thenReturn("css3");
+
+        List<Object> cleared = new ArrayList<>();
+        mocker.getComponentUnderTest().addClearListener(cleared::add);
+
         // Test
         mocker.getComponentUnderTest().clearFromSkin(new FSSkinReference("skin1"));
 
@@ -147,6 +158,19 @@ public void clearFromSkin() throws Exception
         verify(cache, times(1)).remove("k1");
         verify(cache).remove("k4");
         verify(cache, never()).remove("k3");
+        assertEquals(Arrays.asList("k1", "k4"), cleared);
+        assertEquals("css1", mocker.getComponentUnderTest().getPrevious(file1, new FSSkinReference("skin1"),
+                new NamedColorThemeReference("colorTheme")));
+        assertEquals("css3", mocker.getComponentUnderTest().getPrevious(file2, new FSSkinReference("skin1"),
+                new NamedColorThemeReference("colorTheme")));
+        assertNull(mocker.getComponentUnderTest().getPrevious(file1, new FSSkinReference("skin2"),
+                new NamedColorThemeReference("colorTheme")));
+
+        // Set again
+        mocker.getComponentUnderTest().set(createLESSSkinFileResourceReference("file1"), new FSSkinReference("skin1"),
+                new NamedColorThemeReference("colorTheme"), "css1");
+        assertNull(mocker.getComponentUnderTest().getPrevious(file1, new FSSkinReference("skin1"),
+                new NamedColorThemeReference("colorTheme")));
     }
 
     @Test
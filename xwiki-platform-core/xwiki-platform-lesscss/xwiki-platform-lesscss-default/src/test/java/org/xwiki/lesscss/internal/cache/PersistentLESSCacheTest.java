@@ -0,0 +1,238 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.cache;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Provider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.environment.Environment;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.internal.colortheme.ColorThemeReference;
+import org.xwiki.lesscss.internal.colortheme.DocumentColorThemeReference;
+import org.xwiki.lesscss.internal.colortheme.NamedColorThemeReference;
+import org.xwiki.lesscss.internal.skin.FSSkinReference;
+import org.xwiki.lesscss.resources.LESSResourceReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.skin.Skin;
+import org.xwiki.skin.SkinManager;
+import org.xwiki.template.Template;
+import org.xwiki.template.TemplateContent;
+import org.xwiki.template.TemplateManager;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.XWikiTempDir;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link PersistentLESSCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class PersistentLESSCacheTest
+{
+    private static final DocumentReference COLOR_THEME = new DocumentReference("wiki", "ColorThemes", "Theme");
+
+    private static final List<String> TEMPLATES = Arrays.asList("less/variables.less", "less/mixins.less");
+
+    @InjectMockComponents
+    private PersistentLESSCache persistentCache;
+
+    @MockComponent
+    private Environment environment;
+
+    @MockComponent
+    private LESSConfiguration lessConfiguration;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @MockComponent
+    private SkinManager skinManager;
+
+    @MockComponent
+    private TemplateManager templateManager;
+
+    @XWikiTempDir
+    private File permanentDirectory;
+
+    private LESSResourceReference resource = mock(LESSResourceReference.class);
+
+    private FSSkinReference skin = new FSSkinReference("flamingo");
+
+    private XWikiDocument colorThemeDocument = mock(XWikiDocument.class);
+
+    private DocumentColorThemeReference colorTheme = new DocumentColorThemeReference(COLOR_THEME, null);
+
+    private TemplateContent variablesContent = mock(TemplateContent.class);
+
+    @BeforeComponent
+    void beforeComponent()
+    {
+        when(this.environment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
+        when(this.lessConfiguration.isPersistentCacheEnabled()).thenReturn(true);
+    }
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(this.xcontextProvider.get()).thenReturn(xcontext);
+        XWiki xwiki = mock(XWiki.class);
+        when(xcontext.getWiki()).thenReturn(xwiki);
+        when(xwiki.getVersion()).thenReturn("16.3.0");
+        when(xwiki.getDocument(COLOR_THEME, xcontext)).thenReturn(this.colorThemeDocument);
+        when(this.colorThemeDocument.getVersion()).thenReturn("1.1");
+
+        when(this.resource.getContent("flamingo")).thenReturn("@import \"variables.less\";");
+
+        Skin flamingo = mock(Skin.class);
+        when(this.skinManager.getSkin("flamingo")).thenReturn(flamingo);
+        for (String templateName : TEMPLATES) {
+            Template template = mock(Template.class);
+            when(this.templateManager.getTemplate(templateName, flamingo)).thenReturn(template);
+            TemplateContent content = templateName.equals(TEMPLATES.get(0)) ? this.variablesContent
+                : mock(TemplateContent.class);
+            when(template.getContent()).thenReturn(content);
+            when(content.getContent()).thenReturn("@color: red;");
+        }
+    }
+
+    private void set(String key, ColorThemeReference colorThemeReference)
+    {
+        this.persistentCache.set(key, this.resource, this.skin, colorThemeReference, "flamingo", TEMPLATES,
+            "body {}");
+    }
+
+    @Test
+    void setGet()
+    {
+        assertNull(this.persistentCache.get("key", this.resource, this.skin, this.colorTheme, "flamingo"));
+
+        set("key", this.colorTheme);
+
+        assertEquals("body {}", this.persistentCache.get("key", this.resource, this.skin, this.colorTheme, "flamingo"));
+        assertNull(this.persistentCache.get("otherkey", this.resource, this.skin, this.colorTheme, "flamingo"));
+    }
+
+    @Test
+    void getWhenColorThemeModified()
+    {
+        set("key", this.colorTheme);
+
+        when(this.colorThemeDocument.getVersion()).thenReturn("2.1");
+
+        assertNull(this.persistentCache.get("key", this.resource, this.skin, this.colorTheme, "flamingo"));
+    }
+
+    @Test
+    void getWhenResourceModified() throws Exception
+    {
+        set("key", new NamedColorThemeReference("default"));
+
+        when(this.resource.getContent("flamingo")).thenReturn("@import \"other.less\";");
+
+        assertNull(this.persistentCache.get("key", this.resource, this.skin, new NamedColorThemeReference("default"),
+            "flamingo"));
+    }
+
+    @Test
+    void getWhenDisabled()
+    {
+        set("key", this.colorTheme);
+
+        when(this.lessConfiguration.isPersistentCacheEnabled()).thenReturn(false);
+
+        assertNull(this.persistentCache.get("key", this.resource, this.skin, this.colorTheme, "flamingo"));
+    }
+
+    @Test
+    void getWhenImportedTemplateModified() throws Exception
+    {
+        set("key", this.colorTheme);
+
+        when(this.variablesContent.getContent()).thenReturn("@color: blue;");
+
+        assertNull(this.persistentCache.get("key", this.resource, this.skin, this.colorTheme, "flamingo"));
+
+        // The invalid entry is deleted
+        when(this.variablesContent.getContent()).thenReturn("@color: red;");
+        assertNull(this.persistentCache.get("key", this.resource, this.skin, this.colorTheme, "flamingo"));
+    }
+
+    @Test
+    void setGetWithoutTemplates()
+    {
+        this.persistentCache.set("key", this.resource, this.skin, this.colorTheme, "flamingo",
+            Collections.emptyList(), "body {}\n.a {}");
+
+        assertEquals("body {}\n.a {}",
+            this.persistentCache.get("key", this.resource, this.skin, this.colorTheme, "flamingo"));
+    }
+
+    @Test
+    void initializeDeletesUnusedEntries() throws Exception
+    {
+        File directory = new File(this.permanentDirectory, "cache/lesscss");
+        File usedEntry = new File(directory, "used");
+        FileUtils.write(usedEntry, "content", StandardCharsets.UTF_8);
+        File unusedEntry = new File(directory, "unused");
+        FileUtils.write(unusedEntry, "content", StandardCharsets.UTF_8);
+        unusedEntry.setLastModified(System.currentTimeMillis()
+            - TimeUnit.DAYS.toMillis(PersistentLESSCache.MAX_UNUSED_DAYS + 1));
+        File tmpEntry = new File(directory, "entry.tmp");
+        FileUtils.write(tmpEntry, "content", StandardCharsets.UTF_8);
+
+        this.persistentCache.initialize();
+
+        assertTrue(usedEntry.exists());
+        assertFalse(unusedEntry.exists());
+        assertFalse(tmpEntry.exists());
+
+        // All the entries are deleted when the cache is disabled
+        when(this.lessConfiguration.isPersistentCacheEnabled()).thenReturn(false);
+
+        this.persistentCache.initialize();
+
+        assertFalse(usedEntry.exists());
+    }
+}
@@ -19,15 +19,21 @@
  */
 package org.xwiki.lesscss.internal.compiler;
 
+import java.util.Collections;
+import java.util.function.Consumer;
+
 import javax.inject.Provider;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.xwiki.lesscss.compiler.LESSCompilerException;
+import org.xwiki.lesscss.internal.LESSConfiguration;
 import org.xwiki.lesscss.internal.LESSContext;
 import org.xwiki.lesscss.internal.cache.LESSResourcesCache;
+import org.xwiki.lesscss.internal.cache.PersistentLESSCache;
 import org.xwiki.lesscss.internal.colortheme.ColorThemeReference;
 import org.xwiki.lesscss.internal.colortheme.ColorThemeReferenceFactory;
 import org.xwiki.lesscss.internal.colortheme.CurrentColorThemeGetter;
@@ -48,9 +54,10 @@
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -125,6 +132,7 @@ public void compileWhenInCache() throws Exception
         // Verify
         verify(cache, never()).set(eq(lessResourceReference), eq(skinReference), eq(colorThemeReference), 
                 eq("cache output"));
+        verify(cache, never()).getMutex(any(), any(), any());
     }
 
     @Test
@@ -173,7 +181,8 @@ public void compileSkinFileWhenInCacheButCacheDisabled() throws Exception
                 mocker.getComponentUnderTest().compile(lessResourceReference, false, false, "skin", true));
 
         // Verify that the cache is disabled
-        verifyNoInteractions(cache);
+        verify(cache).addClearListener(any());
+        verifyNoMoreInteractions(cache);
     }
 
     @Test
@@ -217,4 +226,94 @@ public void compileWhenError() throws Exception
                 eq(lessResourceReference), eq(expectedException));
     }
 
+    @Test
+    public void compileWhenClearedFromCache() throws Exception
+    {
+        // Mocks
+        when(mocker.<LESSConfiguration>getInstance(LESSConfiguration.class).getMaximumSimultaneousCompilations())
+            .thenReturn(2);
+        when(cachedLESSCompiler.compute(eq(lessResourceReference), eq(false), eq(false), eq(true), eq("skin")))
+            .thenReturn("compiled output", "new compiled output");
+
+        assertEquals("compiled output",
+            mocker.getComponentUnderTest().compile(lessResourceReference, false, false, false));
+
+        // Clear the cache
+        when(cache.getPrevious(lessResourceReference, skinReference, colorThemeReference))
+            .thenReturn("compiled output");
+
+        // The previous result is returned while the resource is compiled again in the background
+        assertEquals("compiled output",
+            mocker.getComponentUnderTest().compile(lessResourceReference, false, false, false));
+        verify(cachedLESSCompiler, timeout(10000).times(2)).compute(eq(lessResourceReference), eq(false),
+            eq(false), eq(true), eq("skin"));
+
+        // The new result is put in the cache
+        verify(cache, timeout(10000)).set(eq(lessResourceReference), eq(skinReference), eq(colorThemeReference),
+            eq("new compiled output"));
+    }
+
+    @Test
+    public void compileWhenCleared() throws Exception
+    {
+        // Mocks
+        when(mocker.<LESSConfiguration>getInstance(LESSConfiguration.class).getMaximumSimultaneousCompilations())
+            .thenReturn(2);
+        when(cachedLESSCompiler.compute(eq(lessResourceReference), eq(false), eq(false), eq(true), eq("skin")))
+            .thenReturn("compiled output", "new compiled output");
+
+        assertEquals("compiled output",
+            mocker.getComponentUnderTest().compile(lessResourceReference, false, false, false));
+
+        ArgumentCaptor<Consumer<Object>> listenerCaptor = ArgumentCaptor.forClass(Consumer.class);
+        verify(cache).addClearListener(listenerCaptor.capture());
+
+        // Clear the cache
+        listenerCaptor.getValue().accept("mutex");
+
+        // The resource is compiled again in the background without waiting for it to be requested
+        verify(cache, timeout(10000)).set(eq(lessResourceReference), eq(skinReference), eq(colorThemeReference),
+            eq("new compiled output"));
+
+        // Unknown entries are ignored
+        listenerCaptor.getValue().accept("other mutex");
+        verify(cachedLESSCompiler, times(2)).compute(any(LESSResourceReference.class), anyBoolean(), anyBoolean(),
+            anyBoolean(), any());
+    }
+
+    @Test
+    public void compileWhenPersisted() throws Exception
+    {
+        // Mocks
+        PersistentLESSCache persistentCache = mocker.getInstance(PersistentLESSCache.class);
+        when(persistentCache.get(DefaultLESSCompiler.class.getName() + ":mutex", lessResourceReference,
+            skinReference, colorThemeReference, "skin")).thenReturn("stored output");
+
+        // Test
+        assertEquals("stored output",
+            mocker.getComponentUnderTest().compile(lessResourceReference, false, false, false));
+
+        // Verify
+        verify(cachedLESSCompiler, never()).compute(any(LESSResourceReference.class), anyBoolean(), anyBoolean(),
+            anyBoolean(), any());
+        verify(cache).set(eq(lessResourceReference), eq(skinReference), eq(colorThemeReference), eq("stored output"));
+    }
+
+    @Test
+    public void compileStoresResult() throws Exception
+    {
+        // Mocks
+        when(cachedLESSCompiler.compute(eq(lessResourceReference), eq(false), eq(false), eq(true), eq("skin")))
+            .thenReturn("compiled output");
+        when(lessContext.stopRecordingTemplates()).thenReturn(Collections.singleton("less/variables.less"));
+
+        // Test
+        mocker.getComponentUnderTest().compile(lessResourceReference, false, false, false);
+
+        // Verify
+        verify(lessContext).startRecordingTemplates();
+        verify(mocker.<PersistentLESSCache>getInstance(PersistentLESSCache.class)).set(
+            DefaultLESSCompiler.class.getName() + ":mutex", lessResourceReference, skinReference,
+            colorThemeReference, "skin", Collections.singleton("less/variables.less"), "compiled output");
+    }
 }
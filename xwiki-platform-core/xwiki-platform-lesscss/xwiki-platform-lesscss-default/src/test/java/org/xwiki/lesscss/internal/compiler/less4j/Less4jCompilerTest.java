@@ -21,11 +21,14 @@
 
 import java.io.FileInputStream;
 import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.xwiki.lesscss.internal.LESSContext;
 import org.xwiki.skin.Resource;
 import org.xwiki.skin.Skin;
 import org.xwiki.skin.SkinManager;
@@ -40,6 +43,8 @@
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -114,6 +119,11 @@ public void compile() throws Exception
         assertEquals(expected.toString(), result);
 
         assertTrue(result2.contains("/*# sourceMappingURL=data:application/json;base64,"));
+
+        // The imported templates are recorded
+        verify(mocker.<LESSContext>getInstance(LESSContext.class), times(2)).addTemplates(
+            new LinkedHashSet<>(Arrays.asList("less/style.less.vm", "less/subdir/import2.less",
+                "less/subdir/import3.less")));
     }
 
     @Test
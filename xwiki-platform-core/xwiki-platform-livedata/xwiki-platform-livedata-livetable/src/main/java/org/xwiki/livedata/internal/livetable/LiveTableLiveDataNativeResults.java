@@ -0,0 +1,209 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livedata.internal.livetable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.livedata.LiveData;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryFilter;
+import org.xwiki.query.QueryManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.objects.classes.BaseClass;
+
+/**
+ * Produces the live data that the default live table results page ({@code XWiki.LiveTableResults}) would return,
+ * directly in Java: the query is built and executed without Velocity, the documents are loaded in bulk and the entries
+ * are created without serializing and parsing JSON. The live data queries that are not supported natively (custom
+ * results page or template, special source parameters or properties, see
+ * {@link LiveTableLiveDataQueryBuilder#build(LiveDataQuery, String, BaseClass)}) are left to the live table results
+ * page.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+@Component(roles = LiveTableLiveDataNativeResults.class)
+@Singleton
+public class LiveTableLiveDataNativeResults
+{
+    /**
+     * The configuration property used to enable the native live table results. They are disabled by default because
+     * they would ignore the customizations of {@code XWiki.LiveTableResults} and {@code XWiki.LiveTableResultsMacros}.
+     */
+    static final String ENABLED_PROPERTY = "livedata.livetable.native";
+
+    private static final String CLASS_NAME = "className";
+
+    private static final String TRANSLATION_PREFIX = "translationPrefix";
+
+    private static final String QUERY_FILTERS = "queryFilters";
+
+    /**
+     * The source parameters that are handled natively. Any other source parameter is passed to the live table results
+     * page as a request parameter, with a meaning that only the results page knows (e.g. {@code space},
+     * {@code location} or {@code tag}).
+     */
+    private static final Set<String> SUPPORTED_SOURCE_PARAMETERS = new HashSet<>(
+        Arrays.asList(CLASS_NAME, TRANSLATION_PREFIX, QUERY_FILTERS, LiveTableRequestHandler.CONTEXT_DOC));
+
+    private static final int DEFAULT_LIMIT = 15;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Inject
+    private LiveTableLiveDataQueryBuilder queryBuilder;
+
+    @Inject
+    private LiveTableLiveDataRowBuilder rowBuilder;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> currentDocumentReferenceResolver;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * @param liveDataQuery the live data query, including the live table source parameters
+     * @return the live data, or {@link Optional#empty()} if the query is not supported natively and should be
+     *         handled by the live table results page
+     * @throws Exception if executing the query or building the entries fails
+     */
+    public Optional<LiveData> get(LiveDataQuery liveDataQuery) throws Exception
+    {
+        if (!this.configuration.getProperty(ENABLED_PROPERTY, false)) {
+            return Optional.empty();
+        }
+
+        Map<String, Object> parameters = liveDataQuery.getSource().getParameters();
+        if (!SUPPORTED_SOURCE_PARAMETERS.containsAll(parameters.keySet())) {
+            return Optional.empty();
+        }
+
+        String className = getFirstValue(parameters.get(CLASS_NAME));
+        BaseClass xclass = null;
+        if (!className.isEmpty()) {
+            XWikiContext xcontext = this.xcontextProvider.get();
+            xclass = xcontext.getWiki()
+                .getDocument(this.currentDocumentReferenceResolver.resolve(className), xcontext).getXClass();
+        }
+
+        Optional<Query> optionalQuery = this.queryBuilder.build(liveDataQuery, className, xclass);
+        if (!optionalQuery.isPresent()) {
+            return Optional.empty();
+        }
+
+        Query query = optionalQuery.get();
+        for (String queryFilter : StringUtils.split(getFirstValue(parameters.get(QUERY_FILTERS)), ", ")) {
+            addFilter(query, queryFilter);
+        }
+        long offset = liveDataQuery.getOffset() != null ? Math.max(liveDataQuery.getOffset(), 0) : 0;
+        int limit = liveDataQuery.getLimit() != null ? liveDataQuery.getLimit() : DEFAULT_LIMIT;
+        query.setOffset((int) offset);
+        query.setLimit(limit);
+
+        List<Object> items = query.execute();
+
+        LiveData liveData = new LiveData();
+        liveData.setCount(count(query));
+        liveData.getEntries().addAll(this.rowBuilder.getRows(items, liveDataQuery.getProperties(), className, xclass,
+            getFirstValue(parameters.get(TRANSLATION_PREFIX))));
+
+        // When all the results fit in a single page we remove the obfuscated entries since this has no impact on the
+        // pagination. The offset needs to be taken into account when returning the total count otherwise the client
+        // can consider that previously returned entries have been removed.
+        long returnedCount = limit > 0 ? Math.min(items.size(), limit) : items.size();
+        if (liveData.getCount() <= returnedCount) {
+            liveData.getEntries().removeIf(entry -> Boolean.FALSE.equals(entry.get("doc.viewable")));
+            liveData.setCount(liveData.getEntries().size() + offset);
+        }
+
+        return Optional.of(liveData);
+    }
+
+    private long count(Query query) throws Exception
+    {
+        Query countQuery = this.queryManager.createQuery(query.getStatement(), query.getLanguage());
+        countQuery.bindValues(query.getNamedParameters());
+        for (QueryFilter filter : query.getFilters()) {
+            countQuery.addFilter(filter);
+        }
+        countQuery.addFilter(this.componentManagerProvider.get().getInstance(QueryFilter.class, "count"));
+
+        List<Long> results = countQuery.execute();
+
+        return results.get(0);
+    }
+
+    private void addFilter(Query query, String filter)
+    {
+        try {
+            query.addFilter(this.componentManagerProvider.get().getInstance(QueryFilter.class, filter));
+        } catch (ComponentLookupException e) {
+            this.logger.warn("Failed to load QueryFilter with component hint [{}]. Root error [{}]", filter,
+                ExceptionUtils.getRootCauseMessage(e));
+        }
+    }
+
+    private String getFirstValue(Object value)
+    {
+        Object firstValue = value;
+        if (value instanceof Collection) {
+            firstValue = ((Collection<?>) value).stream().findFirst().orElse(null);
+        } else if (value instanceof Object[]) {
+            firstValue = ((Object[]) value).length > 0 ? ((Object[]) value)[0] : null;
+        }
+
+        return firstValue != null ? firstValue.toString() : "";
+    }
+}
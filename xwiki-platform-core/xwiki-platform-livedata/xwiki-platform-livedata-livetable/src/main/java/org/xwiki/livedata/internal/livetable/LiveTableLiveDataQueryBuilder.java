@@ -0,0 +1,530 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livedata.internal.livetable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.livedata.LiveDataQuery.Constraint;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+import org.xwiki.livedata.LiveDataQuery.SortEntry;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.objects.classes.ListClass;
+import com.xpn.xwiki.objects.classes.NumberClass;
+import com.xpn.xwiki.objects.classes.PropertyClass;
+
+/**
+ * Builds, in Java, the HQL query that the default live table results page ({@code XWiki.LiveTableResults}) executes
+ * for a given live data query. Only a subset of the live table features is supported (see
+ * {@link #build(LiveDataQuery, String, BaseClass)}) and the generated query follows the same filtering and sorting
+ * rules as the {@code XWiki.LiveTableResultsMacros} Velocity macros.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+@Component(roles = LiveTableLiveDataQueryBuilder.class)
+@Singleton
+public class LiveTableLiveDataQueryBuilder
+{
+    private static final String DOC_PREFIX = "doc.";
+
+    private static final String PROPERTY_ALIAS_PREFIX = "prop_";
+
+    private static final String AND = " and ";
+
+    private static final String OR = " or ";
+
+    private static final String JOIN_AND = " AND ";
+
+    private static final String JOIN_OR = " OR ";
+
+    private static final String MATCH_EXACT = "exact";
+
+    private static final String MATCH_PARTIAL = "partial";
+
+    private static final String MATCH_PREFIX = "prefix";
+
+    private static final String MATCH_EMPTY = "empty";
+
+    private static final String STRING_PROPERTY = "StringProperty";
+
+    private static final String LARGE_STRING_PROPERTY = "LargeStringProperty";
+
+    private static final String INTEGER_PROPERTY = "IntegerProperty";
+
+    private static final String LONG_PROPERTY = "LongProperty";
+
+    private static final String FLOAT_PROPERTY = "FloatProperty";
+
+    private static final String DOUBLE_PROPERTY = "DoubleProperty";
+
+    private static final String LIKE = " like ";
+
+    private static final String PARAMETER_PREFIX = ":";
+
+    private static final String PERCENT = "%";
+
+    @SuppressWarnings("serial")
+    private static final Map<String, String> MATCH_TYPE = new HashMap<String, String>()
+    {
+        {
+            put("equals", MATCH_EXACT);
+            put("contains", MATCH_PARTIAL);
+            put("startsWith", MATCH_PREFIX);
+        }
+    };
+
+    /**
+     * The document fields that can be filtered. The live table results also accept other fields but they either need
+     * a dedicated filter (dates, location) or they are not meant to be exposed.
+     */
+    private static final Set<String> FILTERABLE_DOCUMENT_FIELDS = new HashSet<>(Arrays.asList("fullName", "name",
+        "space", "title", "author", "creator", "contentAuthor", "parent", "language", "defaultLanguage", "version",
+        "hidden"));
+
+    /**
+     * The document fields that are sorted as raw values and not as strings.
+     */
+    private static final Set<String> RAW_DOCUMENT_FIELDS = new HashSet<>(Arrays.asList("translation", "date",
+        "contentUpdateDate", "creationDate", "elements", "minorEdit1", "hidden"));
+
+    private static final Set<String> SORTABLE_DOCUMENT_FIELDS =
+        Stream.concat(FILTERABLE_DOCUMENT_FIELDS.stream(), RAW_DOCUMENT_FIELDS.stream()).collect(Collectors.toSet());
+
+    /**
+     * The property types that are sorted as raw values and not as strings.
+     */
+    private static final Set<String> RAW_PROPERTY_TYPES =
+        new HashSet<>(Arrays.asList("NumberClass", "BooleanClass", "DateClass", "LevelsClass"));
+
+    @Inject
+    private QueryManager queryManager;
+
+    /**
+     * Builds the query that returns the full names of the documents matching the given live data query. The returned
+     * query is empty when the live data query uses a feature that is not supported natively:
+     * <ul>
+     * <li>the {@code doc.location} property or the special properties ({@code _actions}, {@code _avatar}, etc.)</li>
+     * <li>class properties that are not defined by the given class, or that are of type Email (because of the
+     * obfuscation)</li>
+     * <li>filters on dates or on multiple-value properties</li>
+     * <li>sorting on document fields that are not stored in the document table</li>
+     * </ul>
+     * 
+     * @param liveDataQuery the live data query
+     * @param className the live table class name, empty if the live table lists documents
+     * @param xclass the live table class, {@code null} if the live table lists documents
+     * @return the query, or {@link Optional#empty()} if the live data query is not supported natively
+     * @throws QueryException if creating the query fails
+     */
+    public Optional<Query> build(LiveDataQuery liveDataQuery, String className, BaseClass xclass)
+        throws QueryException
+    {
+        List<String> properties = liveDataQuery.getProperties();
+        if (properties == null || !properties.stream().allMatch(property -> isSupported(property, xclass))) {
+            return Optional.empty();
+        }
+
+        QueryParts parts = new QueryParts();
+
+        // Only the filters on the requested properties are applied, like the live table results do.
+        Map<String, Filter> filters = getFilters(liveDataQuery);
+        for (String property : properties) {
+            Filter filter = filters.get(property);
+            if (filter != null && !addFilter(property, filter, xclass, parts)) {
+                return Optional.empty();
+            }
+        }
+
+        if (!addSort(liveDataQuery, xclass, parts)) {
+            return Optional.empty();
+        }
+
+        StringBuilder statement = new StringBuilder();
+        if (StringUtils.isNotEmpty(className)) {
+            statement.append(", BaseObject as obj").append(parts.from);
+            statement.append(" where obj.name=doc.fullName and obj.className = :className");
+            statement.append(" and doc.fullName not in (:classTemplate1, :classTemplate2)");
+            parts.parameters.put("className", className);
+            parts.parameters.put("classTemplate1", className + "Template");
+            parts.parameters.put("classTemplate2", className.replaceAll("Class$", "Template"));
+        } else {
+            statement.append(parts.from).append(" where 1=1");
+        }
+        statement.append(parts.where).append(parts.order);
+
+        Query query = this.queryManager.createQuery(statement.toString(), Query.HQL);
+        query.bindValues(parts.parameters);
+
+        return Optional.of(query);
+    }
+
+    private boolean isSupported(String property, BaseClass xclass)
+    {
+        if (property.startsWith(DOC_PREFIX)) {
+            return !"doc.location".equals(property);
+        } else if (property.startsWith("_") || xclass == null) {
+            return false;
+        }
+
+        PropertyClass propertyClass = getPropertyClass(property, xclass);
+
+        return propertyClass != null && !"Email".equals(propertyClass.getClassType());
+    }
+
+    private PropertyClass getPropertyClass(String property, BaseClass xclass)
+    {
+        if (xclass != null && xclass.get(property) instanceof PropertyClass) {
+            return (PropertyClass) xclass.get(property);
+        }
+
+        return null;
+    }
+
+    private Map<String, Filter> getFilters(LiveDataQuery liveDataQuery)
+    {
+        Map<String, Filter> filters = new HashMap<>();
+        if (liveDataQuery.getFilters() != null) {
+            for (Filter filter : liveDataQuery.getFilters()) {
+                // Ignore the constraints without value, like the live table request does.
+                Filter validFilter = new Filter();
+                validFilter.setProperty(filter.getProperty());
+                validFilter.setMatchAll(filter.isMatchAll());
+                filter.getConstraints().stream().filter(Objects::nonNull)
+                    .filter(constraint -> constraint.getValue() != null)
+                    .forEach(validFilter.getConstraints()::add);
+                if (!validFilter.getConstraints().isEmpty()) {
+                    filters.put(filter.getProperty(), validFilter);
+                }
+            }
+        }
+
+        return filters;
+    }
+
+    private String getValue(Constraint constraint)
+    {
+        // Empty values are dismissed by the live table results so the live table request uses a placeholder.
+        return MATCH_EMPTY.equals(constraint.getOperator()) ? "-" : constraint.getValue().toString();
+    }
+
+    private boolean addFilter(String property, Filter filter, BaseClass xclass, QueryParts parts)
+    {
+        if (property.startsWith(DOC_PREFIX)) {
+            return addDocumentFilter(property, filter, parts);
+        }
+
+        PropertyClass propertyClass = getPropertyClass(property, xclass);
+        if ("Password".equals(propertyClass.getClassType())) {
+            // Password properties can't be filtered.
+            return true;
+        }
+
+        String tableName = getTableName(propertyClass);
+        String alias = getPropertyAlias(property, parts);
+        if (STRING_PROPERTY.equals(tableName) || LARGE_STRING_PROPERTY.equals(tableName)) {
+            joinProperty(property, tableName, alias, parts);
+            addStringFilter(alias, filter, parts);
+        } else if (isNumberTable(tableName)) {
+            String value = getValue(filter.getConstraints().get(0));
+            if (!NumberUtils.isCreatable(value)) {
+                return false;
+            }
+            joinProperty(property, tableName, alias, parts);
+            addNumberFilter(alias, tableName, NumberUtils.createNumber(value), parts);
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+
+    private boolean addDocumentFilter(String property, Filter filter, QueryParts parts)
+    {
+        String field = StringUtils.removeStart(property, DOC_PREFIX);
+        if (!FILTERABLE_DOCUMENT_FIELDS.contains(field)) {
+            return false;
+        }
+
+        // The live table results match only the first value of the document fields, as a substring.
+        String parameter = "doc_" + field + "_filter";
+        parts.where.append(" and upper(str(doc.").append(field).append("))").append(LIKE).append("upper(")
+            .append(PARAMETER_PREFIX).append(parameter).append(')');
+        parts.parameters.put(parameter, PERCENT + getValue(filter.getConstraints().get(0)) + PERCENT);
+
+        return true;
+    }
+
+    private void joinProperty(String property, String tableName, String alias, QueryParts parts)
+    {
+        parts.joinedProperties.add(property);
+        parts.from.append(", ").append(tableName).append(" as ").append(alias);
+        parts.where.append(" and obj.id = ").append(alias).append(".id.id and ").append(alias).append(".id.name = :")
+            .append(alias).append("_id_name");
+        parts.parameters.put(alias + "_id_name", property);
+    }
+
+    private void addNumberFilter(String alias, String tableName, Number number, QueryParts parts)
+    {
+        String parameter = alias + "_value";
+        if (INTEGER_PROPERTY.equals(tableName) || LONG_PROPERTY.equals(tableName)) {
+            parts.where.append(AND).append(alias).append(".value = :").append(parameter);
+        } else {
+            parts.where.append(" and abs(:").append(parameter).append(" - ").append(alias)
+                .append(".value) <= 0.000001");
+        }
+
+        switch (tableName) {
+            case INTEGER_PROPERTY:
+                parts.parameters.put(parameter, number.intValue());
+                break;
+            case LONG_PROPERTY:
+                parts.parameters.put(parameter, number.longValue());
+                break;
+            case FLOAT_PROPERTY:
+                parts.parameters.put(parameter, number.floatValue());
+                break;
+            default:
+                parts.parameters.put(parameter, number.doubleValue());
+        }
+    }
+
+    private void addStringFilter(String alias, Filter filter, QueryParts parts)
+    {
+        // Group the filter values by match type so that we can optimize the query.
+        Map<String, List<String>> valuesByMatchType = new LinkedHashMap<>();
+        for (Constraint constraint : filter.getConstraints()) {
+            String matchType = MATCH_TYPE.getOrDefault(constraint.getOperator(),
+                StringUtils.defaultString(constraint.getOperator()));
+            valuesByMatchType.computeIfAbsent(matchType, key -> new ArrayList<>()).add(getValue(constraint));
+        }
+
+        String joinOperator = filter.isMatchAll() ? JOIN_AND : JOIN_OR;
+        String column = alias + ".value";
+        String parameterPrefix = alias + "_value_";
+        List<String> constraints = new ArrayList<>();
+        int parameterIndex = 1;
+        for (Map.Entry<String, List<String>> entry : valuesByMatchType.entrySet()) {
+            String matchType = entry.getKey();
+            List<String> parameters = new ArrayList<>();
+            for (String value : entry.getValue()) {
+                String parameter = parameterPrefix + parameterIndex++;
+                parameters.add(parameter);
+                parts.parameters.put(parameter, getFilterParameterValue(value, matchType));
+            }
+            constraints.add(getFilterConstraint(column, matchType, parameters, joinOperator));
+        }
+
+        parts.where.append(" and (").append(StringUtils.join(constraints, joinOperator)).append(')');
+    }
+
+    private String getFilterConstraint(String column, String matchType, List<String> parameters,
+        String joinOperator)
+    {
+        if (MATCH_PARTIAL.equals(matchType) || MATCH_PREFIX.equals(matchType)) {
+            return parameters.stream().map(parameter -> "upper(" + column + ")" + LIKE + "upper(:" + parameter + ")")
+                .collect(Collectors.joining(joinOperator));
+        } else if (MATCH_EMPTY.equals(matchType)) {
+            // Oracle stores the empty string as a NULL value.
+            return parameters.stream()
+                .map(parameter -> "(" + column + LIKE + PARAMETER_PREFIX + parameter + OR + column + " is null)")
+                .collect(Collectors.joining(joinOperator));
+        } else if (parameters.size() > 1 && JOIN_OR.equals(joinOperator)) {
+            return parameters.stream().map(parameter -> PARAMETER_PREFIX + parameter)
+                .collect(Collectors.joining(", ", column + " in (", ")"));
+        } else {
+            return parameters.stream().map(parameter -> column + " = :" + parameter)
+                .collect(Collectors.joining(JOIN_AND));
+        }
+    }
+
+    private String getFilterParameterValue(String value, String matchType)
+    {
+        if (MATCH_PARTIAL.equals(matchType)) {
+            return PERCENT + value + PERCENT;
+        } else if (MATCH_PREFIX.equals(matchType)) {
+            return value + PERCENT;
+        } else if (MATCH_EMPTY.equals(matchType)) {
+            return "";
+        } else {
+            return value;
+        }
+    }
+
+    private boolean addSort(LiveDataQuery liveDataQuery, BaseClass xclass, QueryParts parts)
+    {
+        // The live table results support sorting on a single property.
+        List<SortEntry> sort = liveDataQuery.getSort();
+        if (sort == null || sort.isEmpty() || StringUtils.isEmpty(sort.get(0).getProperty())) {
+            return true;
+        }
+
+        String property = sort.get(0).getProperty();
+        if ("doc.location".equals(property)) {
+            property = "doc.fullName";
+        }
+        String direction = sort.get(0).isDescending() ? "desc" : "asc";
+
+        if (property.startsWith(DOC_PREFIX)) {
+            String field = StringUtils.removeStart(property, DOC_PREFIX);
+            if (!SORTABLE_DOCUMENT_FIELDS.contains(field)) {
+                return false;
+            }
+            parts.order = getOrderClause(property, direction, RAW_DOCUMENT_FIELDS.contains(field));
+        } else {
+            PropertyClass propertyClass = getPropertyClass(property, xclass);
+            if (propertyClass == null) {
+                return false;
+            }
+            // Only single values can be sorted.
+            if (!(propertyClass instanceof ListClass && ((ListClass) propertyClass).isMultiSelect())) {
+                String alias = getPropertyAlias(property, parts);
+                if (!parts.joinedProperties.contains(property)) {
+                    parts.from.append(", ").append(getTableName(propertyClass)).append(' ').append(alias);
+                    parts.where.append(" and obj.id=").append(alias).append(".id.id and ").append(alias)
+                        .append(".name = :").append(alias).append("_name");
+                    parts.parameters.put(alias + "_name", property);
+                }
+                parts.order = getOrderClause(alias + ".value", direction,
+                    RAW_PROPERTY_TYPES.contains(propertyClass.getClass().getSimpleName()));
+            }
+        }
+
+        return true;
+    }
+
+    private String getOrderClause(String column, String direction, boolean useRawValue)
+    {
+        // Ignore the case first (so that e.g. 'aaa' equals 'AAA') and then consider it only for equal values (so that
+        // e.g. 'AAA' comes before 'aaa').
+        if (useRawValue) {
+            return String.format(" order by %s %s", column, direction);
+        } else {
+            return String.format(" order by lower(%1$s) %2$s, %1$s %2$s", column, direction);
+        }
+    }
+
+    private String getPropertyAlias(String property, QueryParts parts)
+    {
+        return parts.aliases.computeIfAbsent(property, key -> {
+            // Force a prefix to avoid the cases when the property name is a reserved SQL keyword.
+            String alias = PROPERTY_ALIAS_PREFIX + property.replaceAll("\\W", "");
+            // Different property names can lead to the same alias once the non word characters are removed.
+            String uniqueAlias = alias;
+            for (int index = 1; parts.aliases.containsValue(uniqueAlias); index++) {
+                uniqueAlias = alias + '_' + index;
+            }
+            return uniqueAlias;
+        });
+    }
+
+    private boolean isNumberTable(String tableName)
+    {
+        return INTEGER_PROPERTY.equals(tableName) || LONG_PROPERTY.equals(tableName)
+            || FLOAT_PROPERTY.equals(tableName) || DOUBLE_PROPERTY.equals(tableName);
+    }
+
+    private String getTableName(PropertyClass propertyClass)
+    {
+        switch (propertyClass.getClass().getSimpleName()) {
+            case "NumberClass":
+                return getNumberTableName(((NumberClass) propertyClass).getNumberType());
+            case "BooleanClass":
+                return INTEGER_PROPERTY;
+            case "DateClass":
+                return "DateProperty";
+            case "TextAreaClass":
+            case "UsersClass":
+            case "GroupsClass":
+                return LARGE_STRING_PROPERTY;
+            case "StaticListClass":
+            case "DBListClass":
+            case "DBTreeListClass":
+            case "PageClass":
+                return getListTableName((ListClass) propertyClass);
+            default:
+                return STRING_PROPERTY;
+        }
+    }
+
+    private String getNumberTableName(String numberType)
+    {
+        if ("integer".equals(numberType)) {
+            return INTEGER_PROPERTY;
+        } else if ("float".equals(numberType)) {
+            return FLOAT_PROPERTY;
+        } else if ("double".equals(numberType)) {
+            return DOUBLE_PROPERTY;
+        } else {
+            return LONG_PROPERTY;
+        }
+    }
+
+    private String getListTableName(ListClass listClass)
+    {
+        if (listClass.isMultiSelect()) {
+            return listClass.isRelationalStorage() ? "DBStringListProperty" : "StringListProperty";
+        } else {
+            return STRING_PROPERTY;
+        }
+    }
+
+    /**
+     * The different parts of the query being built.
+     */
+    private static final class QueryParts
+    {
+        private final StringBuilder from = new StringBuilder();
+
+        private final StringBuilder where = new StringBuilder();
+
+        private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+        private final Set<String> joinedProperties = new HashSet<>();
+
+        /**
+         * The query alias of each class property, unique for the query.
+         */
+        private final Map<String, String> aliases = new HashMap<>();
+
+        private String order = "";
+    }
+}
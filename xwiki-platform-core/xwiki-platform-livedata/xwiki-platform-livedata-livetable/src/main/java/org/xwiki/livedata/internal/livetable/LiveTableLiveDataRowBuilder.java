@@ -0,0 +1,308 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livedata.internal.livetable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.localization.ContextualLocalizationManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.user.CurrentUserReference;
+import org.xwiki.user.UserPropertiesResolver;
+import org.xwiki.user.UserReference;
+import org.xwiki.user.UserReferenceSerializer;
+import org.xwiki.user.UserType;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.objects.classes.ListClass;
+import com.xpn.xwiki.objects.classes.PropertyClass;
+
+/**
+ * Builds, in Java, the live data entries that the default live table results page ({@code XWiki.LiveTableResults})
+ * would return for a list of documents, following the {@code gridresult_buildRowJSON} Velocity macro. The entry
+ * properties are named directly after the live data properties (e.g. {@code doc.title} instead of
+ * {@code doc_title}).
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+@Component(roles = LiveTableLiveDataRowBuilder.class)
+@Singleton
+public class LiveTableLiveDataRowBuilder
+{
+    private static final String DOC_PREFIX = "doc.";
+
+    private static final String VIEWABLE = "doc.viewable";
+
+    private static final String FULL_NAME = "doc.fullName";
+
+    private static final String EDIT = "edit";
+
+    private static final String VIEW = "view";
+
+    private static final String HTML_START = "{{html clean=\"false\" wiki=\"false\"}}";
+
+    private static final String HTML_END = "{{/html}}";
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> currentDocumentReferenceResolver;
+
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    @Inject
+    private ContextualAuthorizationManager authorization;
+
+    @Inject
+    private ContextualLocalizationManager localization;
+
+    @Inject
+    @Named("all")
+    private UserPropertiesResolver userPropertiesResolver;
+
+    @Inject
+    @Named("document")
+    private UserReferenceSerializer<DocumentReference> documentUserReferenceSerializer;
+
+    /**
+     * Builds the live data entries corresponding to the given query results.
+     * 
+     * @param items the query results, either the document full names or arrays starting with the document full name
+     *            and the document language
+     * @param properties the live data properties
+     * @param className the live table class name, empty if the live table lists documents
+     * @param xclass the live table class, {@code null} if the live table lists documents
+     * @param translationPrefix the prefix of the live table translation keys
+     * @return the live data entries
+     * @throws XWikiException if loading the documents fails
+     */
+    public List<Map<String, Object>> getRows(List<Object> items, List<String> properties, String className,
+        BaseClass xclass, String translationPrefix) throws XWikiException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        List<DocumentReference> documentReferences = new ArrayList<>(items.size());
+        List<String> languages = new ArrayList<>(items.size());
+        for (Object item : items) {
+            // The "language" query filter adds the document language to the results.
+            if (item instanceof Object[]) {
+                documentReferences.add(this.currentDocumentReferenceResolver.resolve((String) ((Object[]) item)[0]));
+                languages.add(Objects.toString(((Object[]) item)[1], ""));
+            } else {
+                documentReferences.add(this.currentDocumentReferenceResolver.resolve((String) item));
+                languages.add("");
+            }
+        }
+
+        // Load all the returned documents at once, instead of one by one when building the rows.
+        List<XWikiDocument> documents = xcontext.getWiki().getDocuments(documentReferences, xcontext);
+
+        RowsContext rowsContext = new RowsContext();
+        rowsContext.properties = properties;
+        rowsContext.className = className;
+        rowsContext.xclass = xclass;
+        rowsContext.translationPrefix = translationPrefix;
+        rowsContext.hasAdmin = xcontext.getWiki().getRightService().hasAdminRights(xcontext);
+        rowsContext.isAdvancedUser = (xcontext.getUserReference() == null && rowsContext.hasAdmin)
+            || this.userPropertiesResolver.resolve(CurrentUserReference.INSTANCE).getType() == UserType.ADVANCED;
+        rowsContext.languagePreference = xcontext.getWiki().getLanguagePreference(xcontext);
+
+        List<Map<String, Object>> rows = new ArrayList<>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            rows.add(getRow(documents.get(i), languages.get(i), rowsContext, xcontext));
+        }
+
+        return rows;
+    }
+
+    private Map<String, Object> getRow(XWikiDocument document, String language, RowsContext rowsContext,
+        XWikiContext xcontext) throws XWikiException
+    {
+        DocumentReference documentReference = document.getDocumentReference();
+        Map<String, Object> row = new HashMap<>();
+        if (!this.authorization.hasAccess(Right.VIEW, documentReference)) {
+            row.put(VIEWABLE, false);
+            row.put(FULL_NAME, "obfuscated");
+            return row;
+        }
+
+        XWiki xwiki = xcontext.getWiki();
+        row.put(VIEWABLE, true);
+        row.put(FULL_NAME, this.localSerializer.serialize(documentReference));
+        row.put("doc.space", this.localSerializer.serialize(documentReference.getParent()));
+        row.put("doc.url", xwiki.getURL(documentReference, VIEW, xcontext));
+        row.put("doc.space_url", xwiki.getURL(documentReference.getParent(), xcontext));
+        row.put("doc.wiki", documentReference.getWikiReference().getName());
+        row.put("doc.wiki_url", xwiki.getURL(documentReference.getWikiReference(), xcontext));
+        row.put("doc.hasadmin", rowsContext.hasAdmin);
+        boolean hasEdit = this.authorization.hasAccess(Right.EDIT, documentReference);
+        boolean hasDelete = this.authorization.hasAccess(Right.DELETE, documentReference);
+        row.put("doc.hasedit", hasEdit);
+        row.put("doc.hasdelete", hasDelete);
+        row.put("doc.edit_url", document.getURL(document.getDefaultEditMode(xcontext), xcontext));
+        row.put("doc.copy_url", xwiki.getURL(documentReference, VIEW, "xpage=copy", null, xcontext));
+        row.put("doc.delete_url", xwiki.getURL(documentReference, "delete", xcontext));
+        row.put("doc.rename_url", xwiki.getURL(documentReference, VIEW, "xpage=rename&step=1", null, xcontext));
+
+        boolean isTranslation =
+            StringUtils.isNotEmpty(language) && !language.equals(rowsContext.languagePreference);
+        // Display the language after the document name so that not all translated documents have the same name.
+        row.put("doc.name", isTranslation ? String.format("%s (%s)", documentReference.getName(), language)
+            : documentReference.getName());
+        row.put("doc.hascopy", true);
+        row.put("doc.hasrename", hasDelete);
+        row.put("doc.hasrights", hasEdit && rowsContext.isAdvancedUser);
+        row.put("doc.rights_url", getRightsURL(documentReference, xwiki, xcontext));
+
+        // Make sure we display the data associated to the correct document if the result is a translation.
+        XWikiDocument translatedDocument = isTranslation ? document.getTranslatedDocument(language, xcontext)
+            : document.getTranslatedDocument(xcontext);
+        addDocumentProperties(row, document, translatedDocument, rowsContext, xcontext);
+
+        BaseObject object = null;
+        if (StringUtils.isNotEmpty(rowsContext.className)) {
+            object = document.getXObject(this.currentDocumentReferenceResolver.resolve(rowsContext.className));
+        }
+        for (String property : rowsContext.properties) {
+            if (!property.startsWith(DOC_PREFIX)) {
+                addObjectProperty(row, property, document, object, rowsContext, xcontext);
+            }
+        }
+
+        return row;
+    }
+
+    private String getRightsURL(DocumentReference documentReference, XWiki xwiki, XWikiContext xcontext)
+    {
+        if ("WebHome".equals(documentReference.getName())) {
+            // For nested pages, use the page administration.
+            DocumentReference webPreferencesReference =
+                new DocumentReference("WebPreferences", documentReference.getLastSpaceReference());
+            return xwiki.getURL(webPreferencesReference, "admin", "editor=spaceadmin&section=PageRights", null,
+                xcontext);
+        } else {
+            // For terminal pages, use the old rights editor.
+            return xwiki.getURL(documentReference, EDIT, "editor=rights", null, xcontext);
+        }
+    }
+
+    private void addDocumentProperties(Map<String, Object> row, XWikiDocument document,
+        XWikiDocument translatedDocument, RowsContext rowsContext, XWikiContext xcontext)
+    {
+        XWiki xwiki = xcontext.getWiki();
+        row.put("doc.objectCount", document.getObjectNumbers(rowsContext.className));
+        row.put("doc.date", xwiki.formatDate(translatedDocument.getDate(), null, xcontext));
+        String title = translatedDocument.getRenderedTitle(Syntax.PLAIN_1_0, xcontext);
+        row.put("doc.title", title);
+        if (!StringUtils.equals(translatedDocument.getTitle(), title)) {
+            row.put("doc.title_raw", translatedDocument.getTitle());
+        }
+        // Like the live table results, display the original metadata author. Its reference is null for guest, which
+        // is displayed as unknown user.
+        UserReference metadataAuthor = translatedDocument.getAuthors().getOriginalMetadataAuthor();
+        DocumentReference authorReference =
+            metadataAuthor != null ? this.documentUserReferenceSerializer.serialize(metadataAuthor) : null;
+        row.put("doc.author", xwiki.getPlainUserName(authorReference, xcontext));
+        row.put("doc.author_url", authorReference != null ? xwiki.getURL(authorReference, VIEW, xcontext) : "");
+        row.put("doc.creationDate", xwiki.formatDate(translatedDocument.getCreationDate(), null, xcontext));
+        row.put("doc.creator", xwiki.getPlainUserName(translatedDocument.getCreatorReference(), xcontext));
+        row.put("doc.hidden", translatedDocument.isHidden());
+    }
+
+    private void addObjectProperty(Map<String, Object> row, String property, XWikiDocument document,
+        BaseObject object, RowsContext rowsContext, XWikiContext xcontext)
+    {
+        PropertyClass propertyClass = (PropertyClass) rowsContext.xclass.get(property);
+        String value = "";
+        String displayValue = "";
+        if (object != null) {
+            if ("Password".equals(propertyClass.getClassType())) {
+                value = "********";
+            } else if (object.safeget(property) instanceof BaseProperty) {
+                value = Objects.toString(((BaseProperty) object.safeget(property)).getValue(), "");
+            }
+            displayValue = StringUtils.removeEnd(
+                StringUtils.removeStart(document.display(property, VIEW, object, xcontext), HTML_START), HTML_END);
+        }
+        if (displayValue.isEmpty()) {
+            String emptyValueKey = rowsContext.translationPrefix + "emptyvalue";
+            displayValue = StringUtils.defaultString(this.localization.getTranslationPlain(emptyValueKey),
+                emptyValueKey);
+        }
+
+        // Only retrieve an URL for a single value page reference.
+        String url = "";
+        String type = propertyClass.getClass().getSimpleName();
+        if (("DBListClass".equals(type) || "PageClass".equals(type)) && !((ListClass) propertyClass).isMultiSelect()
+            && !value.isEmpty()) {
+            url = xcontext.getWiki().getURL(this.currentDocumentReferenceResolver.resolve(value), VIEW, xcontext);
+        }
+
+        row.put(property, displayValue);
+        row.put(property + "_value", value);
+        row.put(property + "_url", url);
+    }
+
+    /**
+     * The information shared by all the rows of a live table results page.
+     */
+    private static final class RowsContext
+    {
+        private List<String> properties;
+
+        private String className;
+
+        private BaseClass xclass;
+
+        private String translationPrefix;
+
+        private boolean hasAdmin;
+
+        private boolean isAdvancedUser;
+
+        private String languagePreference;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livedata.internal.livetable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.livedata.LiveData;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.livedata.LiveDataQuery.Source;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryFilter;
+import org.xwiki.query.QueryManager;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.classes.BaseClass;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link LiveTableLiveDataNativeResults}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class LiveTableLiveDataNativeResultsTest
+{
+    private static final String CLASS_NAME = "Test.TestClass";
+
+    private static final String TRANSLATION_PREFIX = "test.";
+
+    private static final List<String> PROPERTIES = Arrays.asList("doc.title", "status");
+
+    @InjectMockComponents
+    private LiveTableLiveDataNativeResults nativeResults;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @MockComponent
+    private LiveTableLiveDataQueryBuilder queryBuilder;
+
+    @MockComponent
+    private LiveTableLiveDataRowBuilder rowBuilder;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @MockComponent
+    @Named("current")
+    private DocumentReferenceResolver<String> currentDocumentReferenceResolver;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Mock
+    private ComponentManager componentManager;
+
+    @Mock
+    private Query query;
+
+    @Mock
+    private Query countQuery;
+
+    @Mock
+    private XWikiContext xcontext;
+
+    @Mock
+    private XWiki xwiki;
+
+    private final BaseClass xclass = new BaseClass();
+
+    private final List<Object> items = Arrays.asList("Space.Page1", "Space.Page2");
+
+    private LiveDataQuery liveDataQuery;
+
+    @BeforeEach
+    void before() throws Exception
+    {
+        when(this.configuration.getProperty(LiveTableLiveDataNativeResults.ENABLED_PROPERTY, false)).thenReturn(true);
+
+        when(this.xcontextProvider.get()).thenReturn(this.xcontext);
+        when(this.xcontext.getWiki()).thenReturn(this.xwiki);
+        DocumentReference classReference = new DocumentReference("wiki", "Test", "TestClass");
+        when(this.currentDocumentReferenceResolver.resolve(CLASS_NAME)).thenReturn(classReference);
+        XWikiDocument classDocument = mock(XWikiDocument.class);
+        when(classDocument.getXClass()).thenReturn(this.xclass);
+        when(this.xwiki.getDocument(classReference, this.xcontext)).thenReturn(classDocument);
+
+        when(this.componentManagerProvider.get()).thenReturn(this.componentManager);
+        when(this.componentManager.getInstance(QueryFilter.class, "count")).thenReturn(mock(QueryFilter.class));
+
+        when(this.queryBuilder.build(any(), any(), any())).thenReturn(Optional.of(this.query));
+        when(this.query.<Object>execute()).thenReturn(this.items);
+        when(this.queryManager.createQuery(any(), any())).thenReturn(this.countQuery);
+
+        this.liveDataQuery = new LiveDataQuery();
+        this.liveDataQuery.initialize();
+        this.liveDataQuery.setProperties(PROPERTIES);
+        this.liveDataQuery.setSource(new Source("liveTable"));
+        this.liveDataQuery.getSource().getParameters().put("className", CLASS_NAME);
+        this.liveDataQuery.getSource().getParameters().put("translationPrefix", TRANSLATION_PREFIX);
+        this.liveDataQuery.setOffset(0L);
+        this.liveDataQuery.setLimit(2);
+    }
+
+    private Map<String, Object> row(String fullName, boolean viewable)
+    {
+        Map<String, Object> row = new HashMap<>();
+        row.put("doc.fullName", fullName);
+        row.put("doc.viewable", viewable);
+        return row;
+    }
+
+    @Test
+    void getWhenDisabled() throws Exception
+    {
+        when(this.configuration.getProperty(LiveTableLiveDataNativeResults.ENABLED_PROPERTY, false))
+            .thenReturn(false);
+
+        assertFalse(this.nativeResults.get(this.liveDataQuery).isPresent());
+
+        verify(this.queryBuilder, never()).build(any(), any(), any());
+    }
+
+    @Test
+    void getWithUnsupportedSourceParameter() throws Exception
+    {
+        this.liveDataQuery.getSource().getParameters().put("space", "Space");
+
+        assertFalse(this.nativeResults.get(this.liveDataQuery).isPresent());
+
+        verify(this.queryBuilder, never()).build(any(), any(), any());
+    }
+
+    @Test
+    void getWithUnsupportedQuery() throws Exception
+    {
+        when(this.queryBuilder.build(this.liveDataQuery, CLASS_NAME, this.xclass)).thenReturn(Optional.empty());
+
+        assertFalse(this.nativeResults.get(this.liveDataQuery).isPresent());
+
+        verify(this.query, never()).execute();
+    }
+
+    @Test
+    void get() throws Exception
+    {
+        QueryFilter hiddenFilter = mock(QueryFilter.class);
+        when(this.componentManager.getInstance(QueryFilter.class, "hidden")).thenReturn(hiddenFilter);
+        this.liveDataQuery.getSource().getParameters().put("queryFilters", "hidden");
+        when(this.query.getFilters()).thenReturn(Collections.singletonList(hiddenFilter));
+
+        when(this.countQuery.<Long>execute()).thenReturn(Collections.singletonList(5L));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(row("Space.Page1", true));
+        rows.add(row("obfuscated", false));
+        when(this.rowBuilder.getRows(this.items, PROPERTIES, CLASS_NAME, this.xclass, TRANSLATION_PREFIX))
+            .thenReturn(rows);
+
+        LiveData liveData = this.nativeResults.get(this.liveDataQuery).get();
+
+        // There are more results than returned so the obfuscated entries are kept for the pagination.
+        assertEquals(5, liveData.getCount());
+        assertEquals(rows, liveData.getEntries());
+
+        verify(this.query).addFilter(hiddenFilter);
+        verify(this.query).setOffset(0);
+        verify(this.query).setLimit(2);
+        verify(this.countQuery).addFilter(hiddenFilter);
+    }
+
+    @Test
+    void getWhenAllResultsFitInOnePage() throws Exception
+    {
+        when(this.countQuery.<Long>execute()).thenReturn(Collections.singletonList(2L));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(row("Space.Page1", true));
+        rows.add(row("obfuscated", false));
+        when(this.rowBuilder.getRows(this.items, PROPERTIES, CLASS_NAME, this.xclass, TRANSLATION_PREFIX))
+            .thenReturn(rows);
+
+        LiveData liveData = this.nativeResults.get(this.liveDataQuery).get();
+
+        // The obfuscated entries are removed since they have no impact on the pagination.
+        assertEquals(1, liveData.getCount());
+        assertEquals(Collections.singletonList(row("Space.Page1", true)), liveData.getEntries());
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livedata.internal.livetable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.livedata.LiveDataQuery.Constraint;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+import org.xwiki.livedata.LiveDataQuery.SortEntry;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.objects.classes.BaseClass;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link LiveTableLiveDataQueryBuilder}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class LiveTableLiveDataQueryBuilderTest
+{
+    @InjectMockComponents
+    private LiveTableLiveDataQueryBuilder queryBuilder;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @Mock
+    private Query query;
+
+    private BaseClass xclass = new BaseClass();
+
+    @BeforeEach
+    void before() throws Exception
+    {
+        when(this.queryManager.createQuery(any(), eq(Query.HQL))).thenReturn(this.query);
+
+        this.xclass.addTextField("status", "Status", 30);
+        this.xclass.addNumberField("count", "Count", 5, "integer");
+        this.xclass.addEmailField("email", "Email", 30);
+    }
+
+    @Test
+    void buildClassQuery() throws Exception
+    {
+        LiveDataQuery liveDataQuery = new LiveDataQuery();
+        liveDataQuery.initialize();
+        liveDataQuery.setProperties(Arrays.asList("doc.title", "status", "count"));
+        Filter statusFilter = new Filter();
+        statusFilter.setProperty("status");
+        statusFilter.getConstraints().add(new Constraint("a", "contains"));
+        statusFilter.getConstraints().add(new Constraint("b", "startsWith"));
+        liveDataQuery.getFilters().add(statusFilter);
+        liveDataQuery.getFilters().add(new Filter("count", "equals", "3"));
+        // Filters on properties that are not displayed are ignored.
+        liveDataQuery.getFilters().add(new Filter("doc.author", "contains", "alice"));
+        liveDataQuery.getSort().add(new SortEntry("doc.title", true));
+
+        assertEquals(Optional.of(this.query), this.queryBuilder.build(liveDataQuery, "Test.TestClass", this.xclass));
+
+        verify(this.queryManager).createQuery(", BaseObject as obj, StringProperty as prop_status, "
+            + "IntegerProperty as prop_count where obj.name=doc.fullName and obj.className = :className "
+            + "and doc.fullName not in (:classTemplate1, :classTemplate2) "
+            + "and obj.id = prop_status.id.id and prop_status.id.name = :prop_status_id_name "
+            + "and (upper(prop_status.value) like upper(:prop_status_value_1) "
+            + "OR upper(prop_status.value) like upper(:prop_status_value_2)) "
+            + "and obj.id = prop_count.id.id and prop_count.id.name = :prop_count_id_name "
+            + "and prop_count.value = :prop_count_value order by lower(doc.title) desc, doc.title desc", Query.HQL);
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("prop_status_id_name", "status");
+        parameters.put("prop_status_value_1", "%a%");
+        parameters.put("prop_status_value_2", "b%");
+        parameters.put("prop_count_id_name", "count");
+        parameters.put("prop_count_value", 3);
+        parameters.put("className", "Test.TestClass");
+        parameters.put("classTemplate1", "Test.TestClassTemplate");
+        parameters.put("classTemplate2", "Test.TestTemplate");
+        verify(this.query).bindValues(parameters);
+    }
+
+    @Test
+    void buildDocumentQuery() throws Exception
+    {
+        LiveDataQuery liveDataQuery = new LiveDataQuery();
+        liveDataQuery.initialize();
+        liveDataQuery.setProperties(Arrays.asList("doc.title", "doc.date"));
+        liveDataQuery.getFilters().add(new Filter("doc.title", "startsWith", "Test"));
+        liveDataQuery.getSort().add(new SortEntry("doc.date", false));
+
+        assertEquals(Optional.of(this.query), this.queryBuilder.build(liveDataQuery, "", null));
+
+        verify(this.queryManager).createQuery(" where 1=1 and upper(str(doc.title)) like upper(:doc_title_filter) "
+            + "order by doc.date asc", Query.HQL);
+        verify(this.query).bindValues(Collections.singletonMap("doc_title_filter", "%Test%"));
+    }
+
+    @Test
+    void buildWithConflictingAliases() throws Exception
+    {
+        this.xclass.addTextField("first-name", "First name", 30);
+        this.xclass.addTextField("firstname", "First name", 30);
+
+        LiveDataQuery liveDataQuery = new LiveDataQuery();
+        liveDataQuery.initialize();
+        liveDataQuery.setProperties(Arrays.asList("first-name", "firstname"));
+        liveDataQuery.getFilters().add(new Filter("first-name", "equals", "a"));
+        liveDataQuery.getSort().add(new SortEntry("firstname", false));
+
+        assertEquals(Optional.of(this.query), this.queryBuilder.build(liveDataQuery, "Test.TestClass", this.xclass));
+
+        verify(this.queryManager).createQuery(", BaseObject as obj, StringProperty as prop_firstname, "
+            + "StringProperty prop_firstname_1 where obj.name=doc.fullName and obj.className = :className "
+            + "and doc.fullName not in (:classTemplate1, :classTemplate2) "
+            + "and obj.id = prop_firstname.id.id and prop_firstname.id.name = :prop_firstname_id_name "
+            + "and (prop_firstname.value = :prop_firstname_value_1) "
+            + "and obj.id=prop_firstname_1.id.id and prop_firstname_1.name = :prop_firstname_1_name "
+            + "order by lower(prop_firstname_1.value) asc, prop_firstname_1.value asc", Query.HQL);
+    }
+
+    @Test
+    void buildUnsupportedQuery() throws Exception
+    {
+        LiveDataQuery liveDataQuery = new LiveDataQuery();
+        liveDataQuery.initialize();
+
+        liveDataQuery.setProperties(Arrays.asList("doc.title", "doc.location"));
+        assertFalse(this.queryBuilder.build(liveDataQuery, "Test.TestClass", this.xclass).isPresent());
+
+        liveDataQuery.setProperties(Arrays.asList("doc.title", "_actions"));
+        assertFalse(this.queryBuilder.build(liveDataQuery, "Test.TestClass", this.xclass).isPresent());
+
+        liveDataQuery.setProperties(Arrays.asList("doc.title", "email"));
+        assertFalse(this.queryBuilder.build(liveDataQuery, "Test.TestClass", this.xclass).isPresent());
+
+        liveDataQuery.setProperties(Arrays.asList("doc.title", "unknown"));
+        assertFalse(this.queryBuilder.build(liveDataQuery, "Test.TestClass", this.xclass).isPresent());
+
+        liveDataQuery.setProperties(Arrays.asList("doc.title", "doc.date"));
+        liveDataQuery.getFilters().add(new Filter("doc.date", "between", "2024-01-01/2024-02-01"));
+        assertFalse(this.queryBuilder.build(liveDataQuery, "Test.TestClass", this.xclass).isPresent());
+    }
+}
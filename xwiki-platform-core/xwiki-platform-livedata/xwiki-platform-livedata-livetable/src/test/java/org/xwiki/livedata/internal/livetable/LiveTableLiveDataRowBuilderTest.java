@@ -0,0 +1,236 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livedata.internal.livetable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.xwiki.localization.ContextualLocalizationManager;
+import org.xwiki.model.document.DocumentAuthors;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.user.CurrentUserReference;
+import org.xwiki.user.GuestUserReference;
+import org.xwiki.user.UserProperties;
+import org.xwiki.user.UserPropertiesResolver;
+import org.xwiki.user.UserReference;
+import org.xwiki.user.UserReferenceSerializer;
+import org.xwiki.user.UserType;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.objects.BaseProperty;
+import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.user.api.XWikiRightService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link LiveTableLiveDataRowBuilder}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class LiveTableLiveDataRowBuilderTest
+{
+    private static final String CLASS_NAME = "Test.TestClass";
+
+    private static final String FULL_NAME = "Space.Page";
+
+    private static final String STATUS = "status";
+
+    private static final DocumentReference DOCUMENT_REFERENCE = new DocumentReference("wiki", "Space", "Page");
+
+    private static final DocumentReference CLASS_REFERENCE = new DocumentReference("wiki", "Test", "TestClass");
+
+    private static final DocumentReference AUTHOR_REFERENCE = new DocumentReference("wiki", "XWiki", "Alice");
+
+    @InjectMockComponents
+    private LiveTableLiveDataRowBuilder rowBuilder;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @MockComponent
+    @Named("current")
+    private DocumentReferenceResolver<String> currentDocumentReferenceResolver;
+
+    @MockComponent
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    @MockComponent
+    private ContextualAuthorizationManager authorization;
+
+    @MockComponent
+    private ContextualLocalizationManager localization;
+
+    @MockComponent
+    @Named("all")
+    private UserPropertiesResolver userPropertiesResolver;
+
+    @MockComponent
+    @Named("document")
+    private UserReferenceSerializer<DocumentReference> documentUserReferenceSerializer;
+
+    @Mock
+    private XWikiContext xcontext;
+
+    @Mock
+    private XWiki xwiki;
+
+    @Mock
+    private XWikiDocument document;
+
+    @Mock
+    private DocumentAuthors authors;
+
+    private final BaseClass xclass = new BaseClass();
+
+    private final List<Object> items = Collections.singletonList(FULL_NAME);
+
+    @BeforeEach
+    void before() throws Exception
+    {
+        when(this.xcontextProvider.get()).thenReturn(this.xcontext);
+        when(this.xcontext.getWiki()).thenReturn(this.xwiki);
+        when(this.xwiki.getRightService()).thenReturn(mock(XWikiRightService.class));
+        when(this.xwiki.getLanguagePreference(this.xcontext)).thenReturn("en");
+        UserProperties userProperties = mock(UserProperties.class);
+        when(userProperties.getType()).thenReturn(UserType.SIMPLE);
+        when(this.userPropertiesResolver.resolve(CurrentUserReference.INSTANCE)).thenReturn(userProperties);
+
+        when(this.currentDocumentReferenceResolver.resolve(FULL_NAME)).thenReturn(DOCUMENT_REFERENCE);
+        when(this.currentDocumentReferenceResolver.resolve(CLASS_NAME)).thenReturn(CLASS_REFERENCE);
+        when(this.localSerializer.serialize(DOCUMENT_REFERENCE)).thenReturn(FULL_NAME);
+        when(this.xwiki.getDocuments(Collections.singletonList(DOCUMENT_REFERENCE), this.xcontext))
+            .thenReturn(Collections.singletonList(this.document));
+
+        when(this.document.getDocumentReference()).thenReturn(DOCUMENT_REFERENCE);
+        when(this.document.getTranslatedDocument(this.xcontext)).thenReturn(this.document);
+        when(this.document.getRenderedTitle(Syntax.PLAIN_1_0, this.xcontext)).thenReturn("Title");
+        when(this.document.getTitle()).thenReturn("Title");
+        when(this.document.getAuthors()).thenReturn(this.authors);
+
+        this.xclass.addTextField(STATUS, "Status", 30);
+    }
+
+    @Test
+    void getRowsWhenNotViewable() throws Exception
+    {
+        List<Map<String, Object>> rows =
+            this.rowBuilder.getRows(this.items, Arrays.asList("doc.title", STATUS), CLASS_NAME, this.xclass, "");
+
+        assertEquals(1, rows.size());
+        assertEquals(false, rows.get(0).get("doc.viewable"));
+        assertEquals("obfuscated", rows.get(0).get("doc.fullName"));
+        assertEquals(2, rows.get(0).size());
+    }
+
+    @Test
+    void getRows() throws Exception
+    {
+        when(this.authorization.hasAccess(Right.VIEW, DOCUMENT_REFERENCE)).thenReturn(true);
+        when(this.authorization.hasAccess(Right.EDIT, DOCUMENT_REFERENCE)).thenReturn(true);
+
+        UserReference metadataAuthor = mock(UserReference.class);
+        when(this.authors.getOriginalMetadataAuthor()).thenReturn(metadataAuthor);
+        when(this.documentUserReferenceSerializer.serialize(metadataAuthor)).thenReturn(AUTHOR_REFERENCE);
+        when(this.xwiki.getPlainUserName(AUTHOR_REFERENCE, this.xcontext)).thenReturn("Alice");
+        when(this.xwiki.getURL(AUTHOR_REFERENCE, "view", this.xcontext)).thenReturn("/Alice");
+
+        BaseObject object = mock(BaseObject.class);
+        BaseProperty statusProperty = mock(BaseProperty.class);
+        when(statusProperty.getValue()).thenReturn("open");
+        when(object.safeget(STATUS)).thenReturn(statusProperty);
+        when(this.document.getXObject(CLASS_REFERENCE)).thenReturn(object);
+        when(this.document.display(STATUS, "view", object, this.xcontext))
+            .thenReturn("{{html clean=\"false\" wiki=\"false\"}}Open{{/html}}");
+
+        List<Map<String, Object>> rows =
+            this.rowBuilder.getRows(this.items, Arrays.asList("doc.title", STATUS), CLASS_NAME, this.xclass, "");
+
+        assertEquals(1, rows.size());
+        Map<String, Object> row = rows.get(0);
+        assertEquals(true, row.get("doc.viewable"));
+        assertEquals(FULL_NAME, row.get("doc.fullName"));
+        assertEquals("Page", row.get("doc.name"));
+        assertEquals("Title", row.get("doc.title"));
+        assertEquals(true, row.get("doc.hasedit"));
+        assertEquals(false, row.get("doc.hasdelete"));
+        assertEquals("Alice", row.get("doc.author"));
+        assertEquals("/Alice", row.get("doc.author_url"));
+        assertEquals("Open", row.get(STATUS));
+        assertEquals("open", row.get("status_value"));
+        assertEquals("", row.get("status_url"));
+
+        // The original metadata author is displayed, like in the live table results
+        verify(this.document, never()).getAuthorReference();
+    }
+
+    @Test
+    void getRowsWithGuestAuthor() throws Exception
+    {
+        when(this.authorization.hasAccess(Right.VIEW, DOCUMENT_REFERENCE)).thenReturn(true);
+
+        when(this.authors.getOriginalMetadataAuthor()).thenReturn(GuestUserReference.INSTANCE);
+        when(this.xwiki.getPlainUserName(null, this.xcontext)).thenReturn("Unknown User");
+
+        List<Map<String, Object>> rows =
+            this.rowBuilder.getRows(this.items, Collections.singletonList("doc.author"), "", null, "");
+
+        assertEquals("Unknown User", rows.get(0).get("doc.author"));
+        assertEquals("", rows.get(0).get("doc.author_url"));
+    }
+
+    @Test
+    void getRowsForTranslation() throws Exception
+    {
+        when(this.authorization.hasAccess(Right.VIEW, DOCUMENT_REFERENCE)).thenReturn(true);
+        when(this.document.getTranslatedDocument("fr", this.xcontext)).thenReturn(this.document);
+
+        List<Map<String, Object>> rows = this.rowBuilder.getRows(
+            Collections.singletonList(new Object[] {FULL_NAME, "fr"}), Collections.singletonList("doc.name"), "",
+            null, "");
+
+        assertEquals("Page (fr)", rows.get(0).get("doc.name"));
+    }
+}
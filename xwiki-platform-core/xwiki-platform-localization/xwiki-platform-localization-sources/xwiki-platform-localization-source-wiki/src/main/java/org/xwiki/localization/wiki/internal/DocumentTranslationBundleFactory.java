@@ -32,6 +32,8 @@
 import org.xwiki.bridge.event.DocumentCreatedEvent;
 import org.xwiki.bridge.event.DocumentDeletedEvent;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiBulkCopiedEvent;
+import org.xwiki.bridge.event.WikiEvent;
 import org.xwiki.bridge.event.WikiReadyEvent;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheException;
@@ -99,7 +101,7 @@ public class DocumentTranslationBundleFactory implements TranslationBundleFactor
     private static final List<Event> EVENTS = Arrays.<Event>asList(new DocumentUpdatedEvent(),
         new DocumentDeletedEvent(), new DocumentCreatedEvent());
 
-    private static final List<Event> WIKIEVENTS = Arrays.<Event>asList(new WikiReadyEvent());
+    private static final List<Event> WIKIEVENTS = Arrays.<Event>asList(new WikiReadyEvent(), new WikiBulkCopiedEvent());
 
     @Inject
     @Named("context")
@@ -178,7 +180,8 @@ public List<Event> getEvents()
         @Override
         public void onEvent(Event event, Object arg1, Object arg2)
         {
-            loadTranslations(((WikiReadyEvent) event).getWikiId());
+            // Also reload the translations of a wiki in which documents have been copied without document events
+            loadTranslations(((WikiEvent) event).getWikiId());
         }
 
         @Override
@@ -87,4 +87,26 @@ default String getEmailGroupingStrategyHint()
     {
         return "default";
     }
+
+    /**
+     * @return true if the alerts of a user should be read from the inbox filled when the events are dispatched to the
+     *         users instead of matching the user preferences and filters against all the events
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    default boolean isUserInboxEnabled()
+    {
+        return false;
+    }
+
+    /**
+     * @return the number of days of events to dispatch again to a user when its notification preferences or filters
+     *         change
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    default int getUserInboxRebuildDays()
+    {
+        return 30;
+    }
 }
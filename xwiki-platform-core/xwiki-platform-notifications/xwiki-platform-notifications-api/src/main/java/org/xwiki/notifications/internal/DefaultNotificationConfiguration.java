@@ -84,4 +84,16 @@ public String getEmailGroupingStrategyHint()
     {
         return configurationSource.getProperty(CONFIGURATION_PREFIX + "emailGroupingStrategyHint", "default");
     }
+
+    @Override
+    public boolean isUserInboxEnabled()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "inbox.enabled", false);
+    }
+
+    @Override
+    public int getUserInboxRebuildDays()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "inbox.rebuildDays", 30);
+    }
 }
@@ -20,9 +20,12 @@
 package org.xwiki.notifications.notifiers.internal;
 
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -31,6 +34,7 @@
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.DateUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -185,6 +189,107 @@ public void flush() throws Exception
         } while (true);
     }
 
+    /**
+     * Dispatch again the recent events to the passed user so that the inbox of the user (the events associated with
+     * the user when they were dispatched) reflects the current notification preferences and filters of the user.
+     * 
+     * @param user the user for which to rebuild the inbox
+     * @throws Exception when failing to rebuild the inbox
+     * @since 16.3.0RC1
+     */
+    public void rebuildInbox(DocumentReference user) throws Exception
+    {
+        // Use a dedicated context, like when dispatching an event
+        this.ecm.pushContext(new ExecutionContext(), false);
+
+        try {
+            rebuildInboxInContext(user);
+        } finally {
+            this.ecm.popContext();
+        }
+    }
+
+    private void rebuildInboxInContext(DocumentReference user) throws Exception
+    {
+        String entityId = this.entityReferenceSerializer.serialize(user);
+        Date since = DateUtils.addDays(new Date(), -this.notificationConfiguration.getUserInboxRebuildDays());
+
+        // Get the events currently in the inbox of the user
+        SimpleEventQuery inboxQuery = new SimpleEventQuery();
+        inboxQuery.withStatus(entityId);
+        inboxQuery.after(since);
+        Set<String> inbox = new HashSet<>();
+        search(inboxQuery, event -> inbox.add(event.getId()));
+
+        // Get the events which could have been dispatched to the user since then
+        SimpleEventQuery query = new SimpleEventQuery();
+        query.eq(Event.FIELD_PREFILTERED, true);
+        query.in(Event.FIELD_TYPE, new ArrayList<>(getSupportedEventTypes()));
+        query.after(since);
+        if (!this.wikiManager.isMainWiki(user.getWikiReference().getName())) {
+            // The events of the other wikis are not dispatched to local users
+            query.eq(Event.FIELD_WIKI, user.getWikiReference());
+        }
+
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        search(query, event -> {
+            boolean listening = isTargeting(event, user)
+                && this.userEventManager.isListening(event, user, NotificationFormat.ALERT);
+            boolean inInbox = inbox.contains(event.getId());
+
+            if (listening && !inInbox) {
+                futures.add(saveEventStatus(event, entityId));
+            } else if (!listening && inInbox) {
+                futures.add(this.events.deleteEventStatus(new DefaultEventStatus(event, entityId, false)));
+            }
+        });
+
+        // Wait for the inbox to be up to date
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    private void search(SimpleEventQuery query, Consumer<Event> consumer) throws Exception
+    {
+        query.addSort(Event.FIELD_DATE, Order.ASC);
+        query.setLimit(BATCH_SIZE);
+
+        long offset = 0;
+        long size;
+        do {
+            query.setOffset(offset);
+            try (EventSearchResult result = this.events.search(query)) {
+                size = result.getSize();
+                result.stream().forEach(consumer);
+            }
+            offset += BATCH_SIZE;
+        } while (size == BATCH_SIZE);
+    }
+
+    private boolean isTargeting(Event event, DocumentReference user)
+    {
+        if (CollectionUtils.isEmpty(event.getTarget())) {
+            // Events without target are dispatched to all the users of their wiki and of the main wiki
+            return true;
+        }
+
+        for (String entity : event.getTarget()) {
+            DocumentReference entityReference = this.resolver.resolve(entity, event.getWiki());
+
+            try {
+                if (entityReference.equals(user) || (!this.userManager
+                    .exists(this.documentReferenceUserReferenceResolver.resolve(entityReference))
+                    && this.groupManager.getMembers(entityReference, true).contains(user))) {
+                    return true;
+                }
+            } catch (UserException | GroupException e) {
+                this.logger.warn("Failed to check if the entity [{}] targets the user [{}]: {}", entity, user,
+                    ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+
+        return false;
+    }
+
     private CompletableFuture<?> prefilterEvent(Event event, Set<String> types) throws EventStreamException
     {
         if (types.contains(event.getType())) {
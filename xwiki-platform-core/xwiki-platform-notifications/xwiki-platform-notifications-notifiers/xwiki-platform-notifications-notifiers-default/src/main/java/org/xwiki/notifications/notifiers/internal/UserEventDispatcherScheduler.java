@@ -21,6 +21,7 @@
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -40,6 +41,7 @@
 import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.eventstream.RecordableEventDescriptor;
 import org.xwiki.eventstream.RecordableEventDescriptorManager;
+import org.xwiki.model.reference.DocumentReference;
 
 /**
  * Schedule dispatching of generated event to each user.
@@ -72,6 +74,8 @@ public class UserEventDispatcherScheduler implements Disposable
 
     private volatile boolean running;
 
+    private final Set<DocumentReference> inboxesToRebuild = ConcurrentHashMap.newKeySet();
+
     /**
      * Start the scheduler.
      */
@@ -98,6 +102,20 @@ public void onEvent(Event event)
         }
     }
 
+    /**
+     * Schedule the rebuild of the inbox of the passed user.
+     *
+     * @param user the user for which to rebuild the inbox
+     * @since 16.3.0RC1
+     */
+    public void rebuildInbox(DocumentReference user)
+    {
+        // No need to schedule a rebuild which is already waiting
+        if (this.inboxesToRebuild.add(user)) {
+            this.scheduler.execute(() -> rebuild(user));
+        }
+    }
+
     @Override
     public void dispose() throws ComponentLifecycleException
     {
@@ -136,6 +154,25 @@ private void run()
         }
     }
 
+    private void rebuild(DocumentReference user)
+    {
+        // Any preference modified from now on requires a new rebuild
+        this.inboxesToRebuild.remove(user);
+
+        try {
+            // Initialize a new context for the rebuild
+            this.contextManager.initialize(new ExecutionContext());
+
+            this.dispatcher.rebuildInbox(user);
+        } catch (Throwable e) {
+            // Catching Throwable to make sure we don't kill the scheduler which triggered this rebuild
+            this.logger.error("Failed to rebuild the notification inbox of user [{}]", user, e);
+        } finally {
+            // Remove any remaining context
+            this.execution.removeContext();
+        }
+    }
+
     private Set<String> getSupportedEventTypes() throws EventStreamException
     {
         List<RecordableEventDescriptor> descriptorList =
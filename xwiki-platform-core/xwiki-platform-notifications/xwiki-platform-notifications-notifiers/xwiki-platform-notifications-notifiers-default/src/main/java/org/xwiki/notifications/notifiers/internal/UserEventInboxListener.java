@@ -0,0 +1,96 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.notifiers.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceAddOrUpdatedEvent;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceDeletedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceAddedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceDeletedEvent;
+import org.xwiki.notifications.preferences.internal.event.NotificationPreferenceUpdatedEvent;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.remote.RemoteObservationManagerContext;
+import org.xwiki.user.internal.group.UsersCache;
+
+/**
+ * Rebuild the inbox of the users when their notification preferences or filters change.
+ * 
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+@Component
+@Singleton
+@Named(UserEventInboxListener.NAME)
+public class UserEventInboxListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "org.xwiki.notifications.notifiers.internal.UserEventInboxListener";
+
+    @Inject
+    private UserEventDispatcherScheduler scheduler;
+
+    @Inject
+    private NotificationConfiguration notificationConfiguration;
+
+    @Inject
+    private RemoteObservationManagerContext remoteState;
+
+    @Inject
+    private UsersCache userCache;
+
+    /**
+     * Configure the listener.
+     */
+    public UserEventInboxListener()
+    {
+        super(NAME, new NotificationPreferenceAddedEvent(), new NotificationPreferenceUpdatedEvent(),
+            new NotificationPreferenceDeletedEvent(), new NotificationFilterPreferenceAddOrUpdatedEvent(),
+            new NotificationFilterPreferenceDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        // The inbox is rebuilt by the instance where the preferences were modified
+        if (this.notificationConfiguration.isEnabled() && this.notificationConfiguration.isUserInboxEnabled()
+            && !this.remoteState.isRemoteState()) {
+            // The modified filter preference is sent with the entity owning it
+            Object entity = source instanceof EntityReference ? source : data;
+
+            if (entity instanceof DocumentReference) {
+                this.scheduler.rebuildInbox((DocumentReference) entity);
+            } else if (entity instanceof WikiReference) {
+                // The default preferences of the wiki changed
+                this.userCache.getUsers((WikiReference) entity, true).forEach(this.scheduler::rebuildInbox);
+            }
+        }
+    }
+}
@@ -40,6 +40,7 @@
 import org.xwiki.eventstream.internal.DefaultEventStatus;
 import org.xwiki.eventstream.query.SimpleEventQuery;
 import org.xwiki.eventstream.query.SortableEventQuery;
+import org.xwiki.eventstream.query.StatusQueryCondition;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReferenceSerializer;
@@ -379,4 +380,73 @@ void flush() throws Exception
         verify(this.ecm, times(3)).popContext();
 
     }
-}
\ No newline at end of file
+
+    private Event mockEvent(String id)
+    {
+        Event event = mock(Event.class, id);
+        when(event.getId()).thenReturn(id);
+        when(event.getType()).thenReturn(SUPPORTED_TYPE1);
+        when(event.getWiki()).thenReturn(new WikiReference("xwiki"));
+
+        return event;
+    }
+
+    private EventSearchResult mockSearchResult(Event... events)
+    {
+        EventSearchResult result = mock(EventSearchResult.class);
+        when(result.getSize()).thenReturn((long) events.length);
+        when(result.stream()).thenReturn(Stream.of(events));
+
+        return result;
+    }
+
+    @Test
+    void rebuildInbox() throws Exception
+    {
+        DocumentReference user = new DocumentReference("xwiki", "XWiki", "User");
+        String userId = "xwiki:XWiki.User";
+        when(this.entityReferenceSerializer.serialize(user)).thenReturn(userId);
+        when(this.wikiManager.isMainWiki("xwiki")).thenReturn(true);
+        when(this.notificationConfiguration.getUserInboxRebuildDays()).thenReturn(30);
+
+        // Still matching the preferences of the user
+        Event kept = mockEvent("kept");
+        when(this.userEventManager.isListening(kept, user, NotificationFormat.ALERT)).thenReturn(true);
+        // Not matching the preferences of the user anymore
+        Event removed = mockEvent("removed");
+        when(this.userEventManager.isListening(removed, user, NotificationFormat.ALERT)).thenReturn(false);
+        // Now matching the preferences of the user
+        Event added = mockEvent("added");
+        when(this.userEventManager.isListening(added, user, NotificationFormat.ALERT)).thenReturn(true);
+        // Targeting another user
+        Event targeted = mockEvent("targeted");
+        DocumentReference otherUser = new DocumentReference("xwiki", "XWiki", "Other");
+        when(targeted.getTarget()).thenReturn(Set.of("xwiki:XWiki.Other"));
+        when(this.resolver.resolve("xwiki:XWiki.Other", new WikiReference("xwiki"))).thenReturn(otherUser);
+        UserReference otherUserReference = mock(UserReference.class);
+        when(this.documentReferenceUserReferenceResolver.resolve(otherUser)).thenReturn(otherUserReference);
+        when(this.userManager.exists(otherUserReference)).thenReturn(true);
+
+        EventSearchResult inboxResult = mockSearchResult(kept, removed);
+        EventSearchResult eventsResult = mockSearchResult(kept, removed, added, targeted);
+        when(this.events.search(any(SimpleEventQuery.class))).then(invocation -> {
+            SimpleEventQuery query = invocation.getArgument(0);
+            // The inbox is the events with a status for the user
+            return query.getConditions().stream().anyMatch(StatusQueryCondition.class::isInstance) ? inboxResult
+                : eventsResult;
+        });
+        when(this.events.saveEventStatus(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(this.events.deleteEventStatus(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        this.dispatcher.rebuildInbox(user);
+
+        verify(this.events).saveEventStatus(new DefaultEventStatus(added, userId, false));
+        verify(this.events).deleteEventStatus(new DefaultEventStatus(removed, userId, false));
+        verify(this.events, times(1)).saveEventStatus(any());
+        verify(this.events, times(1)).deleteEventStatus(any());
+        verify(this.userEventManager, never()).isListening(targeted, user, NotificationFormat.ALERT);
+
+        verify(this.ecm).pushContext(any(), eq(false));
+        verify(this.ecm).popContext();
+    }
+}
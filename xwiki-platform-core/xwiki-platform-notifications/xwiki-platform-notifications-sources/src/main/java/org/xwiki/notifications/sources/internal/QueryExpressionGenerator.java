@@ -22,6 +22,7 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -31,6 +32,8 @@
 import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.NotificationFormat;
 import org.xwiki.notifications.filters.NotificationFilter;
 import org.xwiki.notifications.filters.NotificationFilterManager;
 import org.xwiki.notifications.filters.NotificationFilterPreference;
@@ -51,6 +54,8 @@
 import org.xwiki.notifications.filters.expression.StringValueNode;
 import org.xwiki.notifications.filters.expression.generics.AbstractOperatorNode;
 import org.xwiki.notifications.filters.expression.generics.AbstractValueNode;
+import org.xwiki.notifications.filters.internal.status.AbstractForUserEventFilter;
+import org.xwiki.notifications.filters.internal.status.ForUserEventFilter;
 import org.xwiki.notifications.preferences.NotificationPreference;
 import org.xwiki.notifications.preferences.NotificationPreferenceProperty;
 import org.xwiki.notifications.sources.NotificationParameters;
@@ -88,6 +93,9 @@
     @Named("document")
     private UserReferenceResolver<DocumentReference> userReferenceResolver;
 
+    @Inject
+    private NotificationConfiguration notificationConfiguration;
+
     /**
      * Generate the query.
      *
@@ -96,6 +104,10 @@
      */
     public ExpressionNode generateQueryExpression(NotificationParameters parameters) throws EventStreamException
     {
+        if (isInboxQuery(parameters)) {
+            return generateInboxQueryExpression(parameters);
+        }
+
         // First: get the active preferences of the given user
         Collection<NotificationPreference> preferences = parameters.preferences;
 
@@ -153,10 +165,59 @@ public ExpressionNode generateQueryExpression(NotificationParameters parameters)
         return topNode;
     }
 
+    /**
+     * The alerts of a user built from the user preferences (see
+     * {@link DefaultNotificationParametersFactory#useUserPreferences(NotificationParameters)}) can be read from the
+     * user inbox when it's enabled.
+     */
+    private boolean isInboxQuery(NotificationParameters parameters)
+    {
+        return parameters.user != null && parameters.format == NotificationFormat.ALERT
+            && parameters.filters.contains(new ForUserEventFilter(NotificationFormat.ALERT, null))
+            && this.notificationConfiguration.isUserInboxEnabled();
+    }
+
+    /**
+     * The events of the inbox of a user already matched the preferences and the pre-filters of the user when they were
+     * dispatched so only the status of the events (i.e. the inbox entries of the user) and the basic filters are
+     * needed. The post-filters are still applied on the found events.
+     */
+    private AbstractOperatorNode generateInboxQueryExpression(NotificationParameters parameters)
+    {
+        AbstractOperatorNode topNode = null;
+
+        if (parameters.fromDate != null) {
+            topNode =
+                new GreaterThanNode(new PropertyValueNode(EventProperty.DATE), new DateValueNode(parameters.fromDate));
+        }
+
+        // The user status conditions (e.g. only the unread events)
+        for (NotificationFilter filter : parameters.filters) {
+            if (filter instanceof AbstractForUserEventFilter) {
+                ExpressionNode node = filter.filterExpression(parameters.user, parameters.filterPreferences,
+                    NotificationFilterType.EXCLUSIVE, parameters.format);
+                if (node instanceof AbstractOperatorNode) {
+                    topNode = topNode == null ? (AbstractOperatorNode) node : topNode.and((AbstractOperatorNode) node);
+                }
+            }
+        }
+
+        topNode = handleBlackList(parameters, topNode);
+        topNode = handleEndDate(parameters, topNode);
+        topNode = handleHiddenEvents(parameters, topNode);
+        topNode = handleOrder(topNode);
+
+        return topNode;
+    }
+
     /**
      * For each notification preference of the given user, add a constraint on the events to - have one of the
      * notification types that have been subscribed by the user; - have a date superior to the start date corresponding
      * to this type; - match the custom defined user filters.
+     * <p>
+     * The types without any other constraint are grouped in a single condition: it's typically the case of all the
+     * types when the events already associated with the user when they were dispatched are requested, in which case
+     * the query is reduced to a simple lookup of the user's events.
      *
      * @param parameters parameters
      * @return a list of maps that contains query parameters
@@ -164,6 +225,7 @@ public ExpressionNode generateQueryExpression(NotificationParameters parameters)
     private AbstractOperatorNode handleEventPreferences(NotificationParameters parameters) throws EventStreamException
     {
         AbstractOperatorNode preferencesNode = null;
+        List<AbstractValueNode> types = new ArrayList<>();
 
         // Filter the notification preferences that are not bound to a specific EVENT_TYPE
         Iterator<NotificationPreference> it = parameters.preferences.stream()
@@ -177,12 +239,15 @@ private AbstractOperatorNode handleEventPreferences(NotificationParameters param
                 continue;
             }
 
-            AbstractOperatorNode preferenceTypeNode = new EqualsNode(value(EventProperty.TYPE),
-                value((String) preference.getProperties().get(NotificationPreferenceProperty.EVENT_TYPE)));
+            StringValueNode typeNode =
+                value((String) preference.getProperties().get(NotificationPreferenceProperty.EVENT_TYPE));
+            AbstractOperatorNode preferenceTypeNode = new EqualsNode(value(EventProperty.TYPE), typeNode);
+            boolean constrained = false;
             // All dates in the database are greater than 0 so there is no point id checking it
             if (preference.getStartDate().getTime() > 0) {
                 preferenceTypeNode = new AndNode(preferenceTypeNode,
                     new GreaterThanNode(value(EventProperty.DATE), value(preference.getStartDate())));
+                constrained = true;
             }
 
             // Get the notification filters that can be applied to the current preference
@@ -194,16 +259,26 @@ private AbstractOperatorNode handleEventPreferences(NotificationParameters param
                     filter.filterExpression(parameters.user, parameters.filterPreferences, preference);
                 if (node != null && node instanceof AbstractOperatorNode) {
                     preferenceTypeNode = preferenceTypeNode.and((AbstractOperatorNode) node);
+                    constrained = true;
                 }
             }
 
-            if (preferencesNode == null) {
+            if (!constrained) {
+                types.add(typeNode);
+            } else if (preferencesNode == null) {
                 preferencesNode = preferenceTypeNode;
             } else {
                 preferencesNode = preferencesNode.or(preferenceTypeNode);
             }
         }
 
+        if (!types.isEmpty()) {
+            AbstractOperatorNode typesNode = types.size() == 1 ? new EqualsNode(value(EventProperty.TYPE), types.get(0))
+                : new InNode(value(EventProperty.TYPE), types);
+
+            preferencesNode = preferencesNode == null ? typesNode : preferencesNode.or(typesNode);
+        }
+
         return preferencesNode;
     }
 
@@ -26,6 +26,7 @@
 
 import org.junit.jupiter.api.BeforeEach;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.notifications.NotificationConfiguration;
 import org.xwiki.notifications.NotificationFormat;
 import org.xwiki.notifications.filters.NotificationFilterManager;
 import org.xwiki.notifications.filters.NotificationFilterPreference;
@@ -65,6 +66,9 @@
     @MockComponent
     protected UserPropertiesResolver userPropertiesResolver;
 
+    @MockComponent
+    protected NotificationConfiguration notificationConfiguration;
+
     @MockComponent
     @Named("document")
     protected UserReferenceResolver<DocumentReference> userReferenceResolver;
@@ -46,8 +46,11 @@
 import org.xwiki.notifications.filters.expression.EmptyNode;
 import org.xwiki.notifications.filters.expression.EventProperty;
 import org.xwiki.notifications.filters.expression.NotNode;
+import org.xwiki.notifications.filters.internal.status.EventReadAlertFilter;
+import org.xwiki.notifications.filters.internal.status.ForUserEventFilter;
 import org.xwiki.notifications.filters.internal.status.ForUserNode;
 import org.xwiki.notifications.preferences.NotificationPreference;
+import org.xwiki.notifications.preferences.NotificationPreferenceProperty;
 import org.xwiki.notifications.sources.NotificationParameters;
 import org.xwiki.test.annotation.ComponentList;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
@@ -55,6 +58,7 @@
 import org.xwiki.user.UserReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.mock;
@@ -536,4 +540,85 @@ void generateQueryWithPreFilteringEmailReadFilter() throws Exception
 
         assertEquals(new SortClause(Event.FIELD_DATE, Order.DESC), sortClause.get(0));
     }
+
+    @Test
+    void generateQueryWithUnconstrainedTypes() throws Exception
+    {
+        NotificationPreference pref2 = mock(NotificationPreference.class);
+        when(pref2.getProperties())
+            .thenReturn(Collections.singletonMap(NotificationPreferenceProperty.EVENT_TYPE, "update"));
+        when(pref2.getStartDate()).thenReturn(new Date(0));
+        NotificationPreference pref3 = mock(NotificationPreference.class);
+        when(pref3.getProperties())
+            .thenReturn(Collections.singletonMap(NotificationPreferenceProperty.EVENT_TYPE, "delete"));
+        when(pref3.getStartDate()).thenReturn(new Date(0));
+
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = USER_REFERENCE;
+        parameters.format = NotificationFormat.ALERT;
+        parameters.filters = Arrays.asList(new ForUserEventFilter(NotificationFormat.ALERT, null));
+        parameters.preferences = Arrays.asList(pref2, pref3);
+
+        SimpleEventQuery query = this.generator.generateQuery(parameters);
+
+        Iterator<QueryCondition> conditions = query.getConditions().iterator();
+
+        assertEquals(new InQueryCondition(false, Event.FIELD_TYPE, Arrays.asList("update", "delete")),
+            conditions.next());
+        assertEquals(new StatusQueryCondition(USER_REFERENCE.toString(), null, false), conditions.next());
+        assertEquals(new CompareQueryCondition(Event.FIELD_HIDDEN, true, CompareType.EQUALS, true), conditions.next());
+        assertFalse(conditions.hasNext());
+    }
+
+    @Test
+    void generateInboxQuery() throws Exception
+    {
+        when(this.notificationConfiguration.isUserInboxEnabled()).thenReturn(true);
+
+        Date untilDate = new Date(1000000000000L);
+
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = USER_REFERENCE;
+        parameters.format = NotificationFormat.ALERT;
+        parameters.endDate = untilDate;
+        parameters.blackList = Arrays.asList("event1");
+        parameters.filters =
+            Arrays.asList(new ForUserEventFilter(NotificationFormat.ALERT, null), new EventReadAlertFilter());
+        parameters.preferences = Arrays.asList(this.pref1);
+        parameters.filterPreferences = Arrays.asList(this.fakeFilterPreference);
+
+        SimpleEventQuery query = this.generator.generateQuery(parameters);
+
+        // The preferences were already matched when the events were dispatched to the user
+        Iterator<QueryCondition> conditions = query.getConditions().iterator();
+
+        assertEquals(new StatusQueryCondition(SERIALIZED_USER_REFERENCE, null, false), conditions.next());
+        assertEquals(new StatusQueryCondition(SERIALIZED_USER_REFERENCE, true, true), conditions.next());
+        assertEquals(new InQueryCondition(true, Event.FIELD_ID, Arrays.asList("event1")), conditions.next());
+        assertEquals(new CompareQueryCondition(Event.FIELD_DATE, untilDate, CompareType.LESS_OR_EQUALS, false),
+            conditions.next());
+        assertEquals(new CompareQueryCondition(Event.FIELD_HIDDEN, true, CompareType.EQUALS, true), conditions.next());
+        assertFalse(conditions.hasNext());
+
+        assertEquals(new SortClause(Event.FIELD_DATE, Order.DESC), query.getSorts().get(0));
+    }
+
+    @Test
+    void generateQueryWhenInboxEnabledWithoutUserPreferences() throws Exception
+    {
+        when(this.notificationConfiguration.isUserInboxEnabled()).thenReturn(true);
+
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = USER_REFERENCE;
+        parameters.format = NotificationFormat.ALERT;
+        parameters.preferences = Arrays.asList(this.pref1);
+        parameters.filterPreferences = Arrays.asList(this.fakeFilterPreference);
+
+        SimpleEventQuery query = this.generator.generateQuery(parameters);
+
+        Iterator<QueryCondition> conditions = query.getConditions().iterator();
+
+        assertEquals(new CompareQueryCondition(Event.FIELD_TYPE, "create", CompareType.EQUALS, false),
+            conditions.next());
+    }
 }
@@ -0,0 +1,244 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.observation.remote.LocalEventData;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Base class for converters encoding the events in a compact binary form (see {@link BinaryEventData}) instead of
+ * relying on the standard Java serialization.
+ * <p>
+ * The version of the codec is transmitted with each event: a member of the cluster only decodes the events encoded
+ * with a version it supports and ignores (with a warning) the others. Since members of the cluster running an older
+ * version of XWiki cannot read the binary events at all, the binary encoding is disabled by default and must be
+ * enabled with the {@code observation.remote.binaryEvents} configuration property once all the members support it.
+ * The events which cannot be encoded are left to the other converters.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+@Unstable
+public abstract class AbstractBinaryEventConverter extends AbstractEventConverter
+{
+    /**
+     * The priority of the binary converters, to be used before the converters relying on Java serialization.
+     */
+    public static final int BINARY_PRIORITY = DEFAULT_PRIORITY - 100;
+
+    private static final int NULL_LENGTH = -1;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * @return the identifier of the codec, unique in the cluster
+     */
+    protected abstract String getCodec();
+
+    /**
+     * @return the current version of the codec
+     */
+    protected abstract int getVersion();
+
+    /**
+     * @param version the version of the codec used to encode a received event
+     * @return {@code true} if this converter is able to decode an event encoded with the passed version
+     */
+    protected boolean isSupported(int version)
+    {
+        return version <= getVersion();
+    }
+
+    /**
+     * Encode the passed local event with the current version of the codec.
+     *
+     * @param localEvent the local event to encode
+     * @param output where to write the encoded event
+     * @return {@code true} if the event has been encoded, {@code false} if this converter does not support it
+     * @throws IOException when failing to encode the event
+     */
+    protected abstract boolean encode(LocalEventData localEvent, DataOutput output) throws IOException;
+
+    /**
+     * Decode a received event.
+     *
+     * @param version the version of the codec used to encode the event
+     * @param input the encoded event
+     * @param localEvent the local event to fill
+     * @throws IOException when failing to decode the event
+     */
+    protected abstract void decode(int version, DataInput input, LocalEventData localEvent) throws IOException;
+
+    @Override
+    public int getPriority()
+    {
+        return BINARY_PRIORITY;
+    }
+
+    @Override
+    public boolean toRemote(LocalEventData localEvent, RemoteEventData remoteEvent)
+    {
+        if (!this.configuration.getProperty("observation.remote.binaryEvents", false)) {
+            return false;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            if (!encode(localEvent, output)) {
+                return false;
+            }
+        } catch (IOException e) {
+            this.logger.warn(
+                "Failed to encode the event [{}] with codec [{}], falling back on the other converters: {}",
+                localEvent, getCodec(), e.getMessage());
+
+            return false;
+        }
+
+        remoteEvent.setEvent(new BinaryEventData(getCodec(), getVersion(), bytes.toByteArray()));
+
+        return true;
+    }
+
+    @Override
+    public boolean fromRemote(RemoteEventData remoteEvent, LocalEventData localEvent)
+    {
+        if (remoteEvent.getEvent() instanceof BinaryEventData) {
+            BinaryEventData binaryEvent = (BinaryEventData) remoteEvent.getEvent();
+
+            if (getCodec().equals(binaryEvent.getCodec())) {
+                if (!isSupported(binaryEvent.getVersion())) {
+                    this.logger.warn("Ignoring the remote event [{}] encoded with an unsupported version of the codec"
+                        + " (the current version is [{}])", binaryEvent, getVersion());
+
+                    return false;
+                }
+
+                // Decode in a separate event so that a partially decoded event is never notified
+                LocalEventData decodedEvent = new LocalEventData();
+                try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(binaryEvent.getPayload()))) {
+                    decode(binaryEvent.getVersion(), input, decodedEvent);
+                } catch (IOException e) {
+                    this.logger.error("Failed to decode the remote event [{}]", binaryEvent, e);
+
+                    return false;
+                }
+
+                localEvent.setEvent(decodedEvent.getEvent());
+                localEvent.setSource(decodedEvent.getSource());
+                localEvent.setData(decodedEvent.getData());
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Write a string which may be {@code null}.
+     *
+     * @param output where to write the string
+     * @param value the string to write
+     * @throws IOException when failing to write the string
+     */
+    protected static void writeString(DataOutput output, String value) throws IOException
+    {
+        writeBytes(output, value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    /**
+     * Read a string written with {@link #writeString(DataOutput, String)}.
+     *
+     * @param input where to read the string
+     * @return the string, possibly {@code null}
+     * @throws IOException when failing to read the string
+     */
+    protected static String readString(DataInput input) throws IOException
+    {
+        byte[] bytes = readBytes(input);
+
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * Write a byte array which may be {@code null}.
+     *
+     * @param output where to write the bytes
+     * @param value the bytes to write
+     * @throws IOException when failing to write the bytes
+     */
+    protected static void writeBytes(DataOutput output, byte[] value) throws IOException
+    {
+        if (value == null) {
+            output.writeInt(NULL_LENGTH);
+        } else {
+            output.writeInt(value.length);
+            output.write(value);
+        }
+    }
+
+    /**
+     * Read a byte array written with {@link #writeBytes(DataOutput, byte[])}.
+     *
+     * @param input where to read the bytes
+     * @return the bytes, possibly {@code null}
+     * @throws IOException when failing to read the bytes or when the length of the bytes is invalid
+     */
+    protected static byte[] readBytes(DataInput input) throws IOException
+    {
+        int length = input.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+
+        // Don't trust the received length before allocating the array (the decoded payload is fully in memory so the
+        // available bytes are the remaining bytes of the payload)
+        if (length < 0 || (input instanceof InputStream && length > ((InputStream) input).available())) {
+            throw new IOException(String.format("Invalid length [%s]", length));
+        }
+
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return bytes;
+    }
+}
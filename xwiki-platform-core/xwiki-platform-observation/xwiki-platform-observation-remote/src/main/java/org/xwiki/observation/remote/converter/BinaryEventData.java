@@ -0,0 +1,113 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.converter;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * A remote event encoded in a compact binary form by an {@link AbstractBinaryEventConverter}.
+ * <p>
+ * Only the identifier of the codec, its version and the encoded bytes are transmitted, which is much smaller than the
+ * standard Java serialization of the event, its source and its data.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+@Unstable
+public class BinaryEventData implements Externalizable
+{
+    private String codec;
+
+    private int version;
+
+    private byte[] payload;
+
+    /**
+     * Used by the Java deserialization.
+     */
+    public BinaryEventData()
+    {
+    }
+
+    /**
+     * @param codec the identifier of the codec used to encode the event
+     * @param version the version of the codec used to encode the event
+     * @param payload the encoded event
+     */
+    public BinaryEventData(String codec, int version, byte[] payload)
+    {
+        this.codec = codec;
+        this.version = version;
+        this.payload = payload;
+    }
+
+    /**
+     * @return the identifier of the codec used to encode the event
+     */
+    public String getCodec()
+    {
+        return this.codec;
+    }
+
+    /**
+     * @return the version of the codec used to encode the event
+     */
+    public int getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * @return the encoded event
+     */
+    public byte[] getPayload()
+    {
+        return this.payload;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        out.writeUTF(this.codec);
+        out.writeShort(this.version);
+        out.writeInt(this.payload.length);
+        out.write(this.payload);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException
+    {
+        this.codec = in.readUTF();
+        this.version = in.readShort();
+        this.payload = new byte[in.readInt()];
+        in.readFully(this.payload);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "codec: [" + this.codec + "], version: [" + this.version + "], size: [" + this.payload.length + "]";
+    }
+}
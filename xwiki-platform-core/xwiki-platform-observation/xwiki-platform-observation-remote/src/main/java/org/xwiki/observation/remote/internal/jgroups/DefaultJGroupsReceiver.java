@@ -19,6 +19,9 @@
  */
 package org.xwiki.observation.remote.internal.jgroups;
 
+import java.io.IOException;
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -85,12 +88,43 @@ public RemoteObservationManager getRemoteObservationManager()
     public void receive(Message msg)
     {
         if (msg instanceof BytesMessage) {
-            RemoteEventData remoteEvent = (RemoteEventData) ((BytesMessage) msg)
-                .getObject(this.classLoaderManager.getURLClassLoader(null, false));
+            ClassLoader classLoader = this.classLoaderManager.getURLClassLoader(null, false);
+            Object object = ((BytesMessage) msg).getObject(classLoader);
+
+            if (object instanceof JGroupsEventBatch) {
+                // Several events sent at once, notify them in the order in which they were sent
+                List<byte[]> serializedEvents;
+                try {
+                    serializedEvents = ((JGroupsEventBatch) object).getSerializedEvents();
+                } catch (IOException e) {
+                    this.logger.error("Failed to read the received JGroups remote events", e);
+
+                    return;
+                }
 
-            this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
+                for (byte[] serializedEvent : serializedEvents) {
+                    // Skip only the events which cannot be read
+                    RemoteEventData remoteEvent;
+                    try {
+                        remoteEvent = JGroupsEventBatch.deserialize(serializedEvent, classLoader);
+                    } catch (IOException e) {
+                        this.logger.error("Failed to read a received JGroups remote event", e);
 
-            getRemoteObservationManager().notify(remoteEvent);
+                        continue;
+                    }
+
+                    notify(remoteEvent);
+                }
+            } else {
+                notify((RemoteEventData) object);
+            }
         }
     }
+
+    private void notify(RemoteEventData remoteEvent)
+    {
+        this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
+
+        getRemoteObservationManager().notify(remoteEvent);
+    }
 }
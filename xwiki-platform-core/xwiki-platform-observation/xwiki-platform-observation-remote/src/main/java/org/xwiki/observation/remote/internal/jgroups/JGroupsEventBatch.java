@@ -0,0 +1,136 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.jgroups.util.Util;
+import org.xwiki.observation.remote.RemoteEventData;
+
+/**
+ * Several remote events sent in a single compressed JGroups message.
+ * <p>
+ * Each event is serialized separately so that an event which cannot be serialized (or deserialized by the receiver)
+ * only skips this event and not the whole batch.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+public class JGroupsEventBatch implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final int eventCount;
+
+    private final byte[] events;
+
+    /**
+     * @param serializedEvents the events to send, each serialized with {@link #serialize(RemoteEventData)}, in the
+     *            order in which they should be notified
+     * @throws IOException when failing to compress the events
+     */
+    public JGroupsEventBatch(List<byte[]> serializedEvents) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream stream = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            for (byte[] serializedEvent : serializedEvents) {
+                stream.writeInt(serializedEvent.length);
+                stream.write(serializedEvent);
+            }
+        }
+
+        this.eventCount = serializedEvents.size();
+        this.events = bytes.toByteArray();
+    }
+
+    /**
+     * @param event the event to serialize
+     * @return the serialized event
+     * @throws IOException when failing to serialize the event
+     */
+    public static byte[] serialize(RemoteEventData event) throws IOException
+    {
+        try {
+            return Util.objectToByteBuffer(event);
+        } catch (Exception e) {
+            throw new IOException("Failed to serialize the event", e);
+        }
+    }
+
+    /**
+     * @param serializedEvent the event serialized with {@link #serialize(RemoteEventData)}
+     * @param classLoader the class loader to use to find the classes of the event
+     * @return the event
+     * @throws IOException when failing to deserialize the event
+     */
+    public static RemoteEventData deserialize(byte[] serializedEvent, ClassLoader classLoader) throws IOException
+    {
+        try {
+            return Util.objectFromByteBuffer(serializedEvent, 0, serializedEvent.length, classLoader);
+        } catch (Exception e) {
+            throw new IOException("Failed to deserialize the event", e);
+        }
+    }
+
+    /**
+     * @return the serialized events (to deserialize with {@link #deserialize(byte[], ClassLoader)}), in the order in
+     *         which they should be notified
+     * @throws IOException when failing to decompress the events
+     */
+    public List<byte[]> getSerializedEvents() throws IOException
+    {
+        List<byte[]> serializedEvents = new ArrayList<>(this.eventCount);
+        try (DataInputStream stream =
+            new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(this.events)))) {
+            for (int i = 0; i < this.eventCount; ++i) {
+                byte[] serializedEvent = new byte[stream.readInt()];
+                stream.readFully(serializedEvent);
+                serializedEvents.add(serializedEvent);
+            }
+        }
+
+        return serializedEvents;
+    }
+
+    /**
+     * @return the number of events in the batch
+     */
+    public int getEventCount()
+    {
+        return this.eventCount;
+    }
+
+    /**
+     * @return the size of the compressed events
+     */
+    public int getSize()
+    {
+        return this.events.length;
+    }
+}
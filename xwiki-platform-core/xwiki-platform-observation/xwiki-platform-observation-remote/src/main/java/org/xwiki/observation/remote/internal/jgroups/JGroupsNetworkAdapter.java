@@ -30,11 +30,10 @@
 import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
-import org.jgroups.BytesMessage;
 import org.jgroups.Global;
 import org.jgroups.JChannel;
-import org.jgroups.Message;
 import org.jgroups.conf.ConfiguratorFactory;
 import org.jgroups.conf.ProtocolStackConfigurator;
 import org.jgroups.conf.XmlConfigurator;
@@ -43,6 +42,7 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.environment.Environment;
 import org.xwiki.observation.remote.NetworkAdapter;
 import org.xwiki.observation.remote.RemoteEventData;
@@ -65,12 +65,27 @@ public class JGroupsNetworkAdapter implements NetworkAdapter
      */
     public static final String CONFIGURATION_PATH = "observation/remote/jgroups/";
 
+    private static final String CONFIGURATION_PREFIX = "observation.remote.jgroups.";
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+    /**
+     * Don't batch events by default since the members running an older version cannot read the batched messages.
+     */
+    private static final int DEFAULT_BATCH_SIZE = 1;
+
+    private static final long DEFAULT_SEND_TIMEOUT = 10000L;
+
     /**
      * Used to lookup the receiver corresponding to the channel identifier.
      */
     @Inject
     private ComponentManager componentManager;
 
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configurationSource;
+
     /**
      * The logger to log.
      */
@@ -82,21 +97,27 @@ public class JGroupsNetworkAdapter implements NetworkAdapter
      */
     private Map<String, JChannel> channels = new ConcurrentHashMap<>();
 
+    /**
+     * The queues of events to send to each channel.
+     */
+    private Map<String, JGroupsSender> senders = new ConcurrentHashMap<>();
+
     @Override
     public void send(RemoteEventData remoteEvent)
     {
-        this.logger.debug("Send JGroups remote event [{}]", remoteEvent.toString());
-
-        // Send the message to the whole group
-        Message message = new BytesMessage(null,  remoteEvent);
+        this.logger.debug("Send JGroups remote event [{}]", remoteEvent);
 
-        // Send message to JGroups channels
-        for (Map.Entry<String, JChannel> entry : this.channels.entrySet()) {
+        // Queue the message for each JGroups channel, it will be sent to the whole group asynchronously
+        for (Map.Entry<String, JGroupsSender> entry : this.senders.entrySet()) {
             try {
-                entry.getValue().send(message);
-            } catch (Exception e) {
-                this.logger.error("Failed to send message [{}] to the channel [{}]", remoteEvent.toString(),
+                entry.getValue().send(remoteEvent);
+            } catch (InterruptedException e) {
+                this.logger.error("Interrupted while sending message [{}] to the channel [{}]", remoteEvent,
                     entry.getKey(), e);
+
+                Thread.currentThread().interrupt();
+
+                break;
             }
         }
     }
@@ -118,10 +139,18 @@ public void startChannel(String channelId) throws RemoteEventException
             throw new RemoteEventException("Failed to create channel [" + channelId + "]", e);
         }
 
+        JGroupsSender sender = new JGroupsSender(channelId, channel,
+            this.configurationSource.getProperty(CONFIGURATION_PREFIX + "queueCapacity", DEFAULT_QUEUE_CAPACITY),
+            this.configurationSource.getProperty(CONFIGURATION_PREFIX + "batchSize", DEFAULT_BATCH_SIZE),
+            this.configurationSource.getProperty(CONFIGURATION_PREFIX + "sendTimeout", DEFAULT_SEND_TIMEOUT),
+            this.logger);
+        this.senders.put(channelId, sender);
+
         // Register the channel against the JMX Server
         try {
             MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
             JmxConfigurator.registerChannel(channel, mbs, channel.getClusterName());
+            mbs.registerMBean(sender, getSenderName(channelId));
         } catch (Exception e) {
             this.logger.warn("Failed to register channel [" + channelId + "] against the JMX Server", e);
         }
@@ -138,6 +167,8 @@ public void stopChannel(String channelId) throws RemoteEventException
             throw new RemoteEventException(MessageFormat.format("Channel [{0}] is not started", channelId));
         }
 
+        stopSender(channelId);
+
         channel.close();
 
         this.channels.remove(channelId);
@@ -146,6 +177,9 @@ public void stopChannel(String channelId) throws RemoteEventException
         try {
             MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
             JmxConfigurator.unregister(channel, mbs, channel.getClusterName());
+            if (mbs.isRegistered(getSenderName(channelId))) {
+                mbs.unregisterMBean(getSenderName(channelId));
+            }
         } catch (Exception e) {
             this.logger.warn("Failed to unregister channel [{}] from the JMX Server", channelId, e);
         }
@@ -153,6 +187,27 @@ public void stopChannel(String channelId) throws RemoteEventException
         this.logger.info("Channel [{}] stopped", channelId);
     }
 
+    private ObjectName getSenderName(String channelId) throws Exception
+    {
+        return new ObjectName("org.xwiki:type=RemoteObservation,name=" + ObjectName.quote(channelId));
+    }
+
+    private void stopSender(String channelId)
+    {
+        JGroupsSender sender = this.senders.remove(channelId);
+
+        if (sender != null) {
+            try {
+                // Send the events which are still in the queue
+                sender.stop();
+            } catch (InterruptedException e) {
+                this.logger.warn("Interrupted while sending the remaining events to the channel [{}]", channelId);
+
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     /**
      * Create a new channel.
      *
@@ -227,6 +282,8 @@ private InputStream getChannelConfiguration(String channelId) throws IOException
     public void stopAllChannels() throws RemoteEventException
     {
         for (Map.Entry<String, JChannel> channelEntry : this.channels.entrySet()) {
+            stopSender(channelEntry.getKey());
+
             channelEntry.getValue().close();
         }
 
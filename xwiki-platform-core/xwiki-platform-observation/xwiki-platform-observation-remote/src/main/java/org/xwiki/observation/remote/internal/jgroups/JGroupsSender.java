@@ -0,0 +1,331 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jgroups.BytesMessage;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.slf4j.Logger;
+import org.xwiki.observation.remote.RemoteEventData;
+
+/**
+ * Send asynchronously the remote events to a JGroups channel.
+ * <p>
+ * The events are queued and sent by a dedicated thread, in the order in which they were queued. The events waiting in
+ * the queue are grouped in a single compressed message to reduce the number of network round-trips. When the queue is
+ * full the thread sending the event waits for some room in the queue, until a timeout after which the event is sent
+ * directly from the calling thread. The events sent after the sender is stopped (or after its thread died) are also
+ * sent directly from the calling thread. An event is never dropped, but an event sent directly can be received before
+ * the events which were still waiting in the queue.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+public class JGroupsSender implements JGroupsSenderMBean
+{
+    private static final long STOP_TIMEOUT = 60000L;
+
+    /**
+     * Marker indicating the sender thread to stop after sending the events queued before it.
+     */
+    private static final RemoteEventData STOP = new RemoteEventData();
+
+    private final String channelId;
+
+    private final JChannel channel;
+
+    private final int batchSize;
+
+    private final long sendTimeout;
+
+    private final Logger logger;
+
+    private final BlockingQueue<RemoteEventData> queue;
+
+    private final Thread thread;
+
+    private final AtomicBoolean full = new AtomicBoolean();
+
+    private final AtomicLong sentEvents = new AtomicLong();
+
+    private final AtomicLong sentMessages = new AtomicLong();
+
+    private final AtomicLong failedEvents = new AtomicLong();
+
+    private final AtomicLong blockedSends = new AtomicLong();
+
+    private final AtomicLong directSends = new AtomicLong();
+
+    private volatile boolean stopped;
+
+    /**
+     * @param channelId the identifier of the channel
+     * @param channel the channel where to send the events
+     * @param queueCapacity the maximum number of events waiting to be sent
+     * @param batchSize the maximum number of events to send in a single message
+     * @param sendTimeout the maximum time in milliseconds to wait for some room in the queue before sending an event
+     *            directly from the calling thread
+     * @param logger the logger to use
+     */
+    public JGroupsSender(String channelId, JChannel channel, int queueCapacity, int batchSize, long sendTimeout,
+        Logger logger)
+    {
+        this.channelId = channelId;
+        this.channel = channel;
+        this.batchSize = Math.max(1, batchSize);
+        this.sendTimeout = Math.max(0, sendTimeout);
+        this.logger = logger;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+
+        this.thread = new Thread(this::run, "XWiki JGroups sender [" + channelId + "]");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue an event to send, or send it directly from the calling thread when it cannot be queued.
+     *
+     * @param remoteEvent the event to send
+     * @return {@code true} if the event has been queued, {@code false} if it has been sent directly
+     * @throws InterruptedException when interrupted while waiting for some room in the queue
+     */
+    public boolean send(RemoteEventData remoteEvent) throws InterruptedException
+    {
+        if (this.stopped || !this.thread.isAlive()) {
+            sendDirectly(remoteEvent, "the sender is stopped");
+
+            return false;
+        }
+
+        if (!this.queue.offer(remoteEvent)) {
+            this.blockedSends.incrementAndGet();
+
+            // Only warn once each time the queue becomes full
+            if (this.full.compareAndSet(false, true)) {
+                this.logger.warn("The queue of events to send to the channel [{}] is full (capacity [{}]). "
+                    + "Sending events will be slowed down until some room is available.", this.channelId,
+                    getQueueCapacity());
+            }
+
+            if (!this.queue.offer(remoteEvent, this.sendTimeout, TimeUnit.MILLISECONDS)) {
+                sendDirectly(remoteEvent, "no room was available in the queue after " + this.sendTimeout + "ms");
+
+                return false;
+            }
+        }
+
+        // The sender may have been stopped while the event was queued, make sure it's not left in the queue
+        if (this.stopped && this.queue.remove(remoteEvent)) {
+            sendDirectly(remoteEvent, "the sender is stopped");
+
+            return false;
+        }
+
+        return true;
+    }
+
+    private void sendDirectly(RemoteEventData remoteEvent, String reason)
+    {
+        this.directSends.incrementAndGet();
+
+        this.logger.debug("Sending the event [{}] to the channel [{}] from the calling thread because {}",
+            remoteEvent, this.channelId, reason);
+
+        sendEvent(remoteEvent);
+    }
+
+    /**
+     * Send the queued events and stop the sender thread. The events sent after that are sent directly from the
+     * calling thread.
+     *
+     * @throws InterruptedException when interrupted while waiting for the queued events to be sent
+     */
+    public void stop() throws InterruptedException
+    {
+        this.stopped = true;
+
+        if (this.thread.isAlive() && !this.queue.offer(STOP, STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            // The queue is still full, stop without waiting for the queued events to be sent
+            this.thread.interrupt();
+        }
+
+        this.thread.join(STOP_TIMEOUT);
+    }
+
+    private void run()
+    {
+        List<RemoteEventData> batch = new ArrayList<>(this.batchSize);
+
+        while (true) {
+            RemoteEventData first;
+            try {
+                first = this.queue.take();
+            } catch (InterruptedException e) {
+                this.logger.warn("The sender thread of the channel [{}] has been interrupted", this.channelId);
+                Thread.currentThread().interrupt();
+
+                break;
+            }
+
+            batch.add(first);
+            this.queue.drainTo(batch, this.batchSize - 1);
+
+            // Send the events queued around the stop marker (an event can be queued concurrently to the stop)
+            int stopIndex = indexOfStop(batch);
+            if (stopIndex >= 0) {
+                batch.remove(stopIndex);
+                this.queue.drainTo(batch);
+                for (int i = 0; i < batch.size(); i += this.batchSize) {
+                    send(batch.subList(i, Math.min(i + this.batchSize, batch.size())));
+                }
+
+                break;
+            }
+
+            send(batch);
+            batch.clear();
+
+            if (this.queue.isEmpty()) {
+                this.full.set(false);
+            }
+        }
+    }
+
+    private int indexOfStop(List<RemoteEventData> events)
+    {
+        for (int i = 0; i < events.size(); ++i) {
+            if (events.get(i) == STOP) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private void send(List<RemoteEventData> events)
+    {
+        if (events.size() == 1) {
+            sendEvent(events.get(0));
+        } else if (!events.isEmpty()) {
+            sendBatch(events);
+        }
+    }
+
+    private void sendEvent(RemoteEventData event)
+    {
+        try {
+            send(new BytesMessage(null, event), 1);
+        } catch (Exception e) {
+            this.failedEvents.incrementAndGet();
+
+            this.logger.error("Failed to send the event [{}] to the channel [{}]", event, this.channelId, e);
+        }
+    }
+
+    private void sendBatch(List<RemoteEventData> events)
+    {
+        // Serialize each event separately so that an event which cannot be serialized only skips itself
+        List<RemoteEventData> serializableEvents = new ArrayList<>(events.size());
+        List<byte[]> serializedEvents = new ArrayList<>(events.size());
+        for (RemoteEventData event : events) {
+            try {
+                serializedEvents.add(JGroupsEventBatch.serialize(event));
+                serializableEvents.add(event);
+            } catch (IOException e) {
+                this.failedEvents.incrementAndGet();
+
+                this.logger.error("Failed to serialize the event [{}] to send to the channel [{}]", event,
+                    this.channelId, e);
+            }
+        }
+
+        if (serializedEvents.isEmpty()) {
+            return;
+        }
+
+        try {
+            send(new BytesMessage(null, new JGroupsEventBatch(serializedEvents)), serializedEvents.size());
+        } catch (Exception e) {
+            this.logger.warn("Failed to send [{}] events in a single message to the channel [{}], "
+                + "sending them one by one", serializedEvents.size(), this.channelId, e);
+
+            serializableEvents.forEach(this::sendEvent);
+        }
+    }
+
+    private void send(Message message, int eventCount) throws Exception
+    {
+        this.channel.send(message);
+
+        this.sentMessages.incrementAndGet();
+        this.sentEvents.addAndGet(eventCount);
+    }
+
+    @Override
+    public int getQueueSize()
+    {
+        return this.queue.size();
+    }
+
+    @Override
+    public int getQueueCapacity()
+    {
+        return this.queue.size() + this.queue.remainingCapacity();
+    }
+
+    @Override
+    public long getSentEvents()
+    {
+        return this.sentEvents.get();
+    }
+
+    @Override
+    public long getSentMessages()
+    {
+        return this.sentMessages.get();
+    }
+
+    @Override
+    public long getFailedEvents()
+    {
+        return this.failedEvents.get();
+    }
+
+    @Override
+    public long getBlockedSends()
+    {
+        return this.blockedSends.get();
+    }
+
+    @Override
+    public long getDirectSends()
+    {
+        return this.directSends.get();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+/**
+ * Metrics of the queue of events waiting to be sent to a JGroups channel.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+public interface JGroupsSenderMBean
+{
+    /**
+     * @return the number of events waiting to be sent
+     */
+    int getQueueSize();
+
+    /**
+     * @return the maximum number of events which can wait to be sent
+     */
+    int getQueueCapacity();
+
+    /**
+     * @return the number of events sent since the channel was started
+     */
+    long getSentEvents();
+
+    /**
+     * @return the number of JGroups messages sent since the channel was started
+     */
+    long getSentMessages();
+
+    /**
+     * @return the number of events which failed to be sent since the channel was started
+     */
+    long getFailedEvents();
+
+    /**
+     * @return the number of times the sending of an event had to wait for some room in the queue since the channel
+     *         was started
+     */
+    long getBlockedSends();
+
+    /**
+     * @return the number of events sent directly from the calling thread because the queue stayed full too long or
+     *         because the sender was stopped, since the channel was started
+     */
+    long getDirectSends();
+}
@@ -23,6 +23,7 @@
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.xwiki.logging.event.LogEvent;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.remote.test.AbstractROMTestCase;
@@ -31,7 +32,9 @@
 
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -56,6 +59,8 @@ public void beforeEach() throws Exception
         System.setProperty("jgroups.bind_addr", "localhost");
 
         getConfigurationSource1().setProperty("observation.remote.channels", Arrays.asList("tcp"));
+        // Enable batching on the sending member
+        getConfigurationSource1().setProperty("observation.remote.jgroups.batchSize", 100);
         RemoteObservationManager rom = getComponentManager2().getInstance(RemoteObservationManager.class);
         rom.startChannel("tcp");
     }
@@ -92,4 +97,31 @@ void serializableEvent() throws InterruptedException
         verify(localListener).onEvent(same(event), same(unserializable), same(unserializable));
         verify(remoteListener).onEvent(eq(event), eq("some source"), eq("some data"));
     }
+
+    /**
+     * Validate that many events sent in a row (and thus batched) are received in the order in which they were sent.
+     */
+    @Test
+    void manyEvents()
+    {
+        EventListener remoteListener = mock(EventListener.class, "remote");
+
+        TestEvent event = new TestEvent();
+
+        when(remoteListener.getName()).thenReturn("mylistener");
+        when(remoteListener.getEvents()).thenReturn(Arrays.asList(event));
+
+        getObservationManager2().addListener(remoteListener);
+
+        for (int i = 0; i < 1000; ++i) {
+            getObservationManager1().notify(event, "source" + i, "data" + i);
+        }
+
+        verify(remoteListener, timeout(10000)).onEvent(eq(event), eq("source999"), eq("data999"));
+
+        InOrder inOrder = inOrder(remoteListener);
+        for (int i = 0; i < 1000; ++i) {
+            inOrder.verify(remoteListener).onEvent(eq(event), eq("source" + i), eq("data" + i));
+        }
+    }
 }
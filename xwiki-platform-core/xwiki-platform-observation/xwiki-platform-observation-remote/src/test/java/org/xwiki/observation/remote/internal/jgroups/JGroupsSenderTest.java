@@ -0,0 +1,178 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jgroups.BytesMessage;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.test.TestEvent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link JGroupsSender}.
+ *
+ * @version $Id$
+ */
+class JGroupsSenderTest
+{
+    private final JChannel channel = mock(JChannel.class);
+
+    private final Logger logger = mock(Logger.class);
+
+    @Test
+    void send() throws Exception
+    {
+        JGroupsSender sender = new JGroupsSender("channel", this.channel, 10, 1, 1000, this.logger);
+
+        assertTrue(sender.send(new RemoteEventData()));
+
+        sender.stop();
+
+        verify(this.channel).send(any(Message.class));
+        assertEquals(1, sender.getSentEvents());
+        assertEquals(0, sender.getDirectSends());
+    }
+
+    @Test
+    void sendWhenStopped() throws Exception
+    {
+        JGroupsSender sender = new JGroupsSender("channel", this.channel, 10, 1, 1000, this.logger);
+
+        sender.stop();
+
+        RemoteEventData event = new RemoteEventData();
+        assertFalse(sender.send(event));
+
+        // The event is sent directly from the calling thread
+        verify(this.channel).send(any(Message.class));
+        assertEquals(1, sender.getDirectSends());
+        assertEquals(1, sender.getSentEvents());
+        verify(this.logger).debug("Sending the event [{}] to the channel [{}] from the calling thread because {}",
+            event, "channel", "the sender is stopped");
+    }
+
+    @Test
+    void sendWhenQueueStaysFull() throws Exception
+    {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread senderThread = Thread.currentThread();
+        when(this.channel.send(any(Message.class))).then(invocation -> {
+            // Only block the sender thread
+            if (Thread.currentThread() != senderThread) {
+                sending.countDown();
+                release.await();
+            }
+
+            return this.channel;
+        });
+
+        JGroupsSender sender = new JGroupsSender("channel", this.channel, 1, 1, 100, this.logger);
+
+        // The first event is being sent
+        assertTrue(sender.send(new RemoteEventData()));
+        assertTrue(sending.await(10, TimeUnit.SECONDS));
+
+        // The second event fills the queue
+        assertTrue(sender.send(new RemoteEventData()));
+
+        // The third event is sent directly from the calling thread after the timeout
+        assertFalse(sender.send(new RemoteEventData()));
+
+        assertEquals(1, sender.getBlockedSends());
+        assertEquals(1, sender.getDirectSends());
+        assertEquals(1, sender.getSentEvents());
+        verify(this.logger).debug(eq("Sending the event [{}] to the channel [{}] from the calling thread because {}"),
+            any(RemoteEventData.class), eq("channel"), eq("no room was available in the queue after 100ms"));
+
+        release.countDown();
+        sender.stop();
+
+        verify(this.channel, times(3)).send(any(Message.class));
+        assertEquals(3, sender.getSentEvents());
+        assertEquals(0, sender.getFailedEvents());
+    }
+
+    @Test
+    void sendBatchWithUnserializableEvent() throws Exception
+    {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Message> messages = new CopyOnWriteArrayList<>();
+        when(this.channel.send(any(Message.class))).then(invocation -> {
+            messages.add(invocation.getArgument(0));
+            sending.countDown();
+            release.await();
+
+            return this.channel;
+        });
+
+        JGroupsSender sender = new JGroupsSender("channel", this.channel, 10, 10, 1000, this.logger);
+
+        // Block the sender thread so that the next events are grouped in a single batch
+        assertTrue(sender.send(new RemoteEventData()));
+        assertTrue(sending.await(10, TimeUnit.SECONDS));
+
+        RemoteEventData event1 = new RemoteEventData(new TestEvent(), "source1", "data1");
+        RemoteEventData unserializable = new RemoteEventData(new TestEvent(), null, new ArrayList<>(List.of(new Object())));
+        RemoteEventData event2 = new RemoteEventData(new TestEvent(), "source2", "data2");
+        assertTrue(sender.send(event1));
+        assertTrue(sender.send(unserializable));
+        assertTrue(sender.send(event2));
+
+        release.countDown();
+        sender.stop();
+
+        // Only the event which cannot be serialized is skipped
+        assertEquals(2, messages.size());
+        assertEquals(3, sender.getSentEvents());
+        assertEquals(1, sender.getFailedEvents());
+        verify(this.logger).error(eq("Failed to serialize the event [{}] to send to the channel [{}]"),
+            same(unserializable), eq("channel"), any(IOException.class));
+
+        JGroupsEventBatch batch = (JGroupsEventBatch) ((BytesMessage) messages.get(1)).getObject();
+        List<byte[]> serializedEvents = batch.getSerializedEvents();
+        assertEquals(2, serializedEvents.size());
+        assertEquals("data1",
+            JGroupsEventBatch.deserialize(serializedEvents.get(0), getClass().getClassLoader()).getData());
+        assertEquals("data2",
+            JGroupsEventBatch.deserialize(serializedEvents.get(1), getClass().getClassLoader()).getData());
+    }
+}
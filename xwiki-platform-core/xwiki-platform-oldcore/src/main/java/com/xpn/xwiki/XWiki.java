@@ -41,6 +41,7 @@
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
@@ -2257,6 +2258,67 @@ public XWikiDocument getDocument(DocumentReference reference, XWikiContext conte
         return getDocument(doc, context);
     }
 
+    /**
+     * Load several documents at once, which is a lot cheaper than calling {@link #getDocument(DocumentReference,
+     * XWikiContext)} for each of them when many of them are not already in the cache.
+     * 
+     * @param references the references of the documents to load
+     * @param context see {@link XWikiContext}
+     * @return the documents, in the same order as the passed references (a new document is returned for each reference
+     *         which does not exist)
+     * @throws XWikiException when failing to load the documents
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    public List<XWikiDocument> getDocuments(Collection<DocumentReference> references, XWikiContext context)
+        throws XWikiException
+    {
+        // The store is based on the context wiki so group the documents by wiki
+        Map<WikiReference, List<Integer>> indexesByWiki = new LinkedHashMap<>();
+        List<XWikiDocument> documents = new ArrayList<>(references.size());
+        for (DocumentReference reference : references) {
+            XWikiDocument doc = new XWikiDocument(
+                reference.getLocale() != null ? new DocumentReference(reference, (Locale) null) : reference,
+                reference.getLocale());
+            doc.setContentDirty(true);
+
+            indexesByWiki.computeIfAbsent(reference.getWikiReference(), k -> new ArrayList<>()).add(documents.size());
+            documents.add(doc);
+        }
+
+        String currentWiki = context.getWikiId();
+        try {
+            for (Map.Entry<WikiReference, List<Integer>> entry : indexesByWiki.entrySet()) {
+                context.setWikiId(entry.getKey().getName());
+
+                List<XWikiDocument> wikiDocuments = new ArrayList<>(entry.getValue().size());
+                for (int index : entry.getValue()) {
+                    XWikiDocument doc = documents.get(index);
+
+                    try {
+                        // Indicate the the async context manipulated documents
+                        getAsyncContext().useEntity(doc.getDocumentReferenceWithLocale());
+                    } catch (Exception e) {
+                        // If the AsyncContext component does not work then we are not in an asynchronous context
+                        // anyway
+                        LOGGER.debug("Failed to register the document in the asynchronous context", e);
+                    }
+
+                    wikiDocuments.add(doc);
+                }
+
+                List<XWikiDocument> loadedDocuments = getStore().loadXWikiDocs(wikiDocuments, context);
+                for (int i = 0; i < loadedDocuments.size(); ++i) {
+                    documents.set(entry.getValue().get(i), loadedDocuments.get(i));
+                }
+            }
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+
+        return documents;
+    }
+
     /**
      * @param reference the reference of the page
      * @param context see {@link XWikiContext}
@@ -228,6 +228,42 @@ protected XWikiDocument getDoc()
         return this.doc;
     }
 
+    /**
+     * @return true if the wrapped document is still the shared one (generally the instance stored in the document
+     *         cache), i.e. if it was not cloned yet
+     */
+    boolean isShared()
+    {
+        return this.initialDoc == this.doc;
+    }
+
+    /**
+     * Return the object corresponding to the passed one in the modifiable version of the document, cloning the
+     * document if needed.
+     *
+     * @param object an object which might come from the shared version of the document
+     * @return the corresponding object from the modifiable version of the document, or a detached copy of the passed
+     *         object if the modifiable version of the document does not contain it anymore
+     */
+    BaseObject getMutableXObject(BaseObject object)
+    {
+        XWikiDocument mutableDoc = getDoc();
+
+        if (object.getOwnerDocument() == mutableDoc) {
+            return object;
+        }
+
+        BaseObject mutableObject = mutableDoc.getXObject(object.getXClassReference(), object.getNumber());
+
+        if (mutableObject == null) {
+            // The object was removed from the modifiable version of the document: never modify the shared instance
+            mutableObject = object.clone();
+            mutableObject.setOwnerDocument(null);
+        }
+
+        return mutableObject;
+    }
+
     /**
      * return the ID of the document. this ID is unique across the wiki.
      *
@@ -1160,7 +1196,7 @@ public int getObjectNumbers(String classname)
      */
     public Map<String, Vector<Object>> getxWikiObjects()
     {
-        Map<DocumentReference, List<BaseObject>> map = this.getDoc().getXObjects();
+        Map<DocumentReference, List<BaseObject>> map = this.doc.getXObjects();
         Map<String, Vector<Object>> resultmap = new HashMap<String, Vector<Object>>();
         for (Map.Entry<DocumentReference, List<BaseObject>> entry : map.entrySet()) {
             List<BaseObject> objects = entry.getValue();
@@ -1192,7 +1228,7 @@ protected Vector<Object> getXObjects(List<BaseObject> objects)
      */
     public Vector<Object> getObjects(String className)
     {
-        List<BaseObject> objects = this.getDoc().getXObjects(this.doc.resolveClassReference(className));
+        List<BaseObject> objects = this.doc.getXObjects(this.doc.resolveClassReference(className));
         return getXObjects(objects);
     }
 
@@ -1205,7 +1241,7 @@ public Vector<Object> getObjects(String className)
     public Object getFirstObject(String fieldname)
     {
         try {
-            BaseObject obj = this.getDoc().getFirstObject(fieldname, getXWikiContext());
+            BaseObject obj = this.doc.getFirstObject(fieldname, getXWikiContext());
             if (obj == null) {
                 return null;
             } else {
@@ -1228,7 +1264,7 @@ public Object getFirstObject(String fieldname)
     public Object getObject(String classname, String key, String value, boolean failover)
     {
         try {
-            BaseObject obj = this.getDoc().getObject(classname, key, value, failover);
+            BaseObject obj = this.doc.getObject(classname, key, value, failover);
             if (obj == null) {
                 return null;
             } else {
@@ -1255,7 +1291,7 @@ public Vector<Object> getObjects(String classname, String key, String value)
             return getObjects(classname);
         }
         try {
-            Vector<BaseObject> allObjects = this.getDoc().getObjects(classname);
+            Vector<BaseObject> allObjects = this.doc.getObjects(classname);
             if (allObjects == null || allObjects.size() == 0) {
                 return result;
             } else {
@@ -1288,7 +1324,7 @@ public Vector<Object> getObjects(String classname, String key, String value)
     public Object getObject(String classname, String key, String value)
     {
         try {
-            BaseObject obj = this.getDoc().getObject(classname, key, value);
+            BaseObject obj = this.doc.getObject(classname, key, value);
             if (obj == null) {
                 return null;
             } else {
@@ -1343,7 +1379,7 @@ public Object getObject(String classname, boolean create)
     public Object getObject(String classname, int nb)
     {
         try {
-            BaseObject obj = this.getDoc().getObject(classname, nb);
+            BaseObject obj = this.doc.getObject(classname, nb);
             if (obj == null) {
                 return null;
             } else {
@@ -1362,7 +1398,7 @@ public Object getObject(String classname, int nb)
     public Object getObject(ObjectReference objectReference)
     {
         try {
-            BaseObject obj = this.getDoc().getXObject(objectReference);
+            BaseObject obj = this.doc.getXObject(objectReference);
             return obj == null ? null : newObjectApi(obj, getXWikiContext());
         } catch (Exception e) {
             return null;
@@ -1387,7 +1423,14 @@ public Object getObject(ObjectReference objectReference, boolean create)
 
     private Object newObjectApi(BaseObject obj, XWikiContext context)
     {
-        return obj.newObjectApi(obj, context);
+        Object objectApi = obj.newObjectApi(obj, context);
+
+        // The object is taken from the shared document: it's copied only if the API tries to modify it
+        if (isShared() && objectApi != null) {
+            objectApi.setSharedDocument(this);
+        }
+
+        return objectApi;
     }
 
     public String getXMLContent() throws XWikiException
@@ -1483,7 +1526,7 @@ public Vector<Object> getComments()
 
     public Vector<Object> getComments(boolean asc)
     {
-        return getXObjects(this.getDoc().getComments(asc));
+        return getXObjects(this.doc.getComments(asc));
     }
 
     /**
@@ -2239,7 +2282,10 @@ public java.lang.Object getValue(String fieldName)
     {
         Object object;
         if (this.currentObj == null) {
-            object = new Object(this.getDoc().getFirstObject(fieldName, getXWikiContext()), getXWikiContext());
+            object = new Object(this.doc.getFirstObject(fieldName, getXWikiContext()), getXWikiContext());
+            if (isShared()) {
+                object.setSharedDocument(this);
+            }
         } else {
             object = this.currentObj;
         }
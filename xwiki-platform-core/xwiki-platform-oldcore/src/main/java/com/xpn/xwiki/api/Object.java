@@ -29,25 +29,89 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseCollection;
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.BaseObjectReference;
+import com.xpn.xwiki.objects.BaseProperty;
 
 public class Object extends Collection
 {
+    /**
+     * The document from which this object was taken while the document was still shared (generally with the document
+     * cache), {@code null} if the wrapped object can be modified.
+     */
+    private Document sharedDocument;
+
     public Object(BaseObject obj, XWikiContext context)
     {
         super(obj, context);
     }
 
+    /**
+     * Indicate that the wrapped object belongs to the shared version of the passed document, so that the object is
+     * switched to the one of the document copy before being modified.
+     * 
+     * @param document the document from which the object was taken
+     */
+    void setSharedDocument(Document document)
+    {
+        this.sharedDocument = document;
+    }
+
+    /**
+     * @return true if the wrapped object is still shared and must not be modified
+     */
+    boolean isShared()
+    {
+        return this.sharedDocument != null && this.sharedDocument.isShared();
+    }
+
+    @Override
+    protected BaseCollection getCollection()
+    {
+        // If the document was copied in the meantime, make sure to work with the copy of the object
+        if (this.sharedDocument != null && !this.sharedDocument.isShared()) {
+            getMutableBaseObject();
+        }
+
+        return super.getCollection();
+    }
+
     protected BaseObject getBaseObject()
     {
         return (BaseObject) getCollection();
     }
 
+    /**
+     * @return the wrapped object, after making sure it's not shared anymore
+     */
+    BaseObject getMutableBaseObject()
+    {
+        if (this.sharedDocument != null) {
+            Document document = this.sharedDocument;
+            this.sharedDocument = null;
+            this.element = document.getMutableXObject((BaseObject) this.element);
+        }
+
+        return (BaseObject) this.element;
+    }
+
+    @Override
+    protected Property newPropertyApi(BaseProperty property)
+    {
+        Property propertyApi = super.newPropertyApi(property);
+
+        if (isShared()) {
+            propertyApi.setSharedObject(this);
+        }
+
+        return propertyApi;
+    }
+
     public BaseObject getXWikiObject()
     {
         if (hasProgrammingRights()) {
-            return (BaseObject) getCollection();
+            return getMutableBaseObject();
         } else {
             return null;
         }
@@ -60,7 +124,7 @@ public String getGuid()
 
     public void setGuid(String guid)
     {
-        getBaseObject().setGuid(guid);
+        getMutableBaseObject().setGuid(guid);
     }
 
     /**
@@ -127,17 +191,19 @@ public boolean equals(java.lang.Object arg0)
             return false;
         }
         Object o = (Object) arg0;
-        return o.getXWikiContext().equals(getXWikiContext()) && this.element.equals(o.element);
+        return o.getXWikiContext().equals(getXWikiContext()) && getBaseObject().equals(o.getBaseObject());
     }
 
     public void set(String fieldname, java.lang.Object value)
     {
         XWikiContext xcontext = getXWikiContext();
 
-        getBaseObject().set(fieldname, value, xcontext);
+        BaseObject object = getMutableBaseObject();
+
+        object.set(fieldname, value, xcontext);
 
         // Temporary set as author of the document the current script author (until the document is saved)
-        getBaseObject().getOwnerDocument().setAuthorReference(xcontext.getAuthorReference());
+        object.getOwnerDocument().setAuthorReference(xcontext.getAuthorReference());
     }
 
     @Override
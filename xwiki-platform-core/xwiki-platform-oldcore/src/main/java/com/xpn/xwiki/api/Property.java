@@ -19,7 +19,11 @@
  */
 package com.xpn.xwiki.api;
 
+import java.util.Date;
+import java.util.Map;
+
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.BaseProperty;
 
 /**
@@ -29,6 +33,12 @@
  */
 public class Property extends Element
 {
+    /**
+     * The object from which this property was taken while the object was still shared, {@code null} if the wrapped
+     * property can be modified.
+     */
+    private Object sharedObject;
+
     /**
      * The Constructor.
      *
@@ -45,6 +55,38 @@ public Property(BaseProperty property, XWikiContext context)
      */
     protected BaseProperty getBaseProperty()
     {
+        // If the object was copied in the meantime, make sure to work with the copy of the property
+        if (this.sharedObject != null && !this.sharedObject.isShared()) {
+            getMutableBaseProperty();
+        }
+
+        return (BaseProperty) this.element;
+    }
+
+    /**
+     * @param object the shared object from which the property was taken
+     */
+    void setSharedObject(Object object)
+    {
+        this.sharedObject = object;
+    }
+
+    /**
+     * @return the wrapped property, after making sure it's not shared anymore
+     */
+    private BaseProperty getMutableBaseProperty()
+    {
+        if (this.sharedObject != null) {
+            Object object = this.sharedObject;
+            this.sharedObject = null;
+
+            BaseObject mutableObject = object.getMutableBaseObject();
+            BaseProperty mutableProperty = (BaseProperty) mutableObject.safeget(this.element.getName());
+            if (mutableProperty != null) {
+                this.element = mutableProperty;
+            }
+        }
+
         return (BaseProperty) this.element;
     }
 
@@ -54,7 +96,7 @@ protected BaseProperty getBaseProperty()
     public BaseProperty getProperty()
     {
         if (hasProgrammingRights()) {
-            return (BaseProperty) this.element;
+            return getMutableBaseProperty();
         } else {
             return null;
         }
@@ -94,6 +136,17 @@ public java.lang.Object getValue()
             }
         }
 
-        return getBaseProperty().getValue();
+        java.lang.Object value = baseProperty.getValue();
+
+        if (this.sharedObject != null) {
+            if (value instanceof java.util.Collection || value instanceof Map) {
+                // The value could be modified, stop sharing the property
+                value = getMutableBaseProperty().getValue();
+            } else if (value instanceof Date) {
+                value = ((Date) value).clone();
+            }
+        }
+
+        return value;
     }
 }
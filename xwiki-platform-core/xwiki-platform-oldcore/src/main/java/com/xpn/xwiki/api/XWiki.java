@@ -49,6 +49,7 @@
 import org.xwiki.security.authorization.AuthorizationException;
 import org.xwiki.security.authorization.ContextualAuthorizationManager;
 import org.xwiki.security.authorization.Right;
+import org.xwiki.stability.Unstable;
 import org.xwiki.user.CurrentUserReference;
 
 import com.xpn.xwiki.XWikiContext;
@@ -330,6 +331,32 @@ public Document getDocument(DocumentReference reference) throws XWikiException
         }
     }
 
+    /**
+     * Loads several Documents from the database at once. Rights are checked before sending back the documents.
+     *
+     * @param references the references of the XWiki documents to be loaded
+     * @return the Document objects, in the same order as the passed references ({@code null} for the documents the
+     *         current user is not allowed to view)
+     * @throws XWikiException when failing to load the documents
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    public List<Document> getDocuments(List<DocumentReference> references) throws XWikiException
+    {
+        List<XWikiDocument> documents = this.xwiki.getDocuments(references, getXWikiContext());
+
+        List<Document> result = new ArrayList<>(documents.size());
+        for (XWikiDocument doc : documents) {
+            if (getContextualAuthorizationManager().hasAccess(Right.VIEW, doc.getDocumentReference())) {
+                result.add(doc.newDocument(getXWikiContext()));
+            } else {
+                result.add(null);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Loads a Document from the store. Rights are checked before sending back the document.
      * <p>
@@ -50,6 +50,17 @@
  */
 public class XWikiDocumentArchive
 {
+    /**
+     * The name of the configuration property indicating the maximum number of versions stored as a diff between two
+     * full versions.
+     *
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    public static final String NODES_PER_FULL_PROPERTY = "xwiki.store.rcs.nodesPerFull";
+
+    private static final String NODES_PER_FULL_DEFAULT = "5";
+
     private final WikiReference wikiReference;
 
     /** =docId. */
@@ -137,6 +148,52 @@ protected void updateNode(XWikiRCSNodeInfo node)
         }
     }
 
+    /**
+     * @param context the XWiki context
+     * @return the maximum number of versions between two full versions, a value lower or equal to 0 means that only
+     *         the latest version is stored as a full version
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    public static int getNodesPerFull(XWikiContext context)
+    {
+        String nodesPerFull = context.getWiki() == null ? NODES_PER_FULL_DEFAULT
+            : context.getWiki().getConfig().getProperty(NODES_PER_FULL_PROPERTY, NODES_PER_FULL_DEFAULT);
+
+        return Integer.parseInt(nodesPerFull);
+    }
+
+    /**
+     * Indicate if the passed version should be kept as a full version because too many versions are stored as a diff
+     * between it and the previous full version.
+     * <p>
+     * Only the previous versions known by this archive are taken into account, so when the archive was only partially
+     * loaded, it should contain at least the {@code nodesPerFull} latest versions.
+     *
+     * @param version the version to check
+     * @param nodesPerFull the maximum number of versions between two full versions
+     * @return true if the passed version should be a full version
+     */
+    private boolean isFullVersionNeeded(Version version, int nodesPerFull)
+    {
+        if (nodesPerFull <= 0) {
+            return false;
+        }
+
+        int diffs = 0;
+        for (XWikiRCSNodeInfo node : this.versionToNode.tailMap(version).values()) {
+            if (!node.getId().getVersion().equals(version)) {
+                if (!node.isDiff()) {
+                    break;
+                }
+
+                ++diffs;
+            }
+        }
+
+        return diffs >= nodesPerFull - 1;
+    }
+
     /**
      * Make a patch. It is store only modified nodes(latest). New nodes need be saved after.
      *
@@ -154,10 +211,9 @@ protected XWikiRCSNodeContent makePatch(XWikiRCSNodeInfo newnode, XWikiDocument
         newnode.setContent(result);
         XWikiRCSNodeInfo latestNode = getLatestNode();
         if (latestNode != null) {
-            int nodesCount = getNodes().size();
-            int nodesPerFull = context.getWiki() == null ? 5
-                : Integer.parseInt(context.getWiki().getConfig().getProperty("xwiki.store.rcs.nodesPerFull", "5"));
-            if (nodesPerFull <= 0 || (nodesCount % nodesPerFull) != 0) {
+            // Keep a full version every nodesPerFull versions to limit the number of patches to apply when loading an
+            // old version
+            if (!isFullVersionNeeded(latestNode.getId().getVersion(), getNodesPerFull(context))) {
                 XWikiRCSNodeContent latestContent = latestNode.getContent(context);
                 latestContent.getPatch().setDiffVersion(latestContent.getPatch().getContent(), doc, context);
                 latestNode.setContent(latestContent);
@@ -429,6 +485,51 @@ public String getVersionXml(Version version, XWikiContext context) throws XWikiE
         return ToString.arrayToString(origText.toArray());
     }
 
+    /**
+     * Convert to full versions the nodes which are too far from the previous full version, so that loading any version
+     * require to apply at most {@code nodesPerFull} patches. Mostly useful for archives created before the full
+     * versions were properly kept. The modified nodes need to be saved after.
+     *
+     * @param nodesPerFull the maximum number of versions between two full versions
+     * @param context used for loading nodes content
+     * @return true if some nodes were converted to full versions
+     * @throws XWikiException if any error
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    public boolean updateFullVersions(int nodesPerFull, XWikiContext context) throws XWikiException
+    {
+        if (nodesPerFull <= 0) {
+            return false;
+        }
+
+        boolean modified = false;
+
+        // Rebuild all the versions from the most recent to the oldest one, applying each patch only once
+        List<String> text = new ArrayList<>();
+        int diffs = 0;
+        for (XWikiRCSNodeInfo node : getNodes()) {
+            XWikiRCSNodeContent nodeContent = node.getContent(context);
+            nodeContent.getPatch().patch(text);
+
+            if (!node.isDiff()) {
+                diffs = 0;
+            } else if (diffs >= nodesPerFull - 1) {
+                nodeContent.getPatch().setFullVersion(ToString.arrayToString(text.toArray()));
+                node.setContent(nodeContent);
+                updateNode(node);
+                this.updatedNodeContents.add(nodeContent);
+
+                diffs = 0;
+                modified = true;
+            } else {
+                ++diffs;
+            }
+        }
+
+        return modified;
+    }
+
     /**
      * @return {@link XWikiRCSNodeInfo} by version. null if none.
      * @param version which version to get
@@ -59,4 +59,13 @@ public boolean isMinify()
 
         return this.properties.getProperty("debug.minify", true);
     }
+
+    /**
+     * @return true if all the requests should be profiled
+     * @since 16.3.0RC1
+     */
+    public boolean isProfilerEnabled()
+    {
+        return this.properties.getProperty("debug.profiler.enabled", false);
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.debug;
+
+import com.xpn.xwiki.internal.debug.RequestProfile.Metric;
+
+/**
+ * Implementation of the {@link JMXRequestProfilerMBean} MBean.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+public class JMXRequestProfiler implements JMXRequestProfilerMBean
+{
+    private final RequestProfiler profiler;
+
+    /**
+     * @param profiler the profiler holding the totals
+     */
+    public JMXRequestProfiler(RequestProfiler profiler)
+    {
+        this.profiler = profiler;
+    }
+
+    @Override
+    public long getRequestCount()
+    {
+        return this.profiler.getRequestCount();
+    }
+
+    @Override
+    public long getDatabaseCount()
+    {
+        return this.profiler.getCount(Metric.DATABASE);
+    }
+
+    @Override
+    public long getDatabaseTime()
+    {
+        return this.profiler.getTime(Metric.DATABASE);
+    }
+
+    @Override
+    public long getDocumentCacheHitCount()
+    {
+        return this.profiler.getCount(Metric.DOCUMENT_CACHE_HIT);
+    }
+
+    @Override
+    public long getDocumentCacheMissCount()
+    {
+        return this.profiler.getCount(Metric.DOCUMENT_CACHE_MISS);
+    }
+
+    @Override
+    public long getDocumentCacheMissTime()
+    {
+        return this.profiler.getTime(Metric.DOCUMENT_CACHE_MISS);
+    }
+
+    @Override
+    public long getPropertiesBatchCount()
+    {
+        return this.profiler.getCount(Metric.PROPERTIES_BATCH);
+    }
+
+    @Override
+    public long getPropertiesBatchTime()
+    {
+        return this.profiler.getTime(Metric.PROPERTIES_BATCH);
+    }
+
+    @Override
+    public long getPropertyFallbackCount()
+    {
+        return this.profiler.getCount(Metric.PROPERTY_FALLBACK);
+    }
+
+    @Override
+    public long getRightCount()
+    {
+        return this.profiler.getCount(Metric.RIGHT);
+    }
+
+    @Override
+    public long getRightTime()
+    {
+        return this.profiler.getTime(Metric.RIGHT);
+    }
+
+    @Override
+    public long getTemplateCount()
+    {
+        return this.profiler.getCount(Metric.TEMPLATE);
+    }
+
+    @Override
+    public long getTemplateTime()
+    {
+        return this.profiler.getTime(Metric.TEMPLATE);
+    }
+}
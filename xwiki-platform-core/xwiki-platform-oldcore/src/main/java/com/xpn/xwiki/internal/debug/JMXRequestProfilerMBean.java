@@ -0,0 +1,94 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.debug;
+
+/**
+ * Expose the totals collected by the {@link RequestProfiler} through JMX.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+public interface JMXRequestProfilerMBean
+{
+    /**
+     * @return the number of profiled requests
+     */
+    long getRequestCount();
+
+    /**
+     * @return the number of database operations
+     */
+    long getDatabaseCount();
+
+    /**
+     * @return the time spent in database operations, in milliseconds
+     */
+    long getDatabaseTime();
+
+    /**
+     * @return the number of documents found in the document cache
+     */
+    long getDocumentCacheHitCount();
+
+    /**
+     * @return the number of documents which had to be loaded from the database
+     */
+    long getDocumentCacheMissCount();
+
+    /**
+     * @return the time spent loading documents which were not in the document cache, in milliseconds
+     */
+    long getDocumentCacheMissTime();
+
+    /**
+     * @return the number of objects for which the properties were loaded in batch
+     */
+    long getPropertiesBatchCount();
+
+    /**
+     * @return the time spent loading objects properties in batch, in milliseconds
+     */
+    long getPropertiesBatchTime();
+
+    /**
+     * @return the number of properties which could not be loaded in batch
+     */
+    long getPropertyFallbackCount();
+
+    /**
+     * @return the number of right checks
+     */
+    long getRightCount();
+
+    /**
+     * @return the time spent checking rights, in milliseconds
+     */
+    long getRightTime();
+
+    /**
+     * @return the number of executed templates
+     */
+    long getTemplateCount();
+
+    /**
+     * @return the time spent executing templates, in milliseconds
+     */
+    long getTemplateTime();
+}
@@ -0,0 +1,254 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.debug;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * The counters and timings collected during a single request.
+ * <p>
+ * The profile is stored in the {@link XWikiContext} while the request is being profiled and instrumented code is
+ * expected to do nothing more than a context lookup when no profile can be found:
+ *
+ * <pre>
+ * RequestProfile profile = RequestProfile.get(xcontext);
+ * long start = profile != null ? profile.begin(Metric.DATABASE) : 0;
+ * try {
+ *     ...
+ * } finally {
+ *     if (profile != null) {
+ *         profile.end(Metric.DATABASE, start);
+ *     }
+ * }
+ * </pre>
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+public class RequestProfile
+{
+    /**
+     * The name of the {@link XWikiContext} property holding the profile of the current request.
+     */
+    public static final String CONTEXT_KEY = "requestprofile";
+
+    /**
+     * The measured operations.
+     *
+     * @version $Id$
+     */
+    public enum Metric
+    {
+        /**
+         * A database operation (nested operations are only timed once).
+         */
+        DATABASE("db"),
+
+        /**
+         * A document found in the document cache.
+         */
+        DOCUMENT_CACHE_HIT("dochit"),
+
+        /**
+         * A document which had to be loaded from the database.
+         */
+        DOCUMENT_CACHE_MISS("docmiss"),
+
+        /**
+         * The loading in batch of the properties of the objects of one or several documents (counted per object).
+         */
+        PROPERTIES_BATCH("propbatch"),
+
+        /**
+         * A property which could not be loaded in batch and had to be loaded alone.
+         */
+        PROPERTY_FALLBACK("propfallback"),
+
+        /**
+         * A right check.
+         */
+        RIGHT("right"),
+
+        /**
+         * The execution of a template.
+         */
+        TEMPLATE("template");
+
+        private final String id;
+
+        Metric(String id)
+        {
+            this.id = id;
+        }
+
+        /**
+         * @return the short identifier of the metric, used in the {@code Server-Timing} header
+         */
+        public String getId()
+        {
+            return this.id;
+        }
+    }
+
+    private static final Metric[] METRICS = Metric.values();
+
+    private final long startTime = System.nanoTime();
+
+    private final AtomicLongArray counts = new AtomicLongArray(METRICS.length);
+
+    private final AtomicLongArray times = new AtomicLongArray(METRICS.length);
+
+    /**
+     * Operations like templates can be nested and only the outer one should be timed (per thread since a request can
+     * be partially executed asynchronously).
+     */
+    private final ThreadLocal<int[]> depths = ThreadLocal.withInitial(() -> new int[METRICS.length]);
+
+    /**
+     * @param xcontext the XWiki context
+     * @return the profile of the current request or {@code null} if it's not being profiled
+     */
+    public static RequestProfile get(XWikiContext xcontext)
+    {
+        return xcontext != null ? (RequestProfile) xcontext.get(CONTEXT_KEY) : null;
+    }
+
+    /**
+     * Indicate the beginning of a timed operation.
+     *
+     * @param metric the type of operation
+     * @return the value to pass to {@link #end(Metric, long)}
+     */
+    public long begin(Metric metric)
+    {
+        return begin(metric, 1);
+    }
+
+    /**
+     * Indicate the beginning of a timed operation covering several entities at once.
+     *
+     * @param metric the type of operation
+     * @param count the number of entities covered by the operation
+     * @return the value to pass to {@link #end(Metric, long)}
+     */
+    public long begin(Metric metric, int count)
+    {
+        this.counts.addAndGet(metric.ordinal(), count);
+
+        return this.depths.get()[metric.ordinal()]++ == 0 ? System.nanoTime() : -1;
+    }
+
+    /**
+     * Indicate the end of a timed operation.
+     *
+     * @param metric the type of operation
+     * @param start the value returned by {@link #begin(Metric)}
+     */
+    public void end(Metric metric, long start)
+    {
+        this.depths.get()[metric.ordinal()]--;
+
+        if (start >= 0) {
+            this.times.addAndGet(metric.ordinal(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Count an operation which is not timed.
+     *
+     * @param metric the type of operation
+     */
+    public void increment(Metric metric)
+    {
+        increment(metric, 1);
+    }
+
+    /**
+     * Count several operations which are not timed.
+     *
+     * @param metric the type of operation
+     * @param count the number of operations
+     */
+    public void increment(Metric metric, int count)
+    {
+        this.counts.addAndGet(metric.ordinal(), count);
+    }
+
+    /**
+     * @param profile the profile to add to this one
+     */
+    void add(RequestProfile profile)
+    {
+        for (int i = 0; i < METRICS.length; ++i) {
+            this.counts.addAndGet(i, profile.counts.get(i));
+            this.times.addAndGet(i, profile.times.get(i));
+        }
+    }
+
+    /**
+     * @param metric the type of operation
+     * @return the number of operations of the passed type
+     */
+    public long getCount(Metric metric)
+    {
+        return this.counts.get(metric.ordinal());
+    }
+
+    /**
+     * @param metric the type of operation
+     * @return the time spent in operations of the passed type, in milliseconds
+     */
+    public long getTime(Metric metric)
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.times.get(metric.ordinal()));
+    }
+
+    /**
+     * @return the time elapsed since the beginning of the request, in milliseconds
+     */
+    public long getElapsedTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.startTime);
+    }
+
+    /**
+     * @return the profile in the format of the {@code Server-Timing} HTTP header
+     */
+    public String toServerTiming()
+    {
+        StringBuilder builder = new StringBuilder();
+
+        for (Metric metric : METRICS) {
+            builder.append(metric.getId());
+            builder.append(";desc=\"");
+            builder.append(getCount(metric));
+            builder.append("\";dur=");
+            builder.append(getTime(metric));
+            builder.append(", ");
+        }
+        builder.append("total;dur=");
+        builder.append(getElapsedTime());
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.debug;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.internal.debug.RequestProfile.Metric;
+
+/**
+ * Start and stop the profiling of the requests and aggregate the collected {@link RequestProfile}s.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+@Component(roles = RequestProfiler.class)
+@Singleton
+public class RequestProfiler implements Initializable, Disposable
+{
+    private static final String MBEAN_NAME = "type=Debug,name=profiler";
+
+    @Inject
+    private DebugConfiguration configuration;
+
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
+    @Inject
+    private Provider<ContextualAuthorizationManager> authorizationProvider;
+
+    private final RequestProfile total = new RequestProfile();
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.jmxRegistration.registerMBean(new JMXRequestProfiler(this), MBEAN_NAME);
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.jmxRegistration.unregisterMBean(MBEAN_NAME);
+    }
+
+    /**
+     * Start profiling the current request if enabled.
+     *
+     * @param force true if the request should be profiled even if profiling is disabled in the configuration, only
+     *            taken into account when the current user is allowed to see the profile (see
+     *            {@link #isAllowed(XWikiContext)})
+     * @param xcontext the XWiki context of the request
+     * @return the new profile or {@code null} if the request is not profiled
+     */
+    public RequestProfile start(boolean force, XWikiContext xcontext)
+    {
+        if (this.configuration.isProfilerEnabled() || (force && isAllowed(xcontext))) {
+            RequestProfile profile = new RequestProfile();
+
+            xcontext.put(RequestProfile.CONTEXT_KEY, profile);
+
+            return profile;
+        }
+
+        return null;
+    }
+
+    /**
+     * The profile of a request tells what the request spent its time on, only wiki administrators (and so users with
+     * programming right) can see it.
+     *
+     * @param xcontext the XWiki context of the request
+     * @return true if the current user is allowed to see the profile of the current request
+     */
+    public boolean isAllowed(XWikiContext xcontext)
+    {
+        return this.authorizationProvider.get().hasAccess(Right.ADMIN, xcontext.getWikiReference());
+    }
+
+    /**
+     * Stop profiling the current request.
+     *
+     * @param profile the profile returned by {@link #start(boolean, XWikiContext)}
+     * @param xcontext the XWiki context of the request
+     */
+    public void stop(RequestProfile profile, XWikiContext xcontext)
+    {
+        xcontext.remove(RequestProfile.CONTEXT_KEY);
+
+        this.total.add(profile);
+        this.requestCount.incrementAndGet();
+    }
+
+    /**
+     * @return the number of profiled requests
+     */
+    public long getRequestCount()
+    {
+        return this.requestCount.get();
+    }
+
+    /**
+     * @param metric the type of operation
+     * @return the number of operations of the passed type in all the profiled requests
+     */
+    public long getCount(Metric metric)
+    {
+        return this.total.getCount(metric);
+    }
+
+    /**
+     * @param metric the type of operation
+     * @return the time spent in operations of the passed type in all the profiled requests, in milliseconds
+     */
+    public long getTime(Metric metric)
+    {
+        return this.total.getTime(metric);
+    }
+}
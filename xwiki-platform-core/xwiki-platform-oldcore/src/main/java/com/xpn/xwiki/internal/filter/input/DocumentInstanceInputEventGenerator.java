@@ -19,8 +19,13 @@
  */
 package com.xpn.xwiki.internal.filter.input;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -34,6 +39,7 @@
 import org.xwiki.filter.descriptor.FilterStreamDescriptor;
 import org.xwiki.filter.event.model.WikiDocumentFilter;
 import org.xwiki.filter.instance.input.AbstractInstanceInputEventGenerator;
+import org.xwiki.filter.instance.input.DocumentInstanceInputProperties;
 import org.xwiki.filter.instance.input.EntityEventGenerator;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.SpaceReference;
@@ -61,6 +67,18 @@ public class DocumentInstanceInputEventGenerator extends AbstractInstanceInputEv
     @Inject
     private Provider<XWikiContext> xcontextProvider;
 
+    private DocumentInstanceInputProperties documentProperties;
+
+    /**
+     * The documents of the current space which are still to be loaded.
+     */
+    private Deque<DocumentReference> spaceDocuments;
+
+    /**
+     * The documents which were loaded in advance (at most a batch).
+     */
+    private final Map<DocumentReference, XWikiDocument> loadedDocuments = new HashMap<>();
+
     @Override
     public FilterStreamDescriptor getDescriptor()
     {
@@ -74,12 +92,7 @@ public void setWikiDocumentParameters(String name, FilterEventParameters documen
 
         XWikiContext xcontext = this.xcontextProvider.get();
 
-        XWikiDocument defaultDocument;
-        try {
-            defaultDocument = xcontext.getWiki().getDocument(reference, xcontext);
-        } catch (XWikiException e) {
-            throw new FilterException("Failed to get document [" + reference + "]", e);
-        }
+        XWikiDocument defaultDocument = getDocument(reference, xcontext);
 
         documentParameters.put(WikiDocumentFilter.PARAMETER_LOCALE, defaultDocument.getDefaultLocale());
     }
@@ -93,12 +106,7 @@ public void beginWikiDocument(String name, FilterEventParameters parameters) thr
 
         XWikiContext xcontext = this.xcontextProvider.get();
 
-        XWikiDocument defaultDocument;
-        try {
-            defaultDocument = xcontext.getWiki().getDocument(reference, xcontext);
-        } catch (XWikiException e) {
-            throw new FilterException("Failed to get document [" + reference + "]", e);
-        }
+        XWikiDocument defaultDocument = getDocument(reference, xcontext);
 
         // Default document locale
         this.documentLocaleParser.write(defaultDocument, this.filter, this.properties);
@@ -120,4 +128,114 @@ public void beginWikiDocument(String name, FilterEventParameters parameters) thr
             }
         }
     }
+
+    @Override
+    public void endWikiDocument(String name, FilterEventParameters parameters) throws FilterException
+    {
+        // Release the document as soon as it's been written
+        this.loadedDocuments.remove(new DocumentReference(this.currentReference));
+
+        super.endWikiDocument(name, parameters);
+    }
+
+    @Override
+    public void beginWikiSpace(String name, FilterEventParameters parameters) throws FilterException
+    {
+        super.beginWikiSpace(name, parameters);
+
+        resetSpaceDocuments();
+    }
+
+    @Override
+    public void endWikiSpace(String name, FilterEventParameters parameters) throws FilterException
+    {
+        super.endWikiSpace(name, parameters);
+
+        resetSpaceDocuments();
+    }
+
+    @Override
+    public void setWikiSpaceDocuments(String name, List<DocumentReference> documents)
+    {
+        this.spaceDocuments = new ArrayDeque<>(documents);
+    }
+
+    private void resetSpaceDocuments()
+    {
+        this.spaceDocuments = null;
+        this.loadedDocuments.clear();
+    }
+
+    private DocumentInstanceInputProperties getDocumentProperties() throws FilterException
+    {
+        if (this.documentProperties == null) {
+            if (this.properties instanceof DocumentInstanceInputProperties) {
+                this.documentProperties = (DocumentInstanceInputProperties) this.properties;
+            } else {
+                this.documentProperties = new DocumentInstanceInputProperties();
+
+                try {
+                    this.beanManager.populate(this.documentProperties, this.properties);
+                } catch (Exception e) {
+                    throw new FilterException("Failed to convert properties to Java bean", e);
+                }
+            }
+        }
+
+        return this.documentProperties;
+    }
+
+    private XWikiDocument getDocument(DocumentReference reference, XWikiContext xcontext) throws FilterException
+    {
+        XWikiDocument document = this.loadedDocuments.get(reference);
+
+        if (document == null) {
+            try {
+                loadDocuments(reference, xcontext);
+
+                document = this.loadedDocuments.get(reference);
+                if (document == null) {
+                    document = xcontext.getWiki().getDocument(reference, xcontext);
+                }
+            } catch (XWikiException e) {
+                throw new FilterException("Failed to get document [" + reference + "]", e);
+            }
+        }
+
+        return document;
+    }
+
+    /**
+     * Load in one go the passed document and the following ones in the current space, instead of loading them one by
+     * one.
+     */
+    private void loadDocuments(DocumentReference reference, XWikiContext xcontext)
+        throws FilterException, XWikiException
+    {
+        int batchSize = getDocumentProperties().getBatchSize();
+        if (batchSize <= 1 || this.spaceDocuments == null) {
+            return;
+        }
+
+        // Skip the documents which are not going to be written anymore
+        DocumentReference documentReference;
+        do {
+            documentReference = this.spaceDocuments.poll();
+        } while (documentReference != null && !documentReference.equals(reference));
+
+        if (documentReference == null) {
+            return;
+        }
+
+        List<DocumentReference> batch = new ArrayList<>(batchSize);
+        batch.add(documentReference);
+        while (batch.size() < batchSize && !this.spaceDocuments.isEmpty()) {
+            batch.add(this.spaceDocuments.poll());
+        }
+
+        List<XWikiDocument> documents = xcontext.getWiki().getDocuments(batch, xcontext);
+        for (int i = 0; i < batch.size(); ++i) {
+            this.loadedDocuments.put(batch.get(i), documents.get(i));
+        }
+    }
 }
@@ -20,22 +20,47 @@
 package com.xpn.xwiki.internal.filter.output;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextException;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.context.concurrent.ContextStoreManager;
 import org.xwiki.filter.FilterDescriptorManager;
 import org.xwiki.filter.FilterEventParameters;
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.event.model.WikiDocumentFilter;
 import org.xwiki.filter.instance.output.DocumentInstanceOutputProperties;
 import org.xwiki.filter.output.AbstractBeanOutputFilterStream;
+import org.xwiki.logging.LogQueue;
+import org.xwiki.logging.LoggerManager;
+import org.xwiki.logging.event.LoggerListener;
 import org.xwiki.logging.marker.TranslationMarker;
 import org.xwiki.model.document.DocumentAuthors;
 import org.xwiki.model.reference.DocumentReference;
@@ -46,6 +71,8 @@
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.internal.context.XWikiContextContextStore;
+import com.xpn.xwiki.util.XWikiStubContextProvider;
 
 /**
  * @version $Id$
@@ -66,6 +93,20 @@ public class DocumentInstanceOutputFilterStream extends AbstractBeanOutputFilter
     private static final TranslationMarker LOG_DOCUMENT_FAILSAVE =
         new TranslationMarker("filter.instance.log.document.failsave", WikiDocumentFilter.LOG_DOCUMENT_ERROR);
 
+    /**
+     * The maximum number of documents waiting to be saved by each saving thread.
+     */
+    private static final int SAVE_QUEUE_CAPACITY = 10;
+
+    /**
+     * The number of saved documents between two progress logs.
+     */
+    private static final int SAVE_PROGRESS_INTERVAL = 1000;
+
+    private static final List<String> SAVE_CONTEXT_ENTRIES = Arrays.asList(XWikiContextContextStore.PROP_WIKI,
+        XWikiContextContextStore.PROP_USER, XWikiContextContextStore.PROP_SECURE_AUTHOR,
+        XWikiContextContextStore.PROP_SECURE_DOCUMENT, XWikiContextContextStore.PROP_LOCALE);
+
     @Inject
     private FilterDescriptorManager filterManager;
 
@@ -79,11 +120,53 @@ public class DocumentInstanceOutputFilterStream extends AbstractBeanOutputFilter
     @Named("document")
     private UserReferenceResolver<DocumentReference> documentReferenceUserReferenceResolver;
 
+    @Inject
+    private ContextStoreManager contextStoreManager;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private XWikiStubContextProvider stubContextProvider;
+
+    @Inject
+    private LoggerManager loggerManager;
+
     @Inject
     private Logger logger;
 
     private boolean firstVersion;
 
+    private List<ThreadPoolExecutor> saveExecutors;
+
+    private Map<String, Serializable> saveContext;
+
+    private ExecutionContext saveExecutionContext;
+
+    private final Deque<SaveTask> saveTasks = new ArrayDeque<>();
+
+    private final AtomicReference<Exception> saveFailure = new AtomicReference<>();
+
+    private long saveStart;
+
+    private int savedDocuments;
+
+    private static final class SaveTask
+    {
+        private final Future<?> future;
+
+        private final LogQueue logs;
+
+        SaveTask(Future<?> future, LogQueue logs)
+        {
+            this.future = future;
+            this.logs = logs;
+        }
+    }
+
     private FilterEventParameters currentLocaleParameters;
 
     private FilterEventParameters currentRevisionParameters;
@@ -97,7 +180,20 @@ protected Object createFilter() throws FilterException
     @Override
     public void close() throws IOException
     {
-        // Nothing to close
+        if (this.saveExecutors != null) {
+            // Wait for the documents still being saved
+            try {
+                flushSaveTasks(true);
+            } catch (FilterException e) {
+                throw new IOException(e.getMessage(), e.getCause());
+            } finally {
+                stopSaveExecutors();
+            }
+
+            long duration = System.currentTimeMillis() - this.saveStart;
+            this.logger.info("Saved [{}] documents in [{}] ms with [{}] threads", this.savedDocuments, duration,
+                this.properties.getSaveThreads());
+        }
     }
 
     @Override
@@ -177,6 +273,139 @@ private void maybeSaveDocument() throws FilterException
             return;
         }
 
+        if (this.properties.getSaveThreads() > 1) {
+            submitDocument(inputDocument, this.firstVersion);
+        } else {
+            saveDocument(inputDocument, this.firstVersion);
+        }
+    }
+
+    private void submitDocument(XWikiDocument inputDocument, boolean firstVersion) throws FilterException
+    {
+        if (this.saveExecutors == null) {
+            startSaveExecutors();
+        }
+
+        // The revisions and locales of a document are saved in order by the same thread
+        ThreadPoolExecutor executor = this.saveExecutors
+            .get(Math.floorMod(inputDocument.getDocumentReference().hashCode(), this.saveExecutors.size()));
+
+        LogQueue logs = new LogQueue();
+        Future<?> future = executor.submit(() -> saveDocumentInBackground(inputDocument, firstVersion, logs));
+        this.saveTasks.add(new SaveTask(future, logs));
+
+        flushSaveTasks(false);
+    }
+
+    private void startSaveExecutors() throws FilterException
+    {
+        // Copy the current context in the saving threads
+        try {
+            this.saveContext = this.contextStoreManager.save(SAVE_CONTEXT_ENTRIES);
+
+            // Keep a copy of the execution context (job, observation context, etc.) which is not modified anymore by
+            // the thread reading the events, so that the saving threads can safely copy it
+            this.saveExecutionContext = this.executionContextManager.clone(this.execution.getContext());
+        } catch (ComponentLookupException | ExecutionContextException e) {
+            throw new FilterException("Failed to save the context of the import", e);
+        }
+
+        BasicThreadFactory factory =
+            new BasicThreadFactory.Builder().namingPattern("XWiki document import thread %d").daemon(true).build();
+
+        this.saveExecutors = new ArrayList<>(this.properties.getSaveThreads());
+        for (int i = 0; i < this.properties.getSaveThreads(); ++i) {
+            // Block the reading of the next documents when the saving threads are late
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(SAVE_QUEUE_CAPACITY), factory, (runnable, pool) -> {
+                    try {
+                        pool.getQueue().put(runnable);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+
+                        throw new RejectedExecutionException("Interrupted while waiting to save a document", e);
+                    }
+                });
+            executor.allowCoreThreadTimeOut(true);
+
+            this.saveExecutors.add(executor);
+        }
+
+        this.saveStart = System.currentTimeMillis();
+    }
+
+    private void stopSaveExecutors()
+    {
+        if (this.saveExecutors != null) {
+            this.saveExecutors.forEach(ThreadPoolExecutor::shutdownNow);
+            this.saveExecutors = null;
+        }
+    }
+
+    private void saveDocumentInBackground(XWikiDocument inputDocument, boolean firstVersion, LogQueue logs)
+    {
+        try {
+            // Start from the execution context of the import so that the listeners of the save events see the same
+            // context (e.g. the begin events of the observation context or the current job) as without save threads
+            ExecutionContext context = this.executionContextManager.clone(this.saveExecutionContext);
+            // The cloned execution context shares the XWiki context, which is not thread safe
+            this.stubContextProvider.createStubContext().declareInExecutionContext(context);
+            this.execution.setContext(context);
+            this.contextStoreManager.restore(this.saveContext);
+
+            // Keep the log to replay it in the thread reading the events (which might be a job)
+            this.loggerManager.pushLogListener(new LoggerListener(UUID.randomUUID().toString(), logs));
+            try {
+                saveDocument(inputDocument, firstVersion);
+            } finally {
+                this.loggerManager.popLogListener();
+            }
+        } catch (Exception e) {
+            this.saveFailure.compareAndSet(null, e);
+        } finally {
+            this.execution.removeContext();
+        }
+    }
+
+    /**
+     * Replay the log of the documents which have been saved, in the order they were submitted.
+     *
+     * @param wait true if the method should wait for all the documents to be saved
+     */
+    private void flushSaveTasks(boolean wait) throws FilterException
+    {
+        while (!this.saveTasks.isEmpty() && (wait || this.saveTasks.peek().future.isDone())) {
+            SaveTask task = this.saveTasks.poll();
+
+            try {
+                task.future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new FilterException("Interrupted while waiting for documents to be saved", e);
+            } catch (ExecutionException e) {
+                this.saveFailure.compareAndSet(null, e);
+            }
+
+            task.logs.log(this.logger);
+
+            if (++this.savedDocuments % SAVE_PROGRESS_INTERVAL == 0) {
+                long duration = System.currentTimeMillis() - this.saveStart;
+                this.logger.info("Saved [{}] documents ([{}] documents per second)", this.savedDocuments,
+                    this.savedDocuments * 1000L / Math.max(duration, 1));
+            }
+        }
+
+        Exception failure = this.saveFailure.get();
+        if (failure != null) {
+            stopSaveExecutors();
+
+            throw new FilterException("Failed to save document", failure);
+        }
+    }
+
+    private void saveDocument(XWikiDocument inputDocument, boolean firstVersion) throws FilterException
+    {
         boolean hasJRCSHistory = inputDocument.getDocumentArchive() != null;
 
         XWikiContext xcontext = this.xcontextProvider.get();
@@ -192,7 +421,7 @@ private void maybeSaveDocument() throws FilterException
             databaseDocument.loadAttachmentsContentSafe(xcontext);
 
             XWikiDocument document;
-            if (this.firstVersion && this.properties.isPreviousDeleted()) {
+            if (firstVersion && this.properties.isPreviousDeleted()) {
                 // We want to replace the existing document
                 document = inputDocument;
 
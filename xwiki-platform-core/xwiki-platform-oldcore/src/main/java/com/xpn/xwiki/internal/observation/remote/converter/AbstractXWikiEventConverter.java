@@ -19,16 +19,23 @@
  */
 package com.xpn.xwiki.internal.observation.remote.converter;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
+import org.xwiki.filter.output.DefaultOutputStreamOutputTarget;
 import org.xwiki.localization.LocaleUtils;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.observation.remote.converter.AbstractEventConverter;
@@ -61,6 +68,13 @@ public abstract class AbstractXWikiEventConverter extends AbstractEventConverter
 
     protected static final String ORIGDOC_LANGUAGE = "origdoclanguage";
 
+    /**
+     * The XML serialization of the document, see {@link #serializeXWikiDocument(XWikiDocument)}.
+     *
+     * @since 16.3.0RC1
+     */
+    protected static final String DOC_CONTENT = "doccontent";
+
     /**
      * The logger to log.
      */
@@ -79,6 +93,10 @@ public abstract class AbstractXWikiEventConverter extends AbstractEventConverter
     @Inject
     private XWikiStubContextProvider stubContextProvider;
 
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
     /**
      * @param context the XWiki context to serialize
      * @return the serialized version of the context
@@ -147,6 +165,11 @@ protected Serializable serializeXWikiDocument(XWikiDocument document)
         if (!document.isNew()) {
             remoteDataMap.put(DOC_VERSION, document.getVersion());
             remoteDataMap.put(DOC_LANGUAGE, document.getLanguage());
+
+            byte[] content = serializeXWikiDocumentContent(document);
+            if (content != null) {
+                remoteDataMap.put(DOC_CONTENT, content);
+            }
         }
 
         XWikiDocument originalDocument = document.getOriginalDocument();
@@ -159,6 +182,72 @@ protected Serializable serializeXWikiDocument(XWikiDocument document)
         return remoteDataMap;
     }
 
+    /**
+     * Serialize the content of the document so that the other members of the cluster can refresh their cache without
+     * loading it from the database, if enabled with the {@code observation.remote.documentContentMaxSize}
+     * configuration property.
+     *
+     * @param document the document to serialize
+     * @return the XML serialization of the document or {@code null} if it should not be sent
+     */
+    private byte[] serializeXWikiDocumentContent(XWikiDocument document)
+    {
+        int maxSize = this.configuration.getProperty("observation.remote.documentContentMaxSize", 0);
+
+        if (maxSize > 0) {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            try {
+                // The attachments content and the history are loaded lazily so they are not needed
+                document.toXML(new DefaultOutputStreamOutputTarget(stream), true, false, false, false, false,
+                    StandardCharsets.UTF_8.name());
+            } catch (Exception e) {
+                this.logger.warn("Failed to serialize the document [{}], the other members of the cluster will load"
+                    + " it from the database: {}", document.getDocumentReferenceWithLocale(),
+                    ExceptionUtils.getRootCauseMessage(e));
+
+                return null;
+            }
+
+            if (stream.size() <= maxSize) {
+                return stream.toByteArray();
+            }
+        }
+
+        return null;
+    }
+
+    private XWikiDocument unserializeDocumentContent(byte[] content, XWikiDocument document, String version,
+        XWikiContext xcontext)
+    {
+        if (content != null && version != null && xcontext.getWiki().getStore() instanceof XWikiCacheStore) {
+            XWikiDocument sentDocument =
+                new XWikiDocument(document.getDocumentReference(), document.getLocale());
+            try {
+                sentDocument.fromXML(new ByteArrayInputStream(content));
+            } catch (XWikiException e) {
+                this.logger.warn("Failed to parse the received document [{}], loading it from the database: {}",
+                    document.getDocumentReferenceWithLocale(), ExceptionUtils.getRootCauseMessage(e));
+
+                return null;
+            }
+
+            if (version.equals(sentDocument.getVersion())) {
+                // Make it look like a document loaded from the database, otherwise the next save would consider the
+                // content modified (new version, content author and content update date)
+                sentDocument.setNew(false);
+                sentDocument.setMostRecent(true);
+                sentDocument.setStore(xcontext.getWiki().getStore());
+                sentDocument.setContentDirty(false);
+                sentDocument.setMetaDataDirty(false);
+                sentDocument.setOriginalDocument(sentDocument.clone());
+
+                return sentDocument;
+            }
+        }
+
+        return null;
+    }
+
     protected XWikiDocument getDocument(XWikiDocument document, String version, XWikiContext xcontext)
         throws XWikiException
     {
@@ -191,18 +280,39 @@ protected XWikiDocument unserializeDocument(Serializable remoteData) throws XWik
         XWikiDocument document = new XWikiDocument(docReference, locale);
         XWikiDocument origDoc = new XWikiDocument(docReference, origLocale);
 
-        // Force invalidating the cache to be sure it return (and keep) the right document
-        if (xcontext.getWiki().getStore() instanceof XWikiCacheStore) {
-            ((XWikiCacheStore) xcontext.getWiki().getStore()).invalidate(document);
-            ((XWikiCacheStore) xcontext.getWiki().getStore()).invalidate(origDoc);
-        }
-
         String version = (String) remoteDataMap.get(DOC_VERSION);
-        if (version != null) {
-            document = getDocument(document, version, xcontext);
+        String origVersion = (String) remoteDataMap.get(ORIGDOC_VERSION);
+
+        XWikiDocument sentDocument =
+            unserializeDocumentContent((byte[]) remoteDataMap.get(DOC_CONTENT), document, version, xcontext);
+
+        if (sentDocument != null) {
+            // Refresh the cache with the received document instead of loading it again from the database
+            XWikiCacheStore cacheStore = (XWikiCacheStore) xcontext.getWiki().getStore();
+            XWikiDocument cachedDocument = cacheStore.refresh(sentDocument);
+            // Don't modify the original document of the cached instance
+            document = sentDocument.clone();
+
+            // The previously cached document is generally the original document
+            if (cachedDocument != null && origVersion != null && origVersion.equals(cachedDocument.getVersion())
+                && cachedDocument.getLocale().equals(origDoc.getLocale())) {
+                origDoc = cachedDocument;
+                origVersion = null;
+            } else if (!origDoc.getLocale().equals(document.getLocale())) {
+                cacheStore.invalidate(origDoc);
+            }
+        } else {
+            // Force invalidating the cache to be sure it return (and keep) the right document
+            if (xcontext.getWiki().getStore() instanceof XWikiCacheStore) {
+                ((XWikiCacheStore) xcontext.getWiki().getStore()).invalidate(document);
+                ((XWikiCacheStore) xcontext.getWiki().getStore()).invalidate(origDoc);
+            }
+
+            if (version != null) {
+                document = getDocument(document, version, xcontext);
+            }
         }
 
-        String origVersion = (String) remoteDataMap.get(ORIGDOC_VERSION);
         if (origVersion != null) {
             origDoc = getDocument(origDoc, origVersion, xcontext);
         }
@@ -0,0 +1,267 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.AbstractDocumentEvent;
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.DocumentVersionRangeDeletedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.localization.LocaleUtils;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.observation.remote.LocalEventData;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.converter.AbstractBinaryEventConverter;
+import org.xwiki.observation.remote.converter.LocalEventConverter;
+import org.xwiki.observation.remote.converter.RemoteEventConverter;
+
+import static com.xpn.xwiki.internal.observation.remote.converter.AbstractXWikiEventConverter.CONTEXT_USER;
+import static com.xpn.xwiki.internal.observation.remote.converter.AbstractXWikiEventConverter.CONTEXT_WIKI;
+import static com.xpn.xwiki.internal.observation.remote.converter.AbstractXWikiEventConverter.DOC_CONTENT;
+import static com.xpn.xwiki.internal.observation.remote.converter.AbstractXWikiEventConverter.DOC_LANGUAGE;
+import static com.xpn.xwiki.internal.observation.remote.converter.AbstractXWikiEventConverter.DOC_NAME;
+import static com.xpn.xwiki.internal.observation.remote.converter.AbstractXWikiEventConverter.DOC_VERSION;
+import static com.xpn.xwiki.internal.observation.remote.converter.AbstractXWikiEventConverter.ORIGDOC_LANGUAGE;
+import static com.xpn.xwiki.internal.observation.remote.converter.AbstractXWikiEventConverter.ORIGDOC_VERSION;
+
+/**
+ * Encode the document events in a compact binary form instead of the Java serialization of the event and of the
+ * information extracted by {@link DocumentEventConverter}.
+ * <p>
+ * The document and context information are the same as the ones sent by {@link DocumentEventConverter}, which is also
+ * used to rebuild the local event on the receiving side (and to receive the events sent by members of the cluster not
+ * supporting the binary form).
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+@Component
+@Singleton
+@Named(DocumentBinaryEventConverter.CODEC)
+public class DocumentBinaryEventConverter extends AbstractBinaryEventConverter
+{
+    /**
+     * The identifier of the codec.
+     */
+    public static final String CODEC = "document/binary";
+
+    /**
+     * The first version of the codec, without the content of the document.
+     */
+    private static final int VERSION_1 = 1;
+
+    /**
+     * The current version of the codec, which adds the content of the document at the end.
+     */
+    private static final int VERSION = 2;
+
+    private static final byte CREATED = 0;
+
+    private static final byte UPDATED = 1;
+
+    private static final byte DELETED = 2;
+
+    private static final byte VERSION_RANGE_DELETED = 3;
+
+    private static final Map<Class<?>, Byte> EVENTS = Map.of(DocumentCreatedEvent.class, CREATED,
+        DocumentUpdatedEvent.class, UPDATED, DocumentDeletedEvent.class, DELETED,
+        DocumentVersionRangeDeletedEvent.class, VERSION_RANGE_DELETED);
+
+    @Inject
+    @Named("document")
+    private LocalEventConverter localDocumentConverter;
+
+    @Inject
+    @Named("document")
+    private RemoteEventConverter remoteDocumentConverter;
+
+    @Override
+    protected String getCodec()
+    {
+        return CODEC;
+    }
+
+    @Override
+    protected int getVersion()
+    {
+        return VERSION;
+    }
+
+    @Override
+    protected boolean isSupported(int version)
+    {
+        return version == VERSION_1 || version == VERSION;
+    }
+
+    @Override
+    protected boolean encode(LocalEventData localEvent, DataOutput output) throws IOException
+    {
+        Byte type = EVENTS.get(localEvent.getEvent().getClass());
+        if (type == null) {
+            return false;
+        }
+
+        AbstractDocumentEvent event = (AbstractDocumentEvent) localEvent.getEvent();
+        DocumentReference documentReference = event.getDocumentReference();
+        // Only the reference of the document is transmitted so make sure the event can be rebuilt from it
+        if (event.isCanceled() || documentReference == null || !Objects.equals(event.getEventFilter().getFilter(),
+            createEvent(type, documentReference, event).getEventFilter().getFilter())) {
+            return false;
+        }
+
+        // Reuse the information extracted by the standard converter
+        RemoteEventData remoteEvent = new RemoteEventData();
+        if (!this.localDocumentConverter.toRemote(localEvent, remoteEvent)) {
+            return false;
+        }
+        Map<String, Serializable> source = (Map<String, Serializable>) remoteEvent.getSource();
+        Map<String, Serializable> data = (Map<String, Serializable>) remoteEvent.getData();
+
+        output.writeByte(type);
+        writeDocumentReference(output, documentReference);
+        if (type == VERSION_RANGE_DELETED) {
+            writeString(output, ((DocumentVersionRangeDeletedEvent) event).getFrom());
+            writeString(output, ((DocumentVersionRangeDeletedEvent) event).getTo());
+        }
+
+        writeDocumentReference(output, (DocumentReference) source.get(DOC_NAME));
+        writeString(output, (String) source.get(DOC_VERSION));
+        writeString(output, (String) source.get(DOC_LANGUAGE));
+        writeString(output, (String) source.get(ORIGDOC_VERSION));
+        writeString(output, (String) source.get(ORIGDOC_LANGUAGE));
+
+        writeString(output, (String) data.get(CONTEXT_WIKI));
+        writeString(output, (String) data.get(CONTEXT_USER));
+
+        writeBytes(output, (byte[]) source.get(DOC_CONTENT));
+
+        return true;
+    }
+
+    @Override
+    protected void decode(int version, DataInput input, LocalEventData localEvent) throws IOException
+    {
+        byte type = input.readByte();
+        DocumentReference documentReference = readDocumentReference(input);
+        AbstractDocumentEvent event;
+        if (type == VERSION_RANGE_DELETED) {
+            String from = readString(input);
+            String to = readString(input);
+            event = new DocumentVersionRangeDeletedEvent(documentReference, from, to);
+        } else {
+            event = createEvent(type, documentReference, null);
+        }
+
+        HashMap<String, Serializable> source = new HashMap<>();
+        source.put(DOC_NAME, readDocumentReference(input));
+        putIfNotNull(source, DOC_VERSION, readString(input));
+        putIfNotNull(source, DOC_LANGUAGE, readString(input));
+        putIfNotNull(source, ORIGDOC_VERSION, readString(input));
+        putIfNotNull(source, ORIGDOC_LANGUAGE, readString(input));
+
+        HashMap<String, Serializable> data = new HashMap<>();
+        data.put(CONTEXT_WIKI, readString(input));
+        data.put(CONTEXT_USER, readString(input));
+
+        if (version >= VERSION) {
+            byte[] content = readBytes(input);
+            if (content != null) {
+                source.put(DOC_CONTENT, content);
+            }
+        }
+
+        // Let the standard converter rebuild the document and the context
+        if (!this.remoteDocumentConverter.fromRemote(new RemoteEventData(event, source, data), localEvent)
+            || localEvent.getEvent() == null || localEvent.getSource() == null) {
+            // Don't notify an incomplete event
+            throw new IOException(
+                String.format("Failed to rebuild the document or the context of the remote event [%s]", event));
+        }
+    }
+
+    private AbstractDocumentEvent createEvent(byte type, DocumentReference documentReference,
+        AbstractDocumentEvent sourceEvent) throws IOException
+    {
+        switch (type) {
+            case CREATED:
+                return new DocumentCreatedEvent(documentReference);
+            case UPDATED:
+                return new DocumentUpdatedEvent(documentReference);
+            case DELETED:
+                return new DocumentDeletedEvent(documentReference);
+            case VERSION_RANGE_DELETED:
+                DocumentVersionRangeDeletedEvent rangeEvent = (DocumentVersionRangeDeletedEvent) sourceEvent;
+                return new DocumentVersionRangeDeletedEvent(documentReference, rangeEvent.getFrom(),
+                    rangeEvent.getTo());
+            default:
+                throw new IOException(String.format("Unknown document event type [%s]", type));
+        }
+    }
+
+    private void putIfNotNull(Map<String, Serializable> map, String key, String value)
+    {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
+    private void writeDocumentReference(DataOutput output, DocumentReference documentReference) throws IOException
+    {
+        List<SpaceReference> spaces = documentReference.getSpaceReferences();
+
+        writeString(output, documentReference.getWikiReference().getName());
+        output.writeShort(spaces.size());
+        for (SpaceReference space : spaces) {
+            writeString(output, space.getName());
+        }
+        writeString(output, documentReference.getName());
+        writeString(output, documentReference.getLocale() != null ? documentReference.getLocale().toString() : null);
+    }
+
+    private DocumentReference readDocumentReference(DataInput input) throws IOException
+    {
+        String wiki = readString(input);
+        int spaceCount = input.readUnsignedShort();
+        List<String> spaces = new ArrayList<>(spaceCount);
+        for (int i = 0; i < spaceCount; ++i) {
+            spaces.add(readString(input));
+        }
+        String name = readString(input);
+        String locale = readString(input);
+
+        return new DocumentReference(wiki, spaces, name, LocaleUtils.toLocale(locale));
+    }
+}
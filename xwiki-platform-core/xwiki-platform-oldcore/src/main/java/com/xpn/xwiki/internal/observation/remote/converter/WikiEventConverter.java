@@ -26,6 +26,7 @@
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.xwiki.bridge.event.WikiBulkCopiedEvent;
 import org.xwiki.bridge.event.WikiCreatedEvent;
 import org.xwiki.bridge.event.WikiDeletedEvent;
 import org.xwiki.component.annotation.Component;
@@ -56,6 +57,7 @@ public class WikiEventConverter extends AbstractXWikiEventConverter
         {
             add(WikiDeletedEvent.class);
             add(WikiCreatedEvent.class);
+            add(WikiBulkCopiedEvent.class);
         }
     };
 
@@ -21,6 +21,7 @@
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
@@ -29,7 +30,10 @@
 import org.xwiki.job.event.status.JobProgress;
 import org.xwiki.script.service.ScriptService;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.internal.debug.DebugConfiguration;
+import com.xpn.xwiki.internal.debug.RequestProfile;
+import com.xpn.xwiki.internal.debug.RequestProfiler;
 import com.xpn.xwiki.web.XWikiAction;
 
 /**
@@ -49,6 +53,12 @@ public class DebugInternalScriptService implements ScriptService
     @Inject
     private DebugConfiguration debugConfiguration;
 
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private Provider<RequestProfiler> profilerProvider;
+
     /**
      * @return is debug enabled in the current execution context
      */
@@ -71,6 +81,23 @@ public JobProgress getActionProgress()
         return null;
     }
 
+    /**
+     * @return the counters and timings collected so far for the current request, {@code null} if the request is not
+     *         profiled or if the current user is not allowed to see it
+     * @since 16.3.0RC1
+     */
+    public RequestProfile getRequestProfile()
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        RequestProfile profile = RequestProfile.get(xcontext);
+        if (profile != null && this.profilerProvider.get().isAllowed(xcontext)) {
+            return profile;
+        }
+
+        return null;
+    }
+
     /**
      * @return true if resources should be minified when possible
      * @since 7.1RC1
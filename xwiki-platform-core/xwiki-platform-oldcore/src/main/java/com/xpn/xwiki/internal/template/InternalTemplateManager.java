@@ -103,6 +103,9 @@
 import org.xwiki.template.TemplateRequirementsException;
 
 import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.internal.debug.RequestProfile;
+import com.xpn.xwiki.internal.debug.RequestProfile.Metric;
 import com.xpn.xwiki.internal.skin.AbstractSkinResource;
 import com.xpn.xwiki.internal.skin.InternalSkinManager;
 import com.xpn.xwiki.internal.skin.WikiResource;
@@ -192,6 +195,9 @@ public class InternalTemplateManager implements Initializable, Disposable
     @Inject
     private CacheControl cacheControl;
 
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
     @Inject
     private Logger logger;
 
@@ -901,7 +907,16 @@ public void render(Template template, boolean inline, Writer writer) throws Exce
 
         AsyncRendererConfiguration configuration = configure(renderer, template, inline, false);
 
-        String result = this.asyncExecutor.render(renderer, configuration);
+        RequestProfile profile = RequestProfile.get(this.xcontextProvider.get());
+        long profileStart = profile != null ? profile.begin(Metric.TEMPLATE) : 0;
+        String result;
+        try {
+            result = this.asyncExecutor.render(renderer, configuration);
+        } finally {
+            if (profile != null) {
+                profile.end(Metric.TEMPLATE, profileStart);
+            }
+        }
 
         writer.append(result);
     }
@@ -986,7 +1001,16 @@ public Block execute(Template template, boolean inline) throws Exception
 
         AsyncRendererConfiguration configuration = configure(renderer, template, inline, true);
 
-        Block block = this.asyncExecutor.execute(renderer, configuration);
+        RequestProfile profile = RequestProfile.get(this.xcontextProvider.get());
+        long profileStart = profile != null ? profile.begin(Metric.TEMPLATE) : 0;
+        Block block;
+        try {
+            block = this.asyncExecutor.execute(renderer, configuration);
+        } finally {
+            if (profile != null) {
+                profile.end(Metric.TEMPLATE, profileStart);
+            }
+        }
 
         if (inline) {
             return block;
@@ -19,6 +19,7 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -54,6 +55,8 @@
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.doc.XWikiLink;
 import com.xpn.xwiki.doc.XWikiLock;
+import com.xpn.xwiki.internal.debug.RequestProfile;
+import com.xpn.xwiki.internal.debug.RequestProfile.Metric;
 import com.xpn.xwiki.internal.store.AbstractXWikiStore;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.web.Utils;
@@ -309,6 +312,43 @@ public void invalidate(XWikiDocument document)
         }
     }
 
+    /**
+     * Replace the cached version of a document with one received from another member of the cluster. Since the events
+     * are not always received in the order in which they were sent, the received document is only cached when it's
+     * more recent than the cached one, otherwise the cached document is simply invalidated.
+     *
+     * @param document the document received from another member of the cluster
+     * @return the previously cached version of the document, {@code null} if none was cached
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    public XWikiDocument refresh(XWikiDocument document)
+    {
+        String key = document.getKey();
+
+        XWikiDocument previousDocument = null;
+        if (getCache() != null) {
+            previousDocument = getCache().get(key);
+
+            // There is no way to know if the received document is outdated when nothing is cached
+            if (previousDocument != null && isMoreRecent(document, previousDocument)) {
+                cacheLoadedDocument(document, key);
+
+                return previousDocument;
+            }
+        }
+
+        invalidate(document);
+
+        return previousDocument;
+    }
+
+    private boolean isMoreRecent(XWikiDocument document, XWikiDocument cachedDocument)
+    {
+        return document.getRCSVersion().compareTo(cachedDocument.getRCSVersion()) > 0
+            && !document.getDate().before(cachedDocument.getDate());
+    }
+
     /**
      * @deprecated since 4.0M1, use {@link com.xpn.xwiki.doc.XWikiDocument#getKey()}
      */
@@ -367,61 +407,159 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
 
             LOGGER.debug("Starting checking for Document [{}] in cache", key);
 
-            XWikiDocument cachedoc;
-            try {
-                cachedoc = getCache().get(key);
-            } catch (Exception e) {
-                LOGGER.error("Failed to get document [{}] from cache", key, e);
+            XWikiDocument cachedoc = getCachedDocument(doc, key);
 
-                cachedoc = null;
-            }
+            RequestProfile profile = RequestProfile.get(context);
+            if (cachedoc == null) {
+                LOGGER.debug("Trying to get Document [{}] from persistent storage", key);
 
-            if (cachedoc != null) {
-                cachedoc.setFromCache(true);
+                long profileStart = profile != null ? profile.begin(Metric.DOCUMENT_CACHE_MISS) : 0;
+                try {
+                    cachedoc = this.store.loadXWikiDoc(doc, context);
+                } finally {
+                    if (profile != null) {
+                        profile.end(Metric.DOCUMENT_CACHE_MISS, profileStart);
+                    }
+                }
 
-                LOGGER.debug("Document [{}] was retrieved from cache", key);
-            } else {
-                Boolean result = getPageExistCache().get(key);
+                LOGGER.debug("Document [{}] was retrieved from persistent storage", key);
 
-                if (result == Boolean.FALSE) {
-                    LOGGER.debug("Document [{}] doesn't exist in cache, returning an empty one", key);
+                cacheLoadedDocument(cachedoc, key);
+            } else if (profile != null) {
+                profile.increment(Metric.DOCUMENT_CACHE_HIT);
+            }
 
-                    cachedoc = doc;
-                    cachedoc.setNew(true);
+            cachedoc.setStore(this);
+            LOGGER.debug("Ending checking for Document [{}] in cache", key);
 
-                    // Make sure to always return a document with an original version, even for one that does not exist.
-                    // Allow writing more generic code.
-                    cachedoc
-                        .setOriginalDocument(new XWikiDocument(cachedoc.getDocumentReference(), cachedoc.getLocale()));
-                } else {
-                    LOGGER.debug("Trying to get Document [{}] from persistent storage", key);
+            return cachedoc;
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
 
-                    cachedoc = this.store.loadXWikiDoc(doc, context);
+    @Override
+    public List<XWikiDocument> loadXWikiDocs(List<XWikiDocument> documents, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        // Make sure to use the right XWikiContext instance to avoid issues
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
 
-                    LOGGER.debug("Document [{}] was retrieved from persistent storage", key);
+        try {
+            List<XWikiDocument> result = new ArrayList<>(documents);
+
+            // Serve what we can from the cache
+            List<Integer> missingIndexes = new ArrayList<>();
+            List<XWikiDocument> missingDocuments = new ArrayList<>();
+            List<String> missingKeys = new ArrayList<>();
+            for (int i = 0; i < documents.size(); ++i) {
+                XWikiDocument doc = documents.get(i);
+                String key = getKey(doc, context);
+
+                XWikiDocument cachedoc = getCachedDocument(doc, key);
+                if (cachedoc != null) {
+                    result.set(i, cachedoc);
+                } else {
+                    missingIndexes.add(i);
+                    missingDocuments.add(doc);
+                    missingKeys.add(key);
+                }
+            }
 
-                    if (cachedoc.isNew()) {
-                        getPageExistCache().set(key, Boolean.FALSE);
-                    } else {
-                        getCache().set(key, cachedoc);
+            RequestProfile profile = RequestProfile.get(context);
+            if (profile != null) {
+                profile.increment(Metric.DOCUMENT_CACHE_HIT, documents.size() - missingDocuments.size());
+            }
 
-                        // Also update exist cache
-                        getPageExistCache().set(key, Boolean.TRUE);
+            // Load all the missing documents at once
+            if (!missingDocuments.isEmpty()) {
+                LOGGER.debug("Trying to get Documents [{}] from persistent storage", missingKeys);
+
+                List<XWikiDocument> loadedDocuments;
+                long profileStart =
+                    profile != null ? profile.begin(Metric.DOCUMENT_CACHE_MISS, missingDocuments.size()) : 0;
+                try {
+                    loadedDocuments = this.store.loadXWikiDocs(missingDocuments, context);
+                } finally {
+                    if (profile != null) {
+                        profile.end(Metric.DOCUMENT_CACHE_MISS, profileStart);
                     }
+                }
+
+                LOGGER.debug("Documents [{}] were retrieved from persistent storage", missingKeys);
+
+                for (int i = 0; i < loadedDocuments.size(); ++i) {
+                    XWikiDocument loadedDocument = loadedDocuments.get(i);
+
+                    cacheLoadedDocument(loadedDocument, missingKeys.get(i));
 
-                    LOGGER.debug("Document [{}] was put in cache", key);
+                    result.set(missingIndexes.get(i), loadedDocument);
                 }
             }
 
-            cachedoc.setStore(this);
-            LOGGER.debug("Ending checking for Document [{}] in cache", key);
+            for (XWikiDocument doc : result) {
+                doc.setStore(this);
+            }
 
-            return cachedoc;
+            return result;
         } finally {
             restoreExecutionXContext();
         }
     }
 
+    /**
+     * @param doc the document to load
+     * @param key the cache key of the document
+     * @return the document found in the cache, the passed document marked as new if the cache knows it does not exist
+     *         or {@code null} if the document needs to be loaded from the persistent storage
+     */
+    private XWikiDocument getCachedDocument(XWikiDocument doc, String key)
+    {
+        XWikiDocument cachedoc;
+        try {
+            cachedoc = getCache().get(key);
+        } catch (Exception e) {
+            LOGGER.error("Failed to get document [{}] from cache", key, e);
+
+            cachedoc = null;
+        }
+
+        if (cachedoc != null) {
+            cachedoc.setFromCache(true);
+
+            LOGGER.debug("Document [{}] was retrieved from cache", key);
+        } else {
+            Boolean result = getPageExistCache().get(key);
+
+            if (result == Boolean.FALSE) {
+                LOGGER.debug("Document [{}] doesn't exist in cache, returning an empty one", key);
+
+                cachedoc = doc;
+                cachedoc.setNew(true);
+
+                // Make sure to always return a document with an original version, even for one that does not exist.
+                // Allow writing more generic code.
+                cachedoc.setOriginalDocument(new XWikiDocument(cachedoc.getDocumentReference(), cachedoc.getLocale()));
+            }
+        }
+
+        return cachedoc;
+    }
+
+    private void cacheLoadedDocument(XWikiDocument doc, String key)
+    {
+        if (doc.isNew()) {
+            getPageExistCache().set(key, Boolean.FALSE);
+        } else {
+            getCache().set(key, doc);
+
+            // Also update exist cache
+            getPageExistCache().set(key, Boolean.TRUE);
+        }
+
+        LOGGER.debug("Document [{}] was put in cache", key);
+    }
+
     @Override
     public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
@@ -43,6 +43,8 @@
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.internal.debug.RequestProfile;
+import com.xpn.xwiki.internal.debug.RequestProfile.Metric;
 import com.xpn.xwiki.internal.store.AbstractXWikiStore;
 import com.xpn.xwiki.internal.store.hibernate.HibernateConfiguration;
 import com.xpn.xwiki.internal.store.hibernate.HibernateStore;
@@ -812,6 +814,8 @@ public <T> T execute(XWikiContext inputxcontext, boolean doCommit, HibernateCall
             if (monitor != null) {
                 monitor.startTimer(XWikiHibernateBaseStore.HINT);
             }
+            RequestProfile profile = RequestProfile.get(context);
+            long profileStart = profile != null ? profile.begin(Metric.DATABASE) : 0;
 
             try {
                 // Make sure Hibernate is initialized
@@ -850,6 +854,9 @@ public <T> T execute(XWikiContext inputxcontext, boolean doCommit, HibernateCall
                     // Stop the monitor
                     monitor.endTimer(XWikiHibernateBaseStore.HINT);
                 }
+                if (profile != null) {
+                    profile.end(Metric.DATABASE, profileStart);
+                }
             }
         } finally {
             restoreExecutionXContext();
@@ -31,6 +31,7 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -42,12 +43,14 @@
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.collections4.map.ReferenceMap;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -99,6 +102,8 @@
 import com.xpn.xwiki.doc.XWikiLink;
 import com.xpn.xwiki.doc.XWikiLock;
 import com.xpn.xwiki.doc.XWikiSpace;
+import com.xpn.xwiki.internal.debug.RequestProfile;
+import com.xpn.xwiki.internal.debug.RequestProfile.Metric;
 import com.xpn.xwiki.internal.store.hibernate.legacy.LegacySessionImplementor;
 import com.xpn.xwiki.monitor.api.MonitorPlugin;
 import com.xpn.xwiki.objects.BaseCollection;
@@ -106,9 +111,16 @@
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.BaseProperty;
 import com.xpn.xwiki.objects.BaseStringProperty;
+import com.xpn.xwiki.objects.DBStringListProperty;
+import com.xpn.xwiki.objects.DateProperty;
+import com.xpn.xwiki.objects.DoubleProperty;
+import com.xpn.xwiki.objects.FloatProperty;
+import com.xpn.xwiki.objects.IntegerProperty;
 import com.xpn.xwiki.objects.LargeStringProperty;
 import com.xpn.xwiki.objects.ListProperty;
+import com.xpn.xwiki.objects.LongProperty;
 import com.xpn.xwiki.objects.PropertyInterface;
+import com.xpn.xwiki.objects.StringListProperty;
 import com.xpn.xwiki.objects.StringProperty;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.objects.classes.PropertyClass;
@@ -127,6 +139,24 @@
 @Singleton
 public class XWikiHibernateStore extends XWikiHibernateBaseStore implements XWikiStoreInterface, Initializable
 {
+    /**
+     * The maximum number of identifiers passed to a single "in" clause when loading objects properties in batch (some
+     * databases, like Oracle, limit the size of the "in" clause to 1000 elements).
+     */
+    private static final int PROPERTIES_BATCH_SIZE = 1000;
+
+    private static final String IDS_PARAMETER = "ids";
+
+    /**
+     * The types of properties which are loaded in batch. A property which is not found in the table of its declared
+     * type (e.g. a {@link StringProperty} stored in the {@link LargeStringProperty} table) is simply missing from the
+     * results and loaded one by one.
+     */
+    private static final Set<String> BATCH_PROPERTY_TYPES = Set.of(IntegerProperty.class.getName(),
+        LongProperty.class.getName(), FloatProperty.class.getName(), DoubleProperty.class.getName(),
+        StringProperty.class.getName(), DateProperty.class.getName(), LargeStringProperty.class.getName(),
+        StringListProperty.class.getName(), DBStringListProperty.class.getName());
+
     @Inject
     private Logger logger;
 
@@ -1026,6 +1056,8 @@ public XWikiDocument loadXWikiDoc(XWikiDocument defaultDocument, XWikiContext in
         XWikiContext context = getExecutionXContext(inputxcontext, true);
 
         XWikiDocument doc = defaultDocument;
+        // The number of queries needed to load the document
+        int queryCount = 0;
         try {
             boolean bTransaction = true;
             MonitorPlugin monitor = Util.getMonitorPlugin(context);
@@ -1043,130 +1075,141 @@ public XWikiDocument loadXWikiDoc(XWikiDocument defaultDocument, XWikiContext in
                     session.setHibernateFlushMode(FlushMode.MANUAL);
 
                     doc = session.get(XWikiDocument.class, doc.getId());
+                    ++queryCount;
                     if (doc == null) {
-                        defaultDocument.setNew(true);
-
-                        // Make sure to always return a document with an original version, even for one that does not
-                        // exist.
-                        // Allow writing more generic code.
-                        defaultDocument.setOriginalDocument(
-                            new XWikiDocument(defaultDocument.getDocumentReference(), defaultDocument.getLocale()));
+                        initializeNewDocument(defaultDocument);
 
                         return defaultDocument;
                     }
 
-                    doc.setStore(this);
-                    doc.setNew(false);
-                    doc.setMostRecent(true);
-                    // Fix for XWIKI-1651
-                    doc.setDate(new Date(doc.getDate().getTime()));
-                    doc.setCreationDate(new Date(doc.getCreationDate().getTime()));
-                    doc.setContentUpdateDate(new Date(doc.getContentUpdateDate().getTime()));
+                    queryCount += initializeLoadedDocument(doc, context);
 
-                    // Loading the attachment list
-                    if (doc.hasElement(XWikiDocument.HAS_ATTACHMENTS)) {
-                        loadAttachmentList(doc, context, false);
+                    if (doc.hasElement(XWikiDocument.HAS_OBJECTS)) {
+                        queryCount += loadXWikiObjects(Collections.singletonList(doc), session, context);
                     }
 
-                    // TODO: handle the case where there are no xWikiClass and xWikiObject in the Database
-                    BaseClass bclass = new BaseClass();
-                    String cxml = doc.getXClassXML();
-                    if (cxml != null) {
-                        bclass.fromXML(cxml);
-                        doc.setXClass(bclass);
-                        bclass.setDirty(false);
+                    finalizeLoadedDocument(doc);
+
+                    if (bTransaction) {
+                        endTransaction(context, false);
                     }
+                } finally {
+                    if (bTransaction) {
+                        try {
+                            endTransaction(context, false);
+                        } catch (Exception e) {
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                Object[] args = {defaultDocument.getDocumentReferenceWithLocale()};
+                throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                    XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC, "Exception while reading document [{0}]", e,
+                    args);
+            } finally {
+                // End monitoring timer
+                if (monitor != null) {
+                    monitor.endTimer(HINT);
+                }
+            }
 
-                    // Store this XWikiClass in the context so that we can use it in case of recursive usage
-                    // of classes
-                    context.addBaseClass(bclass);
+            this.logger.debug("Loaded XWikiDocument: [{}] with [{}] queries", doc.getDocumentReferenceWithLocale(),
+                queryCount);
 
-                    if (doc.hasElement(XWikiDocument.HAS_OBJECTS)) {
-                        Query<BaseObject> query = session.createQuery(
-                            "from BaseObject as bobject where bobject.name = :name order by bobject.number",
-                            BaseObject.class);
-                        query.setParameter("name", doc.getFullName());
+            return doc;
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
 
-                        Iterator<BaseObject> it = query.list().iterator();
+    @Override
+    public List<XWikiDocument> loadXWikiDocs(List<XWikiDocument> defaultDocuments, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        if (defaultDocuments.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-                        EntityReference localGroupEntityReference = new EntityReference("XWikiGroups",
-                            EntityType.DOCUMENT, new EntityReference("XWiki", EntityType.SPACE));
-                        DocumentReference groupsDocumentReference = new DocumentReference(context.getWikiId(),
-                            localGroupEntityReference.getParent().getName(), localGroupEntityReference.getName());
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
 
-                        boolean hasGroups = false;
-                        while (it.hasNext()) {
-                            BaseObject object = it.next();
-                            DocumentReference classReference = object.getXClassReference();
+        List<XWikiDocument> documents = new ArrayList<>(defaultDocuments);
+        // The number of queries needed to load the documents
+        int queryCount = 0;
+        try {
+            boolean bTransaction = true;
+            MonitorPlugin monitor = Util.getMonitorPlugin(context);
+            try {
+                // Start monitoring timer
+                if (monitor != null) {
+                    monitor.startTimer(HINT);
+                }
+                checkHibernate(context);
 
-                            if (classReference == null) {
-                                continue;
-                            }
+                SessionFactory sfactory = null;
+                for (XWikiDocument defaultDocument : defaultDocuments) {
+                    sfactory = injectCustomMappingsInSessionFactory(defaultDocument, context);
+                }
+                bTransaction = bTransaction && beginTransaction(sfactory, context);
+                try {
+                    Session session = getSession(context);
+                    session.setHibernateFlushMode(FlushMode.MANUAL);
 
-                            // It seems to search before is case insensitive. And this would break the loading if we get
-                            // an
-                            // object which doesn't really belong to this document
-                            if (!object.getDocumentReference().equals(doc.getDocumentReference())) {
-                                continue;
-                            }
+                    // Load all the documents at once
+                    Map<Long, XWikiDocument> loadedDocuments = new HashMap<>();
+                    List<Long> ids = new ArrayList<>(
+                        defaultDocuments.stream().map(XWikiDocument::getId).collect(Collectors.toSet()));
+                    for (List<Long> batchIds : ListUtils.partition(ids, PROPERTIES_BATCH_SIZE)) {
+                        Query<XWikiDocument> query = session
+                            .createQuery("from XWikiDocument as doc where doc.id in (:ids)", XWikiDocument.class);
+                        query.setParameterList(IDS_PARAMETER, batchIds);
+                        for (XWikiDocument loadedDocument : query.list()) {
+                            loadedDocuments.put(loadedDocument.getId(), loadedDocument);
+                        }
+                        ++queryCount;
+                    }
 
-                            BaseObject newobject;
-                            if (classReference.equals(doc.getDocumentReference())) {
-                                newobject = bclass.newCustomClassInstance(true);
-                            } else {
-                                newobject = BaseClass.newCustomClassInstance(classReference, true, context);
-                            }
-                            if (newobject != null) {
-                                newobject.setId(object.getId());
-                                newobject.setXClassReference(object.getRelativeXClassReference());
-                                newobject.setDocumentReference(object.getDocumentReference());
-                                newobject.setNumber(object.getNumber());
-                                newobject.setGuid(object.getGuid());
-                                object = newobject;
-                            }
+                    // The documents for which objects need to be loaded (indexed by reference because objects are
+                    // matched with the document reference)
+                    Map<DocumentReference, XWikiDocument> documentsWithObjects = new LinkedHashMap<>();
+                    List<XWikiDocument> existingDocuments = new ArrayList<>();
+                    Set<Long> initializedIds = new HashSet<>();
+                    for (int i = 0; i < defaultDocuments.size(); ++i) {
+                        XWikiDocument defaultDocument = defaultDocuments.get(i);
+                        XWikiDocument doc = loadedDocuments.get(defaultDocument.getId());
+
+                        if (doc == null) {
+                            initializeNewDocument(defaultDocument);
+                        } else {
+                            // The same document might be asked several times
+                            if (initializedIds.add(doc.getId())) {
+                                queryCount += initializeLoadedDocument(doc, context);
+
+                                if (doc.hasElement(XWikiDocument.HAS_OBJECTS)) {
+                                    if (documentsWithObjects.containsKey(doc.getDocumentReference())) {
+                                        // Should not happen but several translations could be marked as having
+                                        // objects
+                                        queryCount +=
+                                            loadXWikiObjects(Collections.singletonList(doc), session, context);
+                                    } else {
+                                        documentsWithObjects.put(doc.getDocumentReference(), doc);
+                                    }
+                                }
 
-                            if (classReference.equals(groupsDocumentReference)) {
-                                // Groups objects are handled differently.
-                                hasGroups = true;
-                            } else {
-                                loadXWikiCollectionInternal(object, doc, context, false, true);
+                                existingDocuments.add(doc);
                             }
-                            doc.setXObject(object.getNumber(), object);
-                        }
 
-                        // AFAICT this was added as an emergency patch because loading of objects has proven
-                        // too slow and the objects which cause the most overhead are the XWikiGroups objects
-                        // as each group object (each group member) would otherwise cost 2 database queries.
-                        // This will do every group member in a single query.
-                        if (hasGroups) {
-                            Query<Object[]> query2 = session.createQuery(
-                                "select bobject.number, prop.value from StringProperty as prop,"
-                                    + "BaseObject as bobject where bobject.name = :name and bobject.className='XWiki.XWikiGroups' "
-                                    + "and bobject.id=prop.id.id and prop.id.name='member' order by bobject.number",
-                                Object[].class);
-                            query2.setParameter("name", doc.getFullName());
-
-                            Iterator<Object[]> it2 = query2.list().iterator();
-                            while (it2.hasNext()) {
-                                Object[] result = it2.next();
-                                Integer number = (Integer) result[0];
-                                String member = (String) result[1];
-                                BaseObject obj =
-                                    BaseClass.newCustomClassInstance(groupsDocumentReference, true, context);
-                                obj.setDocumentReference(doc.getDocumentReference());
-                                obj.setXClassReference(localGroupEntityReference);
-                                obj.setNumber(number.intValue());
-                                obj.setStringValue("member", member);
-                                doc.setXObject(obj.getNumber(), obj);
-                            }
+                            documents.set(i, doc);
                         }
                     }
 
-                    doc.setContentDirty(false);
-                    doc.setMetaDataDirty(false);
+                    if (!documentsWithObjects.isEmpty()) {
+                        queryCount +=
+                            loadXWikiObjects(new ArrayList<>(documentsWithObjects.values()), session, context);
+                    }
 
-                    // We need to ensure that the loaded document becomes the original document
-                    doc.setOriginalDocument(doc.clone());
+                    for (XWikiDocument doc : existingDocuments) {
+                        finalizeLoadedDocument(doc);
+                    }
 
                     if (bTransaction) {
                         endTransaction(context, false);
@@ -1180,10 +1223,11 @@ public XWikiDocument loadXWikiDoc(XWikiDocument defaultDocument, XWikiContext in
                     }
                 }
             } catch (Exception e) {
-                Object[] args = {defaultDocument.getDocumentReferenceWithLocale()};
+                Object[] args = {defaultDocuments.stream().map(XWikiDocument::getDocumentReferenceWithLocale)
+                    .collect(Collectors.toList())};
                 throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
-                    XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC, "Exception while reading document [{0}]", e,
-                    args);
+                    XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC, "Exception while reading documents [{0}]",
+                    e, args);
             } finally {
                 // End monitoring timer
                 if (monitor != null) {
@@ -1191,14 +1235,186 @@ public XWikiDocument loadXWikiDoc(XWikiDocument defaultDocument, XWikiContext in
                 }
             }
 
-            this.logger.debug("Loaded XWikiDocument: [{}]", doc.getDocumentReferenceWithLocale());
+            this.logger.debug("Loaded [{}] XWikiDocuments with [{}] queries", documents.size(), queryCount);
 
-            return doc;
+            return documents;
         } finally {
             restoreExecutionXContext();
         }
     }
 
+    private void initializeNewDocument(XWikiDocument defaultDocument)
+    {
+        defaultDocument.setNew(true);
+
+        // Make sure to always return a document with an original version, even for one that does not exist.
+        // Allow writing more generic code.
+        defaultDocument
+            .setOriginalDocument(new XWikiDocument(defaultDocument.getDocumentReference(), defaultDocument.getLocale()));
+    }
+
+    /**
+     * Initialize a document freshly loaded from the database and load its attachments and class.
+     * 
+     * @return the number of executed queries
+     */
+    private int initializeLoadedDocument(XWikiDocument doc, XWikiContext context) throws XWikiException
+    {
+        int queryCount = 0;
+
+        doc.setStore(this);
+        doc.setNew(false);
+        doc.setMostRecent(true);
+        // Fix for XWIKI-1651
+        doc.setDate(new Date(doc.getDate().getTime()));
+        doc.setCreationDate(new Date(doc.getCreationDate().getTime()));
+        doc.setContentUpdateDate(new Date(doc.getContentUpdateDate().getTime()));
+
+        // Loading the attachment list
+        if (doc.hasElement(XWikiDocument.HAS_ATTACHMENTS)) {
+            loadAttachmentList(doc, context, false);
+            ++queryCount;
+        }
+
+        // TODO: handle the case where there are no xWikiClass and xWikiObject in the Database
+        BaseClass bclass = new BaseClass();
+        String cxml = doc.getXClassXML();
+        if (cxml != null) {
+            bclass.fromXML(cxml);
+            doc.setXClass(bclass);
+            bclass.setDirty(false);
+        }
+
+        // Store this XWikiClass in the context so that we can use it in case of recursive usage
+        // of classes
+        context.addBaseClass(bclass);
+
+        return queryCount;
+    }
+
+    private void finalizeLoadedDocument(XWikiDocument doc)
+    {
+        doc.setContentDirty(false);
+        doc.setMetaDataDirty(false);
+
+        // We need to ensure that the loaded document becomes the original document
+        doc.setOriginalDocument(doc.clone());
+    }
+
+    /**
+     * Load the objects of the passed documents.
+     * 
+     * @param documents the documents for which to load the objects (they must all have different references)
+     * @return the number of executed queries
+     */
+    private int loadXWikiObjects(List<XWikiDocument> documents, Session session, XWikiContext context)
+        throws XWikiException
+    {
+        int queryCount = 0;
+
+        Map<DocumentReference, XWikiDocument> documentsByReference = new HashMap<>();
+        for (XWikiDocument doc : documents) {
+            documentsByReference.put(doc.getDocumentReference(), doc);
+        }
+
+        EntityReference localGroupEntityReference = new EntityReference("XWikiGroups", EntityType.DOCUMENT,
+            new EntityReference("XWiki", EntityType.SPACE));
+        DocumentReference groupsDocumentReference = new DocumentReference(context.getWikiId(),
+            localGroupEntityReference.getParent().getName(), localGroupEntityReference.getName());
+
+        // The objects for which the properties can be loaded in batch
+        List<BaseObject> batchObjects = new ArrayList<>();
+        // The documents containing groups objects
+        List<XWikiDocument> groupsDocuments = new ArrayList<>();
+
+        List<String> names = documents.stream().map(XWikiDocument::getFullName).collect(Collectors.toList());
+        for (List<String> batchNames : ListUtils.partition(names, PROPERTIES_BATCH_SIZE)) {
+            Query<BaseObject> query = session.createQuery(
+                "from BaseObject as bobject where bobject.name in (:names) order by bobject.name, bobject.number",
+                BaseObject.class);
+            query.setParameterList("names", batchNames);
+
+            Iterator<BaseObject> it = query.list().iterator();
+            ++queryCount;
+
+            while (it.hasNext()) {
+                BaseObject object = it.next();
+                DocumentReference classReference = object.getXClassReference();
+
+                if (classReference == null) {
+                    continue;
+                }
+
+                // It seems to search before is case insensitive. And this would break the loading if we get an
+                // object which doesn't really belong to this document
+                XWikiDocument doc = documentsByReference.get(object.getDocumentReference());
+                if (doc == null) {
+                    continue;
+                }
+
+                BaseObject newobject;
+                if (classReference.equals(doc.getDocumentReference())) {
+                    newobject = doc.getXClass().newCustomClassInstance(true);
+                } else {
+                    newobject = BaseClass.newCustomClassInstance(classReference, true, context);
+                }
+                if (newobject != null) {
+                    newobject.setId(object.getId());
+                    newobject.setXClassReference(object.getRelativeXClassReference());
+                    newobject.setDocumentReference(object.getDocumentReference());
+                    newobject.setNumber(object.getNumber());
+                    newobject.setGuid(object.getGuid());
+                    object = newobject;
+                }
+
+                if (classReference.equals(groupsDocumentReference)) {
+                    // Groups objects are handled differently.
+                    if (!groupsDocuments.contains(doc)) {
+                        groupsDocuments.add(doc);
+                    }
+                } else if (hasCustomMapping(object, doc, context)) {
+                    loadXWikiCollectionInternal(object, doc, context, false, true);
+                } else {
+                    batchObjects.add(object);
+                }
+                doc.setXObject(object.getNumber(), object);
+            }
+        }
+
+        if (!batchObjects.isEmpty()) {
+            queryCount += loadXWikiObjectsProperties(batchObjects, documentsByReference, session, context);
+        }
+
+        // AFAICT this was added as an emergency patch because loading of objects has proven
+        // too slow and the objects which cause the most overhead are the XWikiGroups objects
+        // as each group object (each group member) would otherwise cost 2 database queries.
+        // This will do every group member in a single query.
+        for (XWikiDocument doc : groupsDocuments) {
+            Query<Object[]> query2 = session.createQuery(
+                "select bobject.number, prop.value from StringProperty as prop,"
+                    + "BaseObject as bobject where bobject.name = :name and bobject.className='XWiki.XWikiGroups' "
+                    + "and bobject.id=prop.id.id and prop.id.name='member' order by bobject.number",
+                Object[].class);
+            query2.setParameter("name", doc.getFullName());
+
+            Iterator<Object[]> it2 = query2.list().iterator();
+            ++queryCount;
+            while (it2.hasNext()) {
+                Object[] result = it2.next();
+                Integer number = (Integer) result[0];
+                String member = (String) result[1];
+                BaseObject obj = BaseClass.newCustomClassInstance(groupsDocumentReference, true, context);
+                obj.setDocumentReference(doc.getDocumentReference());
+                obj.setXClassReference(localGroupEntityReference);
+                obj.setNumber(number.intValue());
+                obj.setStringValue("member", member);
+                doc.setXObject(obj.getNumber(), obj);
+            }
+        }
+
+        return queryCount;
+    }
+
     @Override
     public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
@@ -1579,53 +1795,7 @@ private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument d
                             continue;
                         }
                         String classType = (String) result[1];
-                        BaseProperty property = null;
-
-                        try {
-                            property = (BaseProperty) Class.forName(classType).newInstance();
-                            property.setObject(object);
-                            property.setName(name);
-                            loadXWikiProperty(property, context, false);
-                        } catch (Exception e) {
-                            // WORKAROUND IN CASE OF MIXMATCH BETWEEN STRING AND LARGESTRING
-                            try {
-                                if (property instanceof StringProperty) {
-                                    LargeStringProperty property2 = new LargeStringProperty();
-                                    property2.setObject(object);
-                                    property2.setName(name);
-                                    loadXWikiProperty(property2, context, false);
-                                    property.setValue(property2.getValue());
-
-                                    if (bclass != null) {
-                                        if (bclass.get(name) instanceof TextAreaClass) {
-                                            property = property2;
-                                        }
-                                    }
-
-                                } else if (property instanceof LargeStringProperty) {
-                                    StringProperty property2 = new StringProperty();
-                                    property2.setObject(object);
-                                    property2.setName(name);
-                                    loadXWikiProperty(property2, context, false);
-                                    property.setValue(property2.getValue());
-
-                                    if (bclass != null) {
-                                        if (bclass.get(name) instanceof StringClass) {
-                                            property = property2;
-                                        }
-                                    }
-                                } else {
-                                    throw e;
-                                }
-                            } catch (Throwable e2) {
-                                Object[] args = {object.getName(), object.getClass(),
-                                    Integer.valueOf(object.getNumber() + ""), name};
-                                throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
-                                    XWikiException.ERROR_XWIKI_STORE_HIBERNATE_LOADING_OBJECT,
-                                    "Exception while loading object [{0}] of class [{1}], number [{2}] and property [{3}]",
-                                    e, args);
-                            }
-                        }
+                        BaseProperty property = loadXWikiProperty(object, bclass, name, classType, context);
 
                         object.addField(name, property);
                     }
@@ -1654,6 +1824,240 @@ private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument d
 
     }
 
+    private boolean hasCustomMapping(BaseObject object, XWikiDocument doc, XWikiContext context)
+    {
+        if (!context.getWiki().hasCustomMappings()) {
+            return false;
+        }
+
+        BaseClass bclass = getXClass(object, doc, context);
+
+        return bclass != null && bclass.hasCustomMapping();
+    }
+
+    private BaseClass getXClass(BaseCollection object, XWikiDocument doc, XWikiContext context)
+    {
+        if (!object.getXClassReference().equals(object.getDocumentReference())) {
+            return object.getXClass(context);
+        }
+
+        // We need to get it from the document otherwise we will go in an endless loop
+        return doc.getXClass();
+    }
+
+    /**
+     * Load the properties of all the passed objects with a few queries: one to list the properties of all the objects
+     * and then one per type of property (i.e. per property table), instead of one query per object and one per
+     * property.
+     * 
+     * @param objects the objects for which to load the properties (without custom mapping)
+     * @param documents the documents holding the objects, indexed by reference
+     * @param session the current session
+     * @param context the XWiki context
+     * @return the number of executed queries
+     * @throws XWikiException when failing to load a property
+     */
+    private int loadXWikiObjectsProperties(List<BaseObject> objects, Map<DocumentReference, XWikiDocument> documents,
+        Session session, XWikiContext context) throws XWikiException
+    {
+        RequestProfile profile = RequestProfile.get(context);
+        long start = profile != null ? profile.begin(Metric.PROPERTIES_BATCH, objects.size()) : 0;
+        try {
+            return loadXWikiObjectsPropertiesInternal(objects, documents, session, profile, context);
+        } finally {
+            if (profile != null) {
+                profile.end(Metric.PROPERTIES_BATCH, start);
+            }
+        }
+    }
+
+    private int loadXWikiObjectsPropertiesInternal(List<BaseObject> objects,
+        Map<DocumentReference, XWikiDocument> documents, Session session, RequestProfile profile, XWikiContext context)
+        throws XWikiException
+    {
+        int queryCount = 0;
+
+        Map<Long, BaseObject> objectsById = new HashMap<>();
+        for (BaseObject object : objects) {
+            objectsById.put(object.getId(), object);
+        }
+
+        // List the properties of all the objects
+        List<Object[]> propertiesList = new ArrayList<>();
+        Map<String, Set<Long>> idsByType = new HashMap<>();
+        for (List<Long> ids : ListUtils.partition(new ArrayList<>(objectsById.keySet()), PROPERTIES_BATCH_SIZE)) {
+            Query<Object[]> query = session.createQuery(
+                "select prop.id.id, prop.name, prop.classType from BaseProperty as prop where prop.id.id in (:ids)",
+                Object[].class);
+            query.setParameterList(IDS_PARAMETER, ids);
+            for (Object[] result : query.list()) {
+                propertiesList.add(result);
+                idsByType.computeIfAbsent((String) result[2], k -> new HashSet<>()).add((Long) result[0]);
+            }
+            ++queryCount;
+        }
+
+        // Load the properties stored in the same table all at once
+        Map<String, BaseProperty> loadedProperties = new HashMap<>();
+        if (!idsByType.isEmpty()) {
+            queryCount += loadXWikiProperties(idsByType, loadedProperties, session);
+        }
+
+        // Add the properties to the objects, in the order in which they were listed
+        for (Object[] result : propertiesList) {
+            BaseObject object = objectsById.get(result[0]);
+            String name = (String) result[1];
+
+            BaseProperty property = loadedProperties.get(getPropertyKey((Long) result[0], name));
+            if (property != null) {
+                property.setObject(object);
+            } else {
+                // Fallback on the property by property loading (e.g. for a property stored in the wrong table)
+                property = loadXWikiProperty(object,
+                    getXClass(object, documents.get(object.getDocumentReference()), context), name, (String) result[2],
+                    context);
+                ++queryCount;
+                if (profile != null) {
+                    profile.increment(Metric.PROPERTY_FALLBACK);
+                }
+            }
+
+            object.addField(name, property);
+        }
+
+        return queryCount;
+    }
+
+    /**
+     * Load the properties of each type with a few queries. Only the property types of the standard mapping are loaded
+     * that way, the other ones are loaded one by one.
+     * 
+     * @return the number of executed queries
+     */
+    private int loadXWikiProperties(Map<String, Set<Long>> idsByType, Map<String, BaseProperty> properties,
+        Session session)
+    {
+        int queryCount = 0;
+
+        for (Map.Entry<String, Set<Long>> entry : idsByType.entrySet()) {
+            if (isBatchLoadable(entry.getKey())) {
+                queryCount += loadXWikiProperties(entry.getKey(), entry.getValue(), properties, session);
+            }
+        }
+
+        return queryCount;
+    }
+
+    /**
+     * @param classType the type of property, as stored in the database
+     * @return {@code true} if the properties of the passed type can be loaded in batch, i.e. if it's a type of the
+     *         standard mapping which is actually mapped (the type comes from the database so it's also a protection
+     *         against HQL injection)
+     */
+    private boolean isBatchLoadable(String classType)
+    {
+        return BATCH_PROPERTY_TYPES.contains(classType) && this.store.getConfigurationMetadata() != null
+            && this.store.getConfigurationMetadata().getEntityBinding(classType) != null;
+    }
+
+    private int loadXWikiProperties(String classType, Collection<Long> ids, Map<String, BaseProperty> properties,
+        Session session)
+    {
+        int queryCount = 0;
+
+        String statement;
+        if (DBStringListProperty.class.getName().equals(classType)) {
+            // Fetch the list items with the property instead of using one query per property
+            statement = "select distinct prop from " + classType + " as prop left join fetch prop.list";
+        } else {
+            statement = "select prop from " + classType + " as prop";
+        }
+        // Filtering on the type is needed because some types are stored in the same table
+        statement += " where prop.id.id in (:ids) and prop.classType = :classType";
+
+        for (List<Long> batchIds : ListUtils.partition(new ArrayList<>(ids), PROPERTIES_BATCH_SIZE)) {
+            Query<BaseProperty> query = session.createQuery(statement, BaseProperty.class);
+            query.setParameterList(IDS_PARAMETER, batchIds);
+            query.setParameter("classType", classType);
+            for (BaseProperty property : query.list()) {
+                // In Oracle, empty string are converted to NULL. Since an undefined property is not found at all,
+                // it is safe to assume that a retrieved NULL value should actually be an empty string.
+                if (property instanceof BaseStringProperty && ((BaseStringProperty) property).getValue() == null) {
+                    ((BaseStringProperty) property).setValue("");
+                }
+                property.setValueDirty(false);
+
+                properties.put(getPropertyKey(property.getId(), property.getName()), property);
+            }
+            ++queryCount;
+        }
+
+        return queryCount;
+    }
+
+    private String getPropertyKey(long id, String name)
+    {
+        return id + ":" + name;
+    }
+
+    /**
+     * Load a property of an object, working around a mismatch between the declared type of the property and the table
+     * in which it's actually stored (between {@link StringProperty} and {@link LargeStringProperty}).
+     */
+    private BaseProperty loadXWikiProperty(BaseCollection object, BaseClass bclass, String name, String classType,
+        XWikiContext context) throws XWikiException
+    {
+        BaseProperty property = null;
+
+        try {
+            property = (BaseProperty) Class.forName(classType).newInstance();
+            property.setObject(object);
+            property.setName(name);
+            loadXWikiProperty(property, context, false);
+        } catch (Exception e) {
+            // WORKAROUND IN CASE OF MIXMATCH BETWEEN STRING AND LARGESTRING
+            try {
+                if (property instanceof StringProperty) {
+                    LargeStringProperty property2 = new LargeStringProperty();
+                    property2.setObject(object);
+                    property2.setName(name);
+                    loadXWikiProperty(property2, context, false);
+                    property.setValue(property2.getValue());
+
+                    if (bclass != null) {
+                        if (bclass.get(name) instanceof TextAreaClass) {
+                            property = property2;
+                        }
+                    }
+
+                } else if (property instanceof LargeStringProperty) {
+                    StringProperty property2 = new StringProperty();
+                    property2.setObject(object);
+                    property2.setName(name);
+                    loadXWikiProperty(property2, context, false);
+                    property.setValue(property2.getValue());
+
+                    if (bclass != null) {
+                        if (bclass.get(name) instanceof StringClass) {
+                            property = property2;
+                        }
+                    }
+                } else {
+                    throw e;
+                }
+            } catch (Throwable e2) {
+                Object[] args = {object.getName(), object.getClass(),
+                    Integer.valueOf(object.getNumber() + ""), name};
+                throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                    XWikiException.ERROR_XWIKI_STORE_HIBERNATE_LOADING_OBJECT,
+                    "Exception while loading object [{0}] of class [{1}], number [{2}] and property [{3}]",
+                    e, args);
+            }
+        }
+
+        return property;
+    }
+
     /**
      * @deprecated This is internal to XWikiHibernateStore and may be removed in the future.
      */
@@ -291,7 +291,9 @@ public void updateXWikiDocArchive(XWikiDocument doc, boolean bTransaction, XWiki
         try {
             RevisionCriteria criteria = new RevisionCriteria();
             criteria.setIncludeMinorVersions(true);
-            criteria.setRange(RangeFactory.getLAST());
+            // Load enough versions to know if the current latest version should be kept as a full version
+            int nodesPerFull = XWikiDocumentArchive.getNodesPerFull(context);
+            criteria.setRange(RangeFactory.createTailRange(Math.max(1, nodesPerFull)));
 
             XWikiDocumentArchive archiveDoc = getXWikiDocumentArchive(doc, criteria, context);
             UserReferenceSerializer<String> userReferenceSerializer = Utils.getComponent(
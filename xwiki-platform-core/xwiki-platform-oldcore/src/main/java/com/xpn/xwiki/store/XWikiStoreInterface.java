@@ -19,12 +19,14 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.AttachmentReference;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.query.QueryManager;
+import org.xwiki.stability.Unstable;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -59,6 +61,30 @@ default void renameXWikiDoc(XWikiDocument doc, DocumentReference newReference, X
 
     XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
+    /**
+     * Load several documents at once. The default implementation loads the documents one by one but implementations
+     * are encouraged to use set-based operations.
+     *
+     * @param documents the documents to load, all located in the current wiki (usually new instances holding only the
+     *            reference and the locale of the document to load)
+     * @param context the current context
+     * @return the loaded documents, in the same order as the passed documents (the passed instance marked as new is
+     *         returned for a document which does not exist)
+     * @throws XWikiException when failing to load the documents
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    default List<XWikiDocument> loadXWikiDocs(List<XWikiDocument> documents, XWikiContext context)
+        throws XWikiException
+    {
+        List<XWikiDocument> loadedDocuments = new ArrayList<>(documents.size());
+        for (XWikiDocument document : documents) {
+            loadedDocuments.add(loadXWikiDoc(document, context));
+        }
+
+        return loadedDocuments;
+    }
+
     void deleteXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
     List<String> getClassList(XWikiContext context) throws XWikiException;
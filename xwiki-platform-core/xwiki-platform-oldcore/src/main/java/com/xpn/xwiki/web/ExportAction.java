@@ -253,6 +253,8 @@ private String exportXAR(XWikiContext context) throws XWikiException, IOExceptio
                 inputProperties.setWithWikiAttachmentsRevisions(!attachmentJRCS);
                 inputProperties.setWithWikiAttachmentJRCSRevisions(attachmentJRCS);
             }
+            inputProperties.setBatchSize((int) context.getWiki().ParamAsLong("xwiki.action.export.xar.batchSize",
+                inputProperties.getBatchSize()));
 
             EntityReferenceSet entities = new EntityReferenceSet();
 
@@ -280,6 +282,8 @@ private String exportXAR(XWikiContext context) throws XWikiException, IOExceptio
                 if (optimized) {
                     xarProperties.setOptimized(optimized);
                 }
+                xarProperties.setCompressionThreads(
+                    (int) context.getWiki().ParamAsLong("xwiki.action.export.xar.compressionThreads", 1));
 
                 XWikiResponse response = context.getResponse();
 
@@ -52,6 +52,8 @@
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.internal.debug.RequestProfile;
+import com.xpn.xwiki.internal.debug.RequestProfiler;
 import com.xpn.xwiki.plugin.fileupload.FileUploadPlugin;
 import com.xpn.xwiki.util.Util;
 
@@ -195,6 +197,12 @@ public static void parseTemplate(String template, boolean write, XWikiContext co
         }
 
         if (!context.isFinished()) {
+            // Expose what the request spent its time on (the profile is only there when the request is profiled)
+            RequestProfile profile = RequestProfile.get(context);
+            if (profile != null && getComponent(RequestProfiler.class).isAllowed(context)) {
+                response.setHeader("Server-Timing", profile.toServerTiming());
+            }
+
             if (context.getResponse() instanceof XWikiServletResponse) {
                 // Set the content length to the number of bytes, not the
                 // string length, so as to handle multi-byte encodings
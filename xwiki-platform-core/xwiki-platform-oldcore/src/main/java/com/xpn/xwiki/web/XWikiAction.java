@@ -100,6 +100,8 @@
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.DocumentRevisionProvider;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.debug.RequestProfile;
+import com.xpn.xwiki.internal.debug.RequestProfiler;
 import com.xpn.xwiki.internal.web.LegacyAction;
 import com.xpn.xwiki.monitor.api.MonitorPlugin;
 import com.xpn.xwiki.objects.BaseObject;
@@ -184,6 +186,8 @@ public abstract class XWikiAction implements LegacyAction
 
     private JobProgressManager progress;
 
+    private RequestProfiler profiler;
+
     private ScriptContextManager scriptContextManager;
 
     private EntityNameValidationManager entityNameValidationManager;
@@ -286,6 +290,15 @@ protected JobProgressManager getProgress()
         return this.progress;
     }
 
+    private RequestProfiler getProfiler()
+    {
+        if (this.profiler == null) {
+            this.profiler = Utils.getComponent(RequestProfiler.class);
+        }
+
+        return this.profiler;
+    }
+
     protected EntityNameValidationManager getEntityNameValidationManager()
     {
         if (this.entityNameValidationManager == null) {
@@ -399,6 +412,8 @@ public void execute(XWikiContext context) throws Exception
 
         boolean debug = StringUtils.equals(context.getRequest().get("debug"), "true");
 
+        RequestProfile profile = getProfiler().start(false, context);
+
         String sasync = context.getRequest().get("async");
 
         try {
@@ -549,6 +564,11 @@ public void execute(XWikiContext context) throws Exception
                     return;
                 }
 
+                // The current user is known at this point, profile the request on demand only if allowed
+                if (debug && profile == null) {
+                    profile = getProfiler().start(true, context);
+                }
+
                 // Start monitoring timer
                 monitor = (MonitorPlugin) xwiki.getPlugin("monitor", context);
                 if (monitor != null) {
@@ -776,6 +796,11 @@ public void execute(XWikiContext context) throws Exception
                 this.observation.removeListener(actionProgress.getName());
             }
 
+            // Stop profiling
+            if (profile != null) {
+                getProfiler().stop(profile, context);
+            }
+
             if (fileupload != null) {
                 fileupload.cleanFileList(context);
             }
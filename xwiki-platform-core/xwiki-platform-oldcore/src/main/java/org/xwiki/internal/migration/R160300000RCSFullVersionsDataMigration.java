@@ -0,0 +1,102 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.internal.migration;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
+import com.xpn.xwiki.store.migration.DataMigrationException;
+import com.xpn.xwiki.store.migration.XWikiDBVersion;
+
+/**
+ * Queue the documents with a long history so that full versions are added to their archive in the background (see
+ * {@link RCSFullVersionsTaskConsumer}). Before 16.3.0RC1 the full versions were not kept when saving a document
+ * because only the latest version of the archive was loaded, so only the latest version was stored as a full version.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+@Component
+@Named("R160300000RCSFullVersions")
+@Singleton
+public class R160300000RCSFullVersionsDataMigration extends AbstractDocumentsMigration
+{
+    private static final String NODES = "nodes";
+
+    private static final String HQL_QUERY = "select doc.fullName, doc.language from " + XWikiDocument.class.getName()
+        + " doc where doc.id in (select rcs.id.docId from " + XWikiRCSNodeInfo.class.getName()
+        + " rcs group by rcs.id.docId having count(*) > :" + NODES + ")";
+
+    @Override
+    public String getDescription()
+    {
+        return "Add the missing full versions to the history of the documents.";
+    }
+
+    @Override
+    public XWikiDBVersion getVersion()
+    {
+        return new XWikiDBVersion(160300000);
+    }
+
+    @Override
+    protected String getTaskType()
+    {
+        return RCSFullVersionsTaskConsumer.HINT;
+    }
+
+    @Override
+    protected List<DocumentReference> selectDocuments() throws DataMigrationException
+    {
+        int nodesPerFull = XWikiDocumentArchive.getNodesPerFull(getXWikiContext());
+        if (nodesPerFull <= 0) {
+            // Only the latest version is expected to be a full version
+            return List.of();
+        }
+
+        try {
+            List<Object[]> documents = getStore().executeRead(getXWikiContext(),
+                session -> session.createQuery(HQL_QUERY, Object[].class).setParameter(NODES, (long) nodesPerFull)
+                    .getResultList());
+
+            return documents.stream().flatMap(array -> {
+                // Oracle returns null for the empty string. Therefore, we need to convert back the null value to the
+                // empty string.
+                String locale = Objects.toString(array[1], "");
+                return resolveDocumentReference(String.valueOf(array[0]), locale).stream();
+            }).collect(Collectors.toList());
+        } catch (XWikiException e) {
+            throw new DataMigrationException(String.format(
+                "Failed to retrieve the documents with a long history in wiki [%s].", getXWikiContext().getWikiId()),
+                e);
+        }
+    }
+}
@@ -56,6 +56,7 @@
 import com.xpn.xwiki.user.api.XWikiRightService;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -173,6 +174,82 @@ void removeObjectDoesntCauseDataLoss() throws XWikiException
         }
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void readObjectsDoesntCloneDocument() throws XWikiException
+    {
+        XWikiDocument xdoc = new XWikiDocument(new DocumentReference("wiki", "Space", "Page"));
+        xdoc.getXClass().addTextField("key", "Key", 30);
+        xdoc.getXClass().addStaticListField("list", "List", 5, true, "a|b|c");
+        BaseObject xobject = xdoc.newXObject(xdoc.getDocumentReference(), this.oldcore.getXWikiContext());
+        xobject.setStringValue("key", "value");
+        xobject.setStringListValue("list", List.of("a", "b"));
+
+        Document adoc = xdoc.newDocument(this.oldcore.getXWikiContext());
+
+        Object object = adoc.getObject(xdoc.getPrefixedFullName());
+        assertEquals("value", object.getValue("key"));
+        assertSame(xdoc, adoc.doc);
+        assertSame(xobject, object.getBaseObject());
+
+        // Reading a mutable value stops the sharing of the document
+        ((List<String>) object.getValue("list")).add("c");
+        assertNotSame(xdoc, adoc.doc);
+        assertEquals(List.of("a", "b"), xobject.getListValue("list"));
+
+        // Modifying the object only impacts the copy of the document
+        object.set("key", "other value");
+        assertEquals("value", xobject.getStringValue("key"));
+        assertEquals("other value", object.getValue("key"));
+        assertEquals("other value", adoc.getObject(xdoc.getPrefixedFullName()).getValue("key"));
+        assertEquals(List.of("a", "b", "c"), adoc.getObject(xdoc.getPrefixedFullName()).getValue("list"));
+    }
+
+    @Test
+    void modifyObjectFromSharedDocument() throws XWikiException
+    {
+        XWikiDocument xdoc = new XWikiDocument(new DocumentReference("wiki", "Space", "Page"));
+        xdoc.getXClass().addTextField("key", "Key", 30);
+        BaseObject xobject = xdoc.newXObject(xdoc.getDocumentReference(), this.oldcore.getXWikiContext());
+        xobject.setStringValue("key", "value");
+
+        Document adoc = xdoc.newDocument(this.oldcore.getXWikiContext());
+
+        Object object = adoc.getObject(xdoc.getPrefixedFullName());
+        Property property = object.getProperty("key");
+        assertSame(xdoc, adoc.doc);
+
+        object.set("key", "other value");
+
+        assertNotSame(xdoc, adoc.doc);
+        assertEquals("value", xobject.getStringValue("key"));
+        assertSame(adoc.doc.getXObject(xdoc.getDocumentReference()), object.getBaseObject());
+        assertEquals("other value", property.getValue());
+    }
+
+    @Test
+    void modifyObjectRemovedFromSharedDocument() throws XWikiException
+    {
+        XWikiDocument xdoc = new XWikiDocument(new DocumentReference("wiki", "Space", "Page"));
+        xdoc.getXClass().addTextField("key", "Key", 30);
+        BaseObject xobject = xdoc.newXObject(xdoc.getDocumentReference(), this.oldcore.getXWikiContext());
+        xobject.setStringValue("key", "value");
+
+        Document adoc = xdoc.newDocument(this.oldcore.getXWikiContext());
+
+        Object object = adoc.getObject(xdoc.getPrefixedFullName());
+        assertTrue(adoc.removeObjects(xdoc.getPrefixedFullName()));
+
+        object.set("key", "other value");
+
+        // The shared object is not modified
+        assertEquals("value", xobject.getStringValue("key"));
+        assertSame(xobject, xdoc.getXObject(xdoc.getDocumentReference()));
+        assertNotSame(xobject, object.getBaseObject());
+        assertEquals("other value", object.getValue("key"));
+        assertNull(adoc.getObject(xdoc.getPrefixedFullName()));
+    }
+
     @Test
     void saveAsAuthorUsesGuestIfDroppedPermissions() throws XWikiException
     {
@@ -19,9 +19,11 @@
  */
 package com.xpn.xwiki.doc;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -31,6 +33,9 @@
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.rcs.XWikiPatch;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeContent;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeId;
 import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
 import com.xpn.xwiki.test.MockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
@@ -413,6 +418,75 @@ void verifyDiffAndFullRevisionAlgorithm() throws Exception
         assertFalse(archive.getNode(new Version(6, 1)).isDiff());
     }
 
+    @Test
+    void keepFullVersionWithPartialArchive() throws Exception
+    {
+        XWikiDocument doc = new XWikiDocument(new DocumentReference("Test", "Test", "Test"));
+        String author = "XWiki.some author";
+
+        // Only the 5 latest versions are loaded when updating the archive of a document, and 1.6 is a full version
+        XWikiDocumentArchive archive = new XWikiDocumentArchive(doc.getId());
+        archive.setNodes(createNodes(doc, 5, 9, 6));
+
+        addRevisionToHistory(archive, doc, "content 2.1", author, "2.1");
+        assertTrue(archive.getNode(new Version(1, 9)).isDiff());
+        assertFalse(archive.getNode(new Version(2, 1)).isDiff());
+
+        // No full version in the 5 latest versions
+        archive = new XWikiDocumentArchive(doc.getId());
+        archive.setNodes(createNodes(doc, 5, 9, -1));
+
+        addRevisionToHistory(archive, doc, "content 2.1", author, "2.1");
+        assertFalse(archive.getNode(new Version(1, 9)).isDiff());
+        assertFalse(archive.getNode(new Version(2, 1)).isDiff());
+    }
+
+    @Test
+    void updateFullVersions() throws Exception
+    {
+        XWikiDocument doc = new XWikiDocument(new DocumentReference("Test", "Test", "Test"));
+        XWikiDocumentArchive archive = new XWikiDocumentArchive(doc.getId());
+        doc.setDocumentArchive(archive);
+        String author = "XWiki.some author";
+
+        for (int i = 1; i <= 12; ++i) {
+            addRevisionToHistory(archive, doc, "content " + i + ".1", author, i + ".1");
+        }
+        archive.getUpdatedNodeContents().clear();
+
+        assertTrue(archive.updateFullVersions(3, this.context));
+
+        for (int i = 1; i <= 12; ++i) {
+            Version version = new Version(i, 1);
+            assertEquals(List.of(2, 5, 7, 10, 12).contains(i), !archive.getNode(version).isDiff());
+            assertEquals("content " + i + ".1", archive.loadDocument(version, this.context).getContent());
+        }
+        assertEquals(2, archive.getUpdatedNodeContents().size());
+
+        // Nothing left to convert
+        assertFalse(archive.updateFullVersions(3, this.context));
+    }
+
+    private List<XWikiRCSNodeInfo> createNodes(XWikiDocument document, int first, int last, int full)
+        throws XWikiException
+    {
+        List<XWikiRCSNodeInfo> nodes = new ArrayList<>();
+        for (int i = first; i <= last; ++i) {
+            XWikiRCSNodeId id = new XWikiRCSNodeId(document.getId(), new Version(1, i));
+            XWikiRCSNodeInfo node = new XWikiRCSNodeInfo(id);
+            node.setDiff(i != full);
+            if (i == last) {
+                document.setContent("content 1." + i);
+                XWikiRCSNodeContent content = new XWikiRCSNodeContent(id);
+                content.setPatch(new XWikiPatch().setFullVersion(document, this.context));
+                node.setContent(content);
+            }
+            nodes.add(node);
+        }
+
+        return nodes;
+    }
+
     private void addRevisionToHistory(XWikiDocumentArchive archive, XWikiDocument document, String content,
         String author, String comment) throws XWikiException
     {
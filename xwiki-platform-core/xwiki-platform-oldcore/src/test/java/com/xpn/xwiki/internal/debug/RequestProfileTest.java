@@ -0,0 +1,109 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.debug;
+
+import org.junit.jupiter.api.Test;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.internal.debug.RequestProfile.Metric;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link RequestProfile}.
+ * 
+ * @version $Id$
+ */
+class RequestProfileTest
+{
+    @Test
+    void get()
+    {
+        XWikiContext xcontext = new XWikiContext();
+
+        assertNull(RequestProfile.get(null));
+        assertNull(RequestProfile.get(xcontext));
+
+        RequestProfile profile = new RequestProfile();
+        xcontext.put(RequestProfile.CONTEXT_KEY, profile);
+
+        assertSame(profile, RequestProfile.get(xcontext));
+    }
+
+    @Test
+    void beginEnd()
+    {
+        RequestProfile profile = new RequestProfile();
+
+        long start = profile.begin(Metric.TEMPLATE);
+        assertTrue(start >= 0);
+
+        // Nested operations are counted but not timed
+        long nestedStart = profile.begin(Metric.TEMPLATE);
+        assertEquals(-1, nestedStart);
+        profile.end(Metric.TEMPLATE, nestedStart);
+
+        profile.end(Metric.TEMPLATE, start);
+
+        assertEquals(2, profile.getCount(Metric.TEMPLATE));
+
+        // The depth is back to 0
+        start = profile.begin(Metric.TEMPLATE);
+        assertTrue(start >= 0);
+        profile.end(Metric.TEMPLATE, start);
+
+        assertEquals(3, profile.getCount(Metric.TEMPLATE));
+
+        profile.begin(Metric.DOCUMENT_CACHE_MISS, 5);
+        profile.increment(Metric.DOCUMENT_CACHE_HIT);
+        profile.increment(Metric.DOCUMENT_CACHE_HIT, 2);
+
+        assertEquals(5, profile.getCount(Metric.DOCUMENT_CACHE_MISS));
+        assertEquals(3, profile.getCount(Metric.DOCUMENT_CACHE_HIT));
+        assertEquals(0, profile.getCount(Metric.DATABASE));
+    }
+
+    @Test
+    void add()
+    {
+        RequestProfile total = new RequestProfile();
+        RequestProfile profile = new RequestProfile();
+        profile.increment(Metric.RIGHT, 2);
+
+        total.add(profile);
+        total.add(profile);
+
+        assertEquals(4, total.getCount(Metric.RIGHT));
+    }
+
+    @Test
+    void toServerTiming()
+    {
+        RequestProfile profile = new RequestProfile();
+        profile.increment(Metric.DATABASE, 3);
+
+        assertTrue(profile.toServerTiming().startsWith("db;desc=\"3\";dur=0, dochit;desc=\"0\";dur=0, "),
+            profile.toServerTiming());
+        assertTrue(profile.toServerTiming().contains(", total;dur="), profile.toServerTiming());
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.debug;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.internal.debug.RequestProfile.Metric;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link RequestProfiler}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+class RequestProfilerTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    @InjectMockComponents
+    private RequestProfiler profiler;
+
+    @MockComponent
+    private DebugConfiguration configuration;
+
+    @MockComponent
+    private JMXBeanRegistration jmxRegistration;
+
+    @MockComponent
+    private ContextualAuthorizationManager authorization;
+
+    private XWikiContext xcontext;
+
+    @BeforeEach
+    void beforeEach()
+    {
+        this.xcontext = new XWikiContext();
+        this.xcontext.setWikiId(WIKI.getName());
+    }
+
+    @Test
+    void startWhenDisabled()
+    {
+        assertNull(this.profiler.start(false, this.xcontext));
+        assertNull(RequestProfile.get(this.xcontext));
+    }
+
+    @Test
+    void startWhenEnabled()
+    {
+        when(this.configuration.isProfilerEnabled()).thenReturn(true);
+
+        RequestProfile profile = this.profiler.start(false, this.xcontext);
+
+        assertNotNull(profile);
+        assertSame(profile, RequestProfile.get(this.xcontext));
+        // Profiling everything does not mean everyone can see the profiles
+        assertFalse(this.profiler.isAllowed(this.xcontext));
+    }
+
+    @Test
+    void startWhenForcedByAdmin()
+    {
+        when(this.authorization.hasAccess(Right.ADMIN, WIKI)).thenReturn(true);
+
+        RequestProfile profile = this.profiler.start(true, this.xcontext);
+
+        assertNotNull(profile);
+        assertSame(profile, RequestProfile.get(this.xcontext));
+        assertTrue(this.profiler.isAllowed(this.xcontext));
+    }
+
+    @Test
+    void startWhenForcedByNonAdmin()
+    {
+        assertNull(this.profiler.start(true, this.xcontext));
+        assertNull(RequestProfile.get(this.xcontext));
+    }
+
+    @Test
+    void stop()
+    {
+        when(this.configuration.isProfilerEnabled()).thenReturn(true);
+
+        RequestProfile profile = this.profiler.start(false, this.xcontext);
+        profile.end(Metric.DATABASE, profile.begin(Metric.DATABASE));
+
+        this.profiler.stop(profile, this.xcontext);
+
+        assertNull(RequestProfile.get(this.xcontext));
+        assertEquals(1, this.profiler.getRequestCount());
+        assertEquals(1, this.profiler.getCount(Metric.DATABASE));
+    }
+}
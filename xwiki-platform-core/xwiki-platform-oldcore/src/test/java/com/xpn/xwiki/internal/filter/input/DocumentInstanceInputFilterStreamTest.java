@@ -34,6 +34,10 @@
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.filter.output.DocumentInstanceOutputFilterStream;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
 /**
  * Validate {@link DocumentInstanceOutputFilterStream}.
  * 
@@ -57,6 +61,29 @@ void importDocumentsPreserveVersion() throws FilterException, IOException
         assertXML("document1", outputProperties, inputProperties);
     }
 
+    @Test
+    void importDocumentsWithBatchSize() throws FilterException, IOException, XWikiException
+    {
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+        outputProperties.setVerbose(false);
+
+        DocumentInstanceInputProperties inputProperties = new DocumentInstanceInputProperties();
+        inputProperties.setWithRevisions(false);
+        inputProperties.setWithJRCSRevisions(false);
+        inputProperties.setVerbose(false);
+        inputProperties.setBatchSize(1);
+
+        assertXML("document1", outputProperties, inputProperties);
+
+        verify(this.oldcore.getMockStore(), never()).loadXWikiDocs(any(), any());
+
+        inputProperties.setBatchSize(10);
+
+        assertXML("document1", inputProperties);
+
+        verify(this.oldcore.getMockStore()).loadXWikiDocs(any(), any());
+    }
+
     @Test
     void withAttachmentContent() throws IOException, XWikiException, FilterException
     {
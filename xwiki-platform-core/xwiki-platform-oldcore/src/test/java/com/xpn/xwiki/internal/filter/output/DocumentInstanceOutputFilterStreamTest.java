@@ -27,32 +27,48 @@
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Test;
 import org.suigeneris.jrcs.rcs.Version;
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.instance.output.DocumentInstanceOutputProperties;
+import org.xwiki.bridge.event.DocumentCreatedEvent;
 import org.xwiki.model.document.DocumentAuthors;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationContext;
+import org.xwiki.observation.ObservationManager;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.syntax.SyntaxType;
 import org.xwiki.user.UserReference;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.internal.event.XARImportedEvent;
+import com.xpn.xwiki.internal.event.XARImportingEvent;
 import com.xpn.xwiki.internal.filter.AbstractInstanceFilterStreamTest;
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.BaseProperty;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.objects.classes.NumberClass;
 
+import static com.xpn.xwiki.test.mockito.OldcoreMatchers.anyXWikiContext;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Validate {@link DocumentInstanceOutputFilterStream}.
@@ -168,6 +184,113 @@ void importDocument1WithPreserveVersion() throws FilterException, XWikiException
         assertDocument1PreserveVersion(document);
     }
 
+    @Test
+    void importDocument1WithPreserveVersionAndSaveThreads() throws FilterException, XWikiException, ParseException
+    {
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+
+        outputProperties.setVersionPreserved(true);
+        outputProperties.setVerbose(false);
+        outputProperties.setSaveThreads(2);
+
+        importFromXML("document1", outputProperties);
+
+        XWikiDocument document = this.oldcore.getSpyXWiki().getDocument(new DocumentReference("wiki", "space", "page"),
+            this.oldcore.getXWikiContext());
+
+        assertFalse(document.isNew());
+
+        assertDocument1PreserveVersion(document);
+    }
+
+    private XWikiDocument getDocument(String space, String page, Locale locale) throws XWikiException
+    {
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+
+        return this.oldcore.getSpyXWiki().getDocument(new DocumentReference("wiki", space, page, locale), xcontext);
+    }
+
+    @Test
+    void importDocumentsWithSaveThreads() throws FilterException, XWikiException
+    {
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+
+        outputProperties.setVerbose(false);
+        outputProperties.setSaveThreads(2);
+
+        importFromXML("documents", outputProperties);
+
+        XWikiDocument page1 = getDocument("space", "page1", null);
+        assertFalse(page1.isNew());
+        assertEquals("content1", page1.getContent());
+        XWikiDocument page1fr = getDocument("space", "page1", Locale.FRENCH);
+        assertFalse(page1fr.isNew());
+        assertEquals("content1 fr", page1fr.getContent());
+        XWikiDocument page1de = getDocument("space", "page1", Locale.GERMAN);
+        assertFalse(page1de.isNew());
+        assertEquals("content1 de", page1de.getContent());
+        XWikiDocument page2 = getDocument("space", "page2", null);
+        assertFalse(page2.isNew());
+        assertEquals("content2", page2.getContent());
+        XWikiDocument page3 = getDocument("otherspace", "page3", null);
+        assertFalse(page3.isNew());
+        assertEquals("content3", page3.getContent());
+        XWikiDocument page3fr = getDocument("otherspace", "page3", Locale.FRENCH);
+        assertFalse(page3fr.isNew());
+        assertEquals("content3 fr", page3fr.getContent());
+    }
+
+    @Test
+    void importDocumentsWithSaveThreadsInXARImport() throws Exception
+    {
+        ObservationContext observationContext = this.componentManager.getInstance(ObservationContext.class);
+        List<Boolean> inXARImport = new CopyOnWriteArrayList<>();
+        EventListener listener = mock(EventListener.class);
+        when(listener.getName()).thenReturn("test");
+        when(listener.getEvents()).thenReturn(List.of(new DocumentCreatedEvent()));
+        doAnswer(invocation -> inXARImport.add(observationContext.isIn(new XARImportingEvent()))).when(listener)
+            .onEvent(any(), any(), any());
+
+        ObservationManager observationManager = this.oldcore.getObservationManager();
+        observationManager.addListener(listener);
+        this.oldcore.notifyDocumentCreatedEvent(true);
+
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+
+        outputProperties.setVerbose(false);
+        outputProperties.setSaveThreads(2);
+
+        observationManager.notify(new XARImportingEvent(), null, null);
+        try {
+            importFromXML("documents", outputProperties);
+        } finally {
+            observationManager.notify(new XARImportedEvent(), null, null);
+        }
+
+        // The documents saved by the saving threads are seen as part of the XAR import
+        assertFalse(inXARImport.isEmpty());
+        assertFalse(inXARImport.contains(false));
+    }
+
+    @Test
+    void importDocumentsWithSaveThreadsWhenSaveFails() throws XWikiException
+    {
+        doThrow(new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+            XWikiException.ERROR_XWIKI_STORE_HIBERNATE_SAVING_DOC, "Failed to save page2"))
+                .when(this.oldcore.getMockStore()).saveXWikiDoc(
+                    argThat(document -> document != null && document.getDocumentReference().getName().equals("page2")),
+                    anyXWikiContext());
+
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+
+        outputProperties.setVerbose(false);
+        outputProperties.setSaveThreads(2);
+
+        assertThrows(FilterException.class, () -> importFromXML("documents", outputProperties));
+
+        assertTrue(getDocument("space", "page2", null).isNew());
+    }
+
     @Test
     void importDocument1WithDeletePreviousAndPreserveVersion() throws FilterException, XWikiException, ParseException
     {
@@ -0,0 +1,262 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.DocumentVersionRangeDeletedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.remote.LocalEventData;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.converter.BinaryEventData;
+import org.xwiki.observation.remote.internal.converter.DefaultEventConverterManager;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.LogCaptureExtension;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.util.XWikiStubContextProvider;
+
+import ch.qos.logback.classic.Level;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DocumentBinaryEventConverter}.
+ * 
+ * @version $Id$
+ */
+@OldcoreTest
+@ComponentList({ DocumentEventConverter.class, DocumentBinaryEventConverter.class })
+class DocumentBinaryEventConverterTest
+{
+    private static final DocumentReference REFERENCE =
+        new DocumentReference("wiki", Arrays.asList("space1", "space2"), "page");
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    @InjectMockComponents
+    private DefaultEventConverterManager converterManager;
+
+    @RegisterExtension
+    private LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
+
+    @BeforeEach
+    void beforeEach()
+    {
+        this.oldcore.getConfigurationSource().setProperty("observation.remote.binaryEvents", true);
+    }
+
+    private RemoteEventData transmit(RemoteEventData remoteEvent) throws IOException, ClassNotFoundException
+    {
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(serialize(remoteEvent)));
+
+        return (RemoteEventData) ois.readObject();
+    }
+
+    private byte[] serialize(RemoteEventData remoteEvent) throws IOException
+    {
+        ByteArrayOutputStream sos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(sos);
+        oos.writeObject(remoteEvent);
+        oos.close();
+
+        return sos.toByteArray();
+    }
+
+    private LocalEventData createLocalEvent()
+    {
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+        xcontext.setWikiId("contextwiki");
+        xcontext.setUser("XWiki.user");
+
+        LocalEventData localEvent = new LocalEventData();
+        localEvent.setEvent(new DocumentUpdatedEvent(REFERENCE));
+        localEvent.setSource(new XWikiDocument(REFERENCE));
+        localEvent.setData(xcontext);
+
+        return localEvent;
+    }
+
+    @Test
+    void convert() throws Exception
+    {
+        RemoteEventData remoteEvent = this.converterManager.createRemoteEventData(createLocalEvent());
+
+        assertTrue(remoteEvent.getEvent() instanceof BinaryEventData);
+        assertNull(remoteEvent.getSource());
+        assertNull(remoteEvent.getData());
+
+        LocalEventData localEvent = this.converterManager.createLocalEventData(transmit(remoteEvent));
+
+        assertEquals(new DocumentUpdatedEvent(REFERENCE).getEventFilter().getFilter(),
+            ((DocumentUpdatedEvent) localEvent.getEvent()).getEventFilter().getFilter());
+        XWikiDocument document = (XWikiDocument) localEvent.getSource();
+        assertEquals(REFERENCE, document.getDocumentReference());
+        assertTrue(document.getOriginalDocument().isNew());
+        XWikiContext xcontext = (XWikiContext) localEvent.getData();
+        assertEquals("contextwiki", xcontext.getWikiId());
+        assertEquals("XWiki.user", xcontext.getUser());
+    }
+
+    @Test
+    void convertVersionRangeDeleted() throws Exception
+    {
+        LocalEventData localEvent = createLocalEvent();
+        localEvent.setEvent(new DocumentVersionRangeDeletedEvent(REFERENCE, "1.1", "2.3"));
+
+        RemoteEventData remoteEvent = this.converterManager.createRemoteEventData(localEvent);
+
+        assertTrue(remoteEvent.getEvent() instanceof BinaryEventData);
+
+        DocumentVersionRangeDeletedEvent event = (DocumentVersionRangeDeletedEvent) this.converterManager
+            .createLocalEventData(transmit(remoteEvent)).getEvent();
+
+        assertEquals(REFERENCE, event.getDocumentReference());
+        assertEquals("1.1", event.getFrom());
+        assertEquals("2.3", event.getTo());
+    }
+
+    @Test
+    void convertWhenCanceled() throws Exception
+    {
+        LocalEventData localEvent = createLocalEvent();
+        ((DocumentUpdatedEvent) localEvent.getEvent()).cancel();
+
+        RemoteEventData remoteEvent = this.converterManager.createRemoteEventData(localEvent);
+
+        assertFalse(remoteEvent.getEvent() instanceof BinaryEventData);
+    }
+
+    @Test
+    void convertWhenDisabled() throws Exception
+    {
+        this.oldcore.getConfigurationSource().setProperty("observation.remote.binaryEvents", false);
+
+        RemoteEventData remoteEvent = this.converterManager.createRemoteEventData(createLocalEvent());
+
+        assertTrue(remoteEvent.getEvent() instanceof DocumentUpdatedEvent);
+    }
+
+    @Test
+    void convertWhenNotConfigured() throws Exception
+    {
+        this.oldcore.getConfigurationSource().removeProperty("observation.remote.binaryEvents");
+
+        RemoteEventData remoteEvent = this.converterManager.createRemoteEventData(createLocalEvent());
+
+        assertTrue(remoteEvent.getEvent() instanceof DocumentUpdatedEvent);
+    }
+
+    @Test
+    void convertWhenDecodingFails() throws Exception
+    {
+        BinaryEventData binaryEvent =
+            (BinaryEventData) this.converterManager.createRemoteEventData(createLocalEvent()).getEvent();
+
+        // Truncate the encoded event
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setEvent(new BinaryEventData(binaryEvent.getCodec(), binaryEvent.getVersion(),
+            Arrays.copyOf(binaryEvent.getPayload(), binaryEvent.getPayload().length / 2)));
+
+        assertNull(this.converterManager.createLocalEventData(transmit(remoteEvent)));
+
+        assertEquals(Level.ERROR, this.logCapture.getLogEvent(0).getLevel());
+        assertTrue(this.logCapture.getMessage(0).startsWith("Failed to decode the remote event"));
+    }
+
+    @Test
+    void convertWhenInvalidLength() throws Exception
+    {
+        BinaryEventData binaryEvent =
+            (BinaryEventData) this.converterManager.createRemoteEventData(createLocalEvent()).getEvent();
+
+        // An updated event with a document reference wiki length bigger than the payload
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setEvent(new BinaryEventData(binaryEvent.getCodec(), binaryEvent.getVersion(),
+            new byte[] { 1, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0 }));
+
+        assertNull(this.converterManager.createLocalEventData(transmit(remoteEvent)));
+
+        // An updated event with a negative document reference wiki length
+        remoteEvent.setEvent(new BinaryEventData(binaryEvent.getCodec(), binaryEvent.getVersion(),
+            new byte[] { 1, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xfe, 0 }));
+
+        assertNull(this.converterManager.createLocalEventData(transmit(remoteEvent)));
+
+        assertEquals(Level.ERROR, this.logCapture.getLogEvent(0).getLevel());
+        assertTrue(this.logCapture.getMessage(0).startsWith("Failed to decode the remote event"));
+        assertEquals(Level.ERROR, this.logCapture.getLogEvent(1).getLevel());
+        assertTrue(this.logCapture.getMessage(1).startsWith("Failed to decode the remote event"));
+    }
+
+    @Test
+    void convertWhenContextCannotBeRebuilt() throws Exception
+    {
+        RemoteEventData remoteEvent = transmit(this.converterManager.createRemoteEventData(createLocalEvent()));
+
+        // No XWiki context is available to rebuild the document
+        this.oldcore.getExecutionContext().removeProperty(XWikiContext.EXECUTIONCONTEXT_KEY);
+        when(this.oldcore.getMocker().<XWikiStubContextProvider>getInstance(XWikiStubContextProvider.class)
+            .createStubContext()).thenReturn(null);
+
+        assertNull(this.converterManager.createLocalEventData(remoteEvent));
+
+        assertEquals(Level.WARN, this.logCapture.getLogEvent(0).getLevel());
+        assertTrue(this.logCapture.getMessage(0).startsWith("Can't get a proper XWikiContext."));
+        assertEquals(Level.ERROR, this.logCapture.getLogEvent(1).getLevel());
+        assertTrue(this.logCapture.getMessage(1).startsWith("Failed to decode the remote event"));
+    }
+
+    @Test
+    void convertWhenUnsupportedVersion() throws Exception
+    {
+        BinaryEventData binaryEvent =
+            (BinaryEventData) this.converterManager.createRemoteEventData(createLocalEvent()).getEvent();
+
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setEvent(
+            new BinaryEventData(binaryEvent.getCodec(), binaryEvent.getVersion() + 1, binaryEvent.getPayload()));
+
+        assertNull(this.converterManager.createLocalEventData(transmit(remoteEvent)));
+
+        assertEquals(Level.WARN, this.logCapture.getLogEvent(0).getLevel());
+        assertTrue(this.logCapture.getMessage(0).startsWith("Ignoring the remote event"));
+    }
+}
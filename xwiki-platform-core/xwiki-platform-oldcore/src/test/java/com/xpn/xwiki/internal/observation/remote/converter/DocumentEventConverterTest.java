@@ -23,8 +23,12 @@
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.observation.remote.LocalEventData;
@@ -39,11 +43,22 @@
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.test.MockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.store.XWikiCacheStore;
+import com.xpn.xwiki.test.component.XWikiDocumentFilterUtilsComponentList;
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Validate {@link DocumentEventConverter};
@@ -52,6 +67,8 @@
  */
 @OldcoreTest
 @ComponentList(DocumentEventConverter.class)
+@ReferenceComponentList
+@XWikiDocumentFilterUtilsComponentList
 class DocumentEventConverterTest
 {
     @InjectMockitoOldcore
@@ -97,4 +114,83 @@ void testConvertWithOriginalDocNull() throws Exception
         assertEquals("page", ((XWikiDocument) localEvent2.getSource()).getPageName());
         assertTrue(((XWikiDocument) localEvent2.getSource()).getOriginalDocument().isNew());
     }
+
+    @Test
+    void convertWithDocumentContent() throws Exception
+    {
+        this.oldcore.getConfigurationSource().setProperty("observation.remote.documentContentMaxSize", 100000);
+        XWikiCacheStore cacheStore = mock(XWikiCacheStore.class);
+        doReturn(cacheStore).when(this.oldcore.getSpyXWiki()).getStore();
+
+        DocumentReference documentReference = new DocumentReference("wiki", "space", "page");
+        XWikiDocument previousDocument = new XWikiDocument(documentReference);
+        previousDocument.setVersion("1.1");
+        when(cacheStore.refresh(any())).thenReturn(previousDocument);
+
+        XWikiDocument document = new XWikiDocument(documentReference);
+        document.setContent("content");
+        document.setVersion("2.1");
+        document.setContentAuthorReference(new DocumentReference("wiki", "XWiki", "contentAuthor"));
+        document.setAuthorReference(new DocumentReference("wiki", "XWiki", "metadataAuthor"));
+        document.setNew(false);
+        XWikiDocument originalDocument = new XWikiDocument(documentReference);
+        originalDocument.setVersion("1.1");
+        originalDocument.setNew(false);
+        document.setOriginalDocument(originalDocument);
+
+        LocalEventData localEvent = new LocalEventData(new DocumentUpdatedEvent(documentReference), document,
+            this.oldcore.getXWikiContext());
+
+        RemoteEventData remoteEvent = this.converterManager.createRemoteEventData(localEvent);
+
+        ByteArrayOutputStream sos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(sos);
+        oos.writeObject(remoteEvent);
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(sos.toByteArray()));
+        remoteEvent = (RemoteEventData) ois.readObject();
+
+        LocalEventData localEvent2 = this.converterManager.createLocalEventData(remoteEvent);
+
+        XWikiDocument receivedDocument = (XWikiDocument) localEvent2.getSource();
+        assertEquals(documentReference, receivedDocument.getDocumentReference());
+        assertEquals("content", receivedDocument.getContent());
+        assertEquals("2.1", receivedDocument.getVersion());
+        assertFalse(receivedDocument.isNew());
+        assertSame(previousDocument, receivedDocument.getOriginalDocument());
+
+        ArgumentCaptor<XWikiDocument> cachedDocumentCaptor = ArgumentCaptor.forClass(XWikiDocument.class);
+        verify(cacheStore).refresh(cachedDocumentCaptor.capture());
+        XWikiDocument cachedDocument = cachedDocumentCaptor.getValue();
+        assertNotSame(receivedDocument, cachedDocument);
+        assertFalse(cachedDocument.isContentDirty());
+        assertFalse(cachedDocument.isMetaDataDirty());
+        assertEquals("2.1", cachedDocument.getOriginalDocument().getVersion());
+
+        // Saving a clone of the cached document doesn't create a new version of its content
+        XWikiDocument clone = cachedDocument.clone();
+        Date contentUpdateDate = clone.getContentUpdateDate();
+        DocumentReference contentAuthor = clone.getContentAuthorReference();
+        this.oldcore.getMockStore().saveXWikiDoc(clone, this.oldcore.getXWikiContext());
+
+        assertEquals("2.1", clone.getVersion());
+        assertEquals(contentUpdateDate, clone.getContentUpdateDate());
+        assertEquals(contentAuthor, clone.getContentAuthorReference());
+    }
+
+    @Test
+    void convertWithDocumentContentTooBig() throws Exception
+    {
+        this.oldcore.getConfigurationSource().setProperty("observation.remote.documentContentMaxSize", 10);
+
+        XWikiDocument document = new XWikiDocument(new DocumentReference("wiki", "space", "page"));
+        document.setContent("content");
+        document.setNew(false);
+
+        LocalEventData localEvent = new LocalEventData(new DocumentUpdatedEvent(document.getDocumentReference()),
+            document, this.oldcore.getXWikiContext());
+
+        RemoteEventData remoteEvent = this.converterManager.createRemoteEventData(localEvent);
+
+        assertNull(((Map<String, Serializable>) remoteEvent.getSource()).get(AbstractXWikiEventConverter.DOC_CONTENT));
+    }
 }
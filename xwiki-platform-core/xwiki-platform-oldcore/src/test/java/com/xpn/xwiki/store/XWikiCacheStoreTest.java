@@ -19,6 +19,9 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.Date;
+import java.util.List;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.xwiki.cache.Cache;
@@ -36,13 +39,17 @@
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
 
 import static com.xpn.xwiki.test.mockito.OldcoreMatchers.isCacheConfiguration;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -121,6 +128,53 @@ void loadXWikiDoc() throws Exception
         verifyNoMoreInteractions(this.existCache);
     }
 
+    @Test
+    void loadXWikiDocs() throws Exception
+    {
+        // Set current wiki
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+        this.oldcore.getSpyXWiki().saveDocument(new XWikiDocument(new DocumentReference("wiki", "space", "page")),
+            this.oldcore.getXWikiContext());
+
+        XWikiDocument cachedDocument = new XWikiDocument(new DocumentReference("wiki", "space", "cached"));
+        when(this.cache.get("4:wiki5:space6:cached0:")).thenReturn(cachedDocument);
+        when(this.existCache.get("4:wiki5:space7:missing0:")).thenReturn(Boolean.FALSE);
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        XWikiDocument page = new XWikiDocument(new DocumentReference("wiki", "space", "page"));
+        XWikiDocument cached = new XWikiDocument(new DocumentReference("wiki", "space", "cached"));
+        XWikiDocument missing = new XWikiDocument(new DocumentReference("wiki", "space", "missing"));
+        XWikiDocument nopage = new XWikiDocument(new DocumentReference("wiki", "space", "nopage"));
+
+        List<XWikiDocument> documents =
+            store.loadXWikiDocs(List.of(page, cached, missing, nopage), this.oldcore.getXWikiContext());
+
+        assertEquals(4, documents.size());
+        assertFalse(documents.get(0).isNew());
+        assertEquals(page.getDocumentReference(), documents.get(0).getDocumentReference());
+        assertSame(cachedDocument, documents.get(1));
+        assertTrue(documents.get(1).isFromCache());
+        assertSame(missing, documents.get(2));
+        assertTrue(documents.get(2).isNew());
+        assertTrue(documents.get(3).isNew());
+        for (XWikiDocument document : documents) {
+            assertSame(store, document.getStore());
+        }
+
+        // Only the documents unknown to the cache should have been loaded, all at once
+        verify(this.oldcore.getMockStore()).loadXWikiDocs(eq(List.of(page, nopage)), any());
+
+        verify(this.cache).set(eq("4:wiki5:space4:page0:"), any(XWikiDocument.class));
+        verify(this.existCache).set("4:wiki5:space4:page0:", Boolean.TRUE);
+        verify(this.existCache).set("4:wiki5:space6:nopage0:", Boolean.FALSE);
+        verify(this.cache, times(4)).get(any());
+        verify(this.existCache, times(3)).get(any());
+
+        verifyNoMoreInteractions(this.cache);
+        verifyNoMoreInteractions(this.existCache);
+    }
+
     @Test
     void saveXWikiDocumentFailing() throws XWikiException
     {
@@ -142,4 +196,60 @@ void saveXWikiDocumentFailing() throws XWikiException
         verify(this.cache).remove("4:wiki5:space4:page0:");
         verify(this.existCache).remove("4:wiki5:space4:page0:");
     }
+
+    private XWikiDocument createDocument(String version, Date date)
+    {
+        XWikiDocument document = new XWikiDocument(new DocumentReference("wiki", "space", "page"));
+        document.setNew(false);
+        document.setVersion(version);
+        document.setDate(date);
+
+        return document;
+    }
+
+    @Test
+    void refreshWithMoreRecentDocument()
+    {
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        XWikiDocument cachedDocument = createDocument("1.1", new Date(1000));
+        when(this.cache.get("4:wiki5:space4:page0:")).thenReturn(cachedDocument);
+
+        XWikiDocument document = createDocument("2.1", new Date(2000));
+
+        assertSame(cachedDocument, store.refresh(document));
+
+        verify(this.cache).set("4:wiki5:space4:page0:", document);
+        verify(this.existCache).set("4:wiki5:space4:page0:", Boolean.TRUE);
+    }
+
+    @Test
+    void refreshWithOutdatedDocument()
+    {
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        XWikiDocument cachedDocument = createDocument("3.1", new Date(3000));
+        when(this.cache.get("4:wiki5:space4:page0:")).thenReturn(cachedDocument);
+
+        // An event sent before the one of the cached version
+        XWikiDocument document = createDocument("2.1", new Date(2000));
+
+        assertSame(cachedDocument, store.refresh(document));
+
+        verify(this.cache, never()).set(any(), any());
+        verify(this.cache).remove("4:wiki5:space4:page0:");
+        verify(this.existCache).remove("4:wiki5:space4:page0:");
+    }
+
+    @Test
+    void refreshWhenNotCached()
+    {
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        assertNull(store.refresh(createDocument("2.1", new Date(2000))));
+
+        verify(this.cache, never()).set(any(), any());
+        verify(this.cache).remove("4:wiki5:space4:page0:");
+        verify(this.existCache).remove("4:wiki5:space4:page0:");
+    }
 }
@@ -19,10 +19,12 @@
  */
 package com.xpn.xwiki.store;
 
+import java.io.Serializable;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
@@ -30,10 +32,13 @@
 import javax.inject.Provider;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
+import org.hibernate.boot.Metadata;
 import org.hibernate.dialect.Dialect;
+import org.hibernate.mapping.PersistentClass;
 import org.hibernate.query.NativeQuery;
 import org.hibernate.query.Query;
 import org.junit.jupiter.api.BeforeEach;
@@ -69,12 +74,15 @@
 import com.xpn.xwiki.objects.BaseProperty;
 import com.xpn.xwiki.objects.LargeStringProperty;
 import com.xpn.xwiki.objects.StringProperty;
+import com.xpn.xwiki.objects.classes.BaseClass;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
@@ -492,4 +500,289 @@ void loadBacklinksFromSubwiki() throws Exception
         verify(this.hibernateStore).beginTransaction();
         verify(this.hibernateStore).endTransaction(false);
     }
+
+    private XWikiDocument mockDefaultDocument(DocumentReference documentReference, Locale locale, long id)
+    {
+        XWikiDocument defaultDocument = mock(XWikiDocument.class);
+        when(defaultDocument.getId()).thenReturn(id);
+        when(defaultDocument.getDocumentReference()).thenReturn(documentReference);
+        when(defaultDocument.getLocale()).thenReturn(locale);
+
+        return defaultDocument;
+    }
+
+    private XWikiDocument mockLoadedDocument(DocumentReference documentReference, long id, boolean hasObjects)
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getId()).thenReturn(id);
+        when(document.getDocumentReference()).thenReturn(documentReference);
+        when(document.getFullName())
+            .thenReturn(documentReference.getLastSpaceReference().getName() + '.' + documentReference.getName());
+        when(document.getDate()).thenReturn(new Date());
+        when(document.getCreationDate()).thenReturn(new Date());
+        when(document.getContentUpdateDate()).thenReturn(new Date());
+        when(document.hasElement(XWikiDocument.HAS_OBJECTS)).thenReturn(hasObjects);
+
+        return document;
+    }
+
+    /**
+     * Mock an object stored in the database, which is added to the passed list, and return the object actually added
+     * to the document when loading it.
+     */
+    private BaseObject mockObject(long id, DocumentReference documentReference, DocumentReference classReference,
+        List<BaseObject> storedObjects) throws Exception
+    {
+        BaseObject storedObject = mock(BaseObject.class);
+        when(storedObject.getId()).thenReturn(id);
+        when(storedObject.getXClassReference()).thenReturn(classReference);
+        when(storedObject.getDocumentReference()).thenReturn(documentReference);
+        storedObjects.add(storedObject);
+
+        BaseObject object = mock(BaseObject.class);
+        when(object.getId()).thenReturn(id);
+        when(object.getXClassReference()).thenReturn(classReference);
+        when(object.getDocumentReference()).thenReturn(documentReference);
+        BaseClass xclass = mock(BaseClass.class);
+        when(xclass.newCustomClassInstance(true)).thenReturn(object);
+        when(this.xcontext.getWiki().getXClass(classReference, this.xcontext)).thenReturn(xclass);
+
+        return object;
+    }
+
+    private Query<BaseObject> mockObjectsQuery(List<BaseObject> storedObjects)
+    {
+        Query<BaseObject> query = mock(Query.class);
+        when(this.session.createQuery(
+            "from BaseObject as bobject where bobject.name in (:names) order by bobject.name, bobject.number",
+            BaseObject.class)).thenReturn(query);
+        when(query.list()).thenReturn(storedObjects);
+
+        return query;
+    }
+
+    private void mockPropertiesList(Object[]... properties)
+    {
+        Query<Object[]> query = mock(Query.class);
+        when(this.session.createQuery(
+            "select prop.id.id, prop.name, prop.classType from BaseProperty as prop where prop.id.id in (:ids)",
+            Object[].class)).thenReturn(query);
+        when(query.list()).thenReturn(Arrays.asList(properties));
+    }
+
+    private BaseObject loadDocumentWithObject(DocumentReference documentReference) throws Exception
+    {
+        when(this.xcontext.getWikiId()).thenReturn(documentReference.getWikiReference().getName());
+
+        XWikiDocument defaultDocument = mockDefaultDocument(documentReference, Locale.ROOT, 1L);
+        XWikiDocument document = mockLoadedDocument(documentReference, 1L, true);
+        when(this.session.get(XWikiDocument.class, 1L)).thenReturn(document);
+
+        List<BaseObject> storedObjects = new ArrayList<>();
+        BaseObject object =
+            mockObject(42L, documentReference, new DocumentReference("wiki", "Space", "Class"), storedObjects);
+        mockObjectsQuery(storedObjects);
+
+        mockPropertiesList(new Object[] { 42L, "title", StringProperty.class.getName() },
+            new Object[] { 42L, "description", LargeStringProperty.class.getName() });
+
+        assertSame(document, this.store.loadXWikiDoc(defaultDocument, this.xcontext));
+        verify(document).setXObject(0, object);
+
+        return object;
+    }
+
+    private void mockMappedTypes(Class<?>... types)
+    {
+        Metadata metadata = mock(Metadata.class);
+        for (Class<?> type : types) {
+            when(metadata.getEntityBinding(type.getName())).thenReturn(mock(PersistentClass.class));
+        }
+        when(this.hibernateStore.getConfigurationMetadata()).thenReturn(metadata);
+    }
+
+    private Query<BaseProperty> mockPropertiesQuery(Class<? extends BaseProperty> type,
+        BaseProperty... properties)
+    {
+        Query<BaseProperty> query = mock(Query.class);
+        when(this.session.createQuery("select prop from " + type.getName()
+            + " as prop where prop.id.id in (:ids) and prop.classType = :classType", BaseProperty.class))
+                .thenReturn(query);
+        when(query.list()).thenReturn(Arrays.asList(properties));
+
+        return query;
+    }
+
+    private <T extends BaseProperty> T createProperty(T property, String name, String value)
+    {
+        property.setId(42L);
+        property.setName(name);
+        property.setValue(value);
+
+        return property;
+    }
+
+    @Test
+    void loadXWikiDocWithObjectPropertiesInBatch() throws Exception
+    {
+        StringProperty title = createProperty(new StringProperty(), "title", "Title");
+        Query<BaseProperty> stringQuery = mockPropertiesQuery(StringProperty.class, title);
+        LargeStringProperty description = createProperty(new LargeStringProperty(), "description", "Description");
+        Query<BaseProperty> largeStringQuery = mockPropertiesQuery(LargeStringProperty.class, description);
+        mockMappedTypes(StringProperty.class, LargeStringProperty.class);
+
+        BaseObject object = loadDocumentWithObject(new DocumentReference("wiki", "Space", "Page"));
+
+        verify(stringQuery).setParameterList("ids", Collections.singletonList(42L));
+        verify(stringQuery).setParameter("classType", StringProperty.class.getName());
+        verify(largeStringQuery).setParameterList("ids", Collections.singletonList(42L));
+        verify(largeStringQuery).setParameter("classType", LargeStringProperty.class.getName());
+
+        verify(object).addField("title", title);
+        verify(object).addField("description", description);
+        assertSame(object, title.getObject());
+        assertSame(object, description.getObject());
+        assertFalse(title.isValueDirty());
+
+        // The properties are not loaded one by one and the session is never accessed at the JDBC level (e.g. to set
+        // a savepoint)
+        verify(this.session, never()).load(any(Object.class), any(Serializable.class));
+        verify(this.session, never()).doWork(any());
+        verify(this.session, never()).doReturningWork(any());
+    }
+
+    @Test
+    void loadXWikiDocWithObjectPropertyFallback() throws Exception
+    {
+        // The title is not found in the table of its declared type
+        mockPropertiesQuery(StringProperty.class);
+        LargeStringProperty description = createProperty(new LargeStringProperty(), "description", "Description");
+        mockPropertiesQuery(LargeStringProperty.class, description);
+        mockMappedTypes(StringProperty.class, LargeStringProperty.class);
+
+        BaseObject object = loadDocumentWithObject(new DocumentReference("wiki", "Space", "Page"));
+
+        ArgumentCaptor<BaseProperty> propertyCaptor = ArgumentCaptor.forClass(BaseProperty.class);
+        verify(object).addField(eq("title"), propertyCaptor.capture());
+        assertTrue(propertyCaptor.getValue() instanceof StringProperty);
+        assertSame(object, propertyCaptor.getValue().getObject());
+        verify(this.session).load(propertyCaptor.getValue(), propertyCaptor.getValue());
+        verify(object).addField("description", description);
+
+        verify(this.session, never()).doWork(any());
+        verify(this.session, never()).doReturningWork(any());
+    }
+
+    @Test
+    void loadXWikiDocWithUnmappedObjectPropertyType() throws Exception
+    {
+        StringProperty title = createProperty(new StringProperty(), "title", "Title");
+        mockPropertiesQuery(StringProperty.class, title);
+        Query<BaseProperty> largeStringQuery = mockPropertiesQuery(LargeStringProperty.class);
+
+        mockMappedTypes(StringProperty.class);
+
+        BaseObject object = loadDocumentWithObject(new DocumentReference("wiki", "Space", "Page"));
+
+        // The type without mapping is never used in a query
+        verify(largeStringQuery, never()).list();
+
+        verify(object).addField("title", title);
+        ArgumentCaptor<BaseProperty> propertyCaptor = ArgumentCaptor.forClass(BaseProperty.class);
+        verify(object).addField(eq("description"), propertyCaptor.capture());
+        assertTrue(propertyCaptor.getValue() instanceof LargeStringProperty);
+        verify(this.session).load(propertyCaptor.getValue(), propertyCaptor.getValue());
+    }
+
+    @Test
+    void loadXWikiDocWhenBatchedPropertiesQueryFails() throws Exception
+    {
+        Query<BaseProperty> stringQuery = mockPropertiesQuery(StringProperty.class);
+        when(stringQuery.list()).thenThrow(new HibernateException("error"));
+        mockPropertiesQuery(LargeStringProperty.class);
+        mockMappedTypes(StringProperty.class, LargeStringProperty.class);
+
+        // The failure is not hidden by trying to keep using the session
+        Throwable exception = assertThrows(XWikiException.class,
+            () -> loadDocumentWithObject(new DocumentReference("wiki", "Space", "Page")));
+        assertEquals("HibernateException: error", ExceptionUtils.getRootCauseMessage(exception));
+
+        verify(this.session, never()).load(any(Object.class), any(Serializable.class));
+        verify(this.session, never()).doWork(any());
+        verify(this.session, never()).doReturningWork(any());
+    }
+
+    @Test
+    void loadXWikiDocs() throws Exception
+    {
+        when(this.xcontext.getWikiId()).thenReturn("wiki");
+
+        DocumentReference pageReference = new DocumentReference("wiki", "Space", "Page");
+        DocumentReference otherReference = new DocumentReference("wiki", "Space", "Other");
+        DocumentReference missingReference = new DocumentReference("wiki", "Space", "Missing");
+
+        XWikiDocument defaultPage = mockDefaultDocument(pageReference, Locale.ROOT, 1L);
+        XWikiDocument defaultTranslation = mockDefaultDocument(pageReference, Locale.FRENCH, 2L);
+        XWikiDocument defaultMissing = mockDefaultDocument(missingReference, Locale.ROOT, 3L);
+        XWikiDocument defaultOther = mockDefaultDocument(otherReference, Locale.ROOT, 4L);
+
+        // The translation shares the objects of the default locale document
+        XWikiDocument page = mockLoadedDocument(pageReference, 1L, true);
+        XWikiDocument translation = mockLoadedDocument(pageReference, 2L, false);
+        XWikiDocument other = mockLoadedDocument(otherReference, 4L, true);
+        Query<XWikiDocument> documentsQuery = mock(Query.class);
+        when(this.session.createQuery("from XWikiDocument as doc where doc.id in (:ids)", XWikiDocument.class))
+            .thenReturn(documentsQuery);
+        when(documentsQuery.list()).thenReturn(Arrays.asList(other, translation, page));
+
+        // The objects of both documents are instances of different classes
+        List<BaseObject> storedObjects = new ArrayList<>();
+        BaseObject pageObject =
+            mockObject(42L, pageReference, new DocumentReference("wiki", "Space", "Class"), storedObjects);
+        BaseObject otherObject =
+            mockObject(43L, otherReference, new DocumentReference("wiki", "Space", "OtherClass"), storedObjects);
+        Query<BaseObject> objectsQuery = mockObjectsQuery(storedObjects);
+
+        mockPropertiesList(new Object[] { 42L, "title", StringProperty.class.getName() },
+            new Object[] { 43L, "summary", StringProperty.class.getName() },
+            new Object[] { 43L, "description", LargeStringProperty.class.getName() });
+        StringProperty title = createProperty(new StringProperty(), "title", "Title");
+        StringProperty summary = createProperty(new StringProperty(), "summary", "Summary");
+        summary.setId(43L);
+        LargeStringProperty description = createProperty(new LargeStringProperty(), "description", "Description");
+        description.setId(43L);
+        Query<BaseProperty> stringQuery = mockPropertiesQuery(StringProperty.class, title, summary);
+        mockPropertiesQuery(LargeStringProperty.class, description);
+        mockMappedTypes(StringProperty.class, LargeStringProperty.class);
+
+        List<XWikiDocument> documents = this.store.loadXWikiDocs(
+            Arrays.asList(defaultPage, defaultTranslation, defaultMissing, defaultOther), this.xcontext);
+
+        // The documents are returned in the requested order, the default one being kept for the missing document
+        assertEquals(Arrays.asList(page, translation, defaultMissing, other), documents);
+        verify(documentsQuery).setParameterList(eq("ids"), any(List.class));
+        verify(documentsQuery).list();
+        verify(defaultMissing).setNew(true);
+        verify(defaultMissing).setOriginalDocument(any(XWikiDocument.class));
+        verify(page).setNew(false);
+        verify(translation).setNew(false);
+        verify(other).setNew(false);
+
+        // The objects of all the documents are loaded with a single query
+        verify(objectsQuery).setParameterList("names", Arrays.asList("Space.Page", "Space.Other"));
+        verify(objectsQuery).list();
+        verify(page).setXObject(0, pageObject);
+        verify(other).setXObject(0, otherObject);
+        verify(translation, never()).setXObject(anyInt(), any(BaseObject.class));
+
+        // The properties of the same type are loaded together whatever the class of their object
+        verify(stringQuery).list();
+        verify(pageObject).addField("title", title);
+        verify(otherObject).addField("summary", summary);
+        verify(otherObject).addField("description", description);
+        assertSame(otherObject, summary.getObject());
+
+        verify(this.session, never()).get(any(Class.class), any(Serializable.class));
+        verify(this.session, never()).load(any(Object.class), any(Serializable.class));
+    }
 }
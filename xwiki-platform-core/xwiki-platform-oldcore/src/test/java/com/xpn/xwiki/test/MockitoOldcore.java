@@ -648,6 +648,22 @@ public XWikiDocument answer(InvocationOnMock invocation) throws Throwable
                 return document;
             }
         });
+        when(getMockStore().loadXWikiDocs(any(), anyXWikiContext())).then(new Answer<List<XWikiDocument>>()
+        {
+            @Override
+            public List<XWikiDocument> answer(InvocationOnMock invocation) throws Throwable
+            {
+                List<XWikiDocument> inputDocuments = invocation.getArgument(0);
+                XWikiContext xcontext = invocation.getArgument(1);
+
+                List<XWikiDocument> result = new ArrayList<>(inputDocuments.size());
+                for (XWikiDocument inputDocument : inputDocuments) {
+                    result.add(getMockStore().loadXWikiDoc(inputDocument, xcontext));
+                }
+
+                return result;
+            }
+        });
         when(getMockStore().exists(anyXWikiDocument(), anyXWikiContext())).then(new Answer<Boolean>()
         {
             @Override
@@ -22,6 +22,8 @@
 import java.util.List;
 import java.util.Set;
 
+import org.xwiki.stability.Unstable;
+
 /**
  * Parameters for the {@link org.xwiki.rendering.async.internal.AsyncMacro} Macro.
  * 
@@ -38,6 +40,8 @@
 
     private List<String> id;
 
+    private List<String> dependencies;
+
     /**
      * @return true if the content should be executed asynchronously
      */
@@ -101,4 +105,25 @@ public void setId(List<String> id)
     {
         this.id = id;
     }
+
+    /**
+     * @return the references of the documents the result depends on
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    public List<String> getDependencies()
+    {
+        return this.dependencies;
+    }
+
+    /**
+     * @param dependencies the references of the documents the result depends on (the cached result is removed when
+     *            one of them is modified)
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    public void setDependencies(List<String> dependencies)
+    {
+        this.dependencies = dependencies;
+    }
 }
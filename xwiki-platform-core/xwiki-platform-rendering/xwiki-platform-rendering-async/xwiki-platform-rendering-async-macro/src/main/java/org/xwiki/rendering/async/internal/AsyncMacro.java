@@ -22,13 +22,18 @@
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.rendering.async.AsyncContext;
 import org.xwiki.rendering.async.AsyncMacroParameters;
 import org.xwiki.rendering.async.internal.block.BlockAsyncRendererConfiguration;
@@ -55,6 +60,11 @@ public class AsyncMacro extends AbstractExecutedContentMacro<AsyncMacroParameter
      */
     private static final String DESCRIPTION = "Asynchronous and cached execution of wiki content.";
 
+    /**
+     * The context entry holding the current user.
+     */
+    private static final String CONTEXT_USER = "user";
+
     @Inject
     private AsyncContext asyncContext;
 
@@ -94,10 +104,16 @@ public List<Block> execute(AsyncMacroParameters parameters, String content, Macr
             if (source != null) {
                 idElements.add(source);
             }
-            // Add the macro index in the id
-            long index = context.getXDOM().indexOf(context.getCurrentMacroBlock());
-            if (index != -1) {
-                idElements.add(index);
+            if (parameters.isCached()) {
+                // Identify the fragment by its content and parameters instead of its position so that the cached
+                // result survives the move of the macro and is shared between identical macros
+                idElements.add(getFragmentHash(content, context));
+            } else {
+                // Add the macro index in the id
+                long index = context.getXDOM().indexOf(context.getCurrentMacroBlock());
+                if (index != -1) {
+                    idElements.add(index);
+                }
             }
         }
 
@@ -109,7 +125,20 @@ public List<Block> execute(AsyncMacroParameters parameters, String content, Macr
         // Enable/disable caching
         configuration.setCacheAllowed(parameters.isCached());
         // Indicate context entries
-        configuration.addContextEntries(parameters.getContext());
+        if (parameters.getContext() != null) {
+            configuration.addContextEntries(parameters.getContext());
+        } else if (parameters.isCached()) {
+            // The result might depend on the rights of the current user
+            configuration.addContextEntries(CONTEXT_USER);
+        }
+        // Invalidate the cache when one of the declared dependencies is modified
+        if (parameters.getDependencies() != null) {
+            DocumentReference sourceReference = source != null ? this.resolver.resolve(source) : null;
+            for (String dependency : parameters.getDependencies()) {
+                configuration.useEntity(sourceReference != null ? this.resolver.resolve(dependency, sourceReference)
+                    : this.resolver.resolve(dependency));
+            }
+        }
 
         try {
             Block result = this.executor.execute(configuration);
@@ -124,4 +153,22 @@ public List<Block> execute(AsyncMacroParameters parameters, String content, Macr
             throw new MacroExecutionException("Failed start the execution of the macro", e);
         }
     }
+
+    private String getFragmentHash(String content, MacroTransformationContext context)
+    {
+        StringBuilder builder = new StringBuilder(StringUtils.defaultString(content));
+
+        // The same content is not parsed the same way in inline and block mode
+        builder.append('\n').append(context.isInline());
+
+        if (context.getCurrentMacroBlock() != null) {
+            // Order the parameters to have a reliable hash
+            for (Map.Entry<String, String> parameter : new TreeMap<>(context.getCurrentMacroBlock().getParameters())
+                .entrySet()) {
+                builder.append('\n').append(parameter.getKey()).append('=').append(parameter.getValue());
+            }
+        }
+
+        return DigestUtils.sha256Hex(builder.toString());
+    }
 }
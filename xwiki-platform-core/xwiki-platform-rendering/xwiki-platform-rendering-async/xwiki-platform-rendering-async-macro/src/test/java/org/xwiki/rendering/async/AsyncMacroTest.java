@@ -21,10 +21,15 @@
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.rendering.async.internal.AsyncMacro;
 import org.xwiki.rendering.async.internal.block.BlockAsyncRendererConfiguration;
 import org.xwiki.rendering.async.internal.block.BlockAsyncRendererExecutor;
@@ -44,10 +49,13 @@
 import org.xwiki.test.junit5.mockito.MockComponent;
 import org.xwiki.test.mockito.MockitoComponentManager;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -70,6 +78,9 @@
     @MockComponent
     private MacroContentParser parser;
 
+    @MockComponent
+    private DocumentReferenceResolver<String> resolver;
+
     private BlockAsyncRendererExecutor executor;
 
     @BeforeEach
@@ -106,4 +117,95 @@ void executeInRestrictedMode() throws Exception
         assertTrue(configuration.isResricted());
         assertTrue(configuration.getContextEntries().contains(RenderingContextStore.PROP_RESTRICTED));
     }
+
+    private BlockAsyncRendererConfiguration executeCached(Map<String, String> parameters, String content,
+        AsyncMacroParameters macroParameters) throws Exception
+    {
+        return executeCached(parameters, content, macroParameters, false);
+    }
+
+    private BlockAsyncRendererConfiguration executeCached(Map<String, String> parameters, String content,
+        AsyncMacroParameters macroParameters, boolean inline) throws Exception
+    {
+        MacroBlock macroBlock = new MacroBlock("async", parameters, content, inline);
+        MetaData metadata = new MetaData();
+        metadata.addMetaData(MetaData.SOURCE, "source");
+        XDOM pageXDOM = new XDOM(Arrays.asList(macroBlock), metadata);
+        MacroTransformationContext macroContext = new MacroTransformationContext();
+        macroContext.setSyntax(Syntax.XWIKI_2_0);
+        macroContext.setCurrentMacroBlock(macroBlock);
+        macroContext.setXDOM(pageXDOM);
+        macroContext.setInline(inline);
+
+        XDOM contentXDOM = new XDOM(Arrays.asList(new WordBlock("test")), metadata);
+        when(this.parser.parse(eq(content), same(macroContext), eq(false), eq(inline))).thenReturn(contentXDOM);
+
+        when(this.executor.execute(any())).thenReturn(new WordBlock("result"));
+
+        macroParameters.setCached(true);
+        this.macro.execute(macroParameters, content, macroContext);
+
+        ArgumentCaptor<BlockAsyncRendererConfiguration> configurationCaptor =
+            ArgumentCaptor.forClass(BlockAsyncRendererConfiguration.class);
+        verify(this.executor, atLeastOnce()).execute(configurationCaptor.capture());
+
+        return configurationCaptor.getValue();
+    }
+
+    @Test
+    void executeCachedFragment() throws Exception
+    {
+        DocumentReference sourceReference = new DocumentReference("wiki", "space", "source");
+        DocumentReference dependencyReference = new DocumentReference("wiki", "space", "dependency");
+        when(this.resolver.resolve("source")).thenReturn(sourceReference);
+        when(this.resolver.resolve("dependency", sourceReference)).thenReturn(dependencyReference);
+
+        AsyncMacroParameters macroParameters = new AsyncMacroParameters();
+        macroParameters.setDependencies(List.of("dependency"));
+        BlockAsyncRendererConfiguration configuration =
+            executeCached(Map.of("cached", "true"), "content", macroParameters);
+
+        // The fragment is identified by its content and is specific to the current user
+        List<String> id = configuration.getId();
+        assertEquals(List.of("async", "macro", "source"), id.subList(0, 3));
+        assertEquals(4, id.size());
+        assertTrue(configuration.getContextEntries().contains("user"));
+
+        // The declared dependencies are registered
+        assertTrue(configuration.getReferences().contains(sourceReference));
+        assertTrue(configuration.getReferences().contains(dependencyReference));
+
+        // Same content with other parameters
+        BlockAsyncRendererConfiguration otherConfiguration =
+            executeCached(Map.of("cached", "true", "context", "doc.reference"), "content", new AsyncMacroParameters());
+        assertFalse(id.equals(otherConfiguration.getId()));
+
+        // Same content and parameters
+        otherConfiguration = executeCached(Map.of("cached", "true"), "content", new AsyncMacroParameters());
+        assertEquals(id, otherConfiguration.getId());
+    }
+
+    @Test
+    void executeCachedInline() throws Exception
+    {
+        BlockAsyncRendererConfiguration configuration =
+            executeCached(Map.of("cached", "true"), "content", new AsyncMacroParameters());
+        BlockAsyncRendererConfiguration inlineConfiguration =
+            executeCached(Map.of("cached", "true"), "content", new AsyncMacroParameters(), true);
+
+        // The same content is not rendered the same way in inline mode
+        assertFalse(configuration.getId().equals(inlineConfiguration.getId()));
+    }
+
+    @Test
+    void executeCachedWithExplicitContext() throws Exception
+    {
+        AsyncMacroParameters macroParameters = new AsyncMacroParameters();
+        macroParameters.setContext(Set.of("doc.reference"));
+        BlockAsyncRendererConfiguration configuration =
+            executeCached(Map.of("cached", "true"), "content", macroParameters);
+
+        assertTrue(configuration.getContextEntries().contains("doc.reference"));
+        assertFalse(configuration.getContextEntries().contains("user"));
+    }
 }
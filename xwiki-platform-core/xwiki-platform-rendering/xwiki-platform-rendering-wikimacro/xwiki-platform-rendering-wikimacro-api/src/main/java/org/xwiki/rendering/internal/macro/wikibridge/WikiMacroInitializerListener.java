@@ -29,6 +29,7 @@
 
 import org.slf4j.Logger;
 import org.xwiki.bridge.event.ApplicationReadyEvent;
+import org.xwiki.bridge.event.WikiBulkCopiedEvent;
 import org.xwiki.bridge.event.WikiReadyEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.observation.EventListener;
@@ -52,7 +53,8 @@ public class WikiMacroInitializerListener implements EventListener
     /**
      * The events observed by this event listener.
      */
-    private static final List<Event> EVENTS = Arrays.asList(new ApplicationReadyEvent(), new WikiReadyEvent());
+    private static final List<Event> EVENTS = Arrays.asList(new ApplicationReadyEvent(), new WikiReadyEvent(),
+        new WikiBulkCopiedEvent());
 
     /**
      * The macro initializer used to register the wiki macros.
@@ -98,6 +100,13 @@ public void onEvent(Event event, Object source, Object data)
             } catch (Exception e) {
                 this.logger.error("Error while initializing wiki macro classes.", e);
             }
+        } else if (event instanceof WikiBulkCopiedEvent) {
+            // The documents have been copied without sending any document event
+            try {
+                initializer.registerExistingWikiMacros(((WikiBulkCopiedEvent) event).getTargetWikiId());
+            } catch (Exception e) {
+                this.logger.error("Error while registering the copied wiki macros.", e);
+            }
         }
     }
 }
@@ -124,6 +124,20 @@ public class DefaultSolrConfiguration implements SolrConfiguration
      */
     public static final int SOLR_INDEXER_QUEUE_CAPACITY_DEFAULT = 100000;
 
+    /**
+     * The name of the configuration property containing the number of metadata extraction threads.
+     * 
+     * @since 16.3.0RC1
+     */
+    public static final String SOLR_INDEXER_THREADS_PROPERTY = "solr.indexer.threads";
+
+    /**
+     * The default number of metadata extraction threads.
+     * 
+     * @since 16.3.0RC1
+     */
+    public static final int SOLR_INDEXER_THREADS_DEFAULT = 1;
+
     /**
      * The name of the configuration property indicating if a synchronization should be run at startup.
      */
@@ -200,6 +214,14 @@ public int getIndexerQueueCapacity()
             SOLR_INDEXER_QUEUE_CAPACITY_DEFAULT);
     }
 
+    @Override
+    public int getIndexerThreads()
+    {
+        int threads = this.configuration.getProperty(SOLR_INDEXER_THREADS_PROPERTY, SOLR_INDEXER_THREADS_DEFAULT);
+
+        return threads > 0 ? threads : SOLR_INDEXER_THREADS_DEFAULT;
+    }
+
     @Override
     public boolean synchronizeAtStartup()
     {
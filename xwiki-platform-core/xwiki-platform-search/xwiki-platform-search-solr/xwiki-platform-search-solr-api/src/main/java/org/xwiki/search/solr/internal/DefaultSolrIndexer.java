@@ -19,14 +19,25 @@
  */
 package org.xwiki.search.solr.internal;
 
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
 import org.xwiki.bridge.internal.DocumentContextExecutor;
@@ -44,6 +55,7 @@
 import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.job.JobException;
 import org.xwiki.job.JobExecutor;
+import org.xwiki.management.JMXBeanRegistration;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.search.solr.internal.api.IndexingUserConfig;
@@ -51,6 +63,7 @@
 import org.xwiki.search.solr.internal.api.SolrIndexer;
 import org.xwiki.search.solr.internal.api.SolrIndexerException;
 import org.xwiki.search.solr.internal.api.SolrInstance;
+import org.xwiki.search.solr.internal.jmx.JMXSolrIndexer;
 import org.xwiki.search.solr.internal.job.IndexerJob;
 import org.xwiki.search.solr.internal.job.IndexerRequest;
 import org.xwiki.search.solr.internal.metadata.LengthSolrInputDocument;
@@ -67,6 +80,10 @@
  * This implementation does not directly process the given leaf-references, but adds them to a processing queue, in the
  * order they were received. The {@link Runnable} part of this implementation is the one that sequentially reads and
  * processes the queue.
+ * <p>
+ * The metadata extraction of the entities to index can be executed by a pool of threads (see
+ * {@link SolrConfiguration#getIndexerThreads()}) but the resulting operations are always sent to the Solr server in the
+ * order in which they were queued, so that an update can never overtake a delete of the same entity.
  * 
  * @version $Id$
  * @since 5.1M2
@@ -180,6 +197,35 @@ public ResolveQueueEntry(EntityReference reference, boolean recurse, IndexOperat
         }
     }
 
+    /**
+     * An index queue entry waiting for its metadata extraction to finish before being sent to the Solr server.
+     * 
+     * @version $Id$
+     */
+    private static class PendingIndexEntry
+    {
+        /**
+         * The entry read from the index queue.
+         */
+        public final IndexQueueEntry entry;
+
+        /**
+         * The extraction executed in the extraction thread pool, {@code null} if the extraction (if any) should be
+         * executed in the index thread.
+         */
+        public final Future<LengthSolrInputDocument> extraction;
+
+        /**
+         * @param entry the entry read from the index queue
+         * @param extraction the extraction executed in the extraction thread pool
+         */
+        PendingIndexEntry(IndexQueueEntry entry, Future<LengthSolrInputDocument> extraction)
+        {
+            this.entry = entry;
+            this.extraction = extraction;
+        }
+    }
+
     /**
      * Extract children references from passed references and dispatch them to the index queue.
      * 
@@ -219,13 +265,16 @@ public void runInternal()
 
                         for (EntityReference reference : references) {
                             indexQueue.put(new IndexQueueEntry(reference, queueEntry.operation));
+                            resolvedCount.increment();
                         }
                     } else {
                         if (queueEntry.recurse) {
                             indexQueue.put(new IndexQueueEntry(solrRefereceResolver.getQuery(queueEntry.reference),
                                 queueEntry.operation));
+                            resolvedCount.increment();
                         } else if (queueEntry.reference != null) {
                             indexQueue.put(new IndexQueueEntry(queueEntry.reference, queueEntry.operation));
+                            resolvedCount.increment();
                         }
                     }
                 } catch (Throwable e) {
@@ -250,6 +299,8 @@ public void runInternal()
     private static final IndexQueueEntry INDEX_QUEUE_ENTRY_STOP =
         new IndexQueueEntry((String) null, IndexOperation.STOP);
 
+    private static final String MBEAN_NAME = "type=Solr,name=indexer";
+
     /**
      * Logging framework.
      */
@@ -301,6 +352,9 @@ public void runInternal()
     @Inject
     private Provider<XWikiContext> xWikiContextProvider;
 
+    @Inject
+    private JMXBeanRegistration jmxRegistration;
+
     /**
      * The queue of index operation to perform.
      */
@@ -311,6 +365,35 @@ public void runInternal()
      */
     private BlockingQueue<ResolveQueueEntry> resolveQueue;
 
+    /**
+     * The index operations read from the index queue and waiting for their metadata extraction to finish.
+     */
+    private final Queue<PendingIndexEntry> pendingQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The threads in which the metadata of the entities to index are extracted, {@code null} if the extraction is
+     * executed directly by the index thread.
+     */
+    private ExecutorService extractionExecutor;
+
+    /**
+     * The number of threads used to extract metadata.
+     */
+    private int extractionThreads;
+
+    /**
+     * The maximum number of operations read from the index queue and not yet sent to the Solr server.
+     */
+    private int extractionWindow;
+
+    private final LongAdder resolvedCount = new LongAdder();
+
+    private final LongAdder extractedCount = new LongAdder();
+
+    private final LongAdder sentCount = new LongAdder();
+
+    private final LongAdder commitCount = new LongAdder();
+
     /**
      * Thread in which the indexUpdater will be executed.
      */
@@ -338,6 +421,23 @@ public void initialize() throws InitializationException
         this.resolveQueue = new LinkedBlockingQueue<>();
         this.indexQueue = new LinkedBlockingQueue<>(this.configuration.getIndexerQueueCapacity());
 
+        // Initialize the extraction thread pool (when more than one thread is configured)
+        this.extractionThreads = this.configuration.getIndexerThreads();
+        if (this.extractionThreads > 1) {
+            BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                .namingPattern("XWiki Solr extraction thread %d").daemon(true).priority(Thread.NORM_PRIORITY - 1)
+                .build();
+            this.extractionExecutor = Executors.newFixedThreadPool(this.extractionThreads, factory);
+            // Keep all the threads busy while the index thread waits for the oldest extraction to finish
+            this.extractionWindow = this.extractionThreads * 2;
+        } else {
+            this.extractionWindow = 1;
+        }
+
+        this.jmxRegistration.registerMBean(new JMXSolrIndexer(this.resolveQueue::size, this.indexQueue::size,
+            this.pendingQueue::size, () -> this.extractionThreads, this.resolvedCount::sum, this.extractedCount::sum,
+            this.sentCount::sum, this.commitCount::sum), MBEAN_NAME);
+
         // Launch the resolve thread
         this.resolveThread = new Thread(new Resolver());
         this.resolveThread.setName("XWiki Solr resolve thread");
@@ -359,6 +459,8 @@ public void dispose() throws ComponentLifecycleException
         // Mark the component as disposed
         this.disposed = true;
 
+        this.jmxRegistration.unregisterMBean(MBEAN_NAME);
+
         // Stop the resolve thread. Clear the queue and send the stop signal without blocking. We know that the resolve
         // queue will remain empty after the clear call because we set the disposed flag above.
         this.resolveQueue.clear();
@@ -395,6 +497,10 @@ public void run()
             }
         }
 
+        if (this.extractionExecutor != null) {
+            this.extractionExecutor.shutdownNow();
+        }
+
         this.logger.debug("Stop SOLR indexer thread");
     }
 
@@ -412,46 +518,23 @@ private boolean processBatch(IndexQueueEntry queueEntry)
         for (IndexQueueEntry batchEntry = queueEntry; batchEntry != null; batchEntry = this.indexQueue.poll()) {
             if (batchEntry == INDEX_QUEUE_ENTRY_STOP) {
                 // Discard the current batch and stop the indexing thread.
+                discardPendingEntries();
+
                 return false;
             }
 
-            IndexOperation operation = batchEntry.operation;
+            // Start extracting the metadata as soon as possible
+            this.pendingQueue.add(prepare(batchEntry));
 
-            // For the current contiguous operations queue, group the changes
-            try {
-                ExecutionContext executionContext = new ExecutionContext();
-                this.ecim.initialize(executionContext);
-                XWikiContext xcontext = (XWikiContext) executionContext.getProperty(XWikiContext.EXECUTIONCONTEXT_KEY);
-                xcontext.setUserReference(indexingUserConfig.getIndexingUserReference());
-
-                if (IndexOperation.INDEX.equals(operation)) {
-                    LengthSolrInputDocument solrDocument = getSolrDocument(batchEntry.reference);
-                    if (solrDocument != null) {
-                        solrInstance.add(solrDocument);
-                        length += solrDocument.getLength();
-                        ++this.batchSize;
-                    }
-                } else if (IndexOperation.DELETE.equals(operation)) {
-                    if (batchEntry.reference == null) {
-                        solrInstance.deleteByQuery(batchEntry.deleteQuery);
-                    } else {
-                        solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
-                    }
-
-                    ++this.batchSize;
-                }
-            } catch (Throwable e) {
-                this.logger.error("Failed to process entry [{}]", batchEntry, e);
-            } finally {
-                this.execution.removeContext();
+            // Send the operations in the order they were queued, as soon as the extraction window is full
+            while (this.pendingQueue.size() >= this.extractionWindow) {
+                length = send(this.pendingQueue.poll(), length);
             }
+        }
 
-            // Commit the index changes so that they become available to queries. This is a costly operation and that is
-            // the reason why we perform it at the end of the batch.
-            if (shouldCommit(length, this.batchSize)) {
-                commit();
-                length = 0;
-            }
+        // Send what's left
+        while (!this.pendingQueue.isEmpty()) {
+            length = send(this.pendingQueue.poll(), length);
         }
 
         // Commit what's left
@@ -462,6 +545,149 @@ private boolean processBatch(IndexQueueEntry queueEntry)
         return true;
     }
 
+    /**
+     * Start extracting the metadata of the entity to index in the extraction thread pool, if any.
+     * 
+     * @param queueEntry the entry read from the index queue
+     * @return the entry waiting to be sent to the Solr server
+     */
+    private PendingIndexEntry prepare(IndexQueueEntry queueEntry)
+    {
+        Future<LengthSolrInputDocument> extraction = null;
+
+        if (this.extractionExecutor != null && IndexOperation.INDEX.equals(queueEntry.operation)) {
+            try {
+                extraction = this.extractionExecutor.submit(() -> extract(queueEntry.reference));
+            } catch (RejectedExecutionException e) {
+                // The pool is being shutdown, fallback on the index thread
+                this.logger.debug("Failed to submit the extraction of entry [{}]", queueEntry, e);
+            }
+        }
+
+        return new PendingIndexEntry(queueEntry, extraction);
+    }
+
+    /**
+     * Cancel the extractions which did not finish yet.
+     */
+    private void discardPendingEntries()
+    {
+        for (PendingIndexEntry pendingEntry = this.pendingQueue.poll(); pendingEntry != null;
+            pendingEntry = this.pendingQueue.poll()) {
+            if (pendingEntry.extraction != null) {
+                pendingEntry.extraction.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Send the operation to the Solr server (waiting for its metadata extraction to finish if needed) and commit if the
+     * batch is big enough.
+     * 
+     * @param pendingEntry the operation to send
+     * @param currentLength the length of the current batch
+     * @return the new length of the current batch
+     */
+    private int send(PendingIndexEntry pendingEntry, int currentLength)
+    {
+        int length = currentLength;
+
+        IndexQueueEntry batchEntry = pendingEntry.entry;
+        IndexOperation operation = batchEntry.operation;
+
+        try {
+            if (IndexOperation.INDEX.equals(operation)) {
+                LengthSolrInputDocument solrDocument = getExtractedDocument(pendingEntry);
+                if (solrDocument != null) {
+                    this.solrInstance.add(solrDocument);
+                    length += solrDocument.getLength();
+                    ++this.batchSize;
+                    this.sentCount.increment();
+                }
+            } else if (IndexOperation.DELETE.equals(operation)) {
+                deleteEntry(batchEntry);
+                ++this.batchSize;
+                this.sentCount.increment();
+            }
+        } catch (InterruptedException e) {
+            this.logger.warn("The SOLR index thread has been interrupted while processing entry [{}]", batchEntry);
+
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            this.logger.error("Failed to process entry [{}]", batchEntry, e.getCause());
+        } catch (Throwable e) {
+            this.logger.error("Failed to process entry [{}]", batchEntry, e);
+        }
+
+        // Commit the index changes so that they become available to queries. This is a costly operation and that is
+        // the reason why we perform it at the end of the batch.
+        if (shouldCommit(length, this.batchSize)) {
+            commit();
+            length = 0;
+        }
+
+        return length;
+    }
+
+    private LengthSolrInputDocument getExtractedDocument(PendingIndexEntry pendingEntry)
+        throws InterruptedException, ExecutionException, SolrIndexerException, ExecutionContextException
+    {
+        if (pendingEntry.extraction != null) {
+            return pendingEntry.extraction.get();
+        }
+
+        return extract(pendingEntry.entry.reference);
+    }
+
+    /**
+     * Extract the metadata of the passed entity in a dedicated execution context.
+     * 
+     * @param reference the reference of the entity to extract metadata from
+     * @return the {@link SolrInputDocument} containing extracted metadata from the passed reference; {@code null} if
+     *         the reference type is not supported.
+     * @throws SolrIndexerException if problems occur
+     * @throws ExecutionContextException when failing to initialize the execution context
+     */
+    private LengthSolrInputDocument extract(EntityReference reference)
+        throws SolrIndexerException, ExecutionContextException
+    {
+        try {
+            initializeExecutionContext();
+
+            LengthSolrInputDocument solrDocument = getSolrDocument(reference);
+
+            this.extractedCount.increment();
+
+            return solrDocument;
+        } finally {
+            this.execution.removeContext();
+        }
+    }
+
+    private void deleteEntry(IndexQueueEntry queueEntry)
+        throws SolrServerException, IOException, SolrIndexerException, ExecutionContextException
+    {
+        try {
+            initializeExecutionContext();
+
+            if (queueEntry.reference == null) {
+                this.solrInstance.deleteByQuery(queueEntry.deleteQuery);
+            } else {
+                this.solrInstance.delete(this.solrRefereceResolver.getId(queueEntry.reference));
+            }
+        } finally {
+            this.execution.removeContext();
+        }
+    }
+
+    private void initializeExecutionContext() throws ExecutionContextException
+    {
+        ExecutionContext executionContext = new ExecutionContext();
+        this.ecim.initialize(executionContext);
+        XWikiContext xcontext = (XWikiContext) executionContext.getProperty(XWikiContext.EXECUTIONCONTEXT_KEY);
+        xcontext.setUserReference(this.indexingUserConfig.getIndexingUserReference());
+    }
+
     /**
      * Commit.
      */
@@ -481,6 +707,8 @@ private void commit()
         }
 
         this.batchSize = 0;
+
+        this.commitCount.increment();
     }
 
     /**
@@ -585,7 +813,7 @@ private void addToQueue(EntityReference reference, boolean recurse, IndexOperati
     @Override
     public int getQueueSize()
     {
-        return this.indexQueue.size() + this.resolveQueue.size() + this.batchSize;
+        return this.indexQueue.size() + this.resolveQueue.size() + this.pendingQueue.size() + this.batchSize;
     }
 
     @Override
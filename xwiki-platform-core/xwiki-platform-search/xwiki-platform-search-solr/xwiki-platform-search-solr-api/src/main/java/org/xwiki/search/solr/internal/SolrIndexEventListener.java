@@ -33,6 +33,7 @@
 import org.xwiki.bridge.event.DocumentCreatedEvent;
 import org.xwiki.bridge.event.DocumentDeletedEvent;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiBulkCopiedEvent;
 import org.xwiki.bridge.event.WikiDeletedEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.mail.GeneralMailConfigurationUpdatedEvent;
@@ -76,7 +77,8 @@ public class SolrIndexEventListener implements EventListener
         new DocumentCreatedEvent(), new DocumentDeletedEvent(), new AttachmentAddedEvent(),
         new AttachmentDeletedEvent(), new AttachmentUpdatedEvent(), new XObjectAddedEvent(), new XObjectDeletedEvent(),
         new XObjectUpdatedEvent(), new XObjectPropertyAddedEvent(), new XObjectPropertyDeletedEvent(),
-        new XObjectPropertyUpdatedEvent(), new WikiDeletedEvent(), new GeneralMailConfigurationUpdatedEvent());
+        new XObjectPropertyUpdatedEvent(), new WikiDeletedEvent(), new WikiBulkCopiedEvent(),
+        new GeneralMailConfigurationUpdatedEvent());
 
     /**
      * Logging framework.
@@ -176,6 +178,9 @@ public void onEvent(Event event, Object source, Object data)
                 WikiReference wikiReference = new WikiReference(wikiName);
 
                 this.solrIndexer.get().delete(wikiReference, false);
+            } else if (event instanceof WikiBulkCopiedEvent) {
+                // The documents have been copied without sending any document event so index the whole wiki
+                this.solrIndexer.get().index(new WikiReference(((WikiBulkCopiedEvent) event).getTargetWikiId()), true);
             } else if (event instanceof GeneralMailConfigurationUpdatedEvent) {
                 // Refresh the index when the mail configuration is changed because the mail configuration is used to
                 // decide if emails shall be indexed or not.
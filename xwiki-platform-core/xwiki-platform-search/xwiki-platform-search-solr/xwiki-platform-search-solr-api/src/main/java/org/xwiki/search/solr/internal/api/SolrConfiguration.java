@@ -98,6 +98,15 @@
      */
     int getIndexerQueueCapacity();
 
+    /**
+     * @return the number of threads used to extract the metadata of the entities to index
+     * @since 16.3.0RC1
+     */
+    default int getIndexerThreads()
+    {
+        return 1;
+    }
+
     /**
      * @return true if a full synchronization job between the database and SOLR index should be run when XWiki starts
      * @since 6.1M2
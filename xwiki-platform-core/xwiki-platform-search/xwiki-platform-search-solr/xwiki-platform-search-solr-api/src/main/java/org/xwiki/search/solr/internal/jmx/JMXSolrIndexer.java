@@ -0,0 +1,122 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.jmx;
+
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Implementation of the {@link JMXSolrIndexerMBean} MBean.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+public class JMXSolrIndexer implements JMXSolrIndexerMBean
+{
+    private final LongSupplier resolveQueueSize;
+
+    private final LongSupplier indexQueueSize;
+
+    private final LongSupplier extractionQueueSize;
+
+    private final IntSupplier extractionThreads;
+
+    private final LongSupplier resolvedCount;
+
+    private final LongSupplier extractedCount;
+
+    private final LongSupplier sentCount;
+
+    private final LongSupplier commitCount;
+
+    /**
+     * Let the component initializing the MBean provide the suppliers for the MBean operations.
+     *
+     * @param resolveQueueSize the resolve queue size supplier
+     * @param indexQueueSize the index queue size supplier
+     * @param extractionQueueSize the extraction queue size supplier
+     * @param extractionThreads the extraction threads count supplier
+     * @param resolvedCount the resolved entries count supplier
+     * @param extractedCount the extracted entities count supplier
+     * @param sentCount the sent operations count supplier
+     * @param commitCount the commits count supplier
+     */
+    public JMXSolrIndexer(LongSupplier resolveQueueSize, LongSupplier indexQueueSize,
+        LongSupplier extractionQueueSize, IntSupplier extractionThreads, LongSupplier resolvedCount,
+        LongSupplier extractedCount, LongSupplier sentCount, LongSupplier commitCount)
+    {
+        this.resolveQueueSize = resolveQueueSize;
+        this.indexQueueSize = indexQueueSize;
+        this.extractionQueueSize = extractionQueueSize;
+        this.extractionThreads = extractionThreads;
+        this.resolvedCount = resolvedCount;
+        this.extractedCount = extractedCount;
+        this.sentCount = sentCount;
+        this.commitCount = commitCount;
+    }
+
+    @Override
+    public long getResolveQueueSize()
+    {
+        return this.resolveQueueSize.getAsLong();
+    }
+
+    @Override
+    public long getIndexQueueSize()
+    {
+        return this.indexQueueSize.getAsLong();
+    }
+
+    @Override
+    public long getExtractionQueueSize()
+    {
+        return this.extractionQueueSize.getAsLong();
+    }
+
+    @Override
+    public int getExtractionThreads()
+    {
+        return this.extractionThreads.getAsInt();
+    }
+
+    @Override
+    public long getResolvedCount()
+    {
+        return this.resolvedCount.getAsLong();
+    }
+
+    @Override
+    public long getExtractedCount()
+    {
+        return this.extractedCount.getAsLong();
+    }
+
+    @Override
+    public long getSentCount()
+    {
+        return this.sentCount.getAsLong();
+    }
+
+    @Override
+    public long getCommitCount()
+    {
+        return this.commitCount.getAsLong();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.jmx;
+
+/**
+ * Interface of the {@link JMXSolrIndexer} MBean.
+ *
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+public interface JMXSolrIndexerMBean
+{
+    /**
+     * @return the number of root references waiting to be resolved
+     */
+    long getResolveQueueSize();
+
+    /**
+     * @return the number of entries waiting to be picked by the index thread
+     */
+    long getIndexQueueSize();
+
+    /**
+     * @return the number of entries whose metadata is being extracted or waiting to be sent to the Solr server
+     */
+    long getExtractionQueueSize();
+
+    /**
+     * @return the number of threads used to extract the metadata of the entities to index
+     */
+    int getExtractionThreads();
+
+    /**
+     * @return the total number of entries produced by the resolve stage
+     */
+    long getResolvedCount();
+
+    /**
+     * @return the total number of entities whose metadata have been extracted
+     */
+    long getExtractedCount();
+
+    /**
+     * @return the total number of index and delete operations sent to the Solr server
+     */
+    long getSentCount();
+
+    /**
+     * @return the total number of commits sent to the Solr server
+     */
+    long getCommitCount();
+}
@@ -19,7 +19,6 @@
  */
 package org.xwiki.search.solr.internal.metadata;
 
-import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
@@ -33,8 +32,6 @@
 import javax.inject.Provider;
 
 import org.apache.solr.common.SolrInputDocument;
-import org.apache.tika.metadata.Metadata;
-import org.apache.tika.metadata.TikaCoreProperties;
 import org.slf4j.Logger;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
@@ -47,7 +44,6 @@
 import org.xwiki.search.solr.internal.SolrSearchCoreUtils;
 import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrIndexerException;
-import org.xwiki.tika.internal.TikaUtils;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -127,6 +123,9 @@ public abstract class AbstractSolrMetadataExtractor implements SolrMetadataExtra
     @Inject
     protected GeneralMailConfiguration generalMailConfiguration;
 
+    @Inject
+    protected AttachmentTextStore attachmentTextStore;
+
     private int shortTextLimit = -1;
 
     /**
@@ -518,27 +517,15 @@ protected void addFieldValueOnce(SolrInputDocument solrDocument, String fieldNam
 
     /**
      * Tries to extract text indexable content from a generic attachment.
+     * <p>
+     * The text is extracted only once per attachment version, see {@link AttachmentTextStore}.
      * 
      * @param attachment the attachment to extract the content from
      * @return the text representation of the attachment's content
      */
     protected String getContentAsText(XWikiAttachment attachment)
     {
-        try {
-            Metadata metadata = new Metadata();
-            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, attachment.getFilename());
-
-            InputStream in = attachment.getContentInputStream(this.xcontextProvider.get());
-
-            try {
-                return TikaUtils.parseToString(in, metadata);
-            } finally {
-                in.close();
-            }
-        } catch (Exception e) {
-            this.logger.error("Failed to retrieve the content of attachment [{}]", attachment.getReference(), e);
-            return null;
-        }
+        return this.attachmentTextStore.getText(attachment);
     }
 
     private void setHierarchyFields(SolrInputDocument solrDocument, EntityReference path)
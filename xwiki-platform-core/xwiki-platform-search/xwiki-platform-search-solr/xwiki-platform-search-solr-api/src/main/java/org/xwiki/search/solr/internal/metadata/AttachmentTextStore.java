@@ -0,0 +1,241 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.metadata;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.tika.internal.TikaUtils;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiAttachment;
+
+/**
+ * Extract the text of the attachments content and store it on the file system so that it can be reused as long as the
+ * attachment content does not change (in the next indexing of the document, when reindexing the whole wiki, etc.).
+ * <p>
+ * The text is stored in the {@code store/solr-text} folder of the permanent directory. Each attachment has its own
+ * folder which contains only the text of the latest extracted version.
+ * 
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+@Component(roles = AttachmentTextStore.class)
+@Singleton
+public class AttachmentTextStore
+{
+    private static final String STORE_DIRECTORY = "store/solr-text";
+
+    private static final String TEXT_EXTENSION = ".txt";
+
+    private static final String TMP_EXTENSION = ".tmp";
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * @param attachment the attachment from which to extract the text
+     * @return the text of the attachment content, or {@code null} if it could not be extracted
+     */
+    public String getText(XWikiAttachment attachment)
+    {
+        File textFile = getTextFile(attachment);
+
+        // Try to reuse the text extracted for the same version of the attachment
+        if (textFile != null && textFile.exists()) {
+            try {
+                return FileUtils.readFileToString(textFile, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                this.logger.warn("Failed to read the stored text of attachment [{}], extracting it again",
+                    attachment.getReference(), e);
+            }
+        }
+
+        String text = extractText(attachment);
+
+        if (text != null && textFile != null) {
+            storeText(text, textFile, attachment);
+        }
+
+        return text;
+    }
+
+    /**
+     * Remove the stored text of the passed attachment.
+     * 
+     * @param attachmentReference the reference of the attachment
+     */
+    public void evict(AttachmentReference attachmentReference)
+    {
+        delete(getAttachmentDirectory(attachmentReference));
+    }
+
+    /**
+     * Remove the stored text of all the attachments of the passed document.
+     * 
+     * @param documentReference the reference of the document
+     */
+    public void evict(DocumentReference documentReference)
+    {
+        delete(getDocumentDirectory(documentReference));
+    }
+
+    /**
+     * Remove the stored text of all the attachments of the passed wiki.
+     * 
+     * @param wikiReference the reference of the wiki
+     */
+    public void evict(WikiReference wikiReference)
+    {
+        delete(getWikiDirectory(wikiReference));
+    }
+
+    private String extractText(XWikiAttachment attachment)
+    {
+        try {
+            Metadata metadata = new Metadata();
+            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, attachment.getFilename());
+
+            try (InputStream in = attachment.getContentInputStream(this.xcontextProvider.get())) {
+                return TikaUtils.parseToString(in, metadata);
+            }
+        } catch (Exception e) {
+            this.logger.error("Failed to retrieve the content of attachment [{}]", attachment.getReference(), e);
+
+            return null;
+        }
+    }
+
+    private void storeText(String text, File textFile, XWikiAttachment attachment)
+    {
+        File attachmentDirectory = textFile.getParentFile();
+
+        try {
+            attachmentDirectory.mkdirs();
+
+            // Write the text in a unique temporary file first to not expose a partially written file to another
+            // indexer thread (which might be extracting the same attachment at the same time)
+            File tmpFile = File.createTempFile(textFile.getName(), TMP_EXTENSION, attachmentDirectory);
+            try {
+                FileUtils.writeStringToFile(tmpFile, text, StandardCharsets.UTF_8);
+                Files.move(tmpFile.toPath(), textFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmpFile.toPath());
+            }
+
+            // Only the latest version of the attachment is indexed so we don't need the text of the previous ones.
+            // Temporary files are left alone since they belong to other threads currently storing a text.
+            cleanPreviousTexts(attachmentDirectory, textFile);
+        } catch (IOException e) {
+            this.logger.warn("Failed to store the text of attachment [{}]", attachment.getReference(), e);
+        }
+    }
+
+    private void cleanPreviousTexts(File attachmentDirectory, File textFile)
+    {
+        File[] previousFiles = attachmentDirectory
+            .listFiles(file -> file.getName().endsWith(TEXT_EXTENSION) && !file.equals(textFile));
+        if (previousFiles != null) {
+            for (File previousFile : previousFiles) {
+                try {
+                    Files.deleteIfExists(previousFile.toPath());
+                } catch (IOException e) {
+                    this.logger.debug("Failed to delete the previous attachment text [{}]: {}", previousFile,
+                        ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+        }
+    }
+
+    private void delete(File directory)
+    {
+        try {
+            FileUtils.deleteDirectory(directory);
+        } catch (IOException e) {
+            this.logger.warn("Failed to delete the attachment text store folder [{}]", directory, e);
+        }
+    }
+
+    private File getTextFile(XWikiAttachment attachment)
+    {
+        String version = attachment.getVersion();
+        Date date = attachment.getDate();
+
+        // Only attachments which have been saved can be identified
+        if (version == null || date == null || attachment.getReference() == null) {
+            return null;
+        }
+
+        // The version alone is not enough to identify the content (the history of an attachment can be reset, the
+        // attachment can be deleted and then added again, etc.) so we also take into account the content size and date
+        String fileName = DigestUtils.sha256Hex(version + '/' + attachment.getLongSize() + '/' + date.getTime());
+
+        return new File(getAttachmentDirectory(attachment.getReference()), fileName + TEXT_EXTENSION);
+    }
+
+    private File getWikiDirectory(WikiReference wikiReference)
+    {
+        return new File(new File(this.environment.getPermanentDirectory(), STORE_DIRECTORY),
+            DigestUtils.sha256Hex(wikiReference.getName()));
+    }
+
+    private File getDocumentDirectory(DocumentReference documentReference)
+    {
+        return new File(getWikiDirectory(documentReference.getWikiReference()),
+            DigestUtils.sha256Hex(this.serializer.serialize(documentReference.withoutLocale())));
+    }
+
+    private File getAttachmentDirectory(AttachmentReference attachmentReference)
+    {
+        return new File(getDocumentDirectory(attachmentReference.getDocumentReference()),
+            DigestUtils.sha256Hex(attachmentReference.getName()));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.metadata;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.AttachmentDeletedEvent;
+
+/**
+ * Remove the stored text of the attachments which don't exist anymore.
+ * 
+ * @version $Id$
+ * @since 16.3.0RC1
+ */
+@Component
+@Named(AttachmentTextStoreListener.NAME)
+@Singleton
+public class AttachmentTextStoreListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "org.xwiki.search.solr.internal.metadata.AttachmentTextStoreListener";
+
+    /**
+     * Lazily initialize the {@link AttachmentTextStore} to not initialize it too early.
+     */
+    @Inject
+    private Provider<AttachmentTextStore> store;
+
+    /**
+     * The default constructor.
+     */
+    public AttachmentTextStoreListener()
+    {
+        super(NAME, Arrays.asList(new AttachmentDeletedEvent(), new DocumentDeletedEvent(), new WikiDeletedEvent()));
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof AttachmentDeletedEvent) {
+            XWikiDocument document = (XWikiDocument) source;
+
+            this.store.get().evict(
+                new AttachmentReference(((AttachmentDeletedEvent) event).getName(), document.getDocumentReference()));
+        } else if (event instanceof DocumentDeletedEvent) {
+            XWikiDocument document = (XWikiDocument) source;
+
+            // Attachments are shared by all the translations of the document
+            if (Locale.ROOT.equals(document.getLocale())) {
+                this.store.get().evict(document.getDocumentReference());
+            }
+        } else if (event instanceof WikiDeletedEvent) {
+            this.store.get().evict(new WikiReference((String) source));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.xwiki.bridge.internal.DocumentContextExecutor;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.job.JobExecutor;
+import org.xwiki.management.JMXBeanRegistration;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.search.solr.internal.api.IndexingUserConfig;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+import org.xwiki.search.solr.internal.api.SolrInstance;
+import org.xwiki.search.solr.internal.metadata.LengthSolrInputDocument;
+import org.xwiki.search.solr.internal.metadata.SolrMetadataExtractor;
+import org.xwiki.search.solr.internal.reference.SolrReferenceResolver;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.web.Utils;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DefaultSolrIndexer}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class DefaultSolrIndexerTest
+{
+    @InjectMockComponents
+    private DefaultSolrIndexer indexer;
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @MockComponent
+    private SolrConfiguration configuration;
+
+    @MockComponent
+    private SolrInstance solrInstance;
+
+    @MockComponent
+    private SolrReferenceResolver solrReferenceResolver;
+
+    @MockComponent
+    private IndexingUserConfig indexingUserConfig;
+
+    @MockComponent
+    private Execution execution;
+
+    @MockComponent
+    private ExecutionContextManager ecim;
+
+    @MockComponent
+    private JobExecutor jobs;
+
+    @MockComponent
+    private DocumentContextExecutor documentContextExecutor;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @MockComponent
+    private JMXBeanRegistration jmxRegistration;
+
+    @MockComponent
+    @Named("document")
+    private SolrMetadataExtractor documentExtractor;
+
+    @BeforeComponent
+    void beforeComponent() throws Exception
+    {
+        Utils.setComponentManager(this.componentManager);
+
+        when(this.configuration.getIndexerThreads()).thenReturn(4);
+        when(this.configuration.getIndexerQueueCapacity()).thenReturn(100);
+        when(this.configuration.getIndexerBatchSize()).thenReturn(50);
+        when(this.configuration.getIndexerBatchMaxLengh()).thenReturn(10000);
+
+        XWikiContext xcontext = mock(XWikiContext.class);
+        XWiki xwiki = mock(XWiki.class);
+        when(xcontext.getWiki()).thenReturn(xwiki);
+        when(xwiki.getDocument(any(EntityReference.class), any(XWikiContext.class)))
+            .thenReturn(mock(XWikiDocument.class));
+        when(this.xcontextProvider.get()).thenReturn(xcontext);
+
+        doAnswer(invocation -> {
+            ExecutionContext context = invocation.getArgument(0);
+            context.setProperty(XWikiContext.EXECUTIONCONTEXT_KEY, xcontext);
+            return null;
+        }).when(this.ecim).initialize(any());
+
+        when(this.documentContextExecutor.call(any(), any()))
+            .then(invocation -> ((Callable<?>) invocation.getArgument(0)).call());
+
+        when(this.solrReferenceResolver.getId(any()))
+            .then(invocation -> ((EntityReference) invocation.getArgument(0)).getName());
+    }
+
+    @Test
+    void sendInQueueOrderWithParallelExtraction() throws Exception
+    {
+        when(this.documentExtractor.getSolrDocument(any())).then(invocation -> {
+            EntityReference reference = invocation.getArgument(0);
+
+            // Make the first extractions the slowest ones
+            int index = Integer.parseInt(reference.getName());
+            Thread.sleep((5 - index) * 50L);
+
+            LengthSolrInputDocument document = new LengthSolrInputDocument();
+            document.setField("id", reference.getName());
+            return document;
+        });
+
+        List<DocumentReference> references = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            DocumentReference reference = new DocumentReference("wiki", "space", String.valueOf(i));
+            references.add(reference);
+            this.indexer.index(reference, false);
+        }
+        this.indexer.delete(references.get(0), false);
+
+        // Wait for the last operation
+        verify(this.solrInstance, timeout(10000)).delete("0");
+
+        InOrder inOrder = inOrder(this.solrInstance);
+        for (DocumentReference reference : references) {
+            inOrder.verify(this.solrInstance)
+                .add(argThat((LengthSolrInputDocument document) -> reference.getName()
+                    .equals(document.getFieldValue("id"))));
+        }
+        inOrder.verify(this.solrInstance).delete("0");
+    }
+}
@@ -25,6 +25,7 @@
 import org.junit.jupiter.api.Test;
 import org.xwiki.bridge.event.DocumentDeletedEvent;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiBulkCopiedEvent;
 import org.xwiki.mail.GeneralMailConfigurationUpdatedEvent;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
@@ -114,4 +115,11 @@ void onGeneralMailConfigurationUpdatedEvent()
         this.listener.onEvent(new GeneralMailConfigurationUpdatedEvent(otherWiki), otherWiki, null);
         verify(this.indexer).index(new WikiReference(otherWiki), true);
     }
+
+    @Test
+    void onWikiBulkCopiedEvent()
+    {
+        this.listener.onEvent(new WikiBulkCopiedEvent("template", "target"), "target", null);
+        verify(this.indexer).index(new WikiReference("target"), true);
+    }
 }
@@ -0,0 +1,181 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.TestEnvironment;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link AttachmentTextStore}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+@ReferenceComponentList
+@ComponentList(TestEnvironment.class)
+class AttachmentTextStoreTest
+{
+    private static final DocumentReference DOCUMENT_REFERENCE = new DocumentReference("wiki", "Space", "Page");
+
+    @InjectMockComponents
+    private AttachmentTextStore store;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private Environment environment;
+
+    private XWikiContext xcontext = mock(XWikiContext.class);
+
+    @BeforeEach
+    void beforeEach()
+    {
+        when(this.xcontextProvider.get()).thenReturn(this.xcontext);
+    }
+
+    private XWikiAttachment mockAttachment(String fileName, String version, String content) throws Exception
+    {
+        XWikiAttachment attachment = mock(XWikiAttachment.class);
+        when(attachment.getReference()).thenReturn(new AttachmentReference(fileName, DOCUMENT_REFERENCE));
+        when(attachment.getFilename()).thenReturn(fileName);
+        when(attachment.getVersion()).thenReturn(version);
+        when(attachment.getDate()).thenReturn(new Date(42));
+        when(attachment.getLongSize()).thenReturn((long) content.length());
+        when(attachment.getContentInputStream(this.xcontext))
+            .then(invocation -> new ByteArrayInputStream(content.getBytes()));
+
+        return attachment;
+    }
+
+    private File getStoreDirectory()
+    {
+        return new File(this.environment.getPermanentDirectory(), "store/solr-text");
+    }
+
+    @Test
+    void getTextExtractsOncePerVersion() throws Exception
+    {
+        this.store.evict(DOCUMENT_REFERENCE.getWikiReference());
+
+        XWikiAttachment attachment = mockAttachment("file.txt", "1.1", "text content");
+
+        assertEquals("text content\n", this.store.getText(attachment));
+        assertEquals("text content\n", this.store.getText(attachment));
+
+        verify(attachment, times(1)).getContentInputStream(this.xcontext);
+
+        XWikiAttachment newVersion = mockAttachment("file.txt", "1.2", "other content");
+
+        assertEquals("other content\n", this.store.getText(newVersion));
+
+        verify(newVersion, times(1)).getContentInputStream(this.xcontext);
+        // Only the text of the latest version is kept
+        assertEquals(1, FileUtils.listFiles(getStoreDirectory(), new String[] {"txt"}, true).size());
+    }
+
+    @Test
+    void getTextWhenNotSaved() throws Exception
+    {
+        XWikiAttachment attachment = mockAttachment("notsaved.txt", null, "text content");
+
+        assertEquals("text content\n", this.store.getText(attachment));
+        assertEquals("text content\n", this.store.getText(attachment));
+
+        verify(attachment, times(2)).getContentInputStream(this.xcontext);
+    }
+
+    @Test
+    void evict() throws Exception
+    {
+        XWikiAttachment attachment = mockAttachment("evicted.txt", "1.1", "text content");
+
+        this.store.getText(attachment);
+
+        assertFalse(FileUtils.listFiles(getStoreDirectory(), new String[] {"txt"}, true).isEmpty());
+
+        this.store.evict(DOCUMENT_REFERENCE.getWikiReference());
+
+        assertTrue(FileUtils.listFiles(getStoreDirectory(), new String[] {"txt"}, true).isEmpty());
+
+        this.store.getText(attachment);
+
+        verify(attachment, times(2)).getContentInputStream(this.xcontext);
+    }
+
+    @Test
+    void getTextConcurrently() throws Exception
+    {
+        this.store.evict(DOCUMENT_REFERENCE.getWikiReference());
+
+        XWikiAttachment attachment = mockAttachment("concurrent.txt", "1.1", "text content");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<String>> tasks = new ArrayList<>();
+            for (int i = 0; i < 20; ++i) {
+                tasks.add(() -> this.store.getText(attachment));
+            }
+            for (Future<String> future : executor.invokeAll(tasks)) {
+                assertEquals("text content\n", future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // A single text file is stored and no temporary file is left behind
+        assertEquals(1, FileUtils.listFiles(getStoreDirectory(), null, true).size());
+        assertEquals(1, FileUtils.listFiles(getStoreDirectory(), new String[] {"txt"}, true).size());
+    }
+}
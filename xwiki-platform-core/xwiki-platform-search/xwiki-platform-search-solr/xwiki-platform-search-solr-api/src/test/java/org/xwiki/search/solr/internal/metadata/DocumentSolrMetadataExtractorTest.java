@@ -62,6 +62,7 @@
 import org.xwiki.search.solr.internal.api.SolrFieldNameEncoder;
 import org.xwiki.search.solr.internal.api.SolrIndexerException;
 import org.xwiki.search.solr.internal.reference.SolrReferenceResolver;
+import org.xwiki.test.TestEnvironment;
 import org.xwiki.test.annotation.ComponentList;
 import org.xwiki.test.junit5.mockito.ComponentTest;
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
@@ -103,7 +104,8 @@
  * @version $Id$
  */
 @ComponentTest
-@ComponentList({SolrSearchCoreUtils.class, SolrLinkSerializer.class})
+@ComponentList({SolrSearchCoreUtils.class, SolrLinkSerializer.class, AttachmentTextStore.class,
+    TestEnvironment.class})
 @ReferenceComponentList
 class DocumentSolrMetadataExtractorTest
 {
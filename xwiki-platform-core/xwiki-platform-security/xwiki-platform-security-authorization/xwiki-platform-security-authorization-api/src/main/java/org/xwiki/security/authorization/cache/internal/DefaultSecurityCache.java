@@ -151,9 +151,9 @@ public void initialize() throws InitializationException
     private class SecurityCacheEntry
     {
         /**
-         * The cached security entry.
+         * The cached security entry (volatile since it can be upgraded while being read without lock).
          */
-        private SecurityEntry entry;
+        private volatile SecurityEntry entry;
 
         /**
          * Parents of this cached entry.
@@ -166,9 +166,9 @@ public void initialize() throws InitializationException
         private Collection<SecurityCacheEntry> children;
 
         /**
-         * True if this entry has been removed.
+         * True if this entry has been removed (volatile since it is checked by the lock-free read path).
          */
-        private boolean disposed;
+        private volatile boolean disposed;
 
         /**
          * Create a new cache entry for a security rule, linking it to its parent.
@@ -662,13 +662,35 @@ private SecurityCacheEntry getShadowEntry(SecurityReference userReference, Secur
 
     /**
      * Get a security cache entry from the cache or the internal map. In the latter case, the entry is re-inserted
-     * into the cache. This method can be called without locking, it uses the read lock internally.
+     * into the cache. This method can be called without locking, it uses the read lock internally when needed.
+     * <p>
+     * Cache hits don't take any lock: an entry found in the cache which is not disposed is returned as is. If an
+     * invalidation is running concurrently this is the same as if the read happened just before it, which is what
+     * would have happened anyway if the read lock had been acquired first. Disposed entries and misses go through the
+     * locked path.
      *
      * @param key the key of the entry to retrieve
      * @throws IllegalStateException if the entry has been disposed (this should never happen)
      * @return the entry corresponding to the given key, null if none is available in the cache
      */
     private SecurityCacheEntry getInternal(String key)
+    {
+        SecurityCacheEntry result = this.cache.get(key);
+        if (result != null && !result.disposed) {
+            return result;
+        }
+
+        return getInternalLocked(key);
+    }
+
+    /**
+     * Same as {@link #getInternal(String)} but always under the read lock.
+     *
+     * @param key the key of the entry to retrieve
+     * @throws IllegalStateException if the entry has been disposed (this should never happen)
+     * @return the entry corresponding to the given key, null if none is available in the cache
+     */
+    private SecurityCacheEntry getInternalLocked(String key)
     {
         readLock.lock();
         try {
@@ -24,10 +24,17 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -68,6 +75,7 @@
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -983,4 +991,79 @@ void testAcceptsMainWikiShadowAsUserParent() throws Exception
         // Check that the entry was added
         assertSame(entry, this.securityCache.get(userSecurityReference, documentSecurityReference));
     }
+
+    @Test
+    void concurrentReadsAndInvalidations() throws Exception
+    {
+        this.securityCache.add(mockSecurityRuleEntry(newEntityReference(null)));
+        this.securityCache.add(mockSecurityRuleEntry(newEntityReference(new SpaceReference("xwiki", "XWiki"))));
+        SecurityReference documentSecurityReference =
+            newEntityReference(new DocumentReference("xwiki", "XWiki", "page1"));
+        UserSecurityReference userSecurityReference = newUserReference(null);
+
+        // Prepare the entries to insert after each invalidation
+        int iterations = 500;
+        List<SecurityRuleEntry> ruleEntries = new ArrayList<>(iterations);
+        List<SecurityAccessEntry> accessEntries = new ArrayList<>(iterations);
+        for (int i = 0; i < iterations; ++i) {
+            ruleEntries.add(mockSecurityRuleEntry(documentSecurityReference));
+            accessEntries.add(mockSecurityAccessEntry(documentSecurityReference, userSecurityReference));
+        }
+        Set<SecurityEntry> knownEntries = new HashSet<>(ruleEntries);
+        knownEntries.addAll(accessEntries);
+
+        this.securityCache.add(ruleEntries.get(0));
+        AddAccessEntry(accessEntries.get(0));
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int i = 0; i < 3; ++i) {
+                readers.add(executor.submit(() -> {
+                    int hits = 0;
+                    while (running.get()) {
+                        SecurityEntry ruleEntry = this.securityCache.get(documentSecurityReference);
+                        SecurityEntry accessEntry =
+                            this.securityCache.get(userSecurityReference, documentSecurityReference);
+                        // Readers should either miss or get one of the inserted entries, never fail
+                        if (ruleEntry != null) {
+                            assertTrue(knownEntries.contains(ruleEntry));
+                            ++hits;
+                        }
+                        if (accessEntry != null) {
+                            assertTrue(knownEntries.contains(accessEntry));
+                            ++hits;
+                        }
+                    }
+                    return hits;
+                }));
+            }
+
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 1; i < iterations; ++i) {
+                    this.securityCache.remove(documentSecurityReference);
+                    this.securityCache.add(ruleEntries.get(i));
+                    AddAccessEntry(accessEntries.get(i));
+                }
+                return null;
+            });
+
+            try {
+                writer.get(1, TimeUnit.MINUTES);
+            } finally {
+                running.set(false);
+            }
+
+            for (Future<Integer> reader : readers) {
+                reader.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertSame(ruleEntries.get(iterations - 1), this.securityCache.get(documentSecurityReference));
+        assertSame(accessEntries.get(iterations - 1),
+            this.securityCache.get(userSecurityReference, documentSecurityReference));
+    }
 }
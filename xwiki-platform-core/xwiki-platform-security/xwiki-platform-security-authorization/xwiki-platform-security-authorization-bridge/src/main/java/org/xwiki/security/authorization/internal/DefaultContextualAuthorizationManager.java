@@ -42,6 +42,8 @@
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.debug.RequestProfile;
+import com.xpn.xwiki.internal.debug.RequestProfile.Metric;
 
 /**
  * Default implementation of the {@link ContextualAuthorizationManager}.
@@ -92,11 +94,19 @@ public void checkAccess(Right right, EntityReference entity) throws AccessDenied
 
     private void checkAccess(Right right, DocumentReference user, EntityReference entity) throws AccessDeniedException
     {
-        if (!checkPreAccess(right)) {
-            throw new AccessDeniedException(right, user, entity);
-        }
+        RequestProfile profile = RequestProfile.get(this.xcontextProvider.get());
+        long profileStart = profile != null ? profile.begin(Metric.RIGHT) : 0;
+        try {
+            if (!checkPreAccess(right)) {
+                throw new AccessDeniedException(right, user, entity);
+            }
 
-        this.authorizationManager.checkAccess(right, user, getFullReference(entity));
+            this.authorizationManager.checkAccess(right, user, getFullReference(entity));
+        } finally {
+            if (profile != null) {
+                profile.end(Metric.RIGHT, profileStart);
+            }
+        }
     }
 
     @Override
@@ -119,7 +129,16 @@ public boolean hasAccess(Right right, EntityReference entity)
 
     private boolean hasAccess(Right right, DocumentReference user, EntityReference entity)
     {
-        return checkPreAccess(right) && this.authorizationManager.hasAccess(right, user, getFullReference(entity));
+        RequestProfile profile = RequestProfile.get(this.xcontextProvider.get());
+        long profileStart = profile != null ? profile.begin(Metric.RIGHT) : 0;
+        try {
+            return checkPreAccess(right)
+                && this.authorizationManager.hasAccess(right, user, getFullReference(entity));
+        } finally {
+            if (profile != null) {
+                profile.end(Metric.RIGHT, profileStart);
+            }
+        }
     }
 
     private EntityReference getFullReference(EntityReference reference)
@@ -35,6 +35,7 @@
 import org.xwiki.bridge.event.DocumentCreatedEvent;
 import org.xwiki.bridge.event.DocumentDeletedEvent;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiBulkCopiedEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
@@ -120,7 +121,8 @@ public class DefaultSecurityCacheRulesInvalidatorListener extends AbstractEventL
      */
     public DefaultSecurityCacheRulesInvalidatorListener()
     {
-        super(NAME, new DocumentCreatedEvent(), new DocumentUpdatedEvent(), new DocumentDeletedEvent());
+        super(NAME, new DocumentCreatedEvent(), new DocumentUpdatedEvent(), new DocumentDeletedEvent(),
+            new WikiBulkCopiedEvent());
     }
 
     /**
@@ -179,6 +181,12 @@ public void invalidateGroupMembers(DocumentReference group, SecurityCache securi
     @Override
     public void onEvent(Event event, Object source, Object data)
     {
+        if (event instanceof WikiBulkCopiedEvent) {
+            onWikiBulkCopied((WikiBulkCopiedEvent) event);
+
+            return;
+        }
+
         XWikiDocument document = (XWikiDocument) source;
 
         DocumentReference ref = document.getDocumentReference();
@@ -205,6 +213,16 @@ public void onEvent(Event event, Object source, Object data)
         }
     }
 
+    private void onWikiBulkCopied(WikiBulkCopiedEvent event)
+    {
+        // The documents have been copied without sending any document event so remove the whole wiki
+        this.securityCache
+            .remove(this.securityReferenceFactory.newEntityReference(new WikiReference(event.getTargetWikiId())));
+
+        // Any right or group might have changed in the target wiki
+        this.observation.notify(new RightUpdatedEvent(), event.getTargetWikiId());
+    }
+
     private boolean shouldSendRightUpdatedEvent(XWikiDocument document, XWikiContext xcontext)
     {
         List<List<ObjectDiff>> documentDiff =
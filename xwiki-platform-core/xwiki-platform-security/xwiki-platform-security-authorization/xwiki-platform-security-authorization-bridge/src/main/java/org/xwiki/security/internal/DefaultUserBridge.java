@@ -25,9 +25,14 @@
 import java.util.HashSet;
 
 import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.context.Execution;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.WikiReference;
@@ -35,6 +40,8 @@
 import org.xwiki.security.SecurityReferenceFactory;
 import org.xwiki.security.UserSecurityReference;
 import org.xwiki.security.authorization.AuthorizationException;
+import org.xwiki.user.group.GroupException;
+import org.xwiki.user.group.GroupManager;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.user.api.XWikiGroupService;
@@ -57,6 +64,13 @@ public class DefaultUserBridge implements UserBridge
     @Inject
     private Execution execution;
 
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @Inject
+    private Logger logger;
+
     /**
      * @return the current {@code XWikiContext}
      */
@@ -76,7 +90,10 @@ public Collection<GroupSecurityReference> getAllGroupsFor(UserSecurityReference
             return Collections.emptyList();
         }
 
-        Collection<DocumentReference> groupRefs = getGroupsReferencesFor(wikiReference, userRef);
+        Collection<DocumentReference> groupRefs = getCachedGroupsReferencesFor(wikiReference, userRef);
+        if (groupRefs == null) {
+            groupRefs = getGroupsReferencesFor(wikiReference, userRef);
+        }
 
         Collection<GroupSecurityReference> groups = new ArrayList<GroupSecurityReference>(groupRefs.size());
         for (DocumentReference groupRef : groupRefs) {
@@ -87,7 +104,40 @@ public Collection<GroupSecurityReference> getAllGroupsFor(UserSecurityReference
     }
 
     /**
-     * Get all groups in a given wiki where a given user or group is a member of.
+     * Get the groups in a given wiki where a given user or group is a member of from the group manager.
+     * <p>
+     * Relying on the group manager cache is safe: it's updated by {@code GroupCacheInvalidationListener}, whose
+     * priority ({@code SecurityCache.CACHE_INVALIDATION_PRIORITY - 1}) makes it handle a document modification before
+     * the security cache is invalidated, and before any listener with a default priority which might check rights. So
+     * the groups used to compute again the rights are never older than the security cache invalidation.
+     *
+     * @param wiki the wiki to search groups containing the user/group
+     * @param userOrGroupDocumentReference the user/group document reference
+     * @return the list of group where the user/group is a member or {@code null} if the group manager is not available
+     */
+    private Collection<DocumentReference> getCachedGroupsReferencesFor(WikiReference wiki,
+        DocumentReference userOrGroupDocumentReference)
+    {
+        ComponentManager componentManager = this.componentManagerProvider.get();
+        if (componentManager.hasComponent(GroupManager.class)) {
+            try {
+                GroupManager groupManager = componentManager.getInstance(GroupManager.class);
+
+                return groupManager.getGroups(userOrGroupDocumentReference, wiki, false);
+            } catch (ComponentLookupException e) {
+                this.logger.debug("Failed to lookup the group manager", e);
+            } catch (GroupException e) {
+                this.logger.warn("Failed to get the groups of [{}] in wiki [{}] from the group manager: {}",
+                    userOrGroupDocumentReference, wiki, e.getMessage());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get all groups in a given wiki where a given user or group is a member of, without any cache. Used when the group
+     * manager is not available.
      *
      * @param wiki the wiki to search groups containing the user/group
      * @param userOrGroupDocumentReference the user/group document reference
@@ -112,12 +162,9 @@ private Collection<DocumentReference> getGroupsReferencesFor(WikiReference wiki,
             // We get the groups of the member via the group service but we make sure to not use the group service's
             // cache by calling the method with a limit and an offset.
             //
-            // We do not use the group service's cache because it might not have been refreshed yet (for example, it can
-            // happen when the security module is used inside a listener that reacts to the "SaveDocument" event just 
-            // before the XWikiGroupService listener is called). Because of this race condition, it is not a good idea
-            // to have a cache depending on an other cache.
-            //
-            // TODO: use a proper component to retrieve the groups of a member without any cache
+            // Contrary to the group manager cache, the group service's cache is not guaranteed to be refreshed before
+            // the security cache is invalidated (for example, when the security module is used inside a listener that
+            // reacts to the "SaveDocument" event just before the XWikiGroupService listener is called).
             final int nb = 1000;
             int i = 0;
             while (groupReferences.addAll(groupService.getAllGroupsReferencesForMember(userOrGroupDocumentReference,
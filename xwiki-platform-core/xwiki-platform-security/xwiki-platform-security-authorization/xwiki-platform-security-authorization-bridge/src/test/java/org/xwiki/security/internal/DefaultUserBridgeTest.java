@@ -0,0 +1,164 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.security.internal;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.GroupSecurityReference;
+import org.xwiki.security.SecurityReferenceFactory;
+import org.xwiki.security.UserSecurityReference;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.user.group.GroupException;
+import org.xwiki.user.group.GroupManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.user.api.XWikiGroupService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DefaultUserBridge}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class DefaultUserBridgeTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    private static final DocumentReference USER = new DocumentReference("wiki", "XWiki", "user");
+
+    private static final DocumentReference GROUP1 = new DocumentReference("wiki", "XWiki", "group1");
+
+    private static final DocumentReference GROUP2 = new DocumentReference("wiki", "XWiki", "group2");
+
+    @InjectMockComponents
+    private DefaultUserBridge bridge;
+
+    @MockComponent
+    private SecurityReferenceFactory factory;
+
+    @MockComponent
+    private Execution execution;
+
+    @MockComponent
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @Mock
+    private ComponentManager componentManager;
+
+    @Mock
+    private GroupManager groupManager;
+
+    @Mock
+    private XWikiGroupService groupService;
+
+    @Mock
+    private UserSecurityReference user;
+
+    @Mock
+    private GroupSecurityReference group1;
+
+    @Mock
+    private GroupSecurityReference group2;
+
+    private final XWikiContext xcontext = mock(XWikiContext.class);
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        when(this.componentManagerProvider.get()).thenReturn(this.componentManager);
+        when(this.componentManager.getInstance(GroupManager.class)).thenReturn(this.groupManager);
+
+        ExecutionContext executionContext = new ExecutionContext();
+        executionContext.setProperty(XWikiContext.EXECUTIONCONTEXT_KEY, this.xcontext);
+        when(this.execution.getContext()).thenReturn(executionContext);
+        XWiki xwiki = mock(XWiki.class);
+        when(this.xcontext.getWiki()).thenReturn(xwiki);
+        when(xwiki.getGroupService(this.xcontext)).thenReturn(this.groupService);
+
+        when(this.user.getOriginalReference()).thenReturn(USER);
+        when(this.factory.newGroupReference(GROUP1)).thenReturn(this.group1);
+        when(this.factory.newGroupReference(GROUP2)).thenReturn(this.group2);
+    }
+
+    private Set<GroupSecurityReference> getAllGroupsFor() throws Exception
+    {
+        return new HashSet<>(this.bridge.getAllGroupsFor(this.user, WIKI));
+    }
+
+    @Test
+    void getAllGroupsForWithGroupManager() throws Exception
+    {
+        when(this.componentManager.hasComponent(GroupManager.class)).thenReturn(true);
+        when(this.groupManager.getGroups(USER, WIKI, false)).thenReturn(List.of(GROUP1, GROUP2));
+
+        assertEquals(Set.of(this.group1, this.group2), getAllGroupsFor());
+
+        verifyNoInteractions(this.groupService);
+    }
+
+    @Test
+    void getAllGroupsForWithoutGroupManager() throws Exception
+    {
+        when(this.componentManager.hasComponent(GroupManager.class)).thenReturn(false);
+        when(this.groupService.getAllGroupsReferencesForMember(USER, 1000, 0, this.xcontext))
+            .thenReturn(List.of(GROUP1));
+
+        assertEquals(Set.of(this.group1), getAllGroupsFor());
+
+        verifyNoInteractions(this.groupManager);
+        verify(this.xcontext).setWikiId("wiki");
+    }
+
+    @Test
+    void getAllGroupsForWhenGroupManagerFails() throws Exception
+    {
+        when(this.componentManager.hasComponent(GroupManager.class)).thenReturn(true);
+        when(this.groupManager.getGroups(USER, WIKI, false)).thenThrow(new GroupException("error"));
+        when(this.groupService.getAllGroupsReferencesForMember(eq(USER), eq(1000), eq(0), any()))
+            .thenReturn(List.of(GROUP2));
+
+        assertEquals(Set.of(this.group2), getAllGroupsFor());
+    }
+}
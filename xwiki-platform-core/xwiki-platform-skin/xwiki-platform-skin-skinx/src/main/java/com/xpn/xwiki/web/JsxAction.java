@@ -126,6 +126,20 @@ protected String compress(String source, SxCompressor compressor, XWikiContext c
     {
         String output = super.compress(source, compressor, context);
 
+        publishSourceMap(compressor, context);
+
+        return output;
+    }
+
+    @Override
+    protected void reuseCompressed(CompressedContent compressed, XWikiContext context)
+    {
+        // The source map is not part of the cached content
+        publishSourceMap(compressed.getCompressor(), context);
+    }
+
+    private void publishSourceMap(SxCompressor compressor, XWikiContext context)
+    {
         // Save the source map generated by the compressor so that we can return it later when the source map is
         // requested by the browser's developer tools.
         if (compressor instanceof JsCompressor) {
@@ -140,8 +154,6 @@ protected String compress(String source, SxCompressor compressor, XWikiContext c
                 context.getResponse().setHeader("X-SourceMap", saveSourceMap(sourceMap, context));
             }
         }
-
-        return output;
     }
 
     /**
@@ -19,12 +19,24 @@
  */
 package com.xpn.xwiki.web.sx;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.stability.Unstable;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -58,14 +70,105 @@ public abstract class AbstractSxAction extends XWikiAction
     /** What http header parameter is used to specify when the cache should expire. */
     private static final String CACHE_EXPIRES_HEADER = "Expires";
 
-    /** The response will be sent to the browser as a byte array in this character set. */
-    private static final String RESPONSE_CHARACTER_SET = "UTF-8";
+    /** What http header parameter is used to identify the version of the content. */
+    private static final String ETAG_HEADER = "ETag";
+
+    /** What http header parameter is used by the browser to indicate the versions of the content it already has. */
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+
+    /** What http header parameter is used by the browser to indicate the encodings it supports. */
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+
+    /** What http header parameter is used to indicate the encoding of the content. */
+    private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+
+    /** What http header parameter is used to indicate on which request headers the content depends. */
+    private static final String VARY_HEADER = "Vary";
+
+    /** The only content encoding supported by the action. */
+    private static final String GZIP_ENCODING = "gzip";
+
+    /** The quality value indicating that an encoding is not acceptable. */
+    private static final Pattern REFUSED_QUALITY = Pattern.compile("q=0(\\.0*)?");
+
+    /** How many compressed extensions are kept in memory. */
+    private static final int COMPRESSED_CACHE_SIZE = 500;
+
+    /** How many seconds a compressed extension is kept in memory when not used, one day. */
+    private static final int COMPRESSED_CACHE_MAX_IDLE = 24 * 3600;
 
     /** If the user passes this parameter in the URL, we will look for the script in the jar files. */
     private static final String JAR_RESOURCE_REQUEST_PARAMETER = "resource";
 
     private DebugConfiguration debugConfiguration;
 
+    /** The (possibly minified) extensions, indexed by the hash of their source content. */
+    private Cache<CompressedContent> compressedCache;
+
+    private boolean compressedCacheInitialized;
+
+    /**
+     * The result of the compression of an extension content.
+     *
+     * @version $Id$
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    protected static class CompressedContent
+    {
+        private final byte[] content;
+
+        private final SxCompressor compressor;
+
+        private byte[] gzipContent;
+
+        /**
+         * @param content the compressed content, encoded in the response character set
+         * @param compressor the compressor which produced the content, {@code null} if the content is not minified
+         */
+        public CompressedContent(byte[] content, SxCompressor compressor)
+        {
+            this.content = content;
+            this.compressor = compressor;
+        }
+
+        /**
+         * @return the compressed content, encoded in the response character set
+         */
+        public byte[] getContent()
+        {
+            return this.content;
+        }
+
+        /**
+         * @return the content compressed with gzip
+         */
+        public synchronized byte[] getGzipContent()
+        {
+            if (this.gzipContent == null) {
+                ByteArrayOutputStream stream = new ByteArrayOutputStream(this.content.length / 2);
+                try (GZIPOutputStream gzipStream = new GZIPOutputStream(stream)) {
+                    gzipStream.write(this.content);
+                } catch (IOException e) {
+                    // Cannot happen when writing in memory
+                    throw new UncheckedIOException(e);
+                }
+                this.gzipContent = stream.toByteArray();
+            }
+
+            return this.gzipContent;
+        }
+
+        /**
+         * @return the compressor which produced the content, in the state it was right after the compression,
+         *         {@code null} if the content is not minified
+         */
+        public SxCompressor getCompressor()
+        {
+            return this.compressor;
+        }
+    }
+
     /** @return the logging object of the concrete subclass. */
     protected abstract Logger getLogger();
 
@@ -106,23 +209,140 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
             response.setHeader(CACHE_CONTROL_HEADER, "no-cache, no-store, must-revalidate");
         }
 
-        if (getDebugConfiguration().isMinify()) {
-            extensionContent = compress(extensionContent, sxType.getCompressor(), context);
+        boolean minify = getDebugConfiguration().isMinify();
+
+        // The content sent depends on the encodings supported by the browser
+        response.setHeader(VARY_HEADER, ACCEPT_ENCODING_HEADER);
+        boolean gzip = acceptsGzip(context.getRequest().getHeader(ACCEPT_ENCODING_HEADER));
+
+        // The generated content is identified by its hash, which allows to not send it again to a browser which already
+        // has it, even when it's dynamic, and to not compress it again when it did not change.
+        String hash = DigestUtils.sha256Hex(sxType.getContentType() + '\n' + minify + '\n' + extensionContent);
+        if (cachePolicy != CachePolicy.FORBID) {
+            // A strong ETag must be different for each encoding of the content
+            String etag = '"' + hash + (gzip ? "-" + GZIP_ENCODING : "") + '"';
+            response.setHeader(ETAG_HEADER, etag);
+
+            if (isNotModified(context.getRequest().getHeader(IF_NONE_MATCH_HEADER), etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+                return;
+            }
+        }
+
+        CompressedContent compressed = getCompressedContent(hash, extensionContent, sxType, minify, context);
+
+        byte[] content;
+        if (gzip) {
+            response.setHeader(CONTENT_ENCODING_HEADER, GZIP_ENCODING);
+            content = compressed.getGzipContent();
+        } else {
+            content = compressed.getContent();
         }
 
         try {
-            response.setContentLength(extensionContent.getBytes(RESPONSE_CHARACTER_SET).length);
-            response.getOutputStream().write(extensionContent.getBytes(RESPONSE_CHARACTER_SET));
+            response.setContentLength(content.length);
+            response.getOutputStream().write(content);
         } catch (IOException ex) {
             getLogger().warn("Failed to send SX content: [{}]", ex.getMessage());
         }
     }
 
+    private boolean isNotModified(String ifNoneMatch, String etag)
+    {
+        if (ifNoneMatch != null) {
+            for (String clientETag : StringUtils.split(ifNoneMatch, ',')) {
+                String trimmedETag = clientETag.trim();
+                if (trimmedETag.equals(etag) || trimmedETag.equals("*")) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private boolean acceptsGzip(String acceptEncoding)
+    {
+        if (acceptEncoding != null) {
+            for (String coding : StringUtils.split(acceptEncoding, ',')) {
+                String[] elements = StringUtils.split(coding, ';');
+                if (elements.length > 0 && GZIP_ENCODING.equalsIgnoreCase(elements[0].trim())) {
+                    // Make sure the encoding is not explicitly refused ("gzip;q=0")
+                    return elements.length == 1
+                        || !REFUSED_QUALITY.matcher(StringUtils.deleteWhitespace(elements[1])).matches();
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private CompressedContent getCompressedContent(String hash, String source, Extension sxType, boolean minify,
+        XWikiContext context)
+    {
+        Cache<CompressedContent> cache = getCompressedCache();
+
+        // The compressor result might depend on the current document (e.g. the name of the source in the JavaScript
+        // source map)
+        String key = hash + ':' + (context.getDoc() != null ? context.getDoc().getDocumentReference() : "");
+
+        CompressedContent compressed = cache != null ? cache.get(key) : null;
+        if (compressed == null) {
+            if (minify) {
+                SxCompressor compressor = sxType.getCompressor();
+                String compressedString = compress(source, compressor, context);
+                compressed = new CompressedContent(compressedString.getBytes(StandardCharsets.UTF_8), compressor);
+            } else {
+                compressed = new CompressedContent(source.getBytes(StandardCharsets.UTF_8), null);
+            }
+
+            if (cache != null) {
+                cache.set(key, compressed);
+            }
+        } else if (compressed.getCompressor() != null) {
+            reuseCompressed(compressed, context);
+        }
+
+        return compressed;
+    }
+
     protected String compress(String source, SxCompressor compressor, XWikiContext context)
     {
         return compressor.compress(source);
     }
 
+    /**
+     * Called when a previously compressed content is sent again instead of calling
+     * {@link #compress(String, SxCompressor, XWikiContext)}.
+     *
+     * @param compressed the cached result of the compression
+     * @param context the XWiki context when rendering the skin extension
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    protected void reuseCompressed(CompressedContent compressed, XWikiContext context)
+    {
+        // Nothing to do by default
+    }
+
+    private synchronized Cache<CompressedContent> getCompressedCache()
+    {
+        if (!this.compressedCacheInitialized) {
+            this.compressedCacheInitialized = true;
+
+            try {
+                this.compressedCache = Utils.getComponent(CacheManager.class)
+                    .createNewCache(new LRUCacheConfiguration("skinx.compressed." + getExtensionType().getClassName(),
+                        COMPRESSED_CACHE_SIZE, COMPRESSED_CACHE_MAX_IDLE));
+            } catch (CacheException e) {
+                getLogger().error("Failed to create the cache of compressed skin extensions", e);
+            }
+        }
+
+        return this.compressedCache;
+    }
+
     @Override
     public String render(XWikiContext context) throws XWikiException
     {
@@ -0,0 +1,283 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.web.sx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.internal.debug.DebugConfiguration;
+import com.xpn.xwiki.web.Utils;
+import com.xpn.xwiki.web.XWikiRequest;
+import com.xpn.xwiki.web.XWikiResponse;
+import com.xpn.xwiki.web.sx.SxSource.CachePolicy;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link AbstractSxAction}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class AbstractSxActionTest
+{
+    private static final String ETAG = "ETag";
+
+    private static final String IF_NONE_MATCH = "If-None-Match";
+
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    private final DebugConfiguration debugConfiguration = mock(DebugConfiguration.class);
+
+    private final SxCompressor compressor = mock(SxCompressor.class);
+
+    private final Extension extension = mock(Extension.class);
+
+    private final XWikiContext xcontext = mock(XWikiContext.class);
+
+    private final XWikiRequest request = mock(XWikiRequest.class);
+
+    private XWikiResponse response;
+
+    private ByteArrayOutputStream output;
+
+    private final Map<String, Object> cacheContent = new HashMap<>();
+
+    private final AbstractSxAction action = new AbstractSxAction()
+    {
+        @Override
+        protected Logger getLogger()
+        {
+            return LoggerFactory.getLogger(AbstractSxActionTest.class);
+        }
+
+        @Override
+        public Extension getExtensionType()
+        {
+            return extension;
+        }
+
+        @Override
+        protected DebugConfiguration getDebugConfiguration()
+        {
+            return debugConfiguration;
+        }
+    };
+
+    @BeforeEach
+    void beforeEach() throws Exception
+    {
+        Utils.setComponentManager(this.componentManager);
+
+        Cache<Object> cache = mock(Cache.class);
+        when(cache.get(anyString())).then(invocation -> this.cacheContent.get(invocation.getArgument(0)));
+        doAnswer(invocation -> this.cacheContent.put(invocation.getArgument(0), invocation.getArgument(1)))
+            .when(cache).set(anyString(), any());
+        when(this.cacheManager.createNewCache(any())).thenReturn(cache);
+
+        when(this.debugConfiguration.isMinify()).thenReturn(true);
+        when(this.extension.getClassName()).thenReturn("XWiki.TestExtension");
+        when(this.extension.getContentType()).thenReturn("text/javascript");
+        when(this.extension.getCompressor()).thenReturn(this.compressor);
+        when(this.compressor.compress(anyString())).then(invocation -> "min:" + invocation.getArgument(0));
+
+        when(this.xcontext.getRequest()).thenReturn(this.request);
+
+        resetResponse();
+    }
+
+    private void resetResponse() throws Exception
+    {
+        this.output = new ByteArrayOutputStream();
+        this.response = mock(XWikiResponse.class);
+        when(this.response.getOutputStream()).thenReturn(new ServletOutputStream()
+        {
+            @Override
+            public void write(int b)
+            {
+                output.write(b);
+            }
+
+            @Override
+            public boolean isReady()
+            {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener)
+            {
+                // Not needed
+            }
+        });
+        when(this.xcontext.getResponse()).thenReturn(this.response);
+    }
+
+    private SxSource source(String content)
+    {
+        SxSource source = mock(SxSource.class);
+        when(source.getContent()).thenReturn(content);
+        when(source.getCachePolicy()).thenReturn(CachePolicy.LONG);
+
+        return source;
+    }
+
+    private String render(SxSource source) throws Exception
+    {
+        resetResponse();
+
+        this.action.renderExtension(source, this.extension, this.xcontext);
+
+        ArgumentCaptor<String> etagCaptor = ArgumentCaptor.forClass(String.class);
+        verify(this.response).setHeader(eq(ETAG), etagCaptor.capture());
+
+        return etagCaptor.getValue();
+    }
+
+    @Test
+    void ifNoneMatchMatching() throws Exception
+    {
+        SxSource source = source("content");
+
+        String etag = render(source);
+        assertEquals("min:content", this.output.toString(StandardCharsets.UTF_8));
+
+        when(this.request.getHeader(IF_NONE_MATCH)).thenReturn("\"other\", " + etag);
+
+        assertEquals(etag, render(source));
+        verify(this.response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(this.response, never()).getOutputStream();
+        assertEquals(0, this.output.size());
+
+        // The content was compressed only once
+        verify(this.compressor, times(1)).compress(anyString());
+    }
+
+    @Test
+    void ifNoneMatchNotMatching() throws Exception
+    {
+        SxSource source = source("content");
+
+        when(this.request.getHeader(IF_NONE_MATCH)).thenReturn("\"other\"");
+
+        render(source);
+
+        verify(this.response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals("min:content", this.output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void acceptEncodingGzip() throws Exception
+    {
+        SxSource source = source("content");
+
+        String identityETag = render(source);
+        verify(this.response).setHeader("Vary", ACCEPT_ENCODING);
+        verify(this.response, never()).setHeader(eq(CONTENT_ENCODING), anyString());
+
+        when(this.request.getHeader(ACCEPT_ENCODING)).thenReturn("deflate, gzip;q=0.8, br");
+
+        String gzipETag = render(source);
+        verify(this.response).setHeader(CONTENT_ENCODING, "gzip");
+        assertNotEquals(identityETag, gzipETag);
+        byte[] gzipContent = this.output.toByteArray();
+        verify(this.response).setContentLength(gzipContent.length);
+        assertArrayEquals("min:content".getBytes(StandardCharsets.UTF_8),
+            IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(gzipContent))));
+
+        // The identity ETag does not match the gzip encoded content
+        when(this.request.getHeader(IF_NONE_MATCH)).thenReturn(identityETag);
+        render(source);
+        verify(this.response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+        // The content was compressed only once
+        verify(this.compressor, times(1)).compress(anyString());
+    }
+
+    @Test
+    void acceptEncodingGzipRefused() throws Exception
+    {
+        when(this.request.getHeader(ACCEPT_ENCODING)).thenReturn("gzip;q=0, br");
+
+        render(source("content"));
+
+        verify(this.response, never()).setHeader(eq(CONTENT_ENCODING), anyString());
+        assertEquals("min:content", this.output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void cacheInvalidatedWhenContentChanges() throws Exception
+    {
+        String etag1 = render(source("content1"));
+        assertEquals("min:content1", this.output.toString(StandardCharsets.UTF_8));
+
+        // The browser asks for the old version after the extension was modified
+        when(this.request.getHeader(IF_NONE_MATCH)).thenReturn(etag1);
+
+        String etag2 = render(source("content2"));
+        assertNotEquals(etag1, etag2);
+        verify(this.response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals("min:content2", this.output.toString(StandardCharsets.UTF_8));
+
+        verify(this.compressor).compress("content1");
+        verify(this.compressor).compress("content2");
+    }
+}
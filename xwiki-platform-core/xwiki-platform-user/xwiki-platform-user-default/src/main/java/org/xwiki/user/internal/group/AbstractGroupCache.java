@@ -19,9 +19,11 @@
  */
 package org.xwiki.user.internal.group;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -63,13 +65,19 @@ public abstract class AbstractGroupCache extends AbstractCacheEntryListener<Grou
     {
         private final String key;
 
+        private final DocumentReference reference;
+
+        private final Collection<String> wikis;
+
         private Collection<DocumentReference> direct;
 
         private Collection<DocumentReference> all;
 
-        GroupCacheEntry(String key)
+        GroupCacheEntry(String key, DocumentReference reference, Collection<String> wikis)
         {
             this.key = key;
+            this.reference = reference;
+            this.wikis = wikis;
         }
 
         /**
@@ -113,6 +121,15 @@ public Collection<DocumentReference> setAll(Collection<DocumentReference> all)
 
             return this.all;
         }
+
+        /**
+         * @param entity the reference of a direct entity
+         * @return true if the passed entity can be part of the direct entities of this entry
+         */
+        boolean isTargeted(DocumentReference entity)
+        {
+            return this.wikis == null || this.wikis.contains(entity.getWikiReference().getName());
+        }
     }
 
     @Inject
@@ -157,6 +174,12 @@ public void initialize() throws InitializationException
     }
 
     protected GroupCacheEntry getCacheEntry(String key, DocumentReference reference, boolean create)
+    {
+        return getCacheEntry(key, reference, null, create);
+    }
+
+    protected GroupCacheEntry getCacheEntry(String key, DocumentReference reference, Collection<String> wikis,
+        boolean create)
     {
         lockRead();
 
@@ -171,7 +194,7 @@ protected GroupCacheEntry getCacheEntry(String key, DocumentReference reference,
             lockWrite();
 
             try {
-                entry = new GroupCacheEntry(key);
+                entry = new GroupCacheEntry(key, reference, wikis);
                 this.cache.set(key, entry);
                 addToIndex(key, reference);
             } finally {
@@ -270,6 +293,75 @@ private void cleanDocumentCache(DocumentReference reference)
         }
     }
 
+    /**
+     * Update the cache after a change of the direct relations of the passed entity. The direct entities of the entries
+     * of the passed entity are patched instead of being loaded again and only the recursive entities of the entries
+     * depending on it are forgotten, so that they can be resolved again from the direct entities left in the cache.
+     * 
+     * @param reference the reference of the entity for which the direct relations changed
+     * @param added the entities now directly related to the passed entity
+     * @param removed the entities not directly related to the passed entity anymore
+     * @since 16.3.0RC1
+     */
+    public void updateCache(DocumentReference reference, Collection<DocumentReference> added,
+        Collection<DocumentReference> removed)
+    {
+        lockWrite();
+
+        try {
+            Set<String> keys = this.cacheDocumentIndex.get(reference);
+
+            if (keys != null) {
+                for (String key : new ArrayList<>(keys)) {
+                    GroupCacheEntry entry = this.cache.get(key);
+
+                    if (entry != null) {
+                        if (reference.equals(entry.reference)) {
+                            updateEntry(entry, added, removed);
+                        } else {
+                            updateEntry(entry, null, null);
+                        }
+                    }
+                }
+            }
+        } finally {
+            unlockWrite();
+        }
+    }
+
+    private void updateEntry(GroupCacheEntry entry, Collection<DocumentReference> added,
+        Collection<DocumentReference> removed)
+    {
+        // Replace the entry instead of modifying it since it might currently be resolved by another thread
+        GroupCacheEntry newEntry = new GroupCacheEntry(entry.key, entry.reference, entry.wikis);
+
+        Collection<DocumentReference> direct = entry.getDirect();
+        if (direct != null) {
+            if (added != null || removed != null) {
+                Set<DocumentReference> newDirect = new LinkedHashSet<>(direct);
+                if (removed != null) {
+                    removed.stream().filter(entry::isTargeted).forEach(newDirect::remove);
+                }
+                if (added != null) {
+                    added.stream().filter(entry::isTargeted).forEach(newDirect::add);
+                }
+                direct = newDirect;
+            }
+
+            newEntry.direct = Collections.unmodifiableCollection(direct);
+        }
+
+        this.cache.set(entry.key, newEntry);
+
+        // Update the index
+        cleanIndex(entry.key, entry.getAll());
+        cleanIndex(entry.key, entry.getDirect());
+        addToIndex(entry.key, entry.reference);
+        if (newEntry.direct != null) {
+            addToIndex(entry.key, newEntry.direct);
+        }
+    }
+
     /**
      * Remove anything related to the passed wiki from the cache.
      * 
@@ -29,11 +29,14 @@
 import javax.inject.Singleton;
 
 import org.apache.commons.lang3.StringUtils;
+import org.xwiki.bridge.event.AbstractWikiEvent;
 import org.xwiki.bridge.event.DocumentCreatedEvent;
 import org.xwiki.bridge.event.DocumentDeletedEvent;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiBulkCopiedEvent;
 import org.xwiki.bridge.event.WikiDeletedEvent;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.internal.reference.EntityReferenceFactory;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.WikiReference;
@@ -44,6 +47,7 @@
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.mandatory.XWikiGroupsDocumentInitializer;
 import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.user.api.XWikiRightService;
 
 /**
  * @version $Id$
@@ -64,6 +68,9 @@ public class GroupCacheInvalidationListener extends AbstractEventListener
     @Inject
     private DocumentReferenceResolver<String> resolver;
 
+    @Inject
+    private EntityReferenceFactory referenceFactory;
+
     @Inject
     private GroupsCache groupsCache;
 
@@ -75,15 +82,16 @@ public class GroupCacheInvalidationListener extends AbstractEventListener
      */
     public GroupCacheInvalidationListener()
     {
-        super(NAME, new WikiDeletedEvent(), new DocumentCreatedEvent(), new DocumentUpdatedEvent(),
-            new DocumentDeletedEvent());
+        super(NAME, new WikiDeletedEvent(), new WikiBulkCopiedEvent(), new DocumentCreatedEvent(),
+            new DocumentUpdatedEvent(), new DocumentDeletedEvent());
     }
 
     @Override
     public void onEvent(Event event, Object source, Object data)
     {
-        if (event instanceof WikiDeletedEvent) {
-            WikiReference wikiReference = new WikiReference(((WikiDeletedEvent) event).getWikiId());
+        if (event instanceof WikiDeletedEvent || event instanceof WikiBulkCopiedEvent) {
+            // The groups of the wiki have been removed, or copied without sending the document events
+            WikiReference wikiReference = new WikiReference(((AbstractWikiEvent) event).getWikiId());
             this.groupsCache.cleanCache(wikiReference.getName());
             this.membersCache.cleanCache(wikiReference.getName());
         } else {
@@ -92,16 +100,50 @@ public void onEvent(Event event, Object source, Object data)
 
             DocumentReference documentReference = newDocument.getDocumentReference();
 
-            // Remove the entity from the cache
-            this.groupsCache.cleanCache(documentReference);
-            this.membersCache.cleanCache(documentReference);
-
-            // Remove the previous and new group members from the cache
             Set<DocumentReference> previousMembers = getMembers(previousDocument);
             Set<DocumentReference> newMembers = getMembers(newDocument);
 
-            invalidate(previousMembers, newMembers);
-            invalidate(newMembers, previousMembers);
+            if (event instanceof DocumentUpdatedEvent && !isAllGroup(documentReference)) {
+                // Only the direct members of the group can have changed
+                update(documentReference, previousMembers, newMembers);
+            } else {
+                // Remove the entity from the cache
+                this.groupsCache.cleanCache(documentReference);
+                this.membersCache.cleanCache(documentReference);
+
+                // Remove the previous and new group members from the cache
+                invalidate(previousMembers, newMembers);
+                invalidate(newMembers, previousMembers);
+            }
+        }
+    }
+
+    private boolean isAllGroup(DocumentReference documentReference)
+    {
+        // The members of XWikiAllGroup can be implicit so they cannot be deduced from the document
+        return documentReference.getName().equals(XWikiRightService.ALLGROUP_GROUP);
+    }
+
+    private void update(DocumentReference group, Set<DocumentReference> previousMembers,
+        Set<DocumentReference> newMembers)
+    {
+        Set<DocumentReference> removedMembers = new HashSet<>(previousMembers);
+        removedMembers.removeAll(newMembers);
+        Set<DocumentReference> addedMembers = new HashSet<>(newMembers);
+        addedMembers.removeAll(previousMembers);
+
+        if (!removedMembers.isEmpty() || !addedMembers.isEmpty()) {
+            // Update the members of the group (and forget the recursive members of its parents)
+            this.membersCache.updateCache(group, addedMembers, removedMembers);
+
+            // Update the groups of the added and removed members (and forget the recursive groups of their members)
+            Set<DocumentReference> groups = Set.of(group);
+            for (DocumentReference member : removedMembers) {
+                this.groupsCache.updateCache(member, null, groups);
+            }
+            for (DocumentReference member : addedMembers) {
+                this.groupsCache.updateCache(member, groups, null);
+            }
         }
     }
 
@@ -130,7 +172,8 @@ private Set<DocumentReference> getMembers(XWikiDocument document)
             if (memberObject != null) {
                 String memberString = memberObject.getStringValue("member");
                 if (StringUtils.isNotEmpty(memberString)) {
-                    members.add(this.resolver.resolve(memberString, document.getDocumentReference()));
+                    members.add(this.referenceFactory
+                        .getReference(this.resolver.resolve(memberString, document.getDocumentReference())));
                 }
             }
         }
@@ -74,7 +74,7 @@ public GroupCacheEntry getCacheEntry(DocumentReference reference, Collection<Str
     {
         String key = toKey(reference, wikis);
 
-        return getCacheEntry(key, reference, create);
+        return getCacheEntry(key, reference, wikis, create);
     }
 
 }
@@ -0,0 +1,181 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.user.internal.group;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiBulkCopiedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.model.internal.reference.EntityReferenceFactory;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.mandatory.XWikiGroupsDocumentInitializer;
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link GroupCacheInvalidationListener}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+class GroupCacheInvalidationListenerTest
+{
+    private static final DocumentReference GROUP = new DocumentReference("wiki", "XWiki", "group");
+
+    private static final DocumentReference ALL_GROUP = new DocumentReference("wiki", "XWiki", "XWikiAllGroup");
+
+    private static final DocumentReference USER1 = new DocumentReference("wiki", "XWiki", "user1");
+
+    private static final DocumentReference USER2 = new DocumentReference("wiki", "XWiki", "user2");
+
+    @InjectMockComponents
+    private GroupCacheInvalidationListener listener;
+
+    @MockComponent
+    private DocumentReferenceResolver<String> resolver;
+
+    @MockComponent
+    private EntityReferenceFactory referenceFactory;
+
+    @MockComponent
+    private GroupsCache groupsCache;
+
+    @MockComponent
+    private MembersCache membersCache;
+
+    @BeforeEach
+    void beforeEach()
+    {
+        when(this.resolver.resolve(any(), any())).then(
+            invocation -> new DocumentReference("wiki", "XWiki", invocation.<String>getArgument(0)));
+        when(this.referenceFactory.getReference(any())).then(invocation -> invocation.getArgument(0));
+    }
+
+    private XWikiDocument mockGroupDocument(DocumentReference reference, DocumentReference... members)
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(reference);
+
+        List<BaseObject> memberObjects = new ArrayList<>();
+        for (DocumentReference member : members) {
+            BaseObject memberObject = mock(BaseObject.class);
+            when(memberObject.getStringValue("member")).thenReturn(member.getName());
+            memberObjects.add(memberObject);
+        }
+        // An empty member object is added to the group documents
+        memberObjects.add(mock(BaseObject.class));
+        when(document.getXObjects(XWikiGroupsDocumentInitializer.XWIKI_GROUPS_DOCUMENT_REFERENCE))
+            .thenReturn(memberObjects);
+
+        return document;
+    }
+
+    private void updateGroup(DocumentReference group, DocumentReference[] previousMembers,
+        DocumentReference... newMembers)
+    {
+        XWikiDocument document = mockGroupDocument(group, newMembers);
+        XWikiDocument previousDocument = mockGroupDocument(group, previousMembers);
+        when(document.getOriginalDocument()).thenReturn(previousDocument);
+
+        this.listener.onEvent(new DocumentUpdatedEvent(group), document, null);
+    }
+
+    @Test
+    void onMemberAdded()
+    {
+        updateGroup(GROUP, new DocumentReference[] { USER1 }, USER1, USER2);
+
+        verify(this.membersCache).updateCache(GROUP, Set.of(USER2), Set.of());
+        verify(this.groupsCache).updateCache(USER2, Set.of(GROUP), null);
+        verify(this.groupsCache, never()).cleanCache(any(DocumentReference.class));
+        verify(this.membersCache, never()).cleanCache(any(DocumentReference.class));
+    }
+
+    @Test
+    void onMemberRemoved()
+    {
+        updateGroup(GROUP, new DocumentReference[] { USER1, USER2 }, USER1);
+
+        verify(this.membersCache).updateCache(GROUP, Set.of(), Set.of(USER2));
+        verify(this.groupsCache).updateCache(USER2, null, Set.of(GROUP));
+        verify(this.groupsCache, never()).updateCache(eq(USER1), any(), any());
+        verify(this.groupsCache, never()).cleanCache(any(DocumentReference.class));
+        verify(this.membersCache, never()).cleanCache(any(DocumentReference.class));
+    }
+
+    @Test
+    void onMembersUnchanged()
+    {
+        updateGroup(GROUP, new DocumentReference[] { USER1 }, USER1);
+
+        verifyNoMoreInteractions(this.groupsCache, this.membersCache);
+    }
+
+    @Test
+    void onAllGroupMemberAdded()
+    {
+        updateGroup(ALL_GROUP, new DocumentReference[] { USER1 }, USER1, USER2);
+
+        // The members of XWikiAllGroup can be implicit, so the caches are invalidated instead of being updated
+        verify(this.groupsCache).cleanCache(ALL_GROUP);
+        verify(this.membersCache).cleanCache(ALL_GROUP);
+        verify(this.groupsCache).cleanCache(USER2);
+        verify(this.membersCache).cleanCache(USER2);
+        verify(this.groupsCache, never()).updateCache(any(), any(), any());
+        verify(this.membersCache, never()).updateCache(any(), any(), any());
+    }
+
+    @Test
+    void onWikiDeleted()
+    {
+        this.listener.onEvent(new WikiDeletedEvent("wiki"), "wiki", null);
+
+        verify(this.groupsCache).cleanCache("wiki");
+        verify(this.membersCache).cleanCache("wiki");
+    }
+
+    @Test
+    void onWikiBulkCopied()
+    {
+        this.listener.onEvent(new WikiBulkCopiedEvent("template", "wiki"), "wiki", null);
+
+        verify(this.groupsCache).cleanCache("wiki");
+        verify(this.membersCache).cleanCache("wiki");
+        verifyNoMoreInteractions(this.groupsCache, this.membersCache);
+    }
+}
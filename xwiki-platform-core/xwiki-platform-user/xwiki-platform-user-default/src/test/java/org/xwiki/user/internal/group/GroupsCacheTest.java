@@ -67,6 +67,8 @@
     private final static DocumentReference GROUP2 =
         new DocumentReference("groupwiki2", "groupspace2", "groupdocument2");
 
+    private final static DocumentReference GROUP3 = new DocumentReference("wiki1", "groupspace3", "groupdocument3");
+
     private final static List<String> WIKIS = Arrays.asList("wiki1", "wiki2");
 
     @BeforeComponent
@@ -191,4 +193,58 @@ public void cleanCacheWiki()
 
         assertNotNull(getCacheEntry(false));
     }
+
+    @Test
+    void updateCache()
+    {
+        // Update the user
+
+        fillCache();
+
+        this.groupsCache.updateCache(USER, List.of(GROUP3, GROUP2), null);
+
+        GroupCacheEntry entry = getCacheEntry(false);
+        assertNotNull(entry);
+        // GROUP2 is not located in one of the entry wikis
+        assertEquals(List.of(GROUP1, GROUP3), new ArrayList<>(entry.getDirect()));
+        assertNull(entry.getAll());
+
+        // The index is kept up to date
+
+        this.groupsCache.cleanCache(GROUP3);
+
+        assertNull(getCacheEntry(false));
+
+        fillCache();
+
+        this.groupsCache.updateCache(USER, List.of(GROUP3), null);
+        this.groupsCache.updateCache(USER, null, List.of(GROUP3));
+
+        entry = getCacheEntry(false);
+        assertEquals(List.of(GROUP1), new ArrayList<>(entry.getDirect()));
+
+        this.groupsCache.cleanCache(GROUP1);
+
+        assertNull(getCacheEntry(false));
+
+        // Update a recursive group
+
+        fillCache();
+
+        this.groupsCache.updateCache(GROUP2, List.of(GROUP3), null);
+
+        entry = getCacheEntry(false);
+        assertNotNull(entry);
+        assertEquals(List.of(GROUP1), new ArrayList<>(entry.getDirect()));
+        assertNull(entry.getAll());
+
+        // Update an unrelated entity
+
+        fillCache();
+
+        this.groupsCache.updateCache(GROUP3, List.of(GROUP1), null);
+
+        entry = getCacheEntry(false);
+        assertEquals(List.of(GROUP1, GROUP2), new ArrayList<>(entry.getAll()));
+    }
 }
@@ -20,6 +20,7 @@
 package org.xwiki.wiki.configuration;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Configuration options for the Wiki module.
@@ -45,4 +46,26 @@ default boolean shouldCreateDatabase()
     {
         return true;
     }
+
+    /**
+     * @return {@code true} if the documents of a template wiki should be copied in bulk when provisioning a new wiki,
+     *         i.e. loaded and saved in batches without sending the events of each copied document, a single
+     *         {@code WikiBulkCopiedEvent} being sent at the end instead. Default is false.
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    default boolean isBulkCopyEnabled()
+    {
+        return false;
+    }
+
+    /**
+     * @return the number of documents to load at once when copying a wiki in bulk. Default is 100.
+     * @since 16.3.0RC1
+     */
+    @Unstable
+    default int getBulkCopyBatchSize()
+    {
+        return 100;
+    }
 }
@@ -63,4 +63,24 @@ public boolean shouldCreateDatabase()
     {
         return this.configuration.getProperty(PREFIX + "createDatabase", true);
     }
+
+    /**
+     * @since 16.3.0RC1
+     */
+    @Override
+    public boolean isBulkCopyEnabled()
+    {
+        return this.configuration.getProperty(PREFIX + "copy.bulk", false);
+    }
+
+    /**
+     * @since 16.3.0RC1
+     */
+    @Override
+    public int getBulkCopyBatchSize()
+    {
+        int batchSize = this.configuration.getProperty(PREFIX + "copy.bulk.batchSize", 100);
+
+        return batchSize > 0 ? batchSize : 100;
+    }
 }
@@ -19,28 +19,38 @@
  */
 package org.xwiki.wiki.internal.provisioning;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.LocaleUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
+import org.xwiki.bridge.event.WikiBulkCopiedEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.WikiReference;
+import org.xwiki.observation.ObservationManager;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryManager;
+import org.xwiki.wiki.configuration.WikiConfiguration;
 import org.xwiki.wiki.manager.WikiManagerException;
 import org.xwiki.wiki.provisioning.WikiCopier;
 
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
 
 /**
  * Default implementation for {@link WikiCopier}.
@@ -65,11 +75,27 @@ public class DefaultWikiCopier implements WikiCopier
     @Inject
     private JobProgressManager progress;
 
+    @Inject
+    private WikiConfiguration configuration;
+
+    @Inject
+    private ObservationManager observation;
+
     @Inject
     private Logger logger;
 
     @Override
     public void copyDocuments(String fromWikiId, String toWikiId, boolean withHistory) throws WikiManagerException
+    {
+        if (this.configuration.isBulkCopyEnabled()) {
+            copyDocumentsInBulk(fromWikiId, toWikiId, withHistory);
+        } else {
+            copyDocumentsOneByOne(fromWikiId, toWikiId, withHistory);
+        }
+    }
+
+    private void copyDocumentsOneByOne(String fromWikiId, String toWikiId, boolean withHistory)
+        throws WikiManagerException
     {
         XWikiContext context = xcontextProvider.get();
         XWiki xwiki = context.getWiki();
@@ -126,6 +152,157 @@ public void copyDocuments(String fromWikiId, String toWikiId, boolean withHistor
         }
     }
 
+    /**
+     * Copy the documents in batches, saving them directly in the store without sending the document events (which is
+     * what takes most of the time when copying a big wiki since each of them can trigger many listeners) and send a
+     * single {@link WikiBulkCopiedEvent} at the end instead.
+     * <p>
+     * Documents which already exist in the target wiki (e.g. the mandatory documents initialized when the wiki was
+     * created) are copied using the standard API so that the existing document is properly replaced.
+     */
+    private void copyDocumentsInBulk(String fromWikiId, String toWikiId, boolean withHistory)
+        throws WikiManagerException
+    {
+        XWikiContext context = xcontextProvider.get();
+        XWiki xwiki = context.getWiki();
+
+        this.progress.pushLevelProgress(3, this);
+
+        String currentWikiId = context.getWikiId();
+        try {
+            // Get documents
+
+            this.progress.startStep(this, "Get documents to copy");
+
+            Query query =
+                queryManager.createQuery("select doc.fullName, doc.language from Document as doc", Query.XWQL);
+            query.setWiki(fromWikiId);
+            List<Object[]> documents = query.execute();
+
+            Query existingQuery = queryManager.createQuery("select distinct doc.fullName from Document as doc",
+                Query.XWQL);
+            existingQuery.setWiki(toWikiId);
+            Set<String> existingDocuments = new HashSet<>(existingQuery.<String>execute());
+
+            this.progress.endStep(this);
+
+            // Copy documents
+
+            this.progress.startStep(this, "Copy documents");
+
+            WikiReference fromWikiReference = new WikiReference(fromWikiId);
+            WikiReference toWikiReference = new WikiReference(toWikiId);
+            Set<String> replacedDocuments = new LinkedHashSet<>();
+            int batchSize = this.configuration.getBulkCopyBatchSize();
+
+            this.progress.pushLevelProgress((documents.size() + batchSize - 1) / batchSize, this);
+
+            try {
+                for (int start = 0; start < documents.size(); start += batchSize) {
+                    this.progress.startStep(this);
+
+                    List<DocumentReference> batch = new ArrayList<>(batchSize);
+                    for (Object[] document : documents.subList(start,
+                        Math.min(start + batchSize, documents.size()))) {
+                        String documentFullName = (String) document[0];
+                        if (existingDocuments.contains(documentFullName)) {
+                            replacedDocuments.add(documentFullName);
+                        } else {
+                            DocumentReference origDocReference =
+                                documentReferenceResolver.resolve(documentFullName, fromWikiReference);
+                            String language = (String) document[1];
+                            batch.add(StringUtils.isEmpty(language) ? origDocReference
+                                : new DocumentReference(origDocReference, LocaleUtils.toLocale(language)));
+                        }
+                    }
+
+                    for (XWikiDocument origDocument : xwiki.getDocuments(batch, context)) {
+                        copyDocument(origDocument, toWikiReference, withHistory, context);
+                    }
+
+                    this.progress.endStep(this);
+                }
+            } finally {
+                this.progress.popLevelProgress(this);
+                this.progress.endStep(this);
+            }
+
+            // Replace existing documents
+
+            this.progress.startStep(this, "Replace existing documents");
+            this.progress.pushLevelProgress(replacedDocuments.size(), this);
+
+            try {
+                for (String documentFullName : replacedDocuments) {
+                    this.progress.startStep(this);
+
+                    DocumentReference origDocReference =
+                        documentReferenceResolver.resolve(documentFullName, fromWikiReference);
+                    DocumentReference newDocReference = origDocReference.setWikiReference(toWikiReference);
+
+                    logger.info("Copying document [{}] to [{}].", origDocReference, newDocReference);
+                    xwiki.copyDocument(origDocReference, newDocReference, null, !withHistory, true, context);
+                    logger.info("Done copying document [{}] to [{}].", origDocReference, newDocReference);
+
+                    this.progress.endStep(this);
+                }
+            } finally {
+                this.progress.popLevelProgress(this);
+                this.progress.endStep(this);
+            }
+
+            // Let the listeners know about the copied documents
+            context.setWikiId(toWikiId);
+            this.observation.notify(new WikiBulkCopiedEvent(fromWikiId, toWikiId), toWikiId, context);
+        } catch (QueryException e) {
+            WikiManagerException thrownException =
+                new WikiManagerException("Unable to get the list of wiki documents to copy.", e);
+            logger.error(thrownException.getMessage(), thrownException);
+            throw thrownException;
+        } catch (XWikiException e) {
+            WikiManagerException thrownException = new WikiManagerException("Failed to copy documents.", e);
+            logger.error(thrownException.getMessage(), thrownException);
+            throw thrownException;
+        } finally {
+            context.setWikiId(currentWikiId);
+            this.progress.popLevelProgress(this);
+        }
+    }
+
+    private void copyDocument(XWikiDocument origDocument, WikiReference toWikiReference, boolean withHistory,
+        XWikiContext context) throws XWikiException
+    {
+        if (origDocument.isNew()) {
+            // The document has been deleted in the meantime
+            return;
+        }
+
+        DocumentReference origDocReference = origDocument.getDocumentReference();
+        DocumentReference newDocReference = origDocReference.setWikiReference(toWikiReference);
+
+        logger.debug("Copying document [{}] to [{}].", origDocument.getDocumentReferenceWithLocale(),
+            newDocReference);
+
+        XWikiDocument newDocument = origDocument.copyDocument(newDocReference, withHistory, context);
+
+        if (withHistory) {
+            // We don't want to trigger a new version otherwise the version number will be wrong.
+            newDocument.setMetaDataDirty(false);
+            newDocument.setContentDirty(false);
+        } else {
+            // Reset the version
+            newDocument.setRCSVersion(null);
+            newDocument.setMetaDataDirty(true);
+        }
+
+        newDocument.setComment("Copied from " + origDocReference);
+        newDocument.setMinorEdit(false);
+
+        // Save directly in the store to not send any document event
+        context.setWikiId(toWikiReference.getName());
+        context.getWiki().getStore().saveXWikiDoc(newDocument, context);
+    }
+
     @Override
     public void copyDeletedDocuments(String fromWikiId, String toWikiId) throws WikiManagerException
     {
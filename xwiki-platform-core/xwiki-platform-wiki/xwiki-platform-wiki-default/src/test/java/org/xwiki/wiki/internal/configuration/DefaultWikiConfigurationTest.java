@@ -26,6 +26,8 @@
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
 /**
@@ -57,4 +59,24 @@ public void getAliasSuffix() throws Exception
         when(configuration.getProperty("wiki.alias.suffix", "")).thenReturn("blabla.org");
         assertEquals("blabla.org", mocker.getComponentUnderTest().getAliasSuffix());
     }
+
+    @Test
+    public void isBulkCopyEnabled() throws Exception
+    {
+        when(configuration.getProperty("wiki.copy.bulk", false)).thenReturn(true);
+        assertTrue(mocker.getComponentUnderTest().isBulkCopyEnabled());
+
+        when(configuration.getProperty("wiki.copy.bulk", false)).thenReturn(false);
+        assertFalse(mocker.getComponentUnderTest().isBulkCopyEnabled());
+    }
+
+    @Test
+    public void getBulkCopyBatchSize() throws Exception
+    {
+        when(configuration.getProperty("wiki.copy.bulk.batchSize", 100)).thenReturn(42);
+        assertEquals(42, mocker.getComponentUnderTest().getBulkCopyBatchSize());
+
+        when(configuration.getProperty("wiki.copy.bulk.batchSize", 100)).thenReturn(0);
+        assertEquals(100, mocker.getComponentUnderTest().getBulkCopyBatchSize());
+    }
 }
@@ -21,6 +21,7 @@
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 import javax.inject.Provider;
 
@@ -29,19 +30,28 @@
 import org.junit.Test;
 import org.mockito.InOrder;
 import org.slf4j.Logger;
+import org.xwiki.bridge.event.WikiBulkCopiedEvent;
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.WikiReference;
+import org.xwiki.observation.ObservationManager;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryManager;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
+import org.xwiki.wiki.configuration.WikiConfiguration;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.store.XWikiStoreInterface;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -129,4 +139,87 @@ public void copyDocuments() throws Exception
 
         inOrder.verify(progress).popLevelProgress(mocker.getComponentUnderTest());
     }
+
+    private XWikiDocument mockDocument(DocumentReference reference, Locale locale, DocumentReference copyReference)
+        throws Exception
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(reference);
+        when(document.getDocumentReferenceWithLocale())
+            .thenReturn(locale != null ? new DocumentReference(reference, locale) : reference);
+
+        XWikiDocument copy = mock(XWikiDocument.class);
+        when(document.copyDocument(copyReference, false, this.xcontext)).thenReturn(copy);
+
+        return document;
+    }
+
+    @Test
+    public void copyDocumentsInBulk() throws Exception
+    {
+        WikiConfiguration configuration = mocker.getInstance(WikiConfiguration.class);
+        when(configuration.isBulkCopyEnabled()).thenReturn(true);
+        when(configuration.getBulkCopyBatchSize()).thenReturn(2);
+
+        XWikiStoreInterface store = mock(XWikiStoreInterface.class);
+        when(xwiki.getStore()).thenReturn(store);
+
+        // Mocks
+        Query query = mock(Query.class);
+        when(queryManager.createQuery("select doc.fullName, doc.language from Document as doc", Query.XWQL))
+            .thenReturn(query);
+        List<Object[]> documentList = Arrays.asList(new Object[] { "Space.Doc1", "" },
+            new Object[] { "Space.Doc1", "fr" }, new Object[] { "XWiki.XWikiPreferences", "" },
+            new Object[] { "Space.Doc2", "" });
+        when(query.<Object[]>execute()).thenReturn(documentList);
+
+        Query existingQuery = mock(Query.class);
+        when(queryManager.createQuery("select distinct doc.fullName from Document as doc", Query.XWQL))
+            .thenReturn(existingQuery);
+        when(existingQuery.<String>execute()).thenReturn(Arrays.asList("XWiki.XWikiPreferences"));
+
+        WikiReference fromWikiReference = new WikiReference("wikiA");
+        DocumentReference docRef1 = new DocumentReference("wikiA", "Space", "Doc1");
+        DocumentReference docRef2 = new DocumentReference("wikiA", "Space", "Doc2");
+        DocumentReference preferencesRef = new DocumentReference("wikiA", "XWiki", "XWikiPreferences");
+        DocumentReference copydocRef1 = new DocumentReference("wikiB", "Space", "Doc1");
+        DocumentReference copydocRef2 = new DocumentReference("wikiB", "Space", "Doc2");
+        DocumentReference copyPreferencesRef = new DocumentReference("wikiB", "XWiki", "XWikiPreferences");
+        when(documentReferenceResolver.resolve(eq("Space.Doc1"), eq(fromWikiReference))).thenReturn(docRef1);
+        when(documentReferenceResolver.resolve(eq("Space.Doc2"), eq(fromWikiReference))).thenReturn(docRef2);
+        when(documentReferenceResolver.resolve(eq("XWiki.XWikiPreferences"), eq(fromWikiReference)))
+            .thenReturn(preferencesRef);
+
+        XWikiDocument doc1 = mockDocument(docRef1, null, copydocRef1);
+        XWikiDocument doc1fr = mockDocument(docRef1, Locale.FRENCH, copydocRef1);
+        XWikiDocument doc2 = mockDocument(docRef2, null, copydocRef2);
+        when(xwiki.getDocuments(Arrays.asList(docRef1, new DocumentReference(docRef1, Locale.FRENCH)), xcontext))
+            .thenReturn(Arrays.asList(doc1, doc1fr));
+        when(xwiki.getDocuments(Arrays.asList(docRef2), xcontext)).thenReturn(Arrays.asList(doc2));
+
+        // Test
+        mocker.getComponentUnderTest().copyDocuments("wikiA", "wikiB", false);
+
+        // Verify
+        verify(query).setWiki("wikiA");
+        verify(existingQuery).setWiki("wikiB");
+
+        XWikiDocument copy1 = doc1.copyDocument(copydocRef1, false, xcontext);
+        XWikiDocument copy1fr = doc1fr.copyDocument(copydocRef1, false, xcontext);
+        XWikiDocument copy2 = doc2.copyDocument(copydocRef2, false, xcontext);
+        verify(copy1).setRCSVersion(null);
+        verify(copy1).setComment("Copied from " + docRef1);
+        verify(store).saveXWikiDoc(copy1, xcontext);
+        verify(store).saveXWikiDoc(copy1fr, xcontext);
+        verify(store).saveXWikiDoc(copy2, xcontext);
+
+        // The documents already existing in the target wiki are copied using the standard API
+        verify(xwiki).copyDocument(preferencesRef, copyPreferencesRef, null, true, true, xcontext);
+        verify(xwiki, never()).copyDocument(eq(docRef1), any(DocumentReference.class), eq(null), anyBoolean(),
+            anyBoolean(), eq(xcontext));
+
+        ObservationManager observation = mocker.getInstance(ObservationManager.class);
+        verify(observation).notify(argThat((WikiBulkCopiedEvent event) -> "wikiA".equals(event.getSourceWikiId())
+            && "wikiB".equals(event.getTargetWikiId())), eq("wikiB"), eq(xcontext));
+    }
 }